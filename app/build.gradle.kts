@@ -1,9 +1,15 @@
+import com.example.filament_android_demo.buildtools.PreprocessGlbTask
+
 plugins {
     alias(libs.plugins.android.application)
     alias(libs.plugins.kotlin.android)
     alias(libs.plugins.kotlin.compose)
 }
 
+// Mesh nodes of the avatar that are shown. The build-time preprocessor strips the others, and ModelRender
+// filters by the same list at runtime through BuildConfig.AVATAR_KEEP_NODES.
+val avatarKeepNodes = listOf("Wolf3D_Head", "Wolf3D_Teeth", "EyeLeft", "EyeRight", "Wolf3D_Hair") // , "Wolf3D_Glasses"
+
 android {
     namespace = "com.example.filament_android_demo"
     compileSdk = 35
@@ -16,6 +22,7 @@ android {
         versionName = "1.0"
 
         testInstrumentationRunner = "androidx.test.runner.AndroidJUnitRunner"
+        buildConfigField("String[]", "AVATAR_KEEP_NODES", avatarKeepNodes.joinToString(", ", "{", "}") { "\"$it\"" })
     }
 
     buildTypes {
@@ -36,6 +43,26 @@ android {
     }
     buildFeatures {
         compose = true
+        buildConfig = true
+    }
+    androidResources {
+        // Keep models and their metadata sidecars uncompressed in the APK so they can be memory-mapped.
+        noCompress += listOf("glb", "sidecar")
+    }
+}
+
+// Offline avatar preprocessing: the full-body source model lives in src/main/models (not packaged);
+// only the stripped head model and its sidecar end up in the APK assets.
+val preprocessAvatar = tasks.register<PreprocessGlbTask>("preprocessAvatar") {
+    sourceModel.from("src/main/models/man1.glb")
+    outputName.set("man1.glb")
+    keepNodes.set(avatarKeepNodes)
+    outputDir.set(layout.buildDirectory.dir("generated/avatarAssets"))
+}
+
+androidComponents {
+    onVariants { variant ->
+        variant.sources.assets?.addGeneratedSourceDirectory(preprocessAvatar, PreprocessGlbTask::getOutputDir)
     }
 }
 
@@ -0,0 +1,127 @@
+package com.example.filament_android_demo
+
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertNull
+import org.junit.Assert.assertSame
+import org.junit.Assert.assertThrows
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import org.junit.runner.RunWith
+import java.util.concurrent.CompletableFuture
+import java.util.concurrent.ExecutionException
+import java.util.function.IntSupplier
+
+/**
+ * Latest-wins 帧调度：等待中的请求被新请求取代、空出的渲染槽交给最新的请求、取消和失败分别计数。
+ * 渲染器只记录请求并返回一个由测试手动完成的 future，整个过程在测试线程上同步进行。
+ */
+@RunWith(AndroidJUnit4::class)
+class LatestFrameSchedulerTest {
+    private val started = mutableListOf<Int?>()
+    private val rendering = mutableListOf<CompletableFuture<RenderedFrame>>()
+
+    private fun scheduler(maxInFlight: Int) = LatestFrameScheduler<Int>(
+        LatestFrameScheduler.FrameRenderer<Int> { request ->
+            started.add(request)
+            CompletableFuture<RenderedFrame>().also { rendering.add(it) }
+        },
+        IntSupplier { maxInFlight })
+
+    @Test
+    fun pendingRequestIsSupersededByANewerOne() {
+        val scheduler = scheduler(1)
+        val first = scheduler.submit(1)
+        val second = scheduler.submit(2)
+        val third = scheduler.submit(3)
+
+        assertEquals(listOf(1), started)
+        assertThrows(FrameSkippedException::class.java) { second.getNow(null) }
+        assertFalse(third.isDone)
+        assertEquals(2, scheduler.stats.queueDepth)
+
+        rendering[0].complete(null)
+        assertTrue(first.isDone)
+        assertEquals(listOf(1, 3), started) // The freed slot goes straight to the latest request
+        rendering[1].complete(null)
+        assertTrue(third.isDone)
+
+        val stats = scheduler.stats
+        assertEquals(3L, stats.submitted)
+        assertEquals(2L, stats.rendered)
+        assertEquals(1L, stats.skipped)
+        assertEquals(0, stats.queueDepth)
+        assertEquals(2, stats.maxQueueDepth)
+    }
+
+    @Test
+    fun framesCompleteInTheOrderTheRendererFinishesThem() {
+        val scheduler = scheduler(2)
+        val first = scheduler.submit(1)
+        val second = scheduler.submit(2)
+        val third = scheduler.submit(3)
+        assertEquals(listOf(1, 2), started)
+
+        // The second frame finishes first; its slot starts the pending request while the first is still rendering.
+        rendering[1].complete(null)
+        assertTrue(second.isDone)
+        assertFalse(first.isDone)
+        assertEquals(listOf(1, 2, 3), started)
+
+        rendering[0].complete(null)
+        rendering[2].complete(null)
+        assertTrue(first.isDone && third.isDone)
+        assertEquals(3L, scheduler.stats.rendered)
+        assertEquals(0, scheduler.stats.queueDepth)
+    }
+
+    @Test
+    fun cancelledRequestsAreCountedAsCancelled() {
+        val scheduler = scheduler(1)
+        val inFlight = scheduler.submit(1)
+        val pending = scheduler.submit(2)
+
+        pending.cancel(false)
+        inFlight.cancel(false)
+        assertTrue(rendering[0].isCancelled) // Cancelling an in-flight frame cancels the renderer's future
+
+        assertEquals(listOf(1), started) // The cancelled pending request never renders
+        val stats = scheduler.stats
+        assertEquals(2L, stats.cancelled)
+        assertEquals(0L, stats.skipped)
+        assertEquals(0L, stats.rendered)
+        assertEquals(0, stats.queueDepth)
+    }
+
+    @Test
+    fun rendererFailureIsReportedWithItsCause() {
+        val scheduler = scheduler(1)
+        val future = scheduler.submit(null)
+        val error = IllegalStateException("boom")
+        rendering[0].completeExceptionally(error)
+
+        assertNull(started[0])
+        val thrown = assertThrows(ExecutionException::class.java) { future.get() }
+        assertSame(error, thrown.cause)
+        assertEquals(1L, scheduler.stats.failed)
+        assertEquals(0, scheduler.stats.queueDepth)
+    }
+
+    @Test
+    fun skipPendingLeavesTheFrameInFlight() {
+        val scheduler = scheduler(1)
+        val inFlight = scheduler.submit(1)
+        val pending = scheduler.submit(2)
+
+        scheduler.skipPending()
+        assertThrows(FrameSkippedException::class.java) { pending.getNow(null) }
+        assertFalse(inFlight.isDone)
+
+        rendering[0].complete(null)
+        assertTrue(inFlight.isDone)
+        assertEquals(listOf(1), started)
+        assertEquals(1L, scheduler.stats.skipped)
+        assertEquals(1L, scheduler.stats.rendered)
+    }
+}
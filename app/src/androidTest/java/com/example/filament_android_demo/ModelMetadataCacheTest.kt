@@ -0,0 +1,134 @@
+package com.example.filament_android_demo
+
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import androidx.test.platform.app.InstrumentationRegistry
+import org.junit.After
+import org.junit.Assert.assertArrayEquals
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertNotNull
+import org.junit.Assert.assertNull
+import org.junit.Assert.assertTrue
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+import java.io.File
+import java.io.RandomAccessFile
+
+/**
+ * 元数据磁盘缓存：写入后读回、内容键/大小/筛选规则变化后不再命中、旧文件被替换、截断或损坏的文件被忽略并删除。
+ */
+@RunWith(AndroidJUnit4::class)
+class ModelMetadataCacheTest {
+    private lateinit var root: File
+    private lateinit var cache: ModelMetadataCache
+
+    private val transform = FloatArray(16) { it.toFloat() }
+    private val data = ModelSidecar.encode(KEY, mapOf("Head" to transform), emptyArray(), emptyMap(), arrayOf("Head"))
+
+    @Before
+    fun setUp() {
+        root = File(InstrumentationRegistry.getInstrumentation().targetContext.cacheDir, "metadata-cache-test")
+        root.deleteRecursively()
+        cache = ModelMetadataCache(root)
+    }
+
+    @After
+    fun tearDown() {
+        cache.shutdown()
+        root.deleteRecursively()
+    }
+
+    @Test
+    fun storedMetadataIsReadBack() {
+        store()
+
+        val metadata = cache.load(PATH, KEY, SIZE, VARIANT)
+        assertNotNull(metadata)
+        assertEquals(ModelSidecar.Origin.DISK_CACHE, metadata!!.origin)
+        assertArrayEquals(transform, metadata.initialTransforms["Head"], 0f)
+        assertArrayEquals(arrayOf("Head"), metadata.entityNames)
+        assertTrue(files().none { it.name.endsWith(".tmp") })
+    }
+
+    @Test
+    fun changedModelOrFilterMisses() {
+        store()
+
+        assertNull(cache.load(PATH, KEY + 1, SIZE, VARIANT))
+        assertNull(cache.load(PATH, KEY, SIZE + 1, VARIANT))
+        assertNull(cache.load(PATH, KEY, SIZE, "keep:other"))
+        assertNull(cache.load("other.glb", KEY, SIZE, VARIANT))
+        assertNotNull(cache.load(PATH, KEY, SIZE, VARIANT))
+    }
+
+    @Test
+    fun filterWithTheSameHashMisses() {
+        assertEquals("Aa".hashCode(), "BB".hashCode())
+        store("Aa")
+
+        assertNull(cache.load(PATH, KEY, SIZE, "BB"))
+        // The other filter's file is still valid for its own key.
+        assertNotNull(cache.load(PATH, KEY, SIZE, "Aa"))
+    }
+
+    @Test
+    fun newContentReplacesTheOldFile() {
+        store()
+        val newData = ModelSidecar.encode(KEY + 1, mapOf("Head" to transform), emptyArray(), emptyMap(), null)
+        cache.storeAsync(PATH, KEY + 1, SIZE, VARIANT, newData)
+        cache.awaitPendingWrites(TIMEOUT_MS)
+
+        assertEquals(1, files().size)
+        assertNull(cache.load(PATH, KEY, SIZE, VARIANT))
+        assertNotNull(cache.load(PATH, KEY + 1, SIZE, VARIANT))
+    }
+
+    @Test
+    fun truncatedFileIsIgnoredAndDeleted() {
+        store()
+        val file = files().single()
+        RandomAccessFile(file, "rw").use { it.setLength(file.length() - 3) }
+
+        assertNull(cache.load(PATH, KEY, SIZE, VARIANT))
+        assertFalse(file.exists())
+    }
+
+    @Test
+    fun corruptHeaderIsIgnoredAndDeleted() {
+        store()
+        val file = files().single()
+        RandomAccessFile(file, "rw").use { it.writeInt(Int.MAX_VALUE) } // Key length past the end of the file
+
+        assertNull(cache.load(PATH, KEY, SIZE, VARIANT))
+        assertFalse(file.exists())
+    }
+
+    @Test
+    fun corruptBodyIsIgnoredAndDeleted() {
+        store()
+        val file = files().single()
+        RandomAccessFile(file, "rw").use {
+            it.seek(4L + VARIANT.toByteArray().size)
+            it.writeInt(0) // Overwrites the sidecar magic
+        }
+
+        assertNull(cache.load(PATH, KEY, SIZE, VARIANT))
+        assertFalse(file.exists())
+    }
+
+    private fun store(variant: String = VARIANT) {
+        cache.storeAsync(PATH, KEY, SIZE, variant, data)
+        cache.awaitPendingWrites(TIMEOUT_MS)
+    }
+
+    private fun files(): List<File> = File(root, "model_metadata").listFiles()?.toList() ?: emptyList()
+
+    private companion object {
+        const val PATH = "models/test.glb"
+        const val KEY = 0x1234
+        const val SIZE = 4096L
+        const val VARIANT = "keep:4:Head"
+        const val TIMEOUT_MS = 5000L
+    }
+}
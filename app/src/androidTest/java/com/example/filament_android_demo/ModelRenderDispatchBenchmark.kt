@@ -0,0 +1,81 @@
+package com.example.filament_android_demo
+
+import android.os.Handler
+import android.util.Log
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import androidx.test.platform.app.InstrumentationRegistry
+import com.google.android.filament.Engine
+import org.junit.After
+import org.junit.Assert.assertNotNull
+import org.junit.Assert.assertTrue
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+import java.util.concurrent.CompletableFuture
+import java.util.concurrent.TimeUnit
+
+/**
+ * 每帧调度开销的微基准：旧的多跳链（updateViewPortAsync -> applyLandmarkResult -> renderFrame，每步一次渲染线程任务）
+ * 对比单任务的 applyLandmarkResultAndRenderFrame（同样包含 viewport 适配）。NOOP 后端 + 立即完成的假回读，测得的基本都是派发开销。
+ * 断言两条路径每次都产出帧，且合并路径占用的渲染线程任务数不多于多跳链；耗时只输出到 logcat（tag: DispatchBenchmark）。
+ */
+@RunWith(AndroidJUnit4::class)
+class ModelRenderDispatchBenchmark {
+    private lateinit var modelRender: ModelRender
+
+    @Before
+    fun setUp() {
+        modelRender = ModelRender()
+        modelRender.setBackend(Engine.Backend.NOOP)
+        modelRender.setFrameReadback { _, _, _, _, handler, callback -> (handler as Handler).post(callback) }
+        val appContext = InstrumentationRegistry.getInstrumentation().targetContext
+        modelRender.init(appContext, null).get(30, TimeUnit.SECONDS)
+    }
+
+    @After
+    fun tearDown() {
+        modelRender.release().get(30, TimeUnit.SECONDS)
+    }
+
+    @Test
+    fun chainedVersusFusedDispatch() {
+        val chained = {
+            modelRender.updateViewPortAsync(ModelRender.headMeshName, ModelRender.SCALE_FACTOR)
+                .thenCompose { modelRender.applyLandmarkResult(null) }
+                .thenCompose { modelRender.renderFrame() }
+        }
+        val fused = { modelRender.applyLandmarkResultAndRenderFrame(null) }
+
+        measure("warmup", WARMUP_FRAMES, fused)
+        val chainedHops = renderThreadTasks()
+        val chainedNanos = measure("chained", MEASURED_FRAMES, chained)
+        val fusedHops = renderThreadTasks()
+        val fusedNanos = measure("fused", MEASURED_FRAMES, fused)
+        val end = renderThreadTasks()
+        Log.i(TAG, "fused/chained per-frame ratio: " + "%.2f".format(fusedNanos.toDouble() / chainedNanos))
+        Log.i(TAG, "render-thread tasks: chained ${fusedHops - chainedHops}, fused ${end - fusedHops}")
+
+        assertTrue("Fused dispatch took more render-thread hops than the chain",
+            end - fusedHops <= fusedHops - chainedHops)
+    }
+
+    private fun measure(label: String, frames: Int, submit: () -> CompletableFuture<RenderedFrame>): Long {
+        val start = System.nanoTime()
+        repeat(frames) {
+            val frame = submit().get(10, TimeUnit.SECONDS)
+            assertNotNull("$label produced no frame", frame)
+            frame.release()
+        }
+        val perFrameNanos = (System.nanoTime() - start) / frames
+        Log.i(TAG, "$label: ${perFrameNanos / 1000} us/frame over $frames frames")
+        return perFrameNanos
+    }
+
+    private fun renderThreadTasks(): Long = modelRender.renderQueueStats!!.byPriority.values.sumOf { it.executed }
+
+    companion object {
+        private const val TAG = "DispatchBenchmark"
+        private const val WARMUP_FRAMES = 50
+        private const val MEASURED_FRAMES = 300
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.filament_android_demo
+
+import android.util.Log
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import androidx.test.platform.app.InstrumentationRegistry
+import com.google.android.filament.Engine
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertNotSame
+import org.junit.Assert.assertSame
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import org.junit.runner.RunWith
+import java.util.concurrent.TimeUnit
+
+/**
+ * 共享渲染器的引用计数与宽限期：宽限期内重新 acquire() 接入同一个已初始化的渲染器，宽限期过后重新冷启动。
+ * 冷/热接入耗时输出到 logcat（tag: ModelRenderHolderTest）。
+ */
+@RunWith(AndroidJUnit4::class)
+class ModelRenderHolderTest {
+    private val appContext = InstrumentationRegistry.getInstrumentation().targetContext
+    private val holder = ModelRenderHolder(GRACE_PERIOD_MILLIS)
+
+    private fun acquire(): ModelRenderHolder.Lease =
+        holder.acquire(appContext, null) { it.setBackend(Engine.Backend.NOOP) }
+
+    @Test
+    fun reacquireWithinGracePeriodReusesTheRenderer() {
+        val cold = acquire()
+        cold.ready.get(30, TimeUnit.SECONDS)
+        assertFalse(cold.isWarm)
+        cold.close()
+
+        // Simulates the recreated Activity attaching right after the old one was destroyed.
+        val warm = acquire()
+        warm.ready.get(30, TimeUnit.SECONDS)
+        assertTrue(warm.isWarm)
+        assertSame(cold.modelRender, warm.modelRender)
+        warm.renderFrame().get(10, TimeUnit.SECONDS).release()
+        Log.i(TAG, "cold attach ${cold.attachNanos / 1_000_000.0}ms, warm attach ${warm.attachNanos / 1_000_000.0}ms")
+
+        val stats = holder.attachStats
+        assertEquals(1L, stats.coldAttaches)
+        assertEquals(1L, stats.warmAttaches)
+        assertEquals(1, stats.refCount)
+        warm.closeWithoutGrace()
+    }
+
+    @Test
+    fun rendererIsReleasedAfterTheGracePeriod() {
+        val first = acquire()
+        first.ready.get(30, TimeUnit.SECONDS)
+        first.close()
+        Thread.sleep(GRACE_PERIOD_MILLIS * 3)
+
+        val second = acquire()
+        second.ready.get(30, TimeUnit.SECONDS)
+        assertFalse(second.isWarm)
+        assertNotSame(first.modelRender, second.modelRender)
+        assertTrue(first.modelRender.renderFrame().isCompletedExceptionally)
+        second.closeWithoutGrace()
+    }
+
+    private fun ModelRenderHolder.Lease.renderFrame() = modelRender.renderFrame()
+
+    companion object {
+        private const val TAG = "ModelRenderHolderTest"
+        private const val GRACE_PERIOD_MILLIS = 300L
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.filament_android_demo
+
+import android.os.Handler
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import androidx.test.platform.app.InstrumentationRegistry
+import com.google.android.filament.Engine
+import org.junit.After
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+import java.util.Collections
+import java.util.concurrent.CompletableFuture
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+
+/**
+ * 在 NOOP 后端 + 假回读上验证流水线渲染：在途帧数受深度限制，future 按提交顺序完成。
+ */
+@RunWith(AndroidJUnit4::class)
+class ModelRenderPipelineTest {
+    private lateinit var modelRender: ModelRender
+
+    @Before
+    fun setUp() {
+        modelRender = ModelRender()
+        modelRender.setBackend(Engine.Backend.NOOP)
+    }
+
+    @After
+    fun tearDown() {
+        modelRender.release().get(30, TimeUnit.SECONDS)
+    }
+
+    @Test
+    fun pipelinedFramesCompleteInSubmissionOrder() {
+        // Even-numbered readbacks are delayed so their callbacks arrive after the following frame's.
+        val readbackCount = AtomicInteger(0)
+        modelRender.setFrameReadback { _, _, _, target, handler, callback ->
+            val index = readbackCount.getAndIncrement()
+            target.rewind()
+            while (target.hasRemaining()) target.put(index.toByte())
+            (handler as Handler).postDelayed(callback, if (index % 2 == 0) 30L else 0L)
+        }
+        modelRender.setPipelineDepth(3)
+        val appContext = InstrumentationRegistry.getInstrumentation().targetContext
+        modelRender.init(appContext, null).get(30, TimeUnit.SECONDS)
+
+        val completionOrder = Collections.synchronizedList(mutableListOf<Int>())
+        val futures = (0 until 12).map { index ->
+            modelRender.renderFrame().thenApply { frame ->
+                completionOrder.add(index)
+                frame.release()
+                index
+            }
+        }
+        CompletableFuture.allOf(*futures.toTypedArray()).get(30, TimeUnit.SECONDS)
+
+        assertEquals((0 until 12).toList(), completionOrder.toList())
+        assertTrue(modelRender.maxObservedFramesInFlight in 2..3)
+        assertEquals(0, modelRender.framesInFlight)
+        assertEquals(0, modelRender.readbackPoolStats.outstanding)
+    }
+
+    @Test
+    fun cancelledFramesAreSkippedOrHaveTheirReadbackDiscarded() {
+        val readbackIssued = CountDownLatch(1)
+        val readbackCount = AtomicInteger(0)
+        modelRender.setFrameReadback { _, _, _, _, handler, callback ->
+            readbackCount.incrementAndGet()
+            readbackIssued.countDown()
+            (handler as Handler).postDelayed(callback, 100L)
+        }
+        val appContext = InstrumentationRegistry.getInstrumentation().targetContext
+        modelRender.init(appContext, null).get(30, TimeUnit.SECONDS)
+
+        val submitted = modelRender.renderFrame()
+        val queued = (0 until 3).map { modelRender.renderFrame() }
+        assertTrue(readbackIssued.await(5, TimeUnit.SECONDS))
+        submitted.cancel(false)
+        queued.forEach { it.cancel(false) }
+        // A frame requested after the cancelled ones still renders normally.
+        modelRender.renderFrame().get(30, TimeUnit.SECONDS).release()
+
+        val stats = modelRender.cancellationStats
+        assertEquals(1L, stats.readbacksDiscarded)
+        assertEquals(3L, stats.skippedBeforeRender)
+        assertEquals(2, readbackCount.get())
+        assertEquals(0, modelRender.readbackPoolStats.outstanding)
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.filament_android_demo
+
+import android.os.Handler
+import android.util.Log
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import androidx.test.platform.app.InstrumentationRegistry
+import com.google.android.filament.Engine
+import org.junit.Assert.assertEquals
+import org.junit.Test
+import org.junit.runner.RunWith
+import kotlin.random.Random
+import java.util.concurrent.TimeUnit
+
+/**
+ * 多引擎工作池：同一批乱序姿态分别用 1/2/4 个 worker 渲染，检查每种 worker 数下输出都按时间戳顺序、一帧不少地到达。
+ * NOOP 后端 + 立即完成的假回读，顺带记录帧准备（姿态、骨骼、提交）的吞吐和相对单 worker 的加速比，
+ * 只输出到 logcat（tag: PoolBenchmark），不做断言：加速比取决于设备核数和调度，不适合作为通过条件。
+ */
+@RunWith(AndroidJUnit4::class)
+class ModelRenderPoolBenchmark {
+
+    @Test
+    fun batchIsEmittedInOrderAcrossWorkers() {
+        val poses = randomPoses(BATCH_FRAMES)
+        val fpsByWorkers = LinkedHashMap<Int, Double>()
+        for (workers in WORKER_COUNTS) {
+            val report = runBatch(workers, poses)
+            Log.i(TAG, "$workers worker(s): $report")
+            fpsByWorkers[workers] = report.framesPerSecond()
+        }
+        val baseline = fpsByWorkers.getValue(WORKER_COUNTS.first())
+        for ((workers, fps) in fpsByWorkers) {
+            Log.i(TAG, "$workers worker(s): " + "%.1f fps, speedup %.2fx".format(fps, fps / baseline))
+        }
+    }
+
+    private fun runBatch(workers: Int, poses: List<ModelRenderPool.PoseFrame>): ModelRenderPool.BatchReport {
+        val pool = ModelRenderPool(workers, Engine.Backend.NOOP)
+        pool.setFrameReadback { _, _, _, _, handler, callback -> (handler as Handler).post(callback) }
+        val appContext = InstrumentationRegistry.getInstrumentation().targetContext
+        try {
+            pool.init(appContext, ModelRender.MODEL_PATH).get(60, TimeUnit.SECONDS)
+            pool.renderBatch(poses.subList(0, WARMUP_FRAMES)) { _, frame -> frame.release() }.get(60, TimeUnit.SECONDS)
+
+            val timestamps = ArrayList<Long>(poses.size)
+            val report = pool.renderBatch(poses) { pose, frame ->
+                timestamps.add(pose.timestampNanos)
+                frame.release()
+            }.get(120, TimeUnit.SECONDS)
+
+            assertEquals(poses.map { it.timestampNanos }.sorted(), timestamps)
+            assertEquals(poses.size.toLong(), report.frames)
+            return report
+        } finally {
+            pool.release().get(30, TimeUnit.SECONDS)
+        }
+    }
+
+    private fun randomPoses(count: Int): List<ModelRenderPool.PoseFrame> {
+        val random = Random(42)
+        val identity = FloatArray(16).also { for (i in 0 until 4) it[i * 5] = 1f }
+        // Shuffled timestamps so that the pool has to sort them.
+        return (0 until count).shuffled(random).map { i ->
+            val scores = FloatArray(BLENDSHAPE_COUNT) { random.nextFloat() }
+            ModelRenderPool.PoseFrame(i * FRAME_INTERVAL_NANOS, scores, identity)
+        }
+    }
+
+    companion object {
+        private const val TAG = "PoolBenchmark"
+        private val WORKER_COUNTS = listOf(1, 2, 4)
+        private const val BATCH_FRAMES = 600
+        private const val WARMUP_FRAMES = 30
+        private const val BLENDSHAPE_COUNT = 52
+        private const val FRAME_INTERVAL_NANOS = 33_333_333L
+    }
+}
@@ -0,0 +1,110 @@
+package com.example.filament_android_demo
+
+import android.content.ComponentCallbacks2
+import android.os.Handler
+import android.util.Log
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import androidx.test.platform.app.InstrumentationRegistry
+import com.google.android.filament.Engine
+import org.junit.After
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertNotNull
+import org.junit.Assert.assertNull
+import org.junit.Assert.assertSame
+import org.junit.Assert.assertTrue
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+import java.util.concurrent.TimeUnit
+
+/**
+ * onTrimMemory 分级释放：各层级释放的内容、下一帧自动恢复被释放的部分。恢复耗时输出到 logcat（tag: ModelRenderTrimTest）。
+ */
+@RunWith(AndroidJUnit4::class)
+class ModelRenderTrimTest {
+    private lateinit var modelRender: ModelRender
+
+    @Before
+    fun setUp() {
+        modelRender = ModelRender()
+        modelRender.setBackend(Engine.Backend.NOOP)
+        modelRender.setWarmUpMode(ModelRender.WarmUpMode.OFF)
+        modelRender.setFrameReadback { _, _, _, _, handler, callback -> (handler as Handler).post(callback) }
+        val appContext = InstrumentationRegistry.getInstrumentation().targetContext
+        modelRender.init(appContext).get(30, TimeUnit.SECONDS)
+    }
+
+    @After
+    fun tearDown() {
+        modelRender.release().get(30, TimeUnit.SECONDS)
+    }
+
+    @Test
+    fun trimLevelsMapToTiers() {
+        assertEquals(ModelRender.ResourceTier.FULL, ModelRender.resourceTierForTrimLevel(0))
+        assertEquals(ModelRender.ResourceTier.CACHES_DROPPED,
+            ModelRender.resourceTierForTrimLevel(ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW))
+        assertEquals(ModelRender.ResourceTier.SURFACES_DROPPED,
+            ModelRender.resourceTierForTrimLevel(ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN))
+        assertEquals(ModelRender.ResourceTier.ASSET_DROPPED,
+            ModelRender.resourceTierForTrimLevel(ComponentCallbacks2.TRIM_MEMORY_COMPLETE))
+    }
+
+    @Test
+    fun eachTierIsRestoredByTheNextFrame() {
+        for (tier in listOf(
+            ModelRender.ResourceTier.CACHES_DROPPED,
+            ModelRender.ResourceTier.SURFACES_DROPPED,
+            ModelRender.ResourceTier.ASSET_DROPPED
+        )) {
+            modelRender.renderFrame().get(10, TimeUnit.SECONDS).release()
+            val trim = modelRender.trimResources(tier).get(10, TimeUnit.SECONDS)
+            assertEquals(tier, trim.to)
+            assertEquals(tier, modelRender.resourceTier)
+            assertTrue(trim.estimatedBytesReleased > 0)
+
+            modelRender.renderFrame().get(10, TimeUnit.SECONDS).release()
+            assertEquals(ModelRender.ResourceTier.FULL, modelRender.resourceTier)
+            val restore = modelRender.lastRestoreReport!!
+            assertEquals(tier, restore.from)
+            Log.i(TAG, "$trim, $restore")
+        }
+    }
+
+    @Test
+    fun trimmingToALowerTierThanTheCurrentOneDoesNothing() {
+        modelRender.trimResources(ModelRender.ResourceTier.SURFACES_DROPPED).get(10, TimeUnit.SECONDS)
+        val report = modelRender.trimResources(ModelRender.ResourceTier.CACHES_DROPPED).get(10, TimeUnit.SECONDS)
+
+        assertEquals(ModelRender.ResourceTier.SURFACES_DROPPED, report.to)
+        assertEquals(0L, report.estimatedBytesReleased)
+        val restore = modelRender.restoreResources().get(10, TimeUnit.SECONDS)
+        assertEquals(ModelRender.ResourceTier.SURFACES_DROPPED, restore.from)
+    }
+
+    @Test
+    fun modelLoadedWhileAssetDroppedReplacesTheDroppedOne() {
+        val droppedModelReport = modelRender.getModelLoadReport(ModelRender.MODEL_PATH)
+        modelRender.trimResources(ModelRender.ResourceTier.ASSET_DROPPED).get(10, TimeUnit.SECONDS)
+        modelRender.setProgressiveLoading(true)
+
+        val swap = modelRender.swapModel(TEST_MODEL_PATH)
+        // Frames rendered while the progressive load runs restore the tier but must not reload the dropped model.
+        while (!swap.isDone) {
+            modelRender.renderFrame().get(10, TimeUnit.SECONDS).release()
+        }
+        assertTrue(swap.get(10, TimeUnit.SECONDS))
+        modelRender.renderFrame().get(10, TimeUnit.SECONDS).release()
+
+        assertEquals(ModelRender.ResourceTier.FULL, modelRender.resourceTier)
+        assertNotNull(modelRender.getModelLoadReport(TEST_MODEL_PATH))
+        assertSame(droppedModelReport, modelRender.getModelLoadReport(ModelRender.MODEL_PATH))
+        assertNull(modelRender.lastRestoreReport!!.modelReloadFailure)
+    }
+
+    companion object {
+        private const val TAG = "ModelRenderTrimTest"
+        // Single-triangle model packaged only in debug builds (src/debug/assets).
+        private const val TEST_MODEL_PATH = "test_triangle.glb"
+    }
+}
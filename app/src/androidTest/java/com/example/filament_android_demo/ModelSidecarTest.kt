@@ -0,0 +1,67 @@
+package com.example.filament_android_demo
+
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import androidx.test.platform.app.InstrumentationRegistry
+import org.junit.Assert.assertArrayEquals
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertNotNull
+import org.junit.Assert.assertNull
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import org.junit.runner.RunWith
+import java.nio.ByteBuffer
+
+/**
+ * 构建期 GlbPreprocessor 写出的 sidecar 能被运行时的 ModelSidecar 读取，并与打包的模型对应；格式本身的细节在
+ * buildSrc 的 GlbPreprocessorTest 中检查。
+ */
+@RunWith(AndroidJUnit4::class)
+class ModelSidecarTest {
+    private val assets = InstrumentationRegistry.getInstrumentation().targetContext.assets
+
+    @Test
+    fun preprocessedSidecarIsReadBackForThePackagedModel() {
+        val model = ModelAssetReader.read(assets, ModelRender.MODEL_PATH).buffer
+        val sidecar = ModelSidecar.readAsset(assets, ModelRender.MODEL_PATH, ModelSidecar.contentKey(model))
+
+        assertNotNull(sidecar)
+        assertEquals(ModelSidecar.Origin.BUILD, sidecar!!.origin)
+        for (name in BuildConfig.AVATAR_KEEP_NODES) {
+            assertTrue("Missing transform for $name", sidecar.initialTransforms.containsKey(name))
+        }
+        assertTrue(sidecar.morphEntities.isNotEmpty())
+        for (entity in sidecar.morphEntities) {
+            for (t in entity.morphNames.indices) {
+                assertEquals(MorphBindingTable.blendshapeIndexOf(entity.morphNames[t]), entity.categories[t])
+            }
+        }
+    }
+
+    @Test
+    fun sidecarOfAnotherModelIsIgnored() {
+        val model = ModelAssetReader.read(assets, ModelRender.MODEL_PATH).buffer
+
+        assertNull(ModelSidecar.readAsset(assets, ModelRender.MODEL_PATH, ModelSidecar.contentKey(model) + 1))
+    }
+
+    @Test
+    fun encodedMetadataParsesBackAndTruncationIsRejected() {
+        val transform = FloatArray(16) { it.toFloat() }
+        val bounds = floatArrayOf(0f, 1f, 2f, 0.5f, 0.5f, 0.5f)
+        val entity = ModelSidecar.MorphEntity("Head", arrayOf("jawOpen", "custom"),
+            intArrayOf(MorphBindingTable.blendshapeIndexOf("jawOpen"), -1))
+        val data = ModelSidecar.encode(42, mapOf("Head" to transform), arrayOf(entity),
+            mapOf(ModelSidecar.ASSET_BOUNDS to bounds), arrayOf("Head", null, "Body"))
+
+        val parsed = ModelSidecar.parse(ByteBuffer.wrap(data), 42, ModelSidecar.Origin.DISK_CACHE, "test")
+        assertNotNull(parsed)
+        assertArrayEquals(transform, parsed!!.initialTransforms["Head"], 0f)
+        assertArrayEquals(bounds, parsed.getBounds(ModelSidecar.ASSET_BOUNDS), 0f)
+        assertEquals("custom", parsed.morphEntities[0].morphNames[1])
+        assertEquals(-1, parsed.morphEntities[0].categories[1])
+        assertArrayEquals(arrayOf("Head", "", "Body"), parsed.entityNames)
+
+        assertNull(ModelSidecar.parse(ByteBuffer.wrap(data, 0, data.size - 3), 42, ModelSidecar.Origin.DISK_CACHE, "test"))
+        assertNull(ModelSidecar.parse(ByteBuffer.wrap(data), 43, ModelSidecar.Origin.DISK_CACHE, "test"))
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.filament_android_demo
+
+import android.util.Log
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import androidx.test.platform.app.InstrumentationRegistry
+import com.google.android.filament.Engine
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import org.junit.runner.RunWith
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+
+/**
+ * native 资源登记：登记/注销计数、ModelRender 初始化和 release() 前后的存活对象、所有者被回收后的清理动作。
+ */
+@RunWith(AndroidJUnit4::class)
+class NativeResourceTrackerTest {
+    private val tracker = NativeResourceTracker.getInstance()
+
+    @Test
+    fun trackAndUntrackAreCountedPerType() {
+        val scope = tracker.newScope("test")
+        val a = Any()
+        val b = Any()
+        scope.track("Buffer", a, 1024, null)
+        scope.track("Buffer", b, 2048, null)
+        scope.track("Buffer", b, 2048, null) // Already tracked, ignored
+
+        var snapshot = scope.snapshot()
+        assertEquals(2, snapshot.count("Buffer"))
+        assertEquals(3072L, snapshot.estimatedBytes)
+
+        scope.untrack(a)
+        scope.untrack(a)
+        scope.untrack(null)
+        snapshot = scope.snapshot()
+        assertEquals(1, snapshot.liveCount)
+        assertEquals(2L, snapshot.tracked)
+        assertEquals(1L, snapshot.released)
+
+        scope.untrack(b)
+        tracker.retire(scope)
+        assertEquals(0, scope.liveCount())
+    }
+
+    @Test
+    fun modelRenderReleasesEverythingItCreated() {
+        val modelRender = ModelRender()
+        modelRender.setBackend(Engine.Backend.NOOP)
+        modelRender.setWarmUpMode(ModelRender.WarmUpMode.OFF)
+        val appContext = InstrumentationRegistry.getInstrumentation().targetContext
+        modelRender.init(appContext).get(30, TimeUnit.SECONDS)
+
+        val live = modelRender.nativeResourceStats
+        Log.i(TAG, "After init: $live")
+        assertEquals(1, live.count("Engine"))
+        assertEquals(1, live.count("SwapChain"))
+        assertEquals(1, live.count("FilamentAsset"))
+        assertTrue(live.estimatedBytes > 0)
+
+        modelRender.release().get(30, TimeUnit.SECONDS)
+        val released = modelRender.nativeResourceStats
+        Log.i(TAG, "After release: $released, global: ${tracker.snapshot()}")
+        assertEquals(0, released.liveCount)
+        assertEquals(released.tracked, released.released)
+    }
+
+    @Test
+    fun cleanupRunsOnceTheOwnerIsCollected() {
+        val ran = CountDownLatch(1)
+        registerUnreachableOwner(ran)
+        val deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10)
+        while (ran.count > 0 && System.nanoTime() < deadline) {
+            Runtime.getRuntime().gc()
+            System.runFinalization()
+            ran.await(100, TimeUnit.MILLISECONDS)
+        }
+        assertEquals(0L, ran.count)
+    }
+
+    @Test
+    fun explicitCleanRunsTheActionOnlyOnce() {
+        var runs = 0
+        val owner = Any()
+        val cleanable = tracker.register(owner) { runs++ }
+        cleanable.clean()
+        cleanable.clean()
+        assertEquals(1, runs)
+    }
+
+    // Separate function so that no local on the test's frame keeps the owner reachable.
+    private fun registerUnreachableOwner(ran: CountDownLatch) {
+        tracker.register(Any()) { ran.countDown() }
+    }
+
+    companion object {
+        private const val TAG = "NativeResourceTrackerTest"
+    }
+}
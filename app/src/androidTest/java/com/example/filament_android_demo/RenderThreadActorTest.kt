@@ -0,0 +1,108 @@
+package com.example.filament_android_demo
+
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import org.junit.After
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+import java.util.Collections
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.RejectedExecutionException
+import java.util.concurrent.TimeUnit
+
+/**
+ * 渲染线程 actor 的排队规则：按优先级执行、合并姿态、RENDER 满时丢弃最老的命令、ASSET 满时拒绝、IDLE 合并且最后执行。
+ */
+@RunWith(AndroidJUnit4::class)
+class RenderThreadActorTest {
+    private lateinit var actor: RenderThreadActor
+    private val gate = CountDownLatch(1)
+
+    @Before
+    fun setUp() {
+        actor = RenderThreadActor("RenderThreadActorTest", 2, 2, 2)
+        // Hold the thread so that everything submitted afterwards is queued.
+        actor.execute(RenderThreadActor.Priority.LIFECYCLE) { gate.await() }
+    }
+
+    @After
+    fun tearDown() {
+        gate.countDown()
+        actor.shutdown()
+        assertTrue(actor.awaitTermination(5, TimeUnit.SECONDS))
+    }
+
+    @Test
+    fun higherPriorityClassesRunFirst() {
+        val order = Collections.synchronizedList(mutableListOf<String>())
+        val done = CountDownLatch(1)
+        actor.execute(RenderThreadActor.Priority.RENDER) { order.add("render") }
+        actor.execute(RenderThreadActor.Priority.POSE) { order.add("pose") }
+        actor.execute(RenderThreadActor.Priority.ASSET) { order.add("asset") }
+        actor.execute(RenderThreadActor.Priority.LIFECYCLE) { order.add("lifecycle") }
+        actor.execute(RenderThreadActor.Priority.RENDER) { done.countDown() }
+        gate.countDown()
+        assertTrue(done.await(5, TimeUnit.SECONDS))
+
+        assertEquals(listOf("lifecycle", "asset", "pose", "render"), order.toList())
+    }
+
+    @Test
+    fun posesWithTheSameKeyAreCoalesced() {
+        val applied = Collections.synchronizedList(mutableListOf<Int>())
+        val dropped = Collections.synchronizedList(mutableListOf<Int>())
+        val key = Any()
+        val done = CountDownLatch(1)
+        for (i in 0 until 5) {
+            actor.execute(RenderThreadActor.Priority.POSE, key, { applied.add(i) }, { dropped.add(i) })
+        }
+        // RENDER runs after POSE, so this marks the end of the pose queue.
+        actor.execute(RenderThreadActor.Priority.RENDER) { done.countDown() }
+        gate.countDown()
+        assertTrue(done.await(5, TimeUnit.SECONDS))
+
+        assertEquals(listOf(4), applied.toList())
+        assertEquals(listOf(0, 1, 2, 3), dropped.toList())
+        val stats = actor.stats.get(RenderThreadActor.Priority.POSE)
+        assertEquals(4L, stats.coalesced)
+        assertEquals(1L, stats.executed)
+    }
+
+    @Test
+    fun fullRenderQueueShedsTheOldestCommand() {
+        val shed = Collections.synchronizedList(mutableListOf<Int>())
+        for (i in 0 until 4) {
+            actor.execute(RenderThreadActor.Priority.RENDER, null, {}, { shed.add(i) })
+        }
+
+        assertEquals(listOf(0, 1), shed.toList())
+        assertEquals(2L, actor.stats.get(RenderThreadActor.Priority.RENDER).shed)
+    }
+
+    @Test
+    fun idleCommandsRunLastWithoutTakingRenderCapacity() {
+        val order = Collections.synchronizedList(mutableListOf<String>())
+        val shed = Collections.synchronizedList(mutableListOf<Int>())
+        val done = CountDownLatch(1)
+        val key = Any()
+        for (i in 0 until 2) {
+            actor.execute(RenderThreadActor.Priority.RENDER, null, { order.add("render$i") }, { shed.add(i) })
+            actor.execute(RenderThreadActor.Priority.IDLE, key, { order.add("idle") }, null)
+        }
+        actor.execute(RenderThreadActor.Priority.IDLE, key, { order.add("idle"); done.countDown() }, null)
+        gate.countDown()
+        assertTrue(done.await(5, TimeUnit.SECONDS))
+
+        assertEquals(listOf("render0", "render1", "idle"), order.toList())
+        assertTrue(shed.isEmpty())
+        assertEquals(2L, actor.stats.get(RenderThreadActor.Priority.RENDER).submitted)
+        assertEquals(2L, actor.stats.get(RenderThreadActor.Priority.IDLE).coalesced)
+    }
+
+    @Test(expected = RejectedExecutionException::class)
+    fun fullAssetQueueRejectsNewCommands() {
+        repeat(3) { actor.execute(RenderThreadActor.Priority.ASSET) {} }
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.filament_android_demo
+
+import android.opengl.Matrix
+import android.os.Debug
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import org.junit.Assert.assertArrayEquals
+import org.junit.Assert.assertSame
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import org.junit.runner.RunWith
+
+/**
+ * TransformMath 与原先基于 Matrix.rotateM/scaleM/translateM 的实现结果一致，并且每帧路径不分配对象。
+ */
+@RunWith(AndroidJUnit4::class)
+class TransformMathTest {
+    private val math = TransformMath()
+
+    @Test
+    fun eulerRotationMatchesComposedRotateM() {
+        val x = 0.3f
+        val y = -1.1f
+        val z = 2.4f
+        val rotationX = identity().also { Matrix.rotateM(it, 0, Math.toDegrees(x.toDouble()).toFloat(), 1f, 0f, 0f) }
+        val rotationY = identity().also { Matrix.rotateM(it, 0, Math.toDegrees(y.toDouble()).toFloat(), 0f, 1f, 0f) }
+        val rotationZ = identity().also { Matrix.rotateM(it, 0, Math.toDegrees(z.toDouble()).toFloat(), 0f, 0f, 1f) }
+        val temp = FloatArray(16)
+        val expected = FloatArray(16)
+        Matrix.multiplyMM(temp, 0, rotationY, 0, rotationX, 0)
+        Matrix.multiplyMM(expected, 0, rotationZ, 0, temp, 0)
+
+        assertArrayEquals(expected, math.rotationFromEuler(x, y, z), EPSILON)
+    }
+
+    @Test
+    fun rotationFromKeepsOnlyTheRotationBlock() {
+        val source = FloatArray(16) { it + 1f }
+        val rotation = math.rotationFrom(source)
+        val expected = floatArrayOf(1f, 2f, 3f, 0f, 5f, 6f, 7f, 0f, 9f, 10f, 11f, 0f, 0f, 0f, 0f, 1f)
+        assertArrayEquals(expected, rotation, 0f)
+    }
+
+    @Test
+    fun scaleThenTranslateMatchesMatrixProducts() {
+        val scale = 0.25f
+        val scaleMatrix = identity().also { Matrix.scaleM(it, 0, scale, scale, scale) }
+        val translationMatrix = identity().also { Matrix.translateM(it, 0, 1f, -2f, 3f) }
+        val expected = FloatArray(16)
+        // S * T, as in fitIntoUnitCubeInternal
+        Matrix.multiplyMM(expected, 0, scaleMatrix, 0, translationMatrix, 0)
+
+        assertArrayEquals(expected, math.scaleThenTranslate(scale, 1f * scale, -2f * scale, 3f * scale), EPSILON)
+    }
+
+    @Test
+    fun poseMathReusesItsScratchMatrices() {
+        val source = identity()
+        assertSame(math.rotationFrom(source), math.rotationFrom(source))
+        assertSame(math.rotationFrom(source), math.rotationFromEuler(0.1f, 0.2f, 0.3f))
+        assertSame(math.multiply(source, source), math.multiply(source, source))
+        assertSame(math.scaleThenTranslate(1f, 0f, 0f, 0f), math.scaleThenTranslate(2f, 1f, 1f, 1f))
+    }
+
+    @Test
+    fun poseMathDoesNotAllocate() {
+        val initial = identity().also { Matrix.translateM(it, 0, 0f, 1.5f, 0f) }
+        val faceMatrix = FloatArray(16).also { Matrix.setRotateM(it, 0, 20f, 0f, 1f, 0f) }
+        // Warm up so any lazy class initialisation happens outside the measured region.
+        runPoseMath(initial, faceMatrix, 10)
+
+        // Runtime free memory drops back whenever a GC runs mid-loop, so the cumulative ART allocation counter is used
+        // instead. It is process-wide and counts whole thread-local buffers, hence the slack; one float[16] per call
+        // would add ~30 MB here.
+        val before = bytesAllocatedEver()
+        runPoseMath(initial, faceMatrix, ALLOCATION_ITERATIONS)
+        val allocated = bytesAllocatedEver() - before
+
+        assertTrue("Pose math allocated $allocated bytes", allocated < ALLOCATION_SLACK_BYTES)
+    }
+
+    private fun bytesAllocatedEver() = Debug.getRuntimeStat("art.gc.bytes-allocated").toLong()
+
+    private fun runPoseMath(initial: FloatArray, faceMatrix: FloatArray, iterations: Int) {
+        var i = 0
+        while (i < iterations) {
+            math.multiply(initial, math.rotationFrom(faceMatrix))
+            math.multiply(initial, math.rotationFromEuler(0.1f * i, 0.2f, 0.3f))
+            math.scaleThenTranslate(0.5f, 0f, -0.1f, -4f)
+            i++
+        }
+    }
+
+    private fun identity() = FloatArray(16).also { Matrix.setIdentityM(it, 0) }
+
+    companion object {
+        private const val EPSILON = 1e-5f
+        private const val ALLOCATION_ITERATIONS = 100_000
+        private const val ALLOCATION_SLACK_BYTES = 2L shl 20
+    }
+}
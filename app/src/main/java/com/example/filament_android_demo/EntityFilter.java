@@ -0,0 +1,108 @@
+package com.example.filament_android_demo;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.google.android.filament.RenderableManager;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 加载时的实体筛选规则：有名称的 renderable 只保留 keep-set 中的，其他实体（节点、无名实体、非 renderable）全部保留。
+ * 在实体加入场景之前计算，不可变。
+ */
+final class EntityFilter {
+  static final EntityFilter KEEP_ALL = new EntityFilter(null);
+
+  // null 表示全部保留
+  @Nullable
+  private final Set<String> mKeepNames;
+
+  @NonNull
+  private final String mKey;
+
+  private EntityFilter(@Nullable Set<String> keepNames) {
+    mKeepNames = keepNames;
+    if (keepNames == null) {
+      mKey = "";
+    } else {
+      List<String> sorted = new ArrayList<>(keepNames);
+      Collections.sort(sorted);
+      // Length-prefixed so that no two name sets produce the same key, whatever characters the names contain.
+      StringBuilder key = new StringBuilder("keep:");
+      for (String name : sorted) key.append(name.length()).append(':').append(name);
+      mKey = key.toString();
+    }
+  }
+
+  @NonNull
+  static EntityFilter keeping(@NonNull Collection<String> names) {
+    return new EntityFilter(Collections.unmodifiableSet(new HashSet<>(names)));
+  }
+
+  /**
+   * 与筛选规则一一对应的字符串（与集合顺序无关），用于区分不同规则下缓存的模型和元数据。KEEP_ALL 为空串。
+   */
+  @NonNull
+  String key() {
+    return mKey;
+  }
+
+  /**
+   * 筛选结果，单次遍历得到；excluded 按实体 id 排序。
+   */
+  static final class Result {
+    @NonNull
+    final int[] kept;
+    // 与 kept 一一对应的实体名称，无名实体为 null 或空串
+    @NonNull
+    final String[] keptNames;
+    @NonNull
+    final int[] excluded;
+    @NonNull
+    final Set<String> excludedNames;
+
+    Result(@NonNull int[] kept, @NonNull String[] keptNames, @NonNull int[] excluded, @NonNull Set<String> excludedNames) {
+      this.kept = kept;
+      this.keptNames = keptNames;
+      this.excluded = excluded;
+      this.excludedNames = excludedNames;
+    }
+  }
+
+  /**
+   * names 与 entities 一一对应（来自元数据缓存或加载时的一次 getName 遍历），这里不再调用 getName。
+   */
+  @NonNull
+  Result apply(@NonNull int[] entities, @NonNull String[] names, @NonNull RenderableManager rm) {
+    if (mKeepNames == null) {
+      return new Result(entities.clone(), names.clone(), new int[0], Collections.emptySet());
+    }
+    int[] kept = new int[entities.length];
+    String[] keptNames = new String[entities.length];
+    int[] excluded = new int[entities.length];
+    int keptCount = 0;
+    int excludedCount = 0;
+    Set<String> excludedNames = new HashSet<>();
+    for (int i = 0; i < entities.length; i++) {
+      int entityId = entities[i];
+      String name = names[i];
+      if (name != null && !name.isEmpty() && rm.hasComponent(entityId) && !mKeepNames.contains(name)) {
+        excluded[excludedCount++] = entityId;
+        excludedNames.add(name);
+      } else {
+        keptNames[keptCount] = name;
+        kept[keptCount++] = entityId;
+      }
+    }
+    int[] sortedExcluded = Arrays.copyOf(excluded, excludedCount);
+    Arrays.sort(sortedExcluded);
+    return new Result(Arrays.copyOf(kept, keptCount), Arrays.copyOf(keptNames, keptCount), sortedExcluded, excludedNames);
+  }
+}
@@ -0,0 +1,108 @@
+package com.example.filament_android_demo;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.google.android.filament.RenderableManager;
+import com.google.android.filament.TransformManager;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 模型加载时构建一次的实体名称索引：名称 → 实体 id、TransformManager instance、RenderableManager instance
+ * 和初始局部变换。构建后不可变，每帧代码直接使用其中解析好的句柄，不再逐个实体调用 getName。
+ * <p>
+ * 同名实体只保留第一个，与原先线性查找的结果一致。instance 为 0 表示实体没有对应组件。
+ */
+final class EntityIndex {
+  private static final String TAG = "EntityIndex";
+
+  static final EntityIndex EMPTY = new EntityIndex(Collections.emptyMap());
+
+  static final class Entry {
+    @NonNull
+    final String name;
+    final int entityId;
+    final int transformInstance;
+    final int renderableInstance;
+    // 加载时的局部变换（列主序），没有 Transform 组件时为 null。不要修改。
+    @Nullable
+    final float[] initialTransform;
+
+    Entry(@NonNull String name, int entityId, int transformInstance, int renderableInstance, @Nullable float[] initialTransform) {
+      this.name = name;
+      this.entityId = entityId;
+      this.transformInstance = transformInstance;
+      this.renderableInstance = renderableInstance;
+      this.initialTransform = initialTransform;
+    }
+
+    boolean hasTransform() {
+      return transformInstance != 0;
+    }
+
+    boolean hasRenderable() {
+      return renderableInstance != 0;
+    }
+  }
+
+  private final Map<String, Entry> mEntries;
+
+  private EntityIndex(@NonNull Map<String, Entry> entries) {
+    mEntries = entries;
+  }
+
+  /**
+   * 遍历 entities（可能已经过滤），为每个有名称的实体解析组件句柄并记录初始变换。只在渲染线程调用。
+   * names 与 entities 一一对应，由调用方一次取得（或来自元数据缓存），这里不调用 getName。
+   * knownTransforms 非 null 时（来自 ModelSidecar）直接使用其中的初始变换，不再逐个读取。
+   */
+  @NonNull
+  static EntityIndex build(@NonNull int[] entities, @NonNull String[] names,
+                           @NonNull TransformManager tm, @NonNull RenderableManager rm,
+                           @Nullable Map<String, float[]> knownTransforms) {
+    Map<String, Entry> entries = new HashMap<>();
+    for (int i = 0; i < entities.length; i++) {
+      int entityId = entities[i];
+      String name = names[i];
+      if (name == null || name.isEmpty()) continue;
+      if (entries.containsKey(name)) {
+        Log.w(TAG, "Duplicate entity name '" + name + "' (ID: " + entityId + "), keeping the first one.");
+        continue;
+      }
+      int transformInstance = tm.hasComponent(entityId) ? tm.getInstance(entityId) : 0;
+      int renderableInstance = rm.hasComponent(entityId) ? rm.getInstance(entityId) : 0;
+      float[] initialTransform = null;
+      if (transformInstance != 0) {
+        initialTransform = knownTransforms != null ? knownTransforms.get(name) : null;
+        if (initialTransform == null) {
+          initialTransform = new float[16];
+          tm.getTransform(transformInstance, initialTransform);
+        }
+      } else {
+        Log.w(TAG, "Entity ID: " + entityId + ", Name: '" + name + "' has a name but no Transform component. Skipping transform storage.");
+      }
+      entries.put(name, new Entry(name, entityId, transformInstance, renderableInstance, initialTransform));
+    }
+    return new EntityIndex(Collections.unmodifiableMap(entries));
+  }
+
+  @Nullable
+  Entry get(@NonNull String name) {
+    return mEntries.get(name);
+  }
+
+  @NonNull
+  Collection<Entry> entries() {
+    return mEntries.values();
+  }
+
+  int size() {
+    return mEntries.size();
+  }
+}
@@ -0,0 +1,27 @@
+package com.example.filament_android_demo;
+
+import androidx.annotation.NonNull;
+
+import com.google.android.filament.Renderer;
+import com.google.android.filament.Texture;
+
+import java.nio.ByteBuffer;
+
+/**
+ * 帧回读策略。默认实现调用 Renderer.readPixels；测试可以替换为假实现（例如配合 NOOP 后端，
+ * NOOP 驱动不会产生真实像素）。
+ * <p>
+ * 必须在渲染线程上、beginFrame/endFrame 之间调用。callback 需要在 handler 对应的线程上执行，
+ * 执行时 target 中已经是完整的 RGBA 像素。
+ */
+interface FrameReadback {
+  void readPixels(@NonNull Renderer renderer, int width, int height, @NonNull ByteBuffer target,
+                  @NonNull Object handler, @NonNull Runnable callback);
+
+  FrameReadback FILAMENT = (renderer, width, height, target, handler, callback) -> {
+    final Texture.PixelBufferDescriptor descriptor = new Texture.PixelBufferDescriptor(
+      target, Texture.Format.RGBA, Texture.Type.UBYTE,
+      1, 0, 0, width, handler, callback);
+    renderer.readPixels(0, 0, width, height, descriptor);
+  };
+}
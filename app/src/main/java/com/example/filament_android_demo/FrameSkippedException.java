@@ -0,0 +1,17 @@
+package com.example.filament_android_demo;
+
+import java.util.concurrent.CancellationException;
+
+/**
+ * 帧请求在开始渲染之前被更新的请求取代（latest-wins），或因渲染队列已满被丢弃，因此没有渲染。
+ * 调用方通常应当忽略它，而不是当作渲染失败处理。
+ */
+public class FrameSkippedException extends CancellationException {
+  public FrameSkippedException() {
+    super("Frame skipped: superseded by a newer request.");
+  }
+
+  public FrameSkippedException(String message) {
+    super(message);
+  }
+}
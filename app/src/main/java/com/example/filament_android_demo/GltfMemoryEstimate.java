@@ -0,0 +1,342 @@
+package com.example.filament_android_demo;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 根据 .glb 的 JSON 描述估算模型加载后占用的 GPU 内存：顶点（含 morph target）、索引和纹理字节数。
+ * <p>
+ * Filament 不提供查询缓冲区大小的 Java API，这里直接按 accessor 的 count × 分量数 × 分量大小计算；
+ * 纹理按 PNG/JPEG 头中的尺寸以 RGBA8 + 完整 mip 链（×4/3）估算，读不到尺寸时按编码后大小的 4 倍估算。
+ * 不是 .glb 或解析失败时退回 {@link #unknown(long)}，只按文件大小计。
+ */
+final class GltfMemoryEstimate {
+  private static final String TAG = "GltfMemoryEstimate";
+
+  private static final int GLB_MAGIC = 0x46546C67; // "glTF"
+  private static final int CHUNK_JSON = 0x4E4F534A;
+  private static final int CHUNK_BIN = 0x004E4942;
+  private static final int PNG_IHDR = 0x49484452; // "IHDR", big-endian
+  // 超过 GLES 常见的最大纹理尺寸的宽高视为文件头损坏
+  private static final int MAX_IMAGE_DIMENSION = 16384;
+
+  private static final String[] MATERIAL_TEXTURE_KEYS = {
+    "normalTexture", "occlusionTexture", "emissiveTexture"
+  };
+  private static final String[] PBR_TEXTURE_KEYS = {
+    "baseColorTexture", "metallicRoughnessTexture"
+  };
+
+  final long vertexBytes;
+  final long indexBytes;
+  final long textureBytes;
+
+  // 按节点/网格/图片拆分的数据，用于估算筛掉部分实体后省下的内存
+  private final Map<String, Integer> mNodeMeshes;
+  private final long[] mMeshBytes;
+  private final int[][] mMeshImages;
+  private final long[] mImageBytes;
+
+  private GltfMemoryEstimate(long vertexBytes, long indexBytes, long textureBytes, @NonNull Map<String, Integer> nodeMeshes,
+                             @NonNull long[] meshBytes, @NonNull int[][] meshImages, @NonNull long[] imageBytes) {
+    this.vertexBytes = vertexBytes;
+    this.indexBytes = indexBytes;
+    this.textureBytes = textureBytes;
+    mNodeMeshes = nodeMeshes;
+    mMeshBytes = meshBytes;
+    mMeshImages = meshImages;
+    mImageBytes = imageBytes;
+  }
+
+  long totalBytes() {
+    return vertexBytes + indexBytes + textureBytes;
+  }
+
+  @NonNull
+  static GltfMemoryEstimate unknown(long sourceBytes) {
+    return new GltfMemoryEstimate(sourceBytes, 0, 0, Collections.emptyMap(), new long[0], new int[0][], new long[0]);
+  }
+
+  /**
+   * 估算只被 nodeNames 中节点使用的网格（顶点 + 索引）和纹理字节数，即这些节点全部去掉后能省下的内存。
+   * 同时被其他节点引用的网格和纹理不计入。解析失败时返回 0。
+   */
+  long bytesOnlyUsedBy(@NonNull Set<String> nodeNames) {
+    if (nodeNames.isEmpty() || mMeshBytes.length == 0) return 0;
+    boolean[] meshUsedElsewhere = new boolean[mMeshBytes.length];
+    boolean[] meshUsedByNodes = new boolean[mMeshBytes.length];
+    for (Map.Entry<String, Integer> node : mNodeMeshes.entrySet()) {
+      int mesh = node.getValue();
+      if (nodeNames.contains(node.getKey())) {
+        meshUsedByNodes[mesh] = true;
+      } else {
+        meshUsedElsewhere[mesh] = true;
+      }
+    }
+    boolean[] imageUsedElsewhere = new boolean[mImageBytes.length];
+    boolean[] imageUsedByNodes = new boolean[mImageBytes.length];
+    long bytes = 0;
+    for (int mesh = 0; mesh < mMeshBytes.length; mesh++) {
+      boolean exclusive = meshUsedByNodes[mesh] && !meshUsedElsewhere[mesh];
+      if (exclusive) bytes += mMeshBytes[mesh];
+      // Meshes not referenced by any node are not instantiated, so their images do not count as used.
+      if (!meshUsedByNodes[mesh] && !meshUsedElsewhere[mesh]) continue;
+      for (int image : mMeshImages[mesh]) {
+        if (image >= mImageBytes.length) continue;
+        if (exclusive) {
+          imageUsedByNodes[image] = true;
+        } else {
+          imageUsedElsewhere[image] = true;
+        }
+      }
+    }
+    for (int image = 0; image < mImageBytes.length; image++) {
+      if (imageUsedByNodes[image] && !imageUsedElsewhere[image]) bytes += mImageBytes[image];
+    }
+    return bytes;
+  }
+
+  /**
+   * 不修改 source 的 position/limit。
+   */
+  @NonNull
+  static GltfMemoryEstimate estimate(@NonNull ByteBuffer source) {
+    ByteBuffer glb = source.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+    try {
+      if (glb.remaining() < 20 || glb.getInt(glb.position()) != GLB_MAGIC) {
+        return unknown(source.remaining());
+      }
+      int base = glb.position();
+      int offset = base + 12;
+      JSONObject json = null;
+      int binOffset = -1;
+      while (offset + 8 <= glb.limit()) {
+        int chunkLength = glb.getInt(offset);
+        int chunkType = glb.getInt(offset + 4);
+        int dataOffset = offset + 8;
+        if (chunkType == CHUNK_JSON) {
+          byte[] jsonBytes = new byte[chunkLength];
+          ByteBuffer view = glb.duplicate();
+          view.position(dataOffset);
+          view.get(jsonBytes);
+          json = new JSONObject(new String(jsonBytes, StandardCharsets.UTF_8));
+        } else if (chunkType == CHUNK_BIN) {
+          binOffset = dataOffset;
+        }
+        offset = dataOffset + ((chunkLength + 3) & ~3);
+      }
+      if (json == null) return unknown(source.remaining());
+      return fromJson(json, glb, binOffset);
+    } catch (JSONException | RuntimeException e) {
+      Log.w(TAG, "Failed to parse glb for memory estimate, using file size.", e);
+      return unknown(source.remaining());
+    }
+  }
+
+  @NonNull
+  private static GltfMemoryEstimate fromJson(@NonNull JSONObject json, @NonNull ByteBuffer glb, int binOffset) {
+    JSONArray accessors = json.optJSONArray("accessors");
+    Set<Integer> vertexAccessors = new HashSet<>();
+    Set<Integer> indexAccessors = new HashSet<>();
+    JSONArray meshes = json.optJSONArray("meshes");
+    int meshCount = meshes != null ? meshes.length() : 0;
+    long[] meshBytes = new long[meshCount];
+    int[][] meshImages = new int[meshCount][];
+    for (int m = 0; m < meshCount; m++) {
+      Set<Integer> meshVertexAccessors = new HashSet<>();
+      Set<Integer> meshIndexAccessors = new HashSet<>();
+      Set<Integer> images = new HashSet<>();
+      JSONArray primitives = meshes.optJSONObject(m).optJSONArray("primitives");
+      for (int p = 0; primitives != null && p < primitives.length(); p++) {
+        JSONObject primitive = primitives.optJSONObject(p);
+        collectAccessors(primitive.optJSONObject("attributes"), meshVertexAccessors);
+        JSONArray targets = primitive.optJSONArray("targets");
+        for (int t = 0; targets != null && t < targets.length(); t++) {
+          collectAccessors(targets.optJSONObject(t), meshVertexAccessors);
+        }
+        int indices = primitive.optInt("indices", -1);
+        if (indices >= 0) meshIndexAccessors.add(indices);
+        collectMaterialImages(json, primitive.optInt("material", -1), images);
+      }
+      for (int accessor : meshVertexAccessors) meshBytes[m] += accessorBytes(accessors, accessor);
+      for (int accessor : meshIndexAccessors) meshBytes[m] += accessorBytes(accessors, accessor);
+      meshImages[m] = toIntArray(images);
+      vertexAccessors.addAll(meshVertexAccessors);
+      indexAccessors.addAll(meshIndexAccessors);
+    }
+    long vertexBytes = 0;
+    for (int accessor : vertexAccessors) vertexBytes += accessorBytes(accessors, accessor);
+    long indexBytes = 0;
+    for (int accessor : indexAccessors) indexBytes += accessorBytes(accessors, accessor);
+
+    JSONArray images = json.optJSONArray("images");
+    int imageCount = images != null ? images.length() : 0;
+    long[] imageBytes = new long[imageCount];
+    long textureBytes = 0;
+    for (int i = 0; i < imageCount; i++) {
+      imageBytes[i] = imageBytes(json, images.optJSONObject(i), glb, binOffset);
+      textureBytes += imageBytes[i];
+    }
+
+    Map<String, Integer> nodeMeshes = new HashMap<>();
+    JSONArray nodes = json.optJSONArray("nodes");
+    for (int n = 0; nodes != null && n < nodes.length(); n++) {
+      JSONObject node = nodes.optJSONObject(n);
+      int mesh = node.optInt("mesh", -1);
+      String name = node.optString("name", "");
+      if (mesh >= 0 && mesh < meshCount && !name.isEmpty()) nodeMeshes.put(name, mesh);
+    }
+    return new GltfMemoryEstimate(vertexBytes, indexBytes, textureBytes, nodeMeshes, meshBytes, meshImages, imageBytes);
+  }
+
+  private static void collectMaterialImages(@NonNull JSONObject json, int materialIndex, @NonNull Set<Integer> out) {
+    JSONArray materials = json.optJSONArray("materials");
+    if (materials == null || materialIndex < 0 || materialIndex >= materials.length()) return;
+    JSONObject material = materials.optJSONObject(materialIndex);
+    for (String key : MATERIAL_TEXTURE_KEYS) {
+      addTextureImage(json, material.optJSONObject(key), out);
+    }
+    JSONObject pbr = material.optJSONObject("pbrMetallicRoughness");
+    if (pbr != null) {
+      for (String key : PBR_TEXTURE_KEYS) {
+        addTextureImage(json, pbr.optJSONObject(key), out);
+      }
+    }
+  }
+
+  private static void addTextureImage(@NonNull JSONObject json, JSONObject textureInfo, @NonNull Set<Integer> out) {
+    JSONArray textures = json.optJSONArray("textures");
+    if (textureInfo == null || textures == null) return;
+    int texture = textureInfo.optInt("index", -1);
+    if (texture < 0 || texture >= textures.length()) return;
+    int source = textures.optJSONObject(texture).optInt("source", -1);
+    if (source >= 0) out.add(source);
+  }
+
+  @NonNull
+  private static int[] toIntArray(@NonNull Set<Integer> values) {
+    int[] result = new int[values.size()];
+    int i = 0;
+    for (int value : values) result[i++] = value;
+    return result;
+  }
+
+  private static void collectAccessors(JSONObject attributes, @NonNull Set<Integer> out) {
+    if (attributes == null) return;
+    java.util.Iterator<String> keys = attributes.keys();
+    while (keys.hasNext()) {
+      int accessor = attributes.optInt(keys.next(), -1);
+      if (accessor >= 0) out.add(accessor);
+    }
+  }
+
+  static long accessorBytes(JSONArray accessors, int index) {
+    if (accessors == null || index < 0 || index >= accessors.length()) return 0;
+    JSONObject accessor = accessors.optJSONObject(index);
+    long count = accessor.optLong("count", 0);
+    return count * componentCount(accessor.optString("type", "SCALAR")) * componentSize(accessor.optInt("componentType", 5126));
+  }
+
+  private static int componentCount(@NonNull String type) {
+    switch (type) {
+      case "VEC2":
+        return 2;
+      case "VEC3":
+        return 3;
+      case "VEC4":
+      case "MAT2":
+        return 4;
+      case "MAT3":
+        return 9;
+      case "MAT4":
+        return 16;
+      default:
+        return 1;
+    }
+  }
+
+  private static int componentSize(int componentType) {
+    switch (componentType) {
+      case 5120: // BYTE
+      case 5121: // UNSIGNED_BYTE
+        return 1;
+      case 5122: // SHORT
+      case 5123: // UNSIGNED_SHORT
+        return 2;
+      default: // UNSIGNED_INT, FLOAT
+        return 4;
+    }
+  }
+
+  private static long imageBytes(@NonNull JSONObject json, JSONObject image, @NonNull ByteBuffer glb, int binOffset) {
+    if (image == null) return 0;
+    int bufferView = image.optInt("bufferView", -1);
+    JSONArray bufferViews = json.optJSONArray("bufferViews");
+    if (bufferView < 0 || binOffset < 0 || bufferViews == null || bufferView >= bufferViews.length()) {
+      return 0; // External or data-URI images are not resolved here.
+    }
+    JSONObject view = bufferViews.optJSONObject(bufferView);
+    int start = binOffset + view.optInt("byteOffset", 0);
+    int length = view.optInt("byteLength", 0);
+    long pixels = decodedPixelCount(glb, start, Math.min(length, glb.limit() - start));
+    if (pixels <= 0) return length * 4L;
+    return pixels * 4L * 4L / 3L;
+  }
+
+  /**
+   * 从 PNG 或 JPEG 文件头读取宽高，返回像素数；无法识别、宽高不在 (0, MAX_IMAGE_DIMENSION] 内时返回 -1，
+   * 由调用方退回按编码大小估算。
+   */
+  private static long decodedPixelCount(@NonNull ByteBuffer glb, int start, int length) {
+    if (start < 0 || length <= 0) return -1;
+    if (length >= 24 && (glb.get(start) & 0xFF) == 0x89 && glb.get(start + 1) == 'P'
+      && glb.get(start + 2) == 'N' && glb.get(start + 3) == 'G') {
+      ByteBuffer be = glb.duplicate().order(ByteOrder.BIG_ENDIAN);
+      if (be.getInt(start + 12) != PNG_IHDR) return -1; // IHDR must be the first chunk
+      return pixelCount(be.getInt(start + 16), be.getInt(start + 20));
+    }
+    if (length >= 4 && (glb.get(start) & 0xFF) == 0xFF && (glb.get(start + 1) & 0xFF) == 0xD8) {
+      int offset = start + 2;
+      int end = start + length;
+      while (offset + 9 <= end) {
+        if ((glb.get(offset) & 0xFF) != 0xFF) return -1;
+        int marker = glb.get(offset + 1) & 0xFF;
+        int segmentLength = ((glb.get(offset + 2) & 0xFF) << 8) | (glb.get(offset + 3) & 0xFF);
+        boolean startOfFrame = marker >= 0xC0 && marker <= 0xCF && marker != 0xC4 && marker != 0xC8 && marker != 0xCC;
+        if (startOfFrame) {
+          int height = ((glb.get(offset + 5) & 0xFF) << 8) | (glb.get(offset + 6) & 0xFF);
+          int width = ((glb.get(offset + 7) & 0xFF) << 8) | (glb.get(offset + 8) & 0xFF);
+          return pixelCount(width, height);
+        }
+        offset += 2 + segmentLength;
+      }
+    }
+    return -1;
+  }
+
+  private static long pixelCount(int width, int height) {
+    if (width <= 0 || height <= 0 || width > MAX_IMAGE_DIMENSION || height > MAX_IMAGE_DIMENSION) return -1;
+    return (long) width * height;
+  }
+
+  @NonNull
+  @Override
+  public String toString() {
+    return "GltfMemoryEstimate{vertexKb=" + vertexBytes / 1024 + ", indexKb=" + indexBytes / 1024
+      + ", textureKb=" + textureBytes / 1024 + "}";
+  }
+}
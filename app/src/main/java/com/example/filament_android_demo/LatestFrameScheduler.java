@@ -0,0 +1,184 @@
+package com.example.filament_android_demo;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.IntSupplier;
+
+/**
+ * Latest-wins 帧调度器：最多 maxInFlight 帧同时渲染，其余请求只保留最新的一个。
+ * 被新请求替换掉的旧请求以 {@link FrameSkippedException} 结束，不会渲染过时的姿态，
+ * 因此无论调用方提交得多快，排队延迟都有上界。
+ * <p>
+ * 调用方对返回的 future 调用 cancel() 时：等待中的请求不再渲染；渲染中的请求会取消渲染器返回的 future，
+ * 由渲染器决定跳过还是丢弃回读。取消的请求计入 cancelled，而不是 skipped/failed。
+ */
+public final class LatestFrameScheduler<T> {
+
+  interface FrameRenderer<T> {
+    @NonNull
+    CompletableFuture<RenderedFrame> render(@Nullable T request);
+  }
+
+  /**
+   * 调度器计数器快照。queueDepth = 渲染中的帧 + 等待中的请求（0 或 1）。
+   */
+  public static final class Stats {
+    public final long submitted;
+    public final long rendered;
+    public final long skipped;
+    public final long cancelled;
+    public final long failed;
+    public final int queueDepth;
+    public final int maxQueueDepth;
+
+    Stats(long submitted, long rendered, long skipped, long cancelled, long failed, int queueDepth, int maxQueueDepth) {
+      this.submitted = submitted;
+      this.rendered = rendered;
+      this.skipped = skipped;
+      this.cancelled = cancelled;
+      this.failed = failed;
+      this.queueDepth = queueDepth;
+      this.maxQueueDepth = maxQueueDepth;
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+      return "LatestFrameScheduler.Stats{submitted=" + submitted + ", rendered=" + rendered + ", skipped=" + skipped
+        + ", cancelled=" + cancelled + ", failed=" + failed + ", queueDepth=" + queueDepth + ", maxQueueDepth=" + maxQueueDepth + "}";
+    }
+  }
+
+  private static final class Pending<T> {
+    final T request;
+    final CompletableFuture<RenderedFrame> future;
+
+    Pending(T request, CompletableFuture<RenderedFrame> future) {
+      this.request = request;
+      this.future = future;
+    }
+  }
+
+  private final FrameRenderer<T> mRenderer;
+  private final IntSupplier mMaxInFlight;
+
+  private final Object mLock = new Object();
+  private Pending<T> mPending = null; // guarded by mLock
+  private int mInFlight = 0; // guarded by mLock
+  private long mSubmitted = 0; // guarded by mLock
+  private long mRendered = 0; // guarded by mLock
+  private long mSkipped = 0; // guarded by mLock
+  private long mCancelled = 0; // guarded by mLock
+  private long mFailed = 0; // guarded by mLock
+  private int mMaxQueueDepth = 0; // guarded by mLock
+
+  LatestFrameScheduler(@NonNull FrameRenderer<T> renderer, @NonNull IntSupplier maxInFlight) {
+    mRenderer = renderer;
+    mMaxInFlight = maxInFlight;
+  }
+
+  @NonNull
+  CompletableFuture<RenderedFrame> submit(@Nullable T request) {
+    CompletableFuture<RenderedFrame> future = new CompletableFuture<>();
+    Pending<T> superseded = null;
+    boolean startNow = false;
+    synchronized (mLock) {
+      mSubmitted++;
+      if (mInFlight < Math.max(1, mMaxInFlight.getAsInt())) {
+        mInFlight++;
+        startNow = true;
+      } else {
+        superseded = mPending;
+        mPending = new Pending<>(request, future);
+        if (superseded != null) countDroppedLocked(superseded);
+      }
+      mMaxQueueDepth = Math.max(mMaxQueueDepth, queueDepthLocked());
+    }
+    if (superseded != null) {
+      superseded.future.completeExceptionally(new FrameSkippedException());
+    }
+    if (startNow) {
+      start(request, future);
+    }
+    return future;
+  }
+
+  /**
+   * 丢弃等待中的请求（以 skipped 结束）。渲染中的帧不受影响。
+   */
+  void skipPending() {
+    Pending<T> pending;
+    synchronized (mLock) {
+      pending = mPending;
+      mPending = null;
+      if (pending != null) countDroppedLocked(pending);
+    }
+    if (pending != null) {
+      pending.future.completeExceptionally(new FrameSkippedException());
+    }
+  }
+
+  @NonNull
+  public Stats getStats() {
+    synchronized (mLock) {
+      return new Stats(mSubmitted, mRendered, mSkipped, mCancelled, mFailed, queueDepthLocked(), mMaxQueueDepth);
+    }
+  }
+
+  private void countDroppedLocked(@NonNull Pending<T> pending) {
+    if (pending.future.isCancelled()) mCancelled++;
+    else mSkipped++;
+  }
+
+  private int queueDepthLocked() {
+    return mInFlight + (mPending != null ? 1 : 0);
+  }
+
+  private void start(@Nullable T request, @NonNull CompletableFuture<RenderedFrame> future) {
+    CompletableFuture<RenderedFrame> rendering;
+    try {
+      rendering = mRenderer.render(request);
+    } catch (Throwable t) {
+      rendering = new CompletableFuture<>();
+      rendering.completeExceptionally(t);
+    }
+    final CompletableFuture<RenderedFrame> renderingFuture = rendering;
+    future.whenComplete((frame, error) -> {
+      if (future.isCancelled()) renderingFuture.cancel(false);
+    });
+    rendering.whenComplete((frame, error) -> {
+      synchronized (mLock) {
+        if (future.isCancelled()) mCancelled++;
+        else if (error != null) mFailed++;
+        else mRendered++;
+      }
+      if (error != null) {
+        future.completeExceptionally(error instanceof CompletionException && error.getCause() != null ? error.getCause() : error);
+      } else if (!future.complete(frame) && frame != null) {
+        frame.release();
+      }
+      onFrameFinished();
+    });
+  }
+
+  private void onFrameFinished() {
+    Pending<T> next;
+    synchronized (mLock) {
+      next = mPending;
+      mPending = null;
+      if (next != null && next.future.isCancelled()) {
+        mCancelled++;
+        next = null;
+      }
+      if (next == null) {
+        mInFlight--;
+        return;
+      }
+      // The finished frame's in-flight slot is handed straight to the pending request.
+    }
+    start(next.request, next.future);
+  }
+}
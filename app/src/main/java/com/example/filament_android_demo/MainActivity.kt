@@ -6,6 +6,7 @@ import android.content.pm.PackageManager
 import android.graphics.Bitmap
 import android.os.Bundle
 import android.util.Log
+import android.view.Choreographer
 import android.view.ViewGroup
 import android.os.Build
 import android.view.Surface
@@ -46,9 +47,12 @@ import com.example.filament_android_demo.ModelRender.headMeshName
 import com.example.filament_android_demo.ui.theme.Filament_android_demoTheme
 import com.google.mediapipe.examples.facelandmarker.FaceLandmarkerHelper
 import com.google.mediapipe.tasks.vision.facelandmarker.FaceLandmarkerResult
+import java.util.concurrent.CancellationException
+import java.util.concurrent.CompletableFuture
 import java.util.concurrent.CompletionException
 import java.util.concurrent.ExecutorService
 import java.util.concurrent.Executors
+import java.util.concurrent.atomic.AtomicReference
 import kotlin.math.max
 
 /*
@@ -65,6 +69,8 @@ import kotlin.math.max
 
 
 class MainActivity : ComponentActivity() {
+    // 进程级共享的渲染器引用，配置变更重建时新 Activity 直接接入已初始化的渲染器
+    private lateinit var modelRenderLease: ModelRenderHolder.Lease
     private lateinit var modelRender: ModelRender
     private var isRendererInitialized by mutableStateOf(false)
 
@@ -88,41 +94,46 @@ class MainActivity : ComponentActivity() {
     private val _imageHeight = mutableStateOf(1)
     val imageHeight: State<Int> = _imageHeight
 
+    // 启动编排：渲染器、landmarker 模型和相机并行启动，记录每个阶段的耗时
+    private val startup = StartupOrchestrator()
+    // 获得相机权限时完成、被拒绝时异常完成，相机绑定阶段依赖它
+    private val cameraPermissionGranted = CompletableFuture<Void>()
+    private var firstLandmarkResultLogged = false
+
     // Permission Launcher
     private val requestPermissionLauncher =
         registerForActivityResult(ActivityResultContracts.RequestPermission()) { isGranted: Boolean ->
             if (isGranted) {
                 showToast("Camera permission granted")
-                // 权限通过后初始化 MediaPipeProcessor
-                mediaPipeProcessor.init(this)
+                // 权限通过后相机绑定阶段开始
+                cameraPermissionGranted.complete(null)
             } else {
                 showToast("Camera permission denied")
+                // 相机绑定阶段随之跳过，时间线中记录为失败而不是一直 RUNNING
+                cameraPermissionGranted.completeExceptionally(SecurityException("Camera permission denied"))
             }
         }
 
     override fun onCreate(savedInstanceState: Bundle?) {
         super.onCreate(savedInstanceState)
-        modelRender = ModelRender()
-
-        // 异步初始化 ModelRender，使用 CompletableFuture
-        modelRender.init(this).handle { _, throwable ->
-            runOnUiThread {
-                if (throwable != null) {
-                    isRendererInitialized = false
-                    showToast("HeadlessRenderer 初始化失败: ${throwable.message}")
-                    Log.e("MainActivity", "HeadlessRenderer initialization failed", throwable)
-                } else {
-                    isRendererInitialized = true
-                    showToast("HeadlessRenderer 初始化成功")
-                    Log.i("MainActivity", "HeadlessRenderer initialization successful.")
-                }
+        modelRenderLease = ModelRenderHolder.getInstance().acquire(this) { newRender ->
+            // 材质预热与下面的相机启动并行进行，init 在模型加载完成后即可返回
+            newRender.setWarmUpMode(ModelRender.WarmUpMode.BACKGROUND)
+            newRender.warmUpFuture.thenRun {
+                Log.i("MainActivity", "Renderer warm-up finished: ${newRender.startupTimings}")
             }
         }
+        modelRender = modelRenderLease.modelRender
 
         // 初始化 MediaPipeProcessor
         mediaPipeProcessor = MediaPipeProcessor(this)
         mediaPipeProcessor.setOnResult { resultBundle ->
+            startup.recordEvent(EVENT_FIRST_LANDMARK_RESULT)
             runOnUiThread {
+                if (!firstLandmarkResultLogged) {
+                    firstLandmarkResultLogged = true
+                    Log.i("MainActivity", "First landmark result: ${startup.timeline()}, renderer: ${modelRender.startupTimings}")
+                }
                 _landmarkResult.value = resultBundle.result
                 _imageWidth.value = resultBundle.inputImageWidth
                 _imageHeight.value = resultBundle.inputImageHeight
@@ -146,6 +157,42 @@ class MainActivity : ComponentActivity() {
             }
         }
 
+        startup
+            .addPhase(PHASE_RENDERER, emptyList(), null) {
+                // 冷接入时等待 ModelRender 异步初始化，热接入时共享的初始化 future 已经完成
+                modelRenderLease.ready.also { initFuture ->
+                    initFuture.handle { _, throwable ->
+                        runOnUiThread {
+                            if (throwable != null) {
+                                isRendererInitialized = false
+                                showToast("HeadlessRenderer 初始化失败: ${throwable.message}")
+                                Log.e("MainActivity", "HeadlessRenderer initialization failed", throwable)
+                            } else {
+                                isRendererInitialized = true
+                                showToast("HeadlessRenderer 初始化成功")
+                                Log.i(
+                                    "MainActivity",
+                                    "HeadlessRenderer ready (${if (modelRenderLease.isWarm) "warm" else "cold"} attach " +
+                                        "${modelRenderLease.attachNanos / 1_000_000.0}ms): ${ModelRenderHolder.getInstance().attachStats}"
+                                )
+                            }
+                        }
+                    }
+                }
+            }
+            .addPhase(PHASE_LANDMARKER_MODEL, emptyList(), null) { mediaPipeProcessor.loadLandmarker() }
+            .addPhase(PHASE_CAMERA_PROVIDER, emptyList(), null) { mediaPipeProcessor.obtainCameraProvider() }
+            .addPhase(PHASE_CAMERA_PERMISSION, emptyList(), null) { cameraPermissionGranted }
+            .addPhase(
+                PHASE_CAMERA_BIND,
+                listOf(PHASE_CAMERA_PROVIDER, PHASE_CAMERA_PERMISSION),
+                ContextCompat.getMainExecutor(this)
+            ) {
+                mediaPipeProcessor.bindCamera(this)
+                CompletableFuture.completedFuture(null)
+            }
+        startup.start()
+
         enableEdgeToEdge()
         setContent {
             Filament_android_demoTheme {
@@ -171,7 +218,7 @@ class MainActivity : ComponentActivity() {
     private fun checkCameraPermission() {
         when (PackageManager.PERMISSION_GRANTED) {
             ContextCompat.checkSelfPermission(this, Manifest.permission.CAMERA) -> {
-                mediaPipeProcessor.init(this)
+                cameraPermissionGranted.complete(null)
             }
 
             else -> {
@@ -180,19 +227,44 @@ class MainActivity : ComponentActivity() {
         }
     }
 
+    override fun onStart() {
+        super.onStart()
+        // Rebuild anything dropped while in the background before the first frame asks for it.
+        if (isRendererInitialized && modelRender.resourceTier != ModelRender.ResourceTier.FULL) {
+            modelRender.restoreResources().handle { report, throwable ->
+                if (throwable != null) {
+                    Log.e("MainActivity", "Failed to restore renderer resources", throwable)
+                } else {
+                    Log.i("MainActivity", "Renderer resources restored: $report")
+                }
+            }
+        }
+    }
+
+    override fun onTrimMemory(level: Int) {
+        super.onTrimMemory(level)
+        if (!isRendererInitialized) return
+        modelRender.onTrimMemory(level).handle { report, throwable ->
+            if (throwable != null) {
+                Log.e("MainActivity", "Failed to trim renderer resources (level $level)", throwable)
+            } else {
+                Log.i("MainActivity", "onTrimMemory($level): $report, ${NativeResourceTracker.getInstance().snapshot()}")
+            }
+        }
+    }
+
     override fun onDestroy() {
         super.onDestroy()
         Log.i("MainActivity", "onDestroy called, cleaning up resources.")
         if (::mediaPipeProcessor.isInitialized) {
             mediaPipeProcessor.release()
         }
-        if (::modelRender.isInitialized) {
-            modelRender.release().handle { _, throwable ->
-                if (throwable != null) {
-                    Log.e("MainActivity", "Error during ModelRender release", throwable)
-                } else {
-                    Log.i("MainActivity", "ModelRender released successfully.")
-                }
+        if (::modelRenderLease.isInitialized) {
+            if (isChangingConfigurations) {
+                // The recreated Activity reattaches within the grace period.
+                modelRenderLease.close()
+            } else {
+                modelRenderLease.closeWithoutGrace()
             }
         }
     }
@@ -200,6 +272,15 @@ class MainActivity : ComponentActivity() {
     private fun showToast(message: String) {
         Toast.makeText(this, message, Toast.LENGTH_SHORT).show()
     }
+
+    companion object {
+        private const val PHASE_RENDERER = "renderer"
+        private const val PHASE_LANDMARKER_MODEL = "landmarkerModel"
+        private const val PHASE_CAMERA_PROVIDER = "cameraProvider"
+        private const val PHASE_CAMERA_PERMISSION = "cameraPermission"
+        private const val PHASE_CAMERA_BIND = "cameraBind"
+        private const val EVENT_FIRST_LANDMARK_RESULT = "firstLandmarkResult"
+    }
 }
 
 // --- Composables ---
@@ -219,8 +300,8 @@ fun MainScreen(
 ) {
     val context = LocalContext.current
     var showDebugImagesDialog by remember { mutableStateOf(false) }
-    var overlayBitmap by remember { mutableStateOf<Bitmap?>(null) }
-    var isOverlayLoading by remember { mutableStateOf(false) }
+    var overlayFrame by remember { mutableStateOf<RenderedFrame?>(null) }
+    val overlayBitmap = overlayFrame?.bitmap
     var hasCameraPermission by remember { mutableStateOf(false) }
 
     // Debug image states
@@ -231,6 +312,24 @@ fun MainScreen(
 
     val currentOverlayEnabled by overlayEnabled
 
+    // 替换叠加帧时把旧帧还给 ModelRender 的回读池。新帧画出之前，上一份 display list 仍引用旧 Bitmap，
+    // 硬件渲染线程可能还在绘制或上传它，因此等新帧绘制完成后再归还，避免回读线程覆盖正在显示的像素
+    fun replaceOverlayFrame(frame: RenderedFrame?) {
+        val previous = overlayFrame
+        overlayFrame = frame
+        if (previous != null && previous !== frame) releaseAfterNextDraw(previous)
+    }
+
+    // 最近一次尚未完成的叠加帧请求；关闭叠加或离开界面时取消，排队中的帧不再渲染
+    val pendingOverlayRequest = remember { AtomicReference<CompletableFuture<RenderedFrame>?>(null) }
+
+    DisposableEffect(Unit) {
+        onDispose {
+            pendingOverlayRequest.getAndSet(null)?.cancel(false)
+            replaceOverlayFrame(null)
+        }
+    }
+
     LaunchedEffect(Unit) {
         hasCameraPermission = ContextCompat.checkSelfPermission(
             context,
@@ -242,35 +341,43 @@ fun MainScreen(
     LaunchedEffect(landmarkResult, currentOverlayEnabled, isRendererReady) {
         if (currentOverlayEnabled && isRendererReady) {
             if (landmarkResult != null) {
-                if (isOverlayLoading) return@LaunchedEffect
-                isOverlayLoading = true
-
-                renderer.applyLandmarkResultAndRender(landmarkResult)
-                    .handle { bitmap, throwable ->
-                        (context as? ComponentActivity)?.runOnUiThread {
-                            isOverlayLoading = false
-                            if (throwable != null) {
-                                val cause =
-                                    if (throwable is CompletionException) throwable.cause ?: throwable else throwable
+                // ModelRender 内部按 latest-wins 合并请求，这里每个结果都直接提交
+                val request = renderer.applyLandmarkResultAndRenderFrame(landmarkResult)
+                pendingOverlayRequest.set(request)
+                request
+                    .handle { frame, throwable ->
+                        pendingOverlayRequest.compareAndSet(request, null)
+                        val activity = context as? ComponentActivity
+                        if (activity == null) {
+                            frame?.release()
+                            return@handle
+                        }
+                        activity.runOnUiThread {
+                            val cause =
+                                if (throwable is CompletionException) throwable.cause ?: throwable else throwable
+                            if (cause is FrameSkippedException) {
+                                Log.v("MainScreen", "Overlay: Frame superseded by a newer landmark result.")
+                            } else if (cause is CancellationException) {
+                                Log.v("MainScreen", "Overlay: Frame request cancelled.")
+                            } else if (cause != null) {
                                 Log.e("MainScreen", "Overlay: Rendering failed", cause)
-                                overlayBitmap = null
-                            } else if (bitmap != null) {
+                                replaceOverlayFrame(null)
+                            } else if (frame != null) {
                                 Log.d("MainScreen", "Overlay: Rendering successful.")
-                                overlayBitmap = bitmap
+                                replaceOverlayFrame(frame)
                             } else {
-                                Log.e("MainScreen", "Overlay: Rendering completed but bitmap was null.")
-                                overlayBitmap = null
+                                Log.e("MainScreen", "Overlay: Rendering completed but frame was null.")
+                                replaceOverlayFrame(null)
                             }
                         }
                     }
             } else {
-                overlayBitmap = null
-                isOverlayLoading = false
+                replaceOverlayFrame(null)
                 Log.d("MainScreen", "Overlay: No landmark result, clearing overlay bitmap.")
             }
         } else if (!currentOverlayEnabled) {
-            overlayBitmap = null
-            isOverlayLoading = false
+            pendingOverlayRequest.getAndSet(null)?.cancel(false)
+            replaceOverlayFrame(null)
             Log.d("MainScreen", "Overlay: Disabled, clearing overlay bitmap.")
         }
     }
@@ -323,7 +430,7 @@ fun MainScreen(
             onOverlayChange = { enabled ->
                 (overlayEnabled as? MutableState<Boolean>)?.value = enabled
                 if (!enabled) {
-                    overlayBitmap = null
+                    replaceOverlayFrame(null)
                 }
             }
         )
@@ -536,6 +643,17 @@ fun DebugImagesDialog(
     )
 }
 
+/**
+ * 在下下个 vsync 把帧还给回读池：第一个回调所在的帧绘制并同步到 RenderThread 后，旧 Bitmap 不再被任何 display list 引用。
+ * 必须在主线程调用。
+ */
+private fun releaseAfterNextDraw(frame: RenderedFrame) {
+    val choreographer = Choreographer.getInstance()
+    choreographer.postFrameCallback {
+        choreographer.postFrameCallback { frame.release() }
+    }
+}
+
 private fun handleCaptureClick(
     context: Context,
     isRendererReady: Boolean,
@@ -555,13 +673,13 @@ private fun handleCaptureClick(
     setLoading(true)
     Log.d("MainScreen", "拍摄按钮点击，开始生成调试图像...")
 
-    // Generate Image 2 (3D Model) first
-    renderer.applyLandmarkResultAndRender(landmarkResult)
+    // Generate Image 2 (3D Model) first. Bypasses the live overlay's latest-wins scheduling, so it is never superseded.
+    renderer.captureLandmarkResult(landmarkResult)
         .handle { bitmap, throwable ->
             (context as? ComponentActivity)?.runOnUiThread {
                 setLoading(false)
-                if (throwable != null) {
-                    val cause = if (throwable is CompletionException) throwable.cause ?: throwable else throwable
+                val cause = if (throwable is CompletionException) throwable.cause ?: throwable else throwable
+                if (cause != null) {
                     Log.e("MainScreen", "3D Model rendering failed", cause)
                     Toast.makeText(
                         context,
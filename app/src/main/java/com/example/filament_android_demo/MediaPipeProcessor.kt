@@ -6,16 +6,22 @@ import androidx.activity.ComponentActivity
 import androidx.camera.core.*
 import androidx.camera.lifecycle.ProcessCameraProvider
 import androidx.core.content.ContextCompat
+import androidx.lifecycle.Lifecycle
 import com.google.mediapipe.examples.facelandmarker.FaceLandmarkerHelper
 import com.google.mediapipe.tasks.vision.core.RunningMode
+import java.util.concurrent.CompletableFuture
 import java.util.concurrent.ExecutorService
 import java.util.concurrent.Executors
 import java.util.function.Consumer
 
 class MediaPipeProcessor(private val context: Context) : FaceLandmarkerHelper.LandmarkerListener {
 
-    private lateinit var backgroundExecutor: ExecutorService
+    // 加载 landmarker 模型和逐帧检测都在这个线程上，GPU delegate 要求两者在同一线程
+    private val backgroundExecutor: ExecutorService = Executors.newSingleThreadExecutor()
+    // 只在 backgroundExecutor 上读写
     private lateinit var faceLandmarkerHelper: FaceLandmarkerHelper
+    @Volatile
+    private var released = false
     private var cameraProvider: ProcessCameraProvider? = null
     private var camera: Camera? = null
     private var preview: Preview? = null
@@ -34,40 +40,78 @@ class MediaPipeProcessor(private val context: Context) : FaceLandmarkerHelper.La
         val currentDelegate: Int = FaceLandmarkerHelper.DELEGATE_CPU
     )
 
+    /**
+     * 一次完成全部准备：加载 landmarker 模型并绑定相机，两者并行进行。
+     * 需要分别控制各阶段（例如与权限请求、渲染器初始化并行）时使用 [loadLandmarker]、[obtainCameraProvider]、[bindCamera]。
+     */
     fun init(
         activity: ComponentActivity,
         initialCameraFacing: Int = CameraSelector.LENS_FACING_FRONT,
         config: MediaPipeConfig = MediaPipeConfig()
     ) {
-        backgroundExecutor = Executors.newSingleThreadExecutor()
-        this.cameraFacing = initialCameraFacing
+        loadLandmarker(config)
+        obtainCameraProvider().thenAcceptAsync({
+            bindCamera(activity, initialCameraFacing)
+        }, ContextCompat.getMainExecutor(context))
+    }
 
-        faceLandmarkerHelper = FaceLandmarkerHelper(
-            context = context,
-            runningMode = RunningMode.LIVE_STREAM,
-            minFaceDetectionConfidence = config.minFaceDetectionConfidence,
-            minFaceTrackingConfidence = config.minFaceTrackingConfidence,
-            minFacePresenceConfidence = config.minFacePresenceConfidence,
-            maxNumFaces = config.maxNumFaces,
-            currentDelegate = config.currentDelegate,
-            faceLandmarkerHelperListener = this
-        )
-
-        startCamera(activity)
+    /**
+     * 在后台检测线程上加载 face landmarker 模型（约 3.7 MB，同步加载），不需要相机权限。
+     * 加载完成前到达的相机帧直接丢弃。
+     */
+    fun loadLandmarker(config: MediaPipeConfig = MediaPipeConfig()): CompletableFuture<Void> {
+        return CompletableFuture.runAsync({
+            faceLandmarkerHelper = FaceLandmarkerHelper(
+                context = context,
+                runningMode = RunningMode.LIVE_STREAM,
+                minFaceDetectionConfidence = config.minFaceDetectionConfidence,
+                minFaceTrackingConfidence = config.minFaceTrackingConfidence,
+                minFacePresenceConfidence = config.minFacePresenceConfidence,
+                maxNumFaces = config.maxNumFaces,
+                currentDelegate = config.currentDelegate,
+                faceLandmarkerHelperListener = this
+            )
+            if (faceLandmarkerHelper.isClose()) {
+                // The helper reports the details through onError.
+                throw IllegalStateException("Face landmarker failed to load.")
+            }
+        }, backgroundExecutor)
     }
 
-    private fun startCamera(activity: ComponentActivity) {
+    /**
+     * 获取 CameraX 的 ProcessCameraProvider，不需要相机权限。
+     */
+    fun obtainCameraProvider(): CompletableFuture<ProcessCameraProvider> {
+        val result = CompletableFuture<ProcessCameraProvider>()
         val cameraProviderFuture = ProcessCameraProvider.getInstance(context)
         cameraProviderFuture.addListener({
             try {
                 cameraProvider = cameraProviderFuture.get()
-                bindCameraUseCases(activity)
+                result.complete(cameraProvider)
             } catch (e: Exception) {
                 val errorMsg = "Failed to get camera provider"
                 Log.e("MediaPipeProcessor", errorMsg, e)
                 onErrorCallback?.invoke(errorMsg, -1)
+                result.completeExceptionally(e)
             }
         }, ContextCompat.getMainExecutor(context))
+        return result
+    }
+
+    /**
+     * 绑定预览和分析用例，需要在主线程、[obtainCameraProvider] 完成且已获得相机权限后调用。
+     * 绑定失败时抛出异常（同时回调 onError）。
+     */
+    fun bindCamera(
+        activity: ComponentActivity,
+        initialCameraFacing: Int = CameraSelector.LENS_FACING_FRONT
+    ) {
+        if (released || activity.lifecycle.currentState == Lifecycle.State.DESTROYED) {
+            Log.w("MediaPipeProcessor", "Released before the camera could be bound, skipping.")
+            return
+        }
+        this.cameraFacing = initialCameraFacing
+        bindCameraUseCases(activity)
     }
 
     @Suppress("UnsafeOptInUsageError")
@@ -75,7 +119,7 @@ class MediaPipeProcessor(private val context: Context) : FaceLandmarkerHelper.La
         val cameraProvider = cameraProvider ?: run {
             Log.e("MediaPipeProcessor", "Camera provider not initialized.")
             onErrorCallback?.invoke("Camera provider not initialized.", -1)
-            return
+            throw IllegalStateException("Camera provider not initialized.")
         }
 
         val cameraSelector = CameraSelector.Builder()
@@ -113,6 +157,7 @@ class MediaPipeProcessor(private val context: Context) : FaceLandmarkerHelper.La
             val errorMsg = "Use case binding failed"
             Log.e("MediaPipeProcessor", errorMsg, exc)
             onErrorCallback?.invoke(errorMsg, -1)
+            throw exc
         }
     }
 
@@ -145,15 +190,16 @@ class MediaPipeProcessor(private val context: Context) : FaceLandmarkerHelper.La
 
     fun release() {
         Log.i("MediaPipeProcessor", "Releasing MediaPipeProcessor resources.")
-        if (::backgroundExecutor.isInitialized && !backgroundExecutor.isShutdown) {
-            backgroundExecutor.shutdown()
-        }
-        if (::faceLandmarkerHelper.isInitialized && !faceLandmarkerHelper.isClose()) {
-            val helper = faceLandmarkerHelper
-            Executors.newSingleThreadExecutor().execute {
-                helper.clearFaceLandmarker()
-                Log.i("MediaPipeProcessor", "FaceLandmarkerHelper resources cleared.")
+        released = true
+        if (!backgroundExecutor.isShutdown) {
+            // Queued behind a landmarker load that may still be running; shutdown() lets it finish first.
+            backgroundExecutor.execute {
+                if (::faceLandmarkerHelper.isInitialized && !faceLandmarkerHelper.isClose()) {
+                    faceLandmarkerHelper.clearFaceLandmarker()
+                    Log.i("MediaPipeProcessor", "FaceLandmarkerHelper resources cleared.")
+                }
             }
+            backgroundExecutor.shutdown()
         }
         cameraProvider?.unbindAll()
         Log.i("MediaPipeProcessor", "Camera resources unbound.")
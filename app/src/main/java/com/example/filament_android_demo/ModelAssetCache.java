@@ -0,0 +1,144 @@
+package com.example.filament_android_demo;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 已加载但不在场景中的模型的 LRU 缓存，以资源路径为键。容量由估算的 GPU 字节数（顶点 + 索引 + 纹理）预算决定，
+ * 超出预算时从最久未使用的一项开始淘汰，被淘汰的模型交给 evictor 销毁。
+ * <p>
+ * 只在渲染线程修改；getStats() 可以在任意线程调用。
+ */
+public final class ModelAssetCache<T> {
+  private static final String TAG = "ModelAssetCache";
+
+  interface Evictor<T> {
+    void evict(@NonNull String assetPath, @NonNull T model);
+  }
+
+  public static final class Stats {
+    public final long hits;
+    public final long misses;
+    public final long evictions;
+    public final int entries;
+    public final long residentBytes;
+    public final long budgetBytes;
+
+    Stats(long hits, long misses, long evictions, int entries, long residentBytes, long budgetBytes) {
+      this.hits = hits;
+      this.misses = misses;
+      this.evictions = evictions;
+      this.entries = entries;
+      this.residentBytes = residentBytes;
+      this.budgetBytes = budgetBytes;
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+      return "Stats{hits=" + hits + ", misses=" + misses + ", evictions=" + evictions + ", entries=" + entries
+        + ", residentKb=" + residentBytes / 1024 + ", budgetKb=" + budgetBytes / 1024 + "}";
+    }
+  }
+
+  private static final class Entry<T> {
+    final T model;
+    final long bytes;
+
+    Entry(T model, long bytes) {
+      this.model = model;
+      this.bytes = bytes;
+    }
+  }
+
+  private final Evictor<T> mEvictor;
+  // Access-ordered: iteration starts at the least recently used entry.
+  private final LinkedHashMap<String, Entry<T>> mEntries = new LinkedHashMap<>(8, 0.75f, true);
+  private long mBudgetBytes;
+  private long mResidentBytes = 0;
+  private long mHits = 0;
+  private long mMisses = 0;
+  private long mEvictions = 0;
+
+  ModelAssetCache(long budgetBytes, @NonNull Evictor<T> evictor) {
+    mBudgetBytes = budgetBytes;
+    mEvictor = evictor;
+  }
+
+  /**
+   * 命中时把模型从缓存中取出（调用方负责把它放回场景），未命中返回 null。
+   */
+  @Nullable
+  synchronized T take(@NonNull String assetPath) {
+    Entry<T> entry = mEntries.remove(assetPath);
+    if (entry == null) {
+      mMisses++;
+      return null;
+    }
+    mHits++;
+    mResidentBytes -= entry.bytes;
+    return entry.model;
+  }
+
+  /**
+   * 放入一个已从场景中移除的模型。单个模型超过整个预算时直接淘汰。
+   */
+  synchronized void put(@NonNull String assetPath, @NonNull T model, long bytes) {
+    Entry<T> previous = mEntries.put(assetPath, new Entry<>(model, bytes));
+    mResidentBytes += bytes;
+    if (previous != null) {
+      mResidentBytes -= previous.bytes;
+      if (previous.model != model) evictEntry(assetPath, previous);
+    }
+    trimToBudgetLocked();
+  }
+
+  synchronized void setBudgetBytes(long budgetBytes) {
+    mBudgetBytes = Math.max(0, budgetBytes);
+    trimToBudgetLocked();
+  }
+
+  synchronized long getBudgetBytes() {
+    return mBudgetBytes;
+  }
+
+  /**
+   * 淘汰所有缓存项。
+   */
+  synchronized void clear() {
+    Iterator<Map.Entry<String, Entry<T>>> it = mEntries.entrySet().iterator();
+    while (it.hasNext()) {
+      Map.Entry<String, Entry<T>> e = it.next();
+      it.remove();
+      mResidentBytes -= e.getValue().bytes;
+      evictEntry(e.getKey(), e.getValue());
+    }
+  }
+
+  @NonNull
+  synchronized Stats getStats() {
+    return new Stats(mHits, mMisses, mEvictions, mEntries.size(), mResidentBytes, mBudgetBytes);
+  }
+
+  private void trimToBudgetLocked() {
+    Iterator<Map.Entry<String, Entry<T>>> it = mEntries.entrySet().iterator();
+    while (mResidentBytes > mBudgetBytes && it.hasNext()) {
+      Map.Entry<String, Entry<T>> eldest = it.next();
+      it.remove();
+      mResidentBytes -= eldest.getValue().bytes;
+      evictEntry(eldest.getKey(), eldest.getValue());
+    }
+  }
+
+  private void evictEntry(@NonNull String assetPath, @NonNull Entry<T> entry) {
+    mEvictions++;
+    Log.i(TAG, "Evicting " + assetPath + " (" + entry.bytes / 1024 + " KB).");
+    mEvictor.evict(assetPath, entry.model);
+  }
+}
@@ -0,0 +1,109 @@
+package com.example.filament_android_demo;
+
+import android.content.res.AssetFileDescriptor;
+import android.content.res.AssetManager;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+
+/**
+ * 把 assets 中的模型文件读成 Filament 可以直接使用的 ByteBuffer，不经过 Java 堆上的中间拷贝。
+ * <p>
+ * APK 中未压缩存放的资源通过 AssetFileDescriptor + FileChannel.map 直接映射；.glb 并非默认不压缩，
+ * 由 app/build.gradle.kts 的 androidResources.noCompress 保持未压缩，openFd 才能成功。
+ * 压缩存放、无法 openFd 的资源退回为一次性读入预先按大小分配的 direct buffer。
+ */
+final class ModelAssetReader {
+  private static final String TAG = "ModelAssetReader";
+  // available() 不可靠时 direct buffer 的初始大小
+  private static final int FALLBACK_INITIAL_CAPACITY = 256 * 1024;
+
+  enum Mode {
+    MAPPED,
+    DIRECT
+  }
+
+  static final class Result {
+    @NonNull
+    final ByteBuffer buffer;
+    @NonNull
+    final Mode mode;
+
+    Result(@NonNull ByteBuffer buffer, @NonNull Mode mode) {
+      this.buffer = buffer;
+      this.mode = mode;
+    }
+  }
+
+  private ModelAssetReader() {
+  }
+
+  @NonNull
+  static Result read(@NonNull AssetManager assetManager, @NonNull String assetPath) throws IOException {
+    ByteBuffer mapped = tryMap(assetManager, assetPath);
+    if (mapped != null) {
+      return new Result(mapped, Mode.MAPPED);
+    }
+    return new Result(readIntoDirectBuffer(assetManager, assetPath), Mode.DIRECT);
+  }
+
+  /**
+   * 资源在 APK 中压缩存放时 openFd 会抛 FileNotFoundException，此时返回 null。
+   * 映射在关闭文件描述符后仍然有效。
+   */
+  @Nullable
+  private static ByteBuffer tryMap(@NonNull AssetManager assetManager, @NonNull String assetPath) throws IOException {
+    AssetFileDescriptor afd;
+    try {
+      afd = assetManager.openFd(assetPath);
+    } catch (FileNotFoundException e) {
+      Log.d(TAG, "Asset '" + assetPath + "' is compressed, falling back to a direct buffer.");
+      return null;
+    }
+    try (AssetFileDescriptor ignored = afd;
+         FileInputStream inputStream = afd.createInputStream();
+         FileChannel channel = inputStream.getChannel()) {
+      long length = afd.getLength();
+      if (length <= 0 || length > Integer.MAX_VALUE) {
+        Log.w(TAG, "Asset '" + assetPath + "' has unusable length " + length + ", falling back to a direct buffer.");
+        return null;
+      }
+      return channel.map(FileChannel.MapMode.READ_ONLY, afd.getStartOffset(), length);
+    }
+  }
+
+  @NonNull
+  private static ByteBuffer readIntoDirectBuffer(@NonNull AssetManager assetManager, @NonNull String assetPath) throws IOException {
+    try (InputStream inputStream = assetManager.open(assetPath, AssetManager.ACCESS_STREAMING);
+         ReadableByteChannel channel = Channels.newChannel(inputStream)) {
+      // AssetInputStream.available() reports the remaining uncompressed size.
+      int expected = inputStream.available();
+      ByteBuffer buffer = ByteBuffer.allocateDirect(expected > 0 ? expected : FALLBACK_INITIAL_CAPACITY);
+      while (true) {
+        if (!buffer.hasRemaining()) {
+          // Usually the size was exact: probe for EOF before growing.
+          int next = inputStream.read();
+          if (next < 0) break;
+          ByteBuffer grown = ByteBuffer.allocateDirect(buffer.capacity() * 2);
+          buffer.flip();
+          grown.put(buffer);
+          grown.put((byte) next);
+          buffer = grown;
+        }
+        if (channel.read(buffer) < 0) break;
+      }
+      buffer.flip();
+      return buffer;
+    }
+  }
+}
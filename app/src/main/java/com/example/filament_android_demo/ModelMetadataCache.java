@@ -0,0 +1,163 @@
+package com.example.filament_android_demo;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 模型元数据（{@link ModelSidecar} 格式）的磁盘缓存。第一次加载某个模型时由运行时推导的数据在后台线程写入
+ * app 缓存目录，下次启动直接内存映射读取，跳过逐个实体的 JNI 查询。
+ * <p>
+ * 文件名由资源路径、内容键（glb JSON 块 CRC32 + 文件大小）和实体筛选规则 key 的哈希组成，模型或筛选规则变化后
+ * 自然不再命中；写入新文件时删除同一资源的旧文件。文件先写到临时文件再重命名，读到半个文件的情况不会出现。
+ * <p>
+ * 哈希可能冲突，因此文件开头记录完整的筛选规则 key（int 长度 + UTF-8 字节），之后才是元数据；读取时 key 不同视为未命中。
+ */
+final class ModelMetadataCache {
+  private static final String TAG = "ModelMetadataCache";
+  private static final String DIRECTORY = "model_metadata";
+  private static final String EXTENSION = ".meta";
+  // skipVariantKey 的结果：文件属于哈希相同的另一个筛选规则
+  private static final ByteBuffer VARIANT_MISMATCH = ByteBuffer.allocate(0);
+
+  private final File mDirectory;
+  private final ExecutorService mWriter = Executors.newSingleThreadExecutor(r -> {
+    Thread thread = new Thread(r, "ModelMetadataWriter");
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  ModelMetadataCache(@NonNull File cacheRoot) {
+    mDirectory = new File(cacheRoot, DIRECTORY);
+  }
+
+  /**
+   * 内存映射读取缓存的元数据，未命中或文件损坏时返回 null（损坏的文件会被删除）。
+   */
+  @Nullable
+  ModelSidecar load(@NonNull String assetPath, int contentKey, long sizeBytes, @NonNull String variantKey) {
+    File file = fileFor(assetPath, contentKey, sizeBytes, variantKey);
+    if (!file.isFile()) return null;
+    MappedByteBuffer mapped;
+    try (FileInputStream inputStream = new FileInputStream(file);
+         FileChannel channel = inputStream.getChannel()) {
+      mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+    } catch (IOException e) {
+      Log.w(TAG, "Failed to map " + file + ", ignoring it.", e);
+      return null;
+    }
+    ByteBuffer body = skipVariantKey(mapped, variantKey);
+    if (body == VARIANT_MISMATCH) {
+      Log.i(TAG, file.getName() + " belongs to another entity filter with the same hash, ignoring it.");
+      return null;
+    }
+    ModelSidecar metadata = body != null
+      ? ModelSidecar.parse(body, contentKey, ModelSidecar.Origin.DISK_CACHE, file.getName()) : null;
+    if (metadata == null && !file.delete()) {
+      Log.w(TAG, "Failed to delete stale metadata " + file);
+    }
+    return metadata;
+  }
+
+  /**
+   * 在后台线程写入 data（{@link ModelSidecar#encode} 的结果），并删除同一资源的旧缓存文件。
+   */
+  void storeAsync(@NonNull String assetPath, int contentKey, long sizeBytes, @NonNull String variantKey, @NonNull byte[] data) {
+    File file = fileFor(assetPath, contentKey, sizeBytes, variantKey);
+    try {
+      mWriter.execute(() -> store(assetPath, file, variantKey, data));
+    } catch (RejectedExecutionException e) {
+      Log.w(TAG, "Metadata cache shut down, not writing " + file.getName());
+    }
+  }
+
+  void shutdown() {
+    mWriter.shutdown();
+  }
+
+  /**
+   * 等待此前提交的写入完成。写入线程是单线程的，排在它们之后的空任务执行时它们都已结束。
+   */
+  @VisibleForTesting
+  void awaitPendingWrites(long timeoutMillis) throws Exception {
+    mWriter.submit(() -> { }).get(timeoutMillis, TimeUnit.MILLISECONDS);
+  }
+
+  private void store(@NonNull String assetPath, @NonNull File file, @NonNull String variantKey, @NonNull byte[] data) {
+    if (!mDirectory.isDirectory() && !mDirectory.mkdirs()) {
+      Log.w(TAG, "Failed to create " + mDirectory);
+      return;
+    }
+    File temp = new File(mDirectory, file.getName() + ".tmp");
+    byte[] key = variantKey.getBytes(StandardCharsets.UTF_8);
+    try (FileOutputStream out = new FileOutputStream(temp)) {
+      out.write(ByteBuffer.allocate(4).putInt(key.length).array());
+      out.write(key);
+      out.write(data);
+      out.getFD().sync();
+    } catch (IOException e) {
+      Log.w(TAG, "Failed to write " + temp, e);
+      if (!temp.delete()) Log.w(TAG, "Failed to delete " + temp);
+      return;
+    }
+    if (!temp.renameTo(file)) {
+      Log.w(TAG, "Failed to rename " + temp + " to " + file.getName());
+      if (!temp.delete()) Log.w(TAG, "Failed to delete " + temp);
+      return;
+    }
+    String prefix = prefixFor(assetPath);
+    File[] siblings = mDirectory.listFiles();
+    if (siblings != null) {
+      for (File sibling : siblings) {
+        if (sibling.getName().startsWith(prefix) && !sibling.equals(file) && !sibling.delete()) {
+          Log.w(TAG, "Failed to delete stale metadata " + sibling);
+        }
+      }
+    }
+    Log.i(TAG, "Wrote " + data.length + " bytes of metadata to " + file.getName());
+  }
+
+  /**
+   * 校验文件开头记录的筛选规则 key 并返回其后的元数据。key 不同时返回 VARIANT_MISMATCH，头部损坏时返回 null。
+   */
+  @Nullable
+  private static ByteBuffer skipVariantKey(@NonNull ByteBuffer data, @NonNull String variantKey) {
+    ByteBuffer in = data.duplicate().order(ByteOrder.BIG_ENDIAN);
+    if (in.remaining() < 4) return null;
+    int length = in.getInt();
+    if (length < 0 || length > in.remaining()) return null;
+    byte[] key = new byte[length];
+    in.get(key);
+    if (!Arrays.equals(key, variantKey.getBytes(StandardCharsets.UTF_8))) return VARIANT_MISMATCH;
+    return in.slice();
+  }
+
+  @NonNull
+  private File fileFor(@NonNull String assetPath, int contentKey, long sizeBytes, @NonNull String variantKey) {
+    return new File(mDirectory, prefixFor(assetPath) + Integer.toHexString(contentKey) + "-" + Long.toHexString(sizeBytes)
+      + "-" + Integer.toHexString(variantKey.hashCode()) + EXTENSION);
+  }
+
+  @NonNull
+  private static String prefixFor(@NonNull String assetPath) {
+    // The trailing '@' keeps "a.glb" from matching the files of "a.glb2".
+    return assetPath.replaceAll("[^A-Za-z0-9._-]", "_") + "@";
+  }
+}
@@ -4,21 +4,21 @@
  */
 package com.example.filament_android_demo; // Replace with your package name
 
+import android.content.ComponentCallbacks2;
 import android.content.Context;
-import android.content.res.AssetManager;
 import android.graphics.Bitmap;
-import android.opengl.Matrix; // Import for matrix math
 import android.os.Handler;
-import android.os.Looper;
+import android.os.HandlerThread;
+import android.os.Process;
 import android.util.Log;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
 
 import com.google.android.filament.Box; // Use this Box type
 import com.google.android.filament.Camera;
 import com.google.android.filament.Engine;
-import com.google.android.filament.Entity;
 import com.google.android.filament.EntityManager;
 import com.google.android.filament.Filament;
 import com.google.android.filament.LightManager;
@@ -27,7 +27,6 @@ import com.google.android.filament.Scene;
 import com.google.android.filament.Skybox;
 import com.google.android.filament.SwapChain;
 import com.google.android.filament.SwapChainFlags;
-import com.google.android.filament.Texture;
 import com.google.android.filament.TransformManager;
 import com.google.android.filament.View;
 import com.google.android.filament.Viewport;
@@ -35,7 +34,6 @@ import com.google.android.filament.RenderableManager;
 import com.google.mediapipe.tasks.components.containers.Category;
 import com.google.android.filament.gltfio.AssetLoader;
 import com.google.android.filament.gltfio.FilamentAsset;
-import com.google.android.filament.gltfio.MaterialProvider; // Use gltfio version
 import com.google.android.filament.gltfio.ResourceLoader;
 import com.google.android.filament.gltfio.UbershaderProvider;
 
@@ -43,27 +41,33 @@ import com.google.android.filament.utils.Utils;
 import com.google.mediapipe.tasks.vision.facelandmarker.FaceLandmarkerResult;
 
 
-import java.io.BufferedInputStream;
+import java.util.ArrayDeque;
 import java.util.Arrays;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
 import java.nio.ByteBuffer;
-import java.nio.ByteOrder;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
 
 public class ModelRender {
@@ -86,6 +90,8 @@ public class ModelRender {
 
   // Morph Target 名称 -> 受影响的 MorphInfo 列表
   private final Map<String, List<MorphInfo>> mMorphTargetInfoMap = new ConcurrentHashMap<>();
+  // 由 mMorphTargetInfoMap 编译出的每帧绑定表
+  private volatile MorphBindingTable mMorphBindings = MorphBindingTable.EMPTY;
 
   // 可选：存储 ApplicationContext 以便后续使用
   private volatile Context mApplicationContext;
@@ -105,19 +111,33 @@ public class ModelRender {
   public static final float SCALE_FACTOR = 5.0f;
 
   private static final long RENDER_TIMEOUT_SECONDS = 15;
-  private static final long SHUTDOWN_TIMEOUT_SECONDS = 20;
-
-  // --- 只显示头部相关实体的名称列表 ---
-  private static final List<String> ENTITY_NAMES_TO_KEEP_VISIBLE = Arrays.asList(
-    "Wolf3D_Head",
-    "Wolf3D_Teeth",
-    "EyeLeft",
-    "EyeRight",
-    "Wolf3D_Hair"
-//      "Wolf3D_Glasses"
-  );
+  // 流水线模式最多同时在途的帧数
+  public static final int MAX_PIPELINE_DEPTH = 3;
+  // 流水线中最老的一帧迟迟不回读时，等待多久后强制 flushAndWait
+  private static final long PIPELINE_STALL_MILLIS = 8;
+  // 最后一帧提交后这么久没有新的渲染请求，才 flushAndWait 流水线尾部。须大于实时输入的帧间隔（30fps 约 33ms），
+  // 否则逐帧到达的请求每帧都会被 flushAndWait 串行化
+  private static final long PIPELINE_TAIL_FLUSH_DELAY_MILLIS = 50;
+  // 回读池容量：在途帧 + 调用方持有的帧（显示中的帧和等待下一次绘制后归还的旧帧）+ 余量
+  private static final int READBACK_POOL_CAPACITY = MAX_PIPELINE_DEPTH + 3;
+  // 渲染线程各类命令队列的上限，LIFECYCLE 不限
+  private static final int ASSET_QUEUE_CAPACITY = 32;
+  private static final int POSE_QUEUE_CAPACITY = 4;
+  private static final int RENDER_QUEUE_CAPACITY = MAX_PIPELINE_DEPTH * 2;
+  // applyLandmarkResult 的合并键：队列中只保留最新的姿态
+  private static final Object POSE_COALESCE_KEY = new Object();
+  // 流水线尾部 flush 的合并键：IDLE 队列中最多一条
+  private static final Object TAIL_FLUSH_COALESCE_KEY = new Object();
+
+  // --- 只显示头部相关实体的名称列表，定义在 app/build.gradle.kts 的 avatarKeepNodes，构建期预处理使用同一列表 ---
+  private static final List<String> ENTITY_NAMES_TO_KEEP_VISIBLE = Arrays.asList(BuildConfig.AVATAR_KEEP_NODES);
   // ----------------
 
+  // 加载时的实体筛选规则，影响之后的加载
+  private volatile EntityFilter mEntityFilter = EntityFilter.keeping(ENTITY_NAMES_TO_KEEP_VISIBLE);
+  // 为 true 时加载后立即销毁被筛掉实体的 renderable 组件
+  private volatile boolean mDestroyExcludedRenderables = false;
+
   // --- Filament Core Objects ---
   private volatile Engine mEngine = null;
   private volatile SwapChain mSwapChain = null;
@@ -130,19 +150,726 @@ public class ModelRender {
   private volatile int mLightEntity = 0;
 
   // --- gltfio Objects ---
+  private volatile UbershaderProvider mMaterialProvider = null;
   private volatile AssetLoader mAssetLoader = null;
   private volatile ResourceLoader mResourceLoader = null;
   private volatile FilamentAsset mCurrentAsset = null;
   private volatile int[] mAssetEntities = null;
 
-  private volatile java.util.Map<String, float[]> mEntityInitialTransforms = new java.util.concurrent.ConcurrentHashMap<>();
+  // 加载时构建的名称 → 实体/组件句柄/初始变换索引
+  private volatile EntityIndex mEntityIndex = EntityIndex.EMPTY;
+  // headName 对应的索引项，加载时解析一次供每帧使用
+  @Nullable
+  private volatile EntityIndex.Entry mHeadEntry = null;
+
+  // updateViewPortInternal 的结果缓存，键为 (资产, 实体名, 缩放系数)；只在渲染线程访问
+  private FilamentAsset mFitCacheAsset = null;
+  private String mFitCacheEntityName = null;
+  private float mFitCacheScaleFactor = Float.NaN;
+
+  // 渲染线程 actor：按 LIFECYCLE > ASSET > POSE > RENDER 的优先级执行命令
+  private volatile RenderThreadActor mRenderExecutor = null;
+  // 回读完成回调与超时处理都在这个线程上执行，渲染路径不触碰主线程
+  private HandlerThread mReadbackThread = null;
+  private volatile Handler mReadbackHandler = null;
+
+  // 本实例创建的 native 对象登记（类型 + 估算字节数），release() 后应为空
+  private final NativeResourceTracker.Scope mNativeResources = NativeResourceTracker.getInstance().newScope(TAG);
+  // 兜底释放提交到的执行器（渲染线程）。清理动作只通过这个引用取得它，不能引用 ModelRender 本身
+  private final AtomicReference<Executor> mLeakCleanupExecutor = new AtomicReference<>();
+  // 取代 finalize()：实例未 release() 就被回收时，在渲染线程上按创建逆序释放仍登记的对象
+  private final NativeResourceTracker.Cleanable mNativeCleanable = NativeResourceTracker.getInstance()
+    .register(this, NativeResourceTracker.getInstance().leakCleanupOf(mNativeResources, mLeakCleanupExecutor::get));
+
+  /**
+   * 回读回调（像素拷贝到 Bitmap）的耗时统计。
+   */
+  public static final class ReadbackTimingStats {
+    public final long callbacks;
+    public final long lastNanos;
+    public final long maxNanos;
+    public final long totalNanos;
+
+    ReadbackTimingStats(long callbacks, long lastNanos, long maxNanos, long totalNanos) {
+      this.callbacks = callbacks;
+      this.lastNanos = lastNanos;
+      this.maxNanos = maxNanos;
+      this.totalNanos = totalNanos;
+    }
+
+    public double averageMillis() {
+      return callbacks == 0 ? 0.0 : totalNanos / (callbacks * 1_000_000.0);
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+      return "ReadbackTimingStats{callbacks=" + callbacks + ", lastMs=" + lastNanos / 1_000_000.0
+        + ", maxMs=" + maxNanos / 1_000_000.0 + ", avgMs=" + averageMillis() + "}";
+    }
+  }
+
+  /**
+   * Morph 权重上传统计：uploads 为实际调用 setMorphWeights 的次数，skipped 为因变化不超过 epsilon 而省掉的次数。
+   */
+  public static final class MorphUploadStats {
+    public final long frames;
+    public final long uploads;
+    public final long skipped;
+
+    MorphUploadStats(long frames, long uploads, long skipped) {
+      this.frames = frames;
+      this.uploads = uploads;
+      this.skipped = skipped;
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+      return "MorphUploadStats{frames=" + frames + ", uploads=" + uploads + ", skipped=" + skipped + "}";
+    }
+  }
+
+  /**
+   * 调用方 cancel() 的请求统计。skippedBeforeRender 为开始渲染前发现已取消、没有任何 GPU 工作的帧；
+   * readbacksDiscarded 为已提交 GPU 后才取消、回读结果直接丢弃（不拷贝到 Bitmap）的帧；posesSkipped 为跳过的姿态更新。
+   * 被 latest-wins 调度或队列满丢弃的帧以 {@link FrameSkippedException} 结束，不计入这里。
+   */
+  public static final class CancellationStats {
+    public final long skippedBeforeRender;
+    public final long readbacksDiscarded;
+    public final long posesSkipped;
 
-  private ExecutorService mRenderExecutor = null;
-  private final Handler mMainThreadHandler = new Handler(Looper.getMainLooper());
+    CancellationStats(long skippedBeforeRender, long readbacksDiscarded, long posesSkipped) {
+      this.skippedBeforeRender = skippedBeforeRender;
+      this.readbacksDiscarded = readbacksDiscarded;
+      this.posesSkipped = posesSkipped;
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+      return "CancellationStats{skippedBeforeRender=" + skippedBeforeRender + ", readbacksDiscarded=" + readbacksDiscarded
+        + ", posesSkipped=" + posesSkipped + "}";
+    }
+  }
+
+  /**
+   * init 阶段的材质预热方式。OFF 不预热；BLOCKING 在 init 返回的 future 完成前预热；BACKGROUND 在 init 完成后
+   * 作为渲染线程的下一个任务预热，调用方可以同时启动相机等其他工作，第一帧真实渲染会排在预热之后。
+   */
+  public enum WarmUpMode {
+    OFF,
+    BLOCKING,
+    BACKGROUND
+  }
+
+  /**
+   * 启动耗时。所有时间都从 init() 被调用时算起，尚未发生的阶段为 -1。
+   * timeToFirstFrameNanos 为 init() 到第一帧真实渲染回读完成，firstFrameNanos 为这一帧本身从提交到回读完成的耗时，
+   * 与预热耗时 warmUpNanos 分开统计。
+   */
+  public static final class StartupTimings {
+    @NonNull
+    public final WarmUpMode warmUpMode;
+    public final long initNanos;
+    public final long warmUpNanos;
+    public final int warmUpFrames;
+    public final long timeToFirstFrameNanos;
+    public final long firstFrameNanos;
+
+    StartupTimings(@NonNull WarmUpMode warmUpMode, long initNanos, long warmUpNanos, int warmUpFrames,
+                   long timeToFirstFrameNanos, long firstFrameNanos) {
+      this.warmUpMode = warmUpMode;
+      this.initNanos = initNanos;
+      this.warmUpNanos = warmUpNanos;
+      this.warmUpFrames = warmUpFrames;
+      this.timeToFirstFrameNanos = timeToFirstFrameNanos;
+      this.firstFrameNanos = firstFrameNanos;
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+      return "StartupTimings{warmUp=" + warmUpMode + ", initMs=" + initNanos / 1_000_000.0
+        + ", warmUpMs=" + warmUpNanos / 1_000_000.0 + ", warmUpFrames=" + warmUpFrames
+        + ", timeToFirstFrameMs=" + timeToFirstFrameNanos / 1_000_000.0 + ", firstFrameMs=" + firstFrameNanos / 1_000_000.0 + "}";
+    }
+  }
+
+  /**
+   * 内存紧张时可以释放的资源层级，按释放的多少排列，每一层都包含前面各层：
+   * CACHES_DROPPED 释放模型缓存、空闲的回读缓冲和 ResourceLoader 保留的源数据；
+   * SURFACES_DROPPED 再释放离屏 SwapChain（颜色和深度附件）；
+   * ASSET_DROPPED 再销毁当前模型（网格、纹理、骨骼）。Engine、Renderer、Scene、View 和已编译的材质始终保留。
+   */
+  public enum ResourceTier {
+    FULL,
+    CACHES_DROPPED,
+    SURFACES_DROPPED,
+    ASSET_DROPPED
+  }
+
+  /**
+   * 一次降级的结果。estimatedBytesReleased 为按缓存预算、缓冲尺寸和模型估算得出的字节数，
+   * nativeHeapDeltaBytes 为降级前后 native 堆已分配大小之差（GPU 内存不在其中）。
+   */
+  public static final class TrimReport {
+    @NonNull
+    public final ResourceTier from;
+    @NonNull
+    public final ResourceTier to;
+    public final long estimatedBytesReleased;
+    public final long nativeHeapDeltaBytes;
+    public final long nanos;
+
+    TrimReport(@NonNull ResourceTier from, @NonNull ResourceTier to, long estimatedBytesReleased, long nativeHeapDeltaBytes, long nanos) {
+      this.from = from;
+      this.to = to;
+      this.estimatedBytesReleased = estimatedBytesReleased;
+      this.nativeHeapDeltaBytes = nativeHeapDeltaBytes;
+      this.nanos = nanos;
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+      return "TrimReport{" + from + " -> " + to + ", estimatedReleasedKb=" + estimatedBytesReleased / 1024
+        + ", nativeHeapDeltaKb=" + nativeHeapDeltaBytes / 1024 + ", ms=" + nanos / 1_000_000.0 + "}";
+    }
+  }
+
+  /**
+   * 一次恢复的结果：从哪个层级恢复、重建被释放资源的耗时。被销毁的模型重新加载失败时 modelReloadFailure 不为 null，
+   * 此时渲染器回到 FULL 但场景中没有模型，不会在之后的每一帧重试。
+   */
+  public static final class RestoreReport {
+    @NonNull
+    public final ResourceTier from;
+    public final long nanos;
+    @Nullable
+    public final Throwable modelReloadFailure;
+
+    RestoreReport(@NonNull ResourceTier from, long nanos, @Nullable Throwable modelReloadFailure) {
+      this.from = from;
+      this.nanos = nanos;
+      this.modelReloadFailure = modelReloadFailure;
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+      return "RestoreReport{from=" + from + ", ms=" + nanos / 1_000_000.0
+        + (modelReloadFailure != null ? ", modelReloadFailure=" + modelReloadFailure : "") + "}";
+    }
+  }
+
+  /**
+   * 单次模型加载的耗时与内存报告。堆内存为加载各阶段结束时采样的 Java 堆增量峰值（相对加载开始），
+   * native 为加载前后 native 堆已分配大小之差。
+   */
+  public static final class ModelLoadReport {
+    @NonNull
+    public final String assetPath;
+    public final boolean memoryMapped;
+    public final long sizeBytes;
+    public final long readNanos;
+    public final long totalNanos;
+    public final long peakJavaHeapDeltaBytes;
+    public final long nativeHeapDeltaBytes;
+    // 被筛掉、未加入场景的实体数
+    public final int excludedEntityCount;
+    // 只被筛掉实体使用、渲染时不再被访问的网格和纹理的估算字节数。它们仍归资产所有，要到 destroyAsset 时才释放，
+    // 这不是已节省的内存，而是离线剔除这些实体能省下的上限
+    public final long excludedUnreachableBytes;
+    // 被筛掉实体的 renderable 组件是否已销毁（不释放它们的缓冲和纹理）
+    public final boolean excludedRenderablesDestroyed;
+    // 元数据来源："sidecar"（构建期生成）、"disk-cache"（上次运行写入）或 "runtime"（本次推导）
+    @NonNull
+    public final String metadataSource;
+
+    ModelLoadReport(@NonNull String assetPath, boolean memoryMapped, long sizeBytes, long readNanos, long totalNanos,
+                    long peakJavaHeapDeltaBytes, long nativeHeapDeltaBytes,
+                    int excludedEntityCount, long excludedUnreachableBytes, boolean excludedRenderablesDestroyed, @NonNull String metadataSource) {
+      this.assetPath = assetPath;
+      this.memoryMapped = memoryMapped;
+      this.sizeBytes = sizeBytes;
+      this.readNanos = readNanos;
+      this.totalNanos = totalNanos;
+      this.peakJavaHeapDeltaBytes = peakJavaHeapDeltaBytes;
+      this.nativeHeapDeltaBytes = nativeHeapDeltaBytes;
+      this.excludedEntityCount = excludedEntityCount;
+      this.excludedUnreachableBytes = excludedUnreachableBytes;
+      this.excludedRenderablesDestroyed = excludedRenderablesDestroyed;
+      this.metadataSource = metadataSource;
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+      return "ModelLoadReport{asset=" + assetPath + ", mapped=" + memoryMapped + ", sizeKb=" + sizeBytes / 1024
+        + ", readMs=" + readNanos / 1_000_000.0 + ", totalMs=" + totalNanos / 1_000_000.0
+        + ", peakJavaHeapDeltaKb=" + peakJavaHeapDeltaBytes / 1024 + ", nativeHeapDeltaKb=" + nativeHeapDeltaBytes / 1024
+        + ", excludedEntities=" + excludedEntityCount + ", excludedUnreachableKb=" + excludedUnreachableBytes / 1024
+        + ", excludedRenderablesDestroyed=" + excludedRenderablesDestroyed + ", metadata=" + metadataSource + "}";
+    }
+  }
+
+  /**
+   * 渐进加载进度回调，progress 范围 [0, 1]。在渲染线程调用，不要阻塞。
+   */
+  public interface LoadProgressListener {
+    void onLoadProgress(@NonNull String assetPath, float progress);
+  }
+
+  /**
+   * 读取阶段的结果：模型字节、内存估算、内容键和构建期 sidecar。不涉及 Filament 对象，可以在任意线程产生。
+   */
+  private static final class StagedSource {
+    final ModelAssetReader.Result source;
+    final long sizeBytes;
+    final long startNanos;
+    final long readNanos;
+    final long heapBaseline;
+    final long nativeBaseline;
+    final GltfMemoryEstimate estimate;
+    final int contentKey;
+    @Nullable
+    final ModelSidecar sidecar;
+
+    StagedSource(ModelAssetReader.Result source, long startNanos, long readNanos, long heapBaseline, long nativeBaseline,
+                 GltfMemoryEstimate estimate, int contentKey, @Nullable ModelSidecar sidecar) {
+      this.source = source;
+      this.sizeBytes = source.buffer.remaining();
+      this.startNanos = startNanos;
+      this.readNanos = readNanos;
+      this.heapBaseline = heapBaseline;
+      this.nativeBaseline = nativeBaseline;
+      this.estimate = estimate;
+      this.contentKey = contentKey;
+      this.sidecar = sidecar;
+    }
+  }
+
+  /**
+   * 正在进行的渐进加载：暂存的资产和统计数据。只在渲染线程访问。
+   */
+  private static final class ProgressiveLoad {
+    final String assetPath;
+    final FilamentAsset asset;
+    final CompletableFuture<Boolean> future;
+    final boolean mapped;
+    final long sizeBytes;
+    final long startNanos;
+    final long readNanos;
+    final long heapBaseline;
+    final long nativeBaseline;
+    final GltfMemoryEstimate estimate;
+    @Nullable
+    final ModelSidecar sidecar;
+    final int contentKey;
+    long peakHeapDelta;
+
+    ProgressiveLoad(String assetPath, FilamentAsset asset, GltfMemoryEstimate estimate, @Nullable ModelSidecar sidecar,
+                    int contentKey, CompletableFuture<Boolean> future,
+                    boolean mapped, long sizeBytes, long startNanos, long readNanos, long heapBaseline, long nativeBaseline) {
+      this.assetPath = assetPath;
+      this.asset = asset;
+      this.estimate = estimate;
+      this.sidecar = sidecar;
+      this.contentKey = contentKey;
+      this.future = future;
+      this.mapped = mapped;
+      this.sizeBytes = sizeBytes;
+      this.startNanos = startNanos;
+      this.readNanos = readNanos;
+      this.heapBaseline = heapBaseline;
+      this.nativeBaseline = nativeBaseline;
+    }
+  }
+
+  private static final long ASYNC_LOAD_POLL_MILLIS = 8;
+
+  private volatile boolean mProgressiveLoading = false;
+  private volatile LoadProgressListener mLoadProgressListener = null;
+  private volatile float mLoadProgress = 1.0f;
+  private ProgressiveLoad mProgressiveLoad = null; // render thread only
+
+  public static final long DEFAULT_ASSET_CACHE_BUDGET_BYTES = 64L * 1024 * 1024;
+
+  // 当前场景中的模型；render thread only
+  private PreparedModel mCurrentModel = null;
+  // 最近使用过、已从场景移除的模型。淘汰只会发生在渲染线程上（put/clear/setBudgetBytes 都在渲染线程调用）。
+  private final ModelAssetCache<PreparedModel> mAssetCache =
+    new ModelAssetCache<>(DEFAULT_ASSET_CACHE_BUDGET_BYTES, (path, model) -> destroyCachedModelInternal(model));
+
+  private volatile boolean mMetadataCacheEnabled = true;
+  // 模型元数据的磁盘缓存，第一次加载时在渲染线程创建
+  private volatile ModelMetadataCache mMetadataCache = null;
+  // swapModel 在这里读取和解析模型文件，渲染线程只做 createAsset 之后的步骤。线程在第一次提交时才创建。
+  private final ExecutorService mModelReader = Executors.newSingleThreadExecutor(r -> {
+    Thread thread = new Thread(r, "ModelReader");
+    thread.setDaemon(true);
+    return thread;
+  });
+  // 每次 loadModel/swapModel/丢弃模型时加一；后台读取完成时据此判断这次切换是否已被取代。只在渲染线程访问。
+  private int mLoadGeneration = 0;
+
+  // 资源路径 -> 最近一次加载报告
+  private final Map<String, ModelLoadReport> mModelLoadReports = new ConcurrentHashMap<>();
+
+  public static final float DEFAULT_MORPH_WEIGHT_EPSILON = 1e-3f;
+
+  // 渲染线程专用的矩阵临时工作区
+  private final TransformMath mTransformMath = new TransformMath();
+
+  private volatile float mMorphWeightEpsilon = DEFAULT_MORPH_WEIGHT_EPSILON;
+  // Written only on the render thread.
+  private volatile long mMorphUpdateFrames = 0;
+  private volatile long mMorphUploads = 0;
+  private volatile long mMorphUploadsSkipped = 0;
+
+  private final Object mReadbackTimingLock = new Object();
+  private long mReadbackCallbacks = 0; // guarded by mReadbackTimingLock
+  private long mLastReadbackNanos = 0; // guarded by mReadbackTimingLock
+  private long mMaxReadbackNanos = 0; // guarded by mReadbackTimingLock
+  private long mTotalReadbackNanos = 0; // guarded by mReadbackTimingLock
+
+  private final ReadbackPool mReadbackPool = new ReadbackPool(IMAGE_WIDTH, IMAGE_HEIGHT, READBACK_POOL_CAPACITY);
+  private volatile FrameReadback mFrameReadback = FrameReadback.FILAMENT;
+  private volatile Engine.Backend mBackend = Engine.Backend.DEFAULT;
+
+  public static final int DEFAULT_WARM_UP_FRAMES = 2;
+  private volatile WarmUpMode mWarmUpMode = WarmUpMode.BLOCKING;
+  private volatile int mWarmUpFrames = DEFAULT_WARM_UP_FRAMES;
+  // 预热结束（或不需要预热）时完成，不会异常完成
+  private final CompletableFuture<Void> mWarmUpFuture = new CompletableFuture<>();
+  private volatile long mInitStartNanos = 0;
+  private volatile long mInitNanos = -1;
+  private volatile long mWarmUpNanos = -1;
+  private volatile int mWarmUpFramesRendered = 0;
+  private volatile long mTimeToFirstFrameNanos = -1;
+  private volatile long mFirstFrameNanos = -1;
+  private final AtomicBoolean mFirstFrameRecorded = new AtomicBoolean(false);
+
+  // Written only on the render thread.
+  private volatile ResourceTier mResourceTier = ResourceTier.FULL;
+  // ASSET_DROPPED 时被销毁的模型及其视口适配参数，恢复时重新加载；render thread only
+  @Nullable
+  private String mDroppedAssetPath = null;
+  @Nullable
+  private String mDroppedFitEntityName = null;
+  private float mDroppedFitScaleFactor = Float.NaN;
+  @Nullable
+  private volatile TrimReport mLastTrimReport = null;
+  @Nullable
+  private volatile RestoreReport mLastRestoreReport = null;
+
+  /**
+   * 流水线模式下已提交、等待回读完成的一帧。
+   */
+  private static final class InFlightFrame {
+    final long sequence;
+    final long frameTimeNanos;
+    final ReadbackPool.Slot slot;
+    final CompletableFuture<RenderedFrame> future;
+    volatile boolean readbackDone = false;
+    volatile boolean abandoned = false;
+    volatile Throwable error = null;
+
+    InFlightFrame(long sequence, long frameTimeNanos, ReadbackPool.Slot slot, CompletableFuture<RenderedFrame> future) {
+      this.sequence = sequence;
+      this.frameTimeNanos = frameTimeNanos;
+      this.slot = slot;
+      this.future = future;
+    }
+  }
+
+  // 按提交顺序排列的在途帧，只有队首回读完成后才会依次完成 future
+  private final ArrayDeque<InFlightFrame> mInFlightFrames = new ArrayDeque<>(); // guarded by itself
+  private long mNextFrameSequence = 0; // render thread only
+  private int mMaxObservedFramesInFlight = 0; // guarded by mInFlightFrames
+  private final AtomicInteger mPendingRenderRequests = new AtomicInteger(0);
+  // 在回读线程上延迟提交尾部 flush 检查；重新安排前先移除，回读线程上最多一条
+  private final Runnable mTailFlushSubmitter = this::submitTailFlushInternal;
+  private final AtomicLong mFramesCancelledBeforeRender = new AtomicLong(0);
+  private final AtomicLong mReadbacksDiscarded = new AtomicLong(0);
+  private final AtomicLong mPosesCancelled = new AtomicLong(0);
+  private volatile int mPipelineDepth = 1;
+
+  // applyLandmarkResultAndRender 的 latest-wins 调度：渲染中最多 mPipelineDepth 帧，其余只保留最新请求
+  private final LatestFrameScheduler<FaceLandmarkerResult> mFrameScheduler =
+    new LatestFrameScheduler<>(this::renderLandmarkFrameInternal, () -> mPipelineDepth);
 
   private final AtomicBoolean mIsInitialized = new AtomicBoolean(false);
   private final AtomicBoolean mIsCleanedUp = new AtomicBoolean(false);
 
+  /**
+   * 选择 Filament 后端，必须在 init() 之前调用。NOOP 后端可用于无 GPU 的测试。
+   */
+  public void setBackend(@NonNull Engine.Backend backend) {
+    if (mIsInitialized.get()) {
+      throw new IllegalStateException("setBackend() must be called before init().");
+    }
+    mBackend = backend;
+  }
+
+  /**
+   * 设置材质预热方式（默认 BLOCKING），必须在 init() 之前调用。
+   */
+  public void setWarmUpMode(@NonNull WarmUpMode mode) {
+    if (mIsInitialized.get()) {
+      throw new IllegalStateException("setWarmUpMode() must be called before init().");
+    }
+    mWarmUpMode = mode;
+  }
+
+  @NonNull
+  public WarmUpMode getWarmUpMode() {
+    return mWarmUpMode;
+  }
+
+  /**
+   * 设置预热时渲染的隐藏帧数，必须在 init() 之前调用。
+   */
+  public void setWarmUpFrames(int frames) {
+    if (frames < 1) {
+      throw new IllegalArgumentException("Warm-up frames must be >= 1: " + frames);
+    }
+    if (mIsInitialized.get()) {
+      throw new IllegalStateException("setWarmUpFrames() must be called before init().");
+    }
+    mWarmUpFrames = frames;
+  }
+
+  /**
+   * 设置流水线深度（同时在途的帧数）。1 为逐帧 flushAndWait 的同步模式；2~3 时渲染线程提交第 N+1 帧时
+   * 不再等待第 N 帧回读，future 仍严格按提交顺序完成。
+   */
+  public void setPipelineDepth(int depth) {
+    if (depth < 1 || depth > MAX_PIPELINE_DEPTH) {
+      throw new IllegalArgumentException("Pipeline depth must be in [1, " + MAX_PIPELINE_DEPTH + "]: " + depth);
+    }
+    mPipelineDepth = depth;
+  }
+
+  public int getPipelineDepth() {
+    return mPipelineDepth;
+  }
+
+  /**
+   * 设置 morph 权重的上传阈值：实体的所有权重与上次上传值相差都不超过 epsilon 时跳过这次上传。
+   * 0 表示只要有变化就上传。
+   */
+  public void setMorphWeightEpsilon(float epsilon) {
+    if (!(epsilon >= 0.0f)) {
+      throw new IllegalArgumentException("Morph weight epsilon must be >= 0: " + epsilon);
+    }
+    mMorphWeightEpsilon = epsilon;
+  }
+
+  public float getMorphWeightEpsilon() {
+    return mMorphWeightEpsilon;
+  }
+
+  /**
+   * 开启后模型资源通过 ResourceLoader.asyncBeginLoad/asyncUpdateLoad 渐进加载，加载期间渲染线程继续渲染旧模型，
+   * 加载完成后一次性替换。影响之后的加载。
+   */
+  public void setProgressiveLoading(boolean enabled) {
+    mProgressiveLoading = enabled;
+  }
+
+  public boolean isProgressiveLoading() {
+    return mProgressiveLoading;
+  }
+
+  /**
+   * 设置加载时保留的实体名称：有名称的 renderable 只有在集合中的才加入场景。null 表示全部保留。影响之后的加载；
+   * 之后对当前模型或缓存中模型的 loadModel/swapModel 会按新规则重新加载，不复用按旧规则筛选的资产。
+   */
+  public void setEntityKeepSet(@Nullable Collection<String> names) {
+    mEntityFilter = names == null ? EntityFilter.KEEP_ALL : EntityFilter.keeping(names);
+  }
+
+  /**
+   * 开启后加载时立即销毁被筛掉实体的 renderable 组件，而不只是不加入场景。只回收组件本身：
+   * 顶点/索引缓冲和纹理归 gltfio 所有，要到 destroyAsset 时才释放，运行时筛选不会减少它们占用的内存。
+   * 真正去掉这部分内存的是构建期预处理（app/build.gradle.kts 的 preprocessAvatar），打包前就删掉了这些网格和纹理。
+   * 影响之后的加载。
+   */
+  public void setDestroyExcludedRenderables(boolean destroy) {
+    mDestroyExcludedRenderables = destroy;
+  }
+
+  public boolean isDestroyExcludedRenderables() {
+    return mDestroyExcludedRenderables;
+  }
+
+  /**
+   * 开启（默认）后，没有打包 sidecar 的模型第一次加载时把推导出的元数据（初始变换、morph 绑定、包围盒）
+   * 写入 app 缓存目录，之后的加载直接内存映射读取。模型内容或实体筛选规则变化后缓存自动失效。
+   */
+  public void setMetadataCacheEnabled(boolean enabled) {
+    mMetadataCacheEnabled = enabled;
+  }
+
+  public boolean isMetadataCacheEnabled() {
+    return mMetadataCacheEnabled;
+  }
+
+  public void setLoadProgressListener(@Nullable LoadProgressListener listener) {
+    mLoadProgressListener = listener;
+  }
+
+  /**
+   * 最近一次渐进加载的进度，没有进行中的加载时为 1。
+   */
+  public float getLoadProgress() {
+    return mLoadProgress;
+  }
+
+  /**
+   * 设置已加载模型缓存的预算（估算的顶点 + 索引 + 纹理字节数）。0 表示不缓存，切换模型时直接销毁旧模型。
+   */
+  @NonNull
+  public CompletableFuture<Void> setAssetCacheBudgetBytes(long budgetBytes) {
+    if (budgetBytes < 0) {
+      throw new IllegalArgumentException("Asset cache budget must be >= 0: " + budgetBytes);
+    }
+    CompletableFuture<Void> future = new CompletableFuture<>();
+    RenderThreadActor executor = mRenderExecutor;
+    if (executor == null || executor.isShutdown()) {
+      // Nothing can be cached before init, so no eviction (and no Filament call) happens here.
+      mAssetCache.setBudgetBytes(budgetBytes);
+      future.complete(null);
+      return future;
+    }
+    enqueueOrFail(executor, RenderThreadActor.Priority.ASSET, () -> {
+      mAssetCache.setBudgetBytes(budgetBytes);
+      future.complete(null);
+    }, future);
+    return future;
+  }
+
+  @NonNull
+  public ModelAssetCache.Stats getAssetCacheStats() {
+    return mAssetCache.getStats();
+  }
+
+  /**
+   * 按 ComponentCallbacks2.onTrimMemory 的 level 释放资源：RUNNING_MODERATE/RUNNING_LOW 释放缓存，
+   * RUNNING_CRITICAL/UI_HIDDEN 再释放离屏 SwapChain，BACKGROUND 及以上再销毁当前模型。
+   * 已经处于同级或更低层级时不做任何事。之后的渲染、姿态更新或 {@link #restoreResources()} 只重建被释放的部分。
+   */
+  @NonNull
+  public CompletableFuture<TrimReport> onTrimMemory(int level) {
+    return trimResources(resourceTierForTrimLevel(level));
+  }
+
+  @NonNull
+  public CompletableFuture<TrimReport> trimResources(@NonNull ResourceTier tier) {
+    CompletableFuture<TrimReport> future = new CompletableFuture<>();
+    if (!mIsInitialized.get() || mIsCleanedUp.get()) {
+      future.completeExceptionally(new IllegalStateException("Renderer not initialized or already cleaned up."));
+      return future;
+    }
+    RenderThreadActor executor = mRenderExecutor;
+    if (executor == null || executor.isShutdown()) {
+      future.completeExceptionally(new IllegalStateException("Render executor not available."));
+      return future;
+    }
+    // LIFECYCLE runs ahead of queued frames, so memory is returned before more work is done.
+    enqueueOrFail(executor, RenderThreadActor.Priority.LIFECYCLE, () -> performTrimOnRenderThread(tier, future), future);
+    return future;
+  }
+
+  /**
+   * 提前重建被释放的资源（例如回到前台时），使下一帧不用承担恢复耗时。没有被释放的资源时立即以 from=FULL 完成。
+   */
+  @NonNull
+  public CompletableFuture<RestoreReport> restoreResources() {
+    CompletableFuture<RestoreReport> future = new CompletableFuture<>();
+    if (!mIsInitialized.get() || mIsCleanedUp.get()) {
+      future.completeExceptionally(new IllegalStateException("Renderer not initialized or already cleaned up."));
+      return future;
+    }
+    RenderThreadActor executor = mRenderExecutor;
+    if (executor == null || executor.isShutdown()) {
+      future.completeExceptionally(new IllegalStateException("Render executor not available."));
+      return future;
+    }
+    enqueueOrFail(executor, RenderThreadActor.Priority.LIFECYCLE, () -> {
+      try {
+        RestoreReport report = restoreTrimmedResourcesInternal();
+        future.complete(report != null ? report : new RestoreReport(ResourceTier.FULL, 0, null));
+      } catch (Exception e) {
+        Log.e(TAG, "Exception while restoring trimmed resources.", e);
+        future.completeExceptionally(e);
+      }
+    }, future);
+    return future;
+  }
+
+  @NonNull
+  public ResourceTier getResourceTier() {
+    return mResourceTier;
+  }
+
+  @Nullable
+  public TrimReport getLastTrimReport() {
+    return mLastTrimReport;
+  }
+
+  @Nullable
+  public RestoreReport getLastRestoreReport() {
+    return mLastRestoreReport;
+  }
+
+  /**
+   * 本实例当前持有的 native 对象（Engine、SwapChain、FilamentAsset 等）按类型的数量和估算字节数。release() 完成后应为空。
+   */
+  @NonNull
+  public NativeResourceTracker.Snapshot getNativeResourceStats() {
+    return mNativeResources.snapshot();
+  }
+
+  @NonNull
+  static ResourceTier resourceTierForTrimLevel(int level) {
+    if (level >= ComponentCallbacks2.TRIM_MEMORY_BACKGROUND) return ResourceTier.ASSET_DROPPED;
+    if (level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL) return ResourceTier.SURFACES_DROPPED;
+    if (level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_MODERATE) return ResourceTier.CACHES_DROPPED;
+    return ResourceTier.FULL;
+  }
+
+  @Nullable
+  public ModelLoadReport getModelLoadReport(@NonNull String assetPath) {
+    return mModelLoadReports.get(assetPath);
+  }
+
+  @NonNull
+  public MorphUploadStats getMorphUploadStats() {
+    return new MorphUploadStats(mMorphUpdateFrames, mMorphUploads, mMorphUploadsSkipped);
+  }
+
+  public int getFramesInFlight() {
+    synchronized (mInFlightFrames) {
+      return mInFlightFrames.size();
+    }
+  }
+
+  @VisibleForTesting
+  int getMaxObservedFramesInFlight() {
+    synchronized (mInFlightFrames) {
+      return mMaxObservedFramesInFlight;
+    }
+  }
+
+  @VisibleForTesting
+  void setFrameReadback(@NonNull FrameReadback frameReadback) {
+    mFrameReadback = frameReadback;
+  }
+
   // 降级为包级私有
   boolean isRenderExecutorAvailable() {
     return mRenderExecutor != null && !mRenderExecutor.isShutdown();
@@ -162,40 +889,78 @@ public class ModelRender {
 
   private boolean createEngineAndLoadersInternal() {
     Log.d(TAG, "initFilamentCore: Calling Engine.create()");
-    mEngine = Engine.create();
+    mEngine = Engine.create(mBackend);
     if (mEngine == null) {
       Log.e(TAG, "initFilamentCore: Failed to create Filament Engine.");
       return false;
     }
     Log.i(TAG, "initFilamentCore: Filament engine CREATED (Backend: " + mEngine.getBackend() + ")");
-
-    MaterialProvider materialProvider = new UbershaderProvider(mEngine);
-    mAssetLoader = new AssetLoader(mEngine, materialProvider, EntityManager.get());
-    mResourceLoader = new ResourceLoader(mEngine, true /*normalizeSkinningWeights*/);
+    final Engine engine = mEngine;
+    mNativeResources.track("Engine", engine, 0, engine::destroy);
+
+    // Kept in a field so that release() can destroy the compiled materials along with the loaders.
+    final UbershaderProvider materialProvider = new UbershaderProvider(engine);
+    mMaterialProvider = materialProvider;
+    mNativeResources.track("MaterialProvider", materialProvider, 0, () -> {
+      materialProvider.destroyMaterials();
+      materialProvider.destroy();
+    });
+    final AssetLoader assetLoader = new AssetLoader(engine, materialProvider, EntityManager.get());
+    mAssetLoader = assetLoader;
+    mNativeResources.track("AssetLoader", assetLoader, 0, assetLoader::destroy);
+    final ResourceLoader resourceLoader = new ResourceLoader(engine, true /*normalizeSkinningWeights*/);
+    mResourceLoader = resourceLoader;
+    mNativeResources.track("ResourceLoader", resourceLoader, 0, resourceLoader::destroy);
     return true;
   }
 
+  /**
+   * 创建离屏 SwapChain 并登记，估算字节数为 RGBA8 颜色 + 32 位深度。失败时返回 null。
+   */
+  @Nullable
+  private SwapChain createHeadlessSwapChainInternal() {
+    final Engine engine = mEngine;
+    final SwapChain swapChain = engine.createSwapChain(IMAGE_WIDTH, IMAGE_HEIGHT, SwapChainFlags.CONFIG_READABLE);
+    if (swapChain == null) return null;
+    mNativeResources.track("SwapChain", swapChain, (long) IMAGE_WIDTH * IMAGE_HEIGHT * 8,
+      () -> engine.destroySwapChain(swapChain));
+    return swapChain;
+  }
+
   private boolean createSwapChainAndRendererInternal() {
-    mSwapChain = mEngine.createSwapChain(IMAGE_WIDTH, IMAGE_HEIGHT, SwapChainFlags.CONFIG_READABLE);
+    mSwapChain = createHeadlessSwapChainInternal();
     if (mSwapChain == null) {
       Log.e(TAG, "Failed to create headless SwapChain.");
       // Minimal cleanup here, full cleanup in caller if this fails
-      if (mAssetLoader != null) mAssetLoader.destroy();
-      if (mResourceLoader != null) mResourceLoader.destroy();
+      destroyAssetAndLoadersInternal();
       if (mEngine != null) mEngine.destroy();
+      mNativeResources.untrack(mEngine);
       mEngine = null;
       return false;
     }
     Log.i(TAG, "Headless SwapChain created.");
-    mRenderer = mEngine.createRenderer();
+    final Engine engine = mEngine;
+    final Renderer renderer = engine.createRenderer();
+    mRenderer = renderer;
+    mNativeResources.track("Renderer", renderer, 0, () -> engine.destroyRenderer(renderer));
     return true;
   }
 
   private void createSceneViewCameraInternal() {
-    mScene = mEngine.createScene();
-    mView = mEngine.createView();
-    mCameraEntity = EntityManager.get().create();
-    mCamera = mEngine.createCamera(mCameraEntity);
+    final Engine engine = mEngine;
+    final Scene scene = engine.createScene();
+    mScene = scene;
+    mNativeResources.track("Scene", scene, 0, () -> engine.destroyScene(scene));
+    final View view = engine.createView();
+    mView = view;
+    mNativeResources.track("View", view, 0, () -> engine.destroyView(view));
+    final int cameraEntity = EntityManager.get().create();
+    mCameraEntity = cameraEntity;
+    mCamera = engine.createCamera(cameraEntity);
+    mNativeResources.track("Camera", mCamera, 0, () -> {
+      engine.destroyCameraComponent(cameraEntity);
+      EntityManager.get().destroy(cameraEntity);
+    });
 
     mView.setScene(mScene);
     mView.setCamera(mCamera);
@@ -261,38 +1026,110 @@ public class ModelRender {
   }
 
   // --- init() refactored parts START ---
-  private void performInitializationOnRenderThread(@NonNull Context context, @NonNull CompletableFuture<Void> initFuture) {
+  private void performInitializationOnRenderThread(@NonNull Context context, @Nullable String modelPath, @NonNull CompletableFuture<Void> initFuture) {
     Log.i(TAG, "Render thread: Task STARTED.");
     try {
       Log.i(TAG, "Render thread: Calling initFilamentCore().");
       if (!initFilamentCore()) {
         Log.e(TAG, "Render thread: initFilamentCore() FAILED.");
+        mWarmUpFuture.complete(null); // No warm-up will run
         initFuture.completeExceptionally(new RuntimeException("Filament core initialization failed."));
         return;
       }
       Log.i(TAG, "Render thread: initFilamentCore() SUCCEEDED.");
 
+      if (modelPath == null) {
+        // Nothing in the scene to warm up.
+        mWarmUpFuture.complete(null);
+        mIsInitialized.set(true);
+        mInitNanos = System.nanoTime() - mInitStartNanos;
+        Log.i(TAG, "Render thread: Initialization without model SUCCESSFUL. Completing future.");
+        initFuture.complete(null);
+        return;
+      }
+
       Log.i(TAG, "Render thread: Calling loadModelAndSetupViewport().");
-      loadModelAndSetupViewport(context, MODEL_PATH)
+      loadModelAndSetupViewport(context, modelPath)
+        .thenCompose(v -> startWarmUpInternal())
         .thenRun(() -> {
           mIsInitialized.set(true);
+          mInitNanos = System.nanoTime() - mInitStartNanos;
           Log.i(TAG, "Render thread: Initialization, initial model load, and viewport setup SUCCESSFUL. Completing future.");
           initFuture.complete(null);
         })
         .exceptionally(ex -> {
           Log.e(TAG, "Render thread: EXCEPTION in loadModel/updateViewPort chain.", ex);
           cleanupFilamentResourcesInternal(); // Ensure cleanup on failure path
+          mWarmUpFuture.complete(null); // No-op if the warm-up already ran
           initFuture.completeExceptionally(ex);
           return null;
         });
     } catch (Throwable t) {
       Log.e(TAG, "Render thread: Uncaught THROWABLE during initialization task.", t);
       cleanupFilamentResourcesInternal(); // Ensure cleanup on unexpected failure
+      mWarmUpFuture.complete(null);
       initFuture.completeExceptionally(t);
     }
     Log.i(TAG, "Render thread: Task SUBMITTED part finished (async operations may still be running).");
   }
 
+  /**
+   * 按 mWarmUpMode 把预热任务排到渲染线程上。返回的 future 在 init 可以完成时完成：
+   * BLOCKING 时为预热结束，其他模式立即完成。
+   */
+  @NonNull
+  private CompletableFuture<Void> startWarmUpInternal() {
+    WarmUpMode mode = mWarmUpMode;
+    RenderThreadActor executor = mRenderExecutor;
+    if (mode == WarmUpMode.OFF || executor == null || executor.isShutdown()) {
+      mWarmUpFuture.complete(null);
+      return CompletableFuture.completedFuture(null);
+    }
+    try {
+      // Queued behind the current task, so any frame requested after init completes still runs after the warm-up.
+      executor.execute(RenderThreadActor.Priority.LIFECYCLE, this::performWarmUpOnRenderThread);
+    } catch (RejectedExecutionException e) {
+      Log.w(TAG, "Render executor rejected the warm-up task, skipping it.");
+      mWarmUpFuture.complete(null);
+    }
+    return mode == WarmUpMode.BLOCKING ? mWarmUpFuture : CompletableFuture.completedFuture(null);
+  }
+
+  /**
+   * 渲染 mWarmUpFrames 个不回读的隐藏帧。场景、View、灯光与真实帧完全相同，驱动因此在这里编译场景中
+   * 每个材质实际用到的 variant（蒙皮、morph、阴影、半透明混合），而不是在第一帧真实渲染时。
+   * 预热失败只记录日志，不影响 init。
+   */
+  private void performWarmUpOnRenderThread() {
+    final long startNanos = System.nanoTime();
+    int rendered = 0;
+    try {
+      if (mIsCleanedUp.get() || mRenderer == null || mSwapChain == null || mView == null || mEngine == null || !mEngine.isValid()) {
+        Log.w(TAG, "Warm-up skipped: Filament resources are not valid.");
+        return;
+      }
+      setupFrameForRenderingInternal();
+      final int frames = mWarmUpFrames;
+      // beginFrame() may ask to skip a frame; bound the retries so a misbehaving swap chain cannot stall init.
+      for (int attempt = 0; rendered < frames && attempt < frames * 4; attempt++) {
+        if (mRenderer.beginFrame(mSwapChain, System.nanoTime())) {
+          mRenderer.render(mView);
+          mRenderer.endFrame();
+          rendered++;
+        }
+        // Waiting here makes the driver finish compiling programs before the next frame is paced.
+        mEngine.flushAndWait();
+      }
+    } catch (Throwable t) {
+      Log.e(TAG, "Warm-up failed, the first frame may hitch.", t);
+    } finally {
+      mWarmUpFramesRendered = rendered;
+      mWarmUpNanos = System.nanoTime() - startNanos;
+      Log.i(TAG, "Warm-up rendered " + rendered + " hidden frame(s) in " + mWarmUpNanos / 1_000_000.0 + " ms.");
+      mWarmUpFuture.complete(null);
+    }
+  }
+
   private CompletableFuture<Void> loadModelAndSetupViewport(@NonNull Context context, @NonNull String modelPath) {
     return loadModel(context, modelPath)
       .thenCompose(modelLoaded -> {
@@ -311,6 +1148,14 @@ public class ModelRender {
 
   @NonNull
   public CompletableFuture<Void> init(@NonNull Context context) {
+    return init(context, MODEL_PATH);
+  }
+
+  /**
+   * modelPath 为 null 时只初始化 Filament 核心对象、不加载模型（空场景），用于流水线等测试。
+   */
+  @NonNull
+  CompletableFuture<Void> init(@NonNull Context context, @Nullable String modelPath) {
     CompletableFuture<Void> initFuture = new CompletableFuture<>();
     Log.i(TAG, "init() called. mIsInitialized: " + mIsInitialized.get() + ", mIsCleanedUp: " + mIsCleanedUp.get());
 
@@ -325,16 +1170,31 @@ public class ModelRender {
       return initFuture;
     }
     mApplicationContext = context.getApplicationContext();
+    mInitStartNanos = System.nanoTime();
     Log.i(TAG, "Initializing ModelRender...");
 
     try {
       if (mRenderExecutor == null || mRenderExecutor.isShutdown()) {
-        mRenderExecutor = Executors.newSingleThreadExecutor(r -> new Thread(r, "FilamentRenderThread"));
+        final RenderThreadActor actor = new RenderThreadActor("FilamentRenderThread",
+          ASSET_QUEUE_CAPACITY, POSE_QUEUE_CAPACITY, RENDER_QUEUE_CAPACITY);
+        mRenderExecutor = actor;
+        mNativeResources.track("RenderThread", actor, 0, actor::shutdown);
+        // Leaked objects must be destroyed on the thread that owns the Engine, ahead of anything still queued.
+        mLeakCleanupExecutor.set(command -> actor.execute(RenderThreadActor.Priority.LIFECYCLE, command));
         Log.i(TAG, "Render executor CREATED.");
       } else {
         Log.i(TAG, "Render executor ALREADY EXISTS.");
       }
-      mRenderExecutor.submit(() -> performInitializationOnRenderThread(context, initFuture));
+      if (mReadbackThread == null) {
+        final HandlerThread readbackThread = new HandlerThread("FilamentReadbackThread", Process.THREAD_PRIORITY_DISPLAY);
+        mReadbackThread = readbackThread;
+        readbackThread.start();
+        mNativeResources.track("ReadbackThread", readbackThread, 0, readbackThread::quitSafely);
+        mReadbackHandler = new Handler(mReadbackThread.getLooper());
+        Log.i(TAG, "Readback thread CREATED.");
+      }
+      mRenderExecutor.execute(RenderThreadActor.Priority.LIFECYCLE,
+        () -> performInitializationOnRenderThread(context, modelPath, initFuture));
     } catch (Exception e) {
       Log.e(TAG, "Exception during init (e.g., thread submission).", e);
       cleanupFilamentResourcesInternal(); // Attempt cleanup if submission fails
@@ -345,20 +1205,29 @@ public class ModelRender {
   }
 
   // --- applyLandmarkResult refactored parts START ---
-  private Map<String, Float> extractBlendshapesFromResult(@Nullable FaceLandmarkerResult result) {
-    Map<String, Float> blendshapeMap = new HashMap<>();
-    if (result == null) return blendshapeMap;
+
+  /**
+   * 按 MediaPipe 类别下标提取 blendshape 分数。结果中没有 blendshape 时返回 null。
+   */
+  @Nullable
+  private float[] extractBlendshapeScoresFromResult(@Nullable FaceLandmarkerResult result) {
+    if (result == null) return null;
 
     java.util.Optional<java.util.List<java.util.List<Category>>> blendshapesOptional = result.faceBlendshapes();
     if (blendshapesOptional.isPresent() && !blendshapesOptional.get().isEmpty() && !blendshapesOptional.get().get(0).isEmpty()) {
       List<Category> blendshapes = blendshapesOptional.get().get(0);
-      for (Category blendshape : blendshapes) {
-        blendshapeMap.put(blendshape.categoryName(), blendshape.score());
+      float[] scores = new float[MorphBindingTable.BLENDSHAPE_COUNT];
+      for (int i = 0; i < blendshapes.size(); i++) {
+        Category blendshape = blendshapes.get(i);
+        int index = blendshape.index();
+        if (index < 0 || index >= scores.length) index = i; // Fall back to list position
+        if (index < scores.length) scores[index] = blendshape.score();
       }
+      return scores;
     } else {
-      Log.i(TAG, "extractBlendshapesFromResult: No blendshapes found in the result.");
+      Log.i(TAG, "extractBlendshapeScoresFromResult: No blendshapes found in the result.");
+      return null;
     }
-    return blendshapeMap;
   }
 
   @Nullable
@@ -379,68 +1248,59 @@ public class ModelRender {
     }
   }
 
-  private boolean applyFacialRotationInternal(@NonNull String targetEntityName, @NonNull float[] faceTransformMatrix) {
-    int headEntityId = findEntityByNameInternal(targetEntityName);
-    if (headEntityId == Entity.NULL) {
-      Log.e(TAG, "applyFacialRotationInternal: Entity '" + targetEntityName + "' not found.");
+  private boolean applyFacialRotationInternal(@Nullable EntityIndex.Entry head, @NonNull float[] faceTransformMatrix) {
+    if (head == null) {
+      Log.e(TAG, "applyFacialRotationInternal: Entity '" + headName + "' not found.");
       return false;
     }
-
-    TransformManager tm = mEngine.getTransformManager();
-    if (!tm.hasComponent(headEntityId)) {
-      Log.e(TAG, "applyFacialRotationInternal: Entity '" + targetEntityName + "' has no Transform component.");
+    if (!head.hasTransform() || head.initialTransform == null) {
+      Log.e(TAG, "applyFacialRotationInternal: Entity '" + head.name + "' has no Transform component.");
       return false;
     }
 
-    int headInstance = tm.getInstance(headEntityId);
-    float[] initialHeadTransform = mEntityInitialTransforms.get(targetEntityName);
-    if (initialHeadTransform == null) {
-      Log.e(TAG, "applyFacialRotationInternal: Initial transform for '" + targetEntityName + "' not found.");
-      return false;
-    }
+    TransformManager tm = mEngine.getTransformManager();
+    int headInstance = head.transformInstance;
+    float[] initialHeadTransform = head.initialTransform;
 
-    // Create a 4x4 matrix containing only the rotation from MediaPipe's matrix
-    float[] rotationFromMediaPipe = new float[16];
-    Matrix.setIdentityM(rotationFromMediaPipe, 0);
-    // Copy 3x3 rotation part (faceTransformMatrix is column-major)
-    rotationFromMediaPipe[0] = faceTransformMatrix[0];
-    rotationFromMediaPipe[1] = faceTransformMatrix[1];
-    rotationFromMediaPipe[2] = faceTransformMatrix[2];
-    rotationFromMediaPipe[4] = faceTransformMatrix[4];
-    rotationFromMediaPipe[5] = faceTransformMatrix[5];
-    rotationFromMediaPipe[6] = faceTransformMatrix[6];
-    rotationFromMediaPipe[8] = faceTransformMatrix[8];
-    rotationFromMediaPipe[9] = faceTransformMatrix[9];
-    rotationFromMediaPipe[10] = faceTransformMatrix[10];
+    // Only the 3x3 rotation part of MediaPipe's matrix is used (faceTransformMatrix is column-major)
+    float[] rotationFromMediaPipe = mTransformMath.rotationFrom(faceTransformMatrix);
 
     // New local transform: M_newLocal = M_initialLocal * R_mediaPipe
-    float[] newHeadLocalTransform = new float[16];
-    Matrix.multiplyMM(newHeadLocalTransform, 0, initialHeadTransform, 0, rotationFromMediaPipe, 0);
+    float[] newHeadLocalTransform = mTransformMath.multiply(initialHeadTransform, rotationFromMediaPipe);
 
     tm.setTransform(headInstance, newHeadLocalTransform);
     return true;
   }
 
-  private void performApplyLandmarkResultOnRenderThread(@NonNull Map<String, Float> blendshapeMap, @Nullable float[] faceTransformMatrix, @NonNull CompletableFuture<Void> future) {
-    try {
-      // 1. Apply Blendshapes
-      if (!blendshapeMap.isEmpty()) {
-        setMorphWeightsInternal(blendshapeMap);
-      }
+  private void applyPoseInternal(@Nullable float[] blendshapeScores, @Nullable float[] faceTransformMatrix) {
+    restoreTrimmedResourcesInternal();
+    // 1. Apply Blendshapes
+    if (blendshapeScores != null) {
+      setMorphWeightsInternal(blendshapeScores);
+    }
 
-      // 2. Apply Rotation (if matrix exists)
-      boolean rotationApplied = false;
-      if (faceTransformMatrix != null) {
-        rotationApplied = applyFacialRotationInternal(headName, faceTransformMatrix);
-        if (!rotationApplied) {
-          Log.w(TAG, "Facial rotation could not be applied.");
-        }
+    // 2. Apply Rotation (if matrix exists)
+    boolean rotationApplied = false;
+    if (faceTransformMatrix != null) {
+      rotationApplied = applyFacialRotationInternal(mHeadEntry, faceTransformMatrix);
+      if (!rotationApplied) {
+        Log.w(TAG, "Facial rotation could not be applied.");
       }
+    }
 
-      // 3. Update Bone Matrices (if rotation was applied)
-      if (rotationApplied) {
-        updateBoneMatricesInternal();
-      }
+    // 3. Update Bone Matrices (if rotation was applied)
+    if (rotationApplied) {
+      updateBoneMatricesInternal();
+    }
+  }
+
+  private void performApplyLandmarkResultOnRenderThread(@Nullable float[] blendshapeScores, @Nullable float[] faceTransformMatrix, @NonNull CompletableFuture<Void> future) {
+    if (future.isCancelled()) {
+      mPosesCancelled.incrementAndGet();
+      return;
+    }
+    try {
+      applyPoseInternal(blendshapeScores, faceTransformMatrix);
       future.complete(null);
     } catch (Exception e) {
       Log.e(TAG, "Exception during applyLandmarkResult execution on render thread.", e);
@@ -471,42 +1331,157 @@ public class ModelRender {
       return future;
     }
 
-    final Map<String, Float> finalBlendshapeMap = extractBlendshapesFromResult(result);
+    final float[] finalBlendshapeScores = extractBlendshapeScoresFromResult(result);
     final float[] finalFaceTransformMatrix = extractFaceTransformMatrixFromResult(result);
 
-    mRenderExecutor.submit(() -> performApplyLandmarkResultOnRenderThread(finalBlendshapeMap, finalFaceTransformMatrix, future));
+    try {
+      // A newer pose replaces one that is still queued; the replaced call completes normally since its pose is overwritten anyway.
+      mRenderExecutor.execute(RenderThreadActor.Priority.POSE, POSE_COALESCE_KEY,
+        () -> performApplyLandmarkResultOnRenderThread(finalBlendshapeScores, finalFaceTransformMatrix, future),
+        () -> future.complete(null));
+    } catch (RejectedExecutionException e) {
+      future.completeExceptionally(e);
+    }
     return future;
   }
 
+  /**
+   * 与 {@link #applyLandmarkResultAndRenderFrame} 相同，但返回一份独立的 Bitmap 拷贝，适合一次性截图。
+   * 实时叠加请使用 applyLandmarkResultAndRenderFrame，避免每帧分配 Bitmap。
+   */
   @NonNull
   public CompletableFuture<Bitmap> applyLandmarkResultAndRender(@Nullable FaceLandmarkerResult result) {
+    return detachBitmap(applyLandmarkResultAndRenderFrame(result));
+  }
+
+  /**
+   * 应用 landmark 结果并渲染一帧，返回独立的 Bitmap 拷贝，用于拍摄截图。与 {@link #applyLandmarkResultAndRender} 不同，
+   * 不经过 latest-wins 调度（经由 {@link #renderPoseFrame}），实时叠加持续提交新帧时也不会被取代。
+   */
+  @NonNull
+  public CompletableFuture<Bitmap> captureLandmarkResult(@Nullable FaceLandmarkerResult result) {
+    return detachBitmap(renderPoseFrame(extractBlendshapeScoresFromResult(result), extractFaceTransformMatrixFromResult(result)));
+  }
+
+  /**
+   * 应用 landmark 结果并渲染一帧。返回的 {@link RenderedFrame} 来自回读池，用完后必须 release()。
+   * <p>
+   * 请求经过 latest-wins 调度：已有帧在渲染时，新结果会替换尚未开始的旧请求，被替换的 future 以
+   * {@link FrameSkippedException} 结束。调用方无需自行丢帧。
+   */
+  @NonNull
+  public CompletableFuture<RenderedFrame> applyLandmarkResultAndRenderFrame(@Nullable FaceLandmarkerResult result) {
     if (mIsCleanedUp.get()) {
-      CompletableFuture<Bitmap> failedFuture = new CompletableFuture<>();
+      CompletableFuture<RenderedFrame> failedFuture = new CompletableFuture<>();
       failedFuture.completeExceptionally(new IllegalStateException("Renderer is cleaned up."));
       return failedFuture;
     }
     if (!mIsInitialized.get()) {
-      CompletableFuture<Bitmap> failedFuture = new CompletableFuture<>();
+      CompletableFuture<RenderedFrame> failedFuture = new CompletableFuture<>();
       failedFuture.completeExceptionally(new IllegalStateException("Renderer not initialized."));
       return failedFuture;
     }
     if (mRenderExecutor == null || mRenderExecutor.isShutdown()) {
-      CompletableFuture<Bitmap> failedFuture = new CompletableFuture<>();
+      CompletableFuture<RenderedFrame> failedFuture = new CompletableFuture<>();
       failedFuture.completeExceptionally(new IllegalStateException("Render executor not available."));
       return failedFuture;
     }
-    return updateViewPortAsync(headMeshName, SCALE_FACTOR)
-      .thenComposeAsync(aVoid -> applyLandmarkResult(result), mRenderExecutor)
-      .thenComposeAsync(aVoid -> render(), mRenderExecutor)
-      .exceptionally(ex -> {
-        Log.e(TAG, "Error in applyLandmarkResultAndRender chain", ex);
-        // Instead of re-throwing, which might obscure the original exception type if not careful,
-        // let the original CompletableFuture propagate its exception.
-        // If a specific new exception is needed: throw new RuntimeException("Chain failed", ex);
-        CompletableFuture<Bitmap> failed = new CompletableFuture<>();
-        failed.completeExceptionally(ex);
-        return failed.join(); // This will rethrow the exception
-      });
+    return mFrameScheduler.submit(result);
+  }
+
+  /**
+   * 按给定姿态渲染一帧，用于回放录制的数据等离线场景。blendshapeScores 按 MediaPipe 类别下标排列，
+   * faceTransformMatrix 为 4x4 列主序矩阵，二者都可以为 null（不修改对应部分）。数组会被拷贝。
+   * <p>
+   * 不经过 latest-wins 调度，每次调用都会渲染；调用方需要自行限制在途请求数，渲染队列满时最老的请求以
+   * {@link FrameSkippedException} 结束。返回的 {@link RenderedFrame} 用完后必须 release()。
+   */
+  @NonNull
+  public CompletableFuture<RenderedFrame> renderPoseFrame(@Nullable float[] blendshapeScores, @Nullable float[] faceTransformMatrix) {
+    if (faceTransformMatrix != null && faceTransformMatrix.length != 16) {
+      throw new IllegalArgumentException("Face transform matrix must have 16 elements: " + faceTransformMatrix.length);
+    }
+    CompletableFuture<RenderedFrame> future = new CompletableFuture<>();
+    if (mIsCleanedUp.get() || !mIsInitialized.get()) {
+      future.completeExceptionally(new IllegalStateException("Renderer not initialized or already cleaned up."));
+      return future;
+    }
+    RenderThreadActor executor = mRenderExecutor;
+    if (executor == null || executor.isShutdown()) {
+      future.completeExceptionally(new IllegalStateException("Render executor not available."));
+      return future;
+    }
+    final float[] scores = blendshapeScores == null ? null : blendshapeScores.clone();
+    final float[] matrix = faceTransformMatrix == null ? null : faceTransformMatrix.clone();
+    enqueueRenderCommandInternal(executor, () -> performLandmarkFrameOnRenderThread(scores, matrix, future), future);
+    return future;
+  }
+
+  @NonNull
+  public LatestFrameScheduler.Stats getFrameSchedulerStats() {
+    return mFrameScheduler.getStats();
+  }
+
+  /**
+   * 单次渲染线程任务完成一帧：viewport 适配、morph/旋转、骨骼更新和渲染提交，只对应一个结果 future。
+   * blendshape 与矩阵的提取在调用线程完成。
+   */
+  @NonNull
+  private CompletableFuture<RenderedFrame> renderLandmarkFrameInternal(@Nullable FaceLandmarkerResult result) {
+    CompletableFuture<RenderedFrame> future = new CompletableFuture<>();
+    RenderThreadActor executor = mRenderExecutor;
+    if (executor == null || executor.isShutdown()) {
+      future.completeExceptionally(new IllegalStateException("Render executor not available."));
+      return future;
+    }
+    final float[] blendshapeScores = extractBlendshapeScoresFromResult(result);
+    final float[] faceTransformMatrix = extractFaceTransformMatrixFromResult(result);
+
+    enqueueRenderCommandInternal(executor, () -> performLandmarkFrameOnRenderThread(blendshapeScores, faceTransformMatrix, future), future);
+    return future;
+  }
+
+  private void performLandmarkFrameOnRenderThread(@Nullable float[] blendshapeScores, @Nullable float[] faceTransformMatrix,
+                                                  @NonNull CompletableFuture<RenderedFrame> future) {
+    if (future.isCancelled()) {
+      // Neither the pose nor the frame is wanted any more.
+      mPendingRenderRequests.decrementAndGet();
+      mFramesCancelledBeforeRender.incrementAndGet();
+      return;
+    }
+    try {
+      restoreTrimmedResourcesInternal();
+      updateViewPortInternal(headMeshName, SCALE_FACTOR);
+      applyPoseInternal(blendshapeScores, faceTransformMatrix);
+    } catch (Exception e) {
+      mPendingRenderRequests.decrementAndGet();
+      Log.e(TAG, "Exception while preparing landmark frame on render thread.", e);
+      future.completeExceptionally(e);
+      return;
+    }
+    renderOnRenderThreadInternal(future);
+  }
+
+  /**
+   * 把池化帧转换为独立的 Bitmap 拷贝，并立即把帧还给回读池。对返回的 future 调用 cancel() 会取消帧请求本身。
+   */
+  @NonNull
+  private static CompletableFuture<Bitmap> detachBitmap(@NonNull CompletableFuture<RenderedFrame> frameFuture) {
+    CompletableFuture<Bitmap> bitmapFuture = frameFuture.thenApply(frame -> {
+      try {
+        return frame.getBitmap().copy(Bitmap.Config.ARGB_8888, false);
+      } finally {
+        frame.release();
+      }
+    });
+    bitmapFuture.whenComplete((bitmap, error) -> {
+      if (!bitmapFuture.isCancelled()) return;
+      if (!frameFuture.cancel(false)) {
+        // Already rendered: the cancelled stage above never runs, so the frame goes back to the pool here.
+        frameFuture.thenAccept(RenderedFrame::release);
+      }
+    });
+    return bitmapFuture;
   }
 
   private void updateBoneMatricesInternal() {
@@ -535,83 +1510,392 @@ public class ModelRender {
       return false;
     }
 
-    float[] initialTransform = mEntityInitialTransforms.get(entityName);
-    if (initialTransform == null) {
-      Log.e(TAG, "rotateInternal failed: Initial transform for entity '" + entityName + "' not cached.");
+    EntityIndex.Entry entry = mEntityIndex.get(entityName);
+    if (entry == null) {
+      Log.e(TAG, "rotateInternal failed: Entity '" + entityName + "' not found.");
       return false;
     }
-
-    int entityId = findEntityByNameInternal(entityName);
-    if (entityId == Entity.NULL) {
-      Log.e(TAG, "rotateInternal failed: Entity '" + entityName + "' not found (despite having cached transform).");
+    float[] initialTransform = entry.initialTransform;
+    if (!entry.hasTransform() || initialTransform == null) {
+      Log.e(TAG, "rotateInternal failed: Entity '" + entityName + "' has no Transform component.");
       return false;
     }
 
     TransformManager tm = mEngine.getTransformManager();
-    if (!tm.hasComponent(entityId)) {
-      Log.e(TAG, "rotateInternal failed: Entity '" + entityName + "' has no Transform component.");
-      return false;
+    int instance = entry.transformInstance;
+
+    // desiredRotation = Rz * Ry * Rx
+    float[] desiredRotation = mTransformMath.rotationFromEuler(x, y, z);
+    float[] newLocalTransform = mTransformMath.multiply(initialTransform, desiredRotation);
+
+    tm.setTransform(instance, newLocalTransform);
+    Log.d(TAG, "Applied absolute rotation to entity '" + entityName + "' (x=" + x + ", y=" + y + ", z=" + z + ").");
+    return true;
+  }
+
+  // --- loadModel refactored parts START ---
+  /**
+   * 在暂存区准备好的模型：实体筛选、实体索引、morph 绑定表和根变换都已在加入场景前计算完成。
+   */
+  private static final class PreparedModel {
+    final String assetPath;
+    final FilamentAsset asset;
+    // 估算的 GPU 占用，用于缓存预算
+    final long estimatedBytes;
+    final int[] entities;
+    final EntityIndex entityIndex;
+    @Nullable
+    final EntityIndex.Entry headEntry;
+    final Map<String, List<MorphInfo>> morphTargetInfo;
+    final MorphBindingTable morphBindings;
+    // 非 null 表示已按 (fitEntityName, fitScaleFactor) 设置好根变换
+    @Nullable
+    final String fitEntityName;
+    final float fitScaleFactor;
+    final int excludedEntityCount;
+    final long excludedUnreachableBytes;
+    final boolean excludedRenderablesDestroyed;
+    // 加载时使用的元数据，运行时推导时为 null
+    @Nullable
+    final ModelSidecar metadata;
+    // 加载时实体筛选规则的 key；规则变了的模型不能直接复用
+    @NonNull
+    final String entityFilterKey;
+
+    PreparedModel(String assetPath, FilamentAsset asset, long estimatedBytes, int[] entities, EntityIndex entityIndex,
+                  @Nullable EntityIndex.Entry headEntry, Map<String, List<MorphInfo>> morphTargetInfo, MorphBindingTable morphBindings,
+                  @Nullable String fitEntityName, float fitScaleFactor,
+                  int excludedEntityCount, long excludedUnreachableBytes, boolean excludedRenderablesDestroyed,
+                  @Nullable ModelSidecar metadata, @NonNull String entityFilterKey) {
+      this.assetPath = assetPath;
+      this.asset = asset;
+      this.estimatedBytes = estimatedBytes;
+      this.entities = entities;
+      this.entityIndex = entityIndex;
+      this.headEntry = headEntry;
+      this.morphTargetInfo = morphTargetInfo;
+      this.morphBindings = morphBindings;
+      this.fitEntityName = fitEntityName;
+      this.fitScaleFactor = fitScaleFactor;
+      this.excludedEntityCount = excludedEntityCount;
+      this.excludedUnreachableBytes = excludedUnreachableBytes;
+      this.excludedRenderablesDestroyed = excludedRenderablesDestroyed;
+      this.metadata = metadata;
+      this.entityFilterKey = entityFilterKey;
+    }
+
+    /**
+     * mAssetCache 的键：路径 + 筛选规则 key，同一模型在不同 keep-set 下是不同的缓存项。
+     */
+    @NonNull
+    String cacheKey() {
+      return assetCacheKey(assetPath, entityFilterKey);
     }
-    int instance = tm.getInstance(entityId);
+  }
 
-    float[] rotationX = new float[16];
-    float[] rotationY = new float[16];
-    float[] rotationZ = new float[16];
-    float[] temp = new float[16];
-    float[] desiredRotation = new float[16];
+  @NonNull
+  private static String assetCacheKey(@NonNull String assetPath, @NonNull String entityFilterKey) {
+    // Asset paths never contain NUL, so the split between path and filter key is unambiguous.
+    return entityFilterKey.isEmpty() ? assetPath : assetPath + '\0' + entityFilterKey;
+  }
 
-    Matrix.setIdentityM(rotationX, 0);
-    Matrix.rotateM(rotationX, 0, (float) Math.toDegrees(x), 1, 0, 0);
-    Matrix.setIdentityM(rotationY, 0);
-    Matrix.rotateM(rotationY, 0, (float) Math.toDegrees(y), 0, 1, 0);
-    Matrix.setIdentityM(rotationZ, 0);
-    Matrix.rotateM(rotationZ, 0, (float) Math.toDegrees(z), 0, 0, 1);
+  /**
+   * 为资源已加载完成、尚未加入场景的资产计算全部每帧需要的数据，不修改当前模型的任何状态。
+   * 初始变换、morph 绑定和包围盒依次取自打包的 sidecar、磁盘缓存，都没有时在运行时推导并写入磁盘缓存。
+   */
+  @NonNull
+  private PreparedModel prepareModelInternal(@NonNull String assetPath, @NonNull FilamentAsset asset,
+                                             @NonNull GltfMemoryEstimate estimate, @Nullable ModelSidecar bundledSidecar,
+                                             int contentKey, long sizeBytes) {
+    RenderableManager rm = mEngine.getRenderableManager();
+    EntityFilter entityFilter = mEntityFilter;
+    ModelSidecar sidecar = bundledSidecar != null ? bundledSidecar
+      : loadCachedModelMetadataInternal(assetPath, contentKey, sizeBytes, entityFilter);
+    int[] allEntities = asset.getEntities();
+    if (allEntities == null) allEntities = new int[0];
+    String[] entityNames = entityNamesInternal(asset, allEntities, sidecar);
+    EntityFilter.Result filter = entityFilter.apply(allEntities, entityNames, rm);
+    int[] entities = filter.kept;
+    long unreachableBytes = estimate.bytesOnlyUsedBy(filter.excludedNames);
+    boolean renderablesDestroyed = mDestroyExcludedRenderables && filter.excluded.length > 0;
+    if (renderablesDestroyed) {
+      destroyExcludedRenderablesInternal(filter.excluded, rm);
+    }
+    if (filter.excluded.length > 0) {
+      Log.i(TAG, "loadModel render thread: Excluded " + filter.excluded.length + " entities (~" + unreachableBytes / 1024
+        + " KB of meshes/textures used only by them stay resident until the asset is destroyed"
+        + (renderablesDestroyed ? "; their renderables destroyed" : "") + ").");
+    }
+
+    Log.i(TAG, "loadModel render thread: --- Building Entity Index ---");
+    EntityIndex index = EntityIndex.build(entities, filter.keptNames, mEngine.getTransformManager(), rm,
+      sidecar != null ? sidecar.getInitialTransforms() : null);
+    EntityIndex.Entry headEntry = index.get(headName);
+    if (headEntry == null) {
+      Log.w(TAG, "loadModel render thread: Head entity '" + headName + "' not found, facial rotation will be skipped.");
+    }
+    Log.i(TAG, "loadModel render thread: --- Finished Building Entity Index (" + index.size() + " named entities) ---");
+
+    Map<String, List<MorphInfo>> morphTargetInfo = new HashMap<>();
+    MorphBindingTable bindings = sidecar != null ? prepareMorphTargetsFromSidecarInternal(sidecar, index, rm, morphTargetInfo) : null;
+    if (bindings == null) {
+      bindings = prepareMorphTargetInfoInternal(asset, entities, morphTargetInfo);
+    }
+
+    boolean fitted = applyFitTransformInternal(asset, index, headMeshName, SCALE_FACTOR, sidecar);
+    if (!fitted) {
+      applyRootTransformToUnitCubeInternal(asset, sidecar != null ? sidecar.getBounds(ModelSidecar.ASSET_BOUNDS) : null);
+    }
+    if (sidecar == null) {
+      storeModelMetadataInternal(assetPath, contentKey, sizeBytes, entityFilter, asset, entityNames, index, morphTargetInfo);
+    }
+    return new PreparedModel(assetPath, asset, estimate.totalBytes(), entities, index, headEntry, morphTargetInfo, bindings,
+      fitted ? headMeshName : null, SCALE_FACTOR, filter.excluded.length, unreachableBytes, renderablesDestroyed, sidecar,
+      entityFilter.key());
+  }
 
-    Matrix.multiplyMM(temp, 0, rotationY, 0, rotationX, 0);
-    Matrix.multiplyMM(desiredRotation, 0, rotationZ, 0, temp, 0);
+  /**
+   * 与 entities 一一对应的实体名称。元数据记录了同样数量的名称时直接使用（内容键保证是同一个 glb，gltfio 的实体顺序固定），
+   * 否则逐个调用一次 getName。
+   */
+  @NonNull
+  private static String[] entityNamesInternal(@NonNull FilamentAsset asset, @NonNull int[] entities,
+                                              @Nullable ModelSidecar sidecar) {
+    String[] known = sidecar != null ? sidecar.getEntityNames() : null;
+    if (known != null && known.length == entities.length) return known;
+    if (known != null) {
+      Log.w(TAG, "Metadata lists " + known.length + " entity names but the asset has " + entities.length + ", reading names.");
+    }
+    String[] names = new String[entities.length];
+    for (int i = 0; i < entities.length; i++) names[i] = asset.getName(entities[i]);
+    return names;
+  }
 
-    float[] newLocalTransform = new float[16];
-    Matrix.multiplyMM(newLocalTransform, 0, initialTransform, 0, desiredRotation, 0);
+  @Nullable
+  private ModelSidecar loadCachedModelMetadataInternal(@NonNull String assetPath, int contentKey, long sizeBytes,
+                                                       @NonNull EntityFilter entityFilter) {
+    ModelMetadataCache cache = metadataCacheInternal();
+    if (cache == null || contentKey == 0) return null;
+    return cache.load(assetPath, contentKey, sizeBytes, entityFilter.key());
+  }
 
-    tm.setTransform(instance, newLocalTransform);
-    Log.d(TAG, "Applied absolute rotation to entity '" + entityName + "' (x=" + x + ", y=" + y + ", z=" + z + ").");
+  /**
+   * 把运行时推导出的元数据编码后交给磁盘缓存在后台写入。有 morph 的实体没有名称（无法按名称找回）时不写。
+   */
+  private void storeModelMetadataInternal(@NonNull String assetPath, int contentKey, long sizeBytes,
+                                          @NonNull EntityFilter entityFilter, @NonNull FilamentAsset asset,
+                                          @NonNull String[] entityNames, @NonNull EntityIndex index,
+                                          @NonNull Map<String, List<MorphInfo>> morphTargetInfo) {
+    ModelMetadataCache cache = metadataCacheInternal();
+    if (cache == null || contentKey == 0) return;
+    RenderableManager rm = mEngine.getRenderableManager();
+
+    Map<String, float[]> transforms = new LinkedHashMap<>();
+    Map<Integer, String> namesByEntity = new HashMap<>();
+    Map<String, float[]> bounds = new LinkedHashMap<>();
+    Box box = asset.getBoundingBox();
+    bounds.put(ModelSidecar.ASSET_BOUNDS, boundsOf(box));
+    for (EntityIndex.Entry entry : index.entries()) {
+      namesByEntity.put(entry.entityId, entry.name);
+      if (entry.initialTransform != null) transforms.put(entry.name, entry.initialTransform);
+      if (entry.hasRenderable()) {
+        rm.getAxisAlignedBoundingBox(entry.renderableInstance, box);
+        bounds.put(entry.name, boundsOf(box));
+      }
+    }
+
+    Map<Integer, String[]> morphNamesByEntity = new LinkedHashMap<>();
+    for (List<MorphInfo> infos : morphTargetInfo.values()) {
+      for (MorphInfo info : infos) {
+        String[] names = morphNamesByEntity.get(info.entityId);
+        if (names == null) {
+          names = new String[info.totalMorphTargetsForEntity];
+          Arrays.fill(names, "");
+          morphNamesByEntity.put(info.entityId, names);
+        }
+        names[info.morphTargetIndex] = info.morphTargetName;
+      }
+    }
+    List<ModelSidecar.MorphEntity> morphEntities = new ArrayList<>();
+    for (Map.Entry<Integer, String[]> e : morphNamesByEntity.entrySet()) {
+      String nodeName = namesByEntity.get(e.getKey());
+      if (nodeName == null) {
+        Log.i(TAG, "Morph entity " + e.getKey() + " has no unique name, not caching metadata for " + assetPath);
+        return;
+      }
+      String[] names = e.getValue();
+      int[] categories = new int[names.length];
+      for (int t = 0; t < names.length; t++) categories[t] = MorphBindingTable.blendshapeIndexOf(names[t]);
+      morphEntities.add(new ModelSidecar.MorphEntity(nodeName, names, categories));
+    }
+    byte[] data = ModelSidecar.encode(contentKey, transforms, morphEntities.toArray(new ModelSidecar.MorphEntity[0]), bounds,
+      entityNames);
+    cache.storeAsync(assetPath, contentKey, sizeBytes, entityFilter.key(), data);
+  }
+
+  @NonNull
+  private static float[] boundsOf(@NonNull Box box) {
+    float[] center = box.getCenter();
+    float[] halfExtent = box.getHalfExtent();
+    return new float[]{center[0], center[1], center[2], halfExtent[0], halfExtent[1], halfExtent[2]};
+  }
+
+  @Nullable
+  private ModelMetadataCache metadataCacheInternal() {
+    if (!mMetadataCacheEnabled) return null;
+    ModelMetadataCache cache = mMetadataCache;
+    if (cache == null && mApplicationContext != null) {
+      cache = new ModelMetadataCache(mApplicationContext.getCacheDir());
+      mMetadataCache = cache;
+    }
+    return cache;
+  }
+
+  @NonNull
+  private static String metadataSourceOf(@Nullable ModelSidecar metadata) {
+    if (metadata == null) return "runtime";
+    return metadata.getOrigin() == ModelSidecar.Origin.BUILD ? "sidecar" : "disk-cache";
+  }
+
+  /**
+   * 销毁被筛掉实体的 renderable 组件，实体本身和它引用的缓冲/纹理仍归资产所有。
+   */
+  private void destroyExcludedRenderablesInternal(@NonNull int[] excluded, @NonNull RenderableManager rm) {
+    for (int entityId : excluded) {
+      if (rm.hasComponent(entityId)) {
+        rm.destroy(entityId);
+      }
+    }
+  }
+
+  /**
+   * 在一次渲染线程任务内把准备好的模型换入场景：先加入新实体，再移除旧实体，旧模型放入 mAssetCache
+   * （超出预算时被销毁）。两帧之间完成，不会出现空白帧。
+   */
+  private void installPreparedModelInternal(@NonNull PreparedModel prepared) {
+    final FilamentAsset previousAsset = mCurrentAsset;
+    final int[] previousEntities = mAssetEntities;
+    final PreparedModel previousModel = mCurrentModel;
+
+    if (mScene != null && prepared.entities.length > 0) {
+      mScene.addEntities(prepared.entities);
+      Log.i(TAG, "loadModel render thread: Added " + prepared.entities.length + " entities to the scene.");
+    }
+    if (previousAsset != null && previousEntities != null && mScene != null) {
+      Log.d(TAG, "loadModel render thread: Removing previous model entities from scene.");
+      mScene.removeEntities(previousEntities);
+    }
+
+    mCurrentModel = prepared;
+    mCurrentAsset = prepared.asset;
+    mAssetEntities = prepared.entities;
+    mEntityIndex = prepared.entityIndex;
+    mHeadEntry = prepared.headEntry;
+    mMorphTargetInfoMap.clear();
+    mMorphTargetInfoMap.putAll(prepared.morphTargetInfo);
+    mMorphBindings = prepared.morphBindings;
+    invalidateFitTransformCacheInternal();
+    if (prepared.fitEntityName != null) {
+      mFitCacheAsset = prepared.asset;
+      mFitCacheEntityName = prepared.fitEntityName;
+      mFitCacheScaleFactor = prepared.fitScaleFactor;
+    }
+
+    if (previousAsset != null && previousAsset != prepared.asset) {
+      if (previousModel != null && previousModel.asset == previousAsset) {
+        Log.d(TAG, "loadModel render thread: Keeping previous model " + previousModel.assetPath + " in the asset cache.");
+        mAssetCache.put(previousModel.cacheKey(), previousModel, previousModel.estimatedBytes);
+      } else if (mAssetLoader != null) {
+        Log.d(TAG, "loadModel render thread: Destroying previous FilamentAsset.");
+        destroyAssetInternal(previousAsset);
+      }
+    }
+  }
+
+  /**
+   * 请求的模型已经按当前筛选规则在场景中，或在 mAssetCache 中命中并已换入场景时返回 true。
+   * 筛选规则变化后同一路径会重新加载。
+   */
+  private boolean installCachedModelInternal(@NonNull String assetPath) {
+    final String filterKey = mEntityFilter.key();
+    PreparedModel current = mCurrentModel;
+    if (current != null && current.asset == mCurrentAsset && current.assetPath.equals(assetPath)
+      && current.entityFilterKey.equals(filterKey)) {
+      Log.i(TAG, "loadModel render thread: " + assetPath + " is already the current model.");
+      return true;
+    }
+    PreparedModel cached = mAssetCache.take(assetCacheKey(assetPath, filterKey));
+    if (cached == null) return false;
+    Log.i(TAG, "loadModel render thread: Asset cache hit for " + assetPath + ", attaching to scene.");
+    installPreparedModelInternal(cached);
     return true;
   }
 
-  // --- loadModel refactored parts START ---
-  private void removePreviousAssetInternal() {
-    if (mCurrentAsset != null) {
-      if (mAssetEntities != null) {
-        Log.d(TAG, "loadModel render thread: Removing previous model entities from scene.");
-        mScene.removeEntities(mAssetEntities); // Should be safe even if mScene is null/invalid due to checks in removeEntities
-      }
-      Log.d(TAG, "loadModel render thread: Destroying previous FilamentAsset.");
-      if (mAssetLoader != null) { // Check AssetLoader validity
-        mAssetLoader.destroyAsset(mCurrentAsset);
-      }
-      mCurrentAsset = null;
-      mAssetEntities = null;
-    }
-    mMorphTargetInfoMap.clear();
+  private void destroyCachedModelInternal(@NonNull PreparedModel model) {
+    destroyAssetInternal(model.asset);
+  }
+
+  /**
+   * 销毁资产并从 native 资源登记表注销。AssetLoader 已销毁时资产无法释放，保留登记让泄漏可见。
+   */
+  private void destroyAssetInternal(@NonNull FilamentAsset asset) {
+    if (mAssetLoader == null) return;
+    mAssetLoader.destroyAsset(asset);
+    mNativeResources.untrack(asset);
+  }
+
+  /**
+   * 登记新创建的资产；兜底释放只捕获 AssetLoader，不引用 ModelRender。
+   */
+  private void trackAssetInternal(@NonNull FilamentAsset asset, long estimatedBytes) {
+    final AssetLoader assetLoader = mAssetLoader;
+    mNativeResources.track("FilamentAsset", asset, estimatedBytes, () -> assetLoader.destroyAsset(asset));
+  }
+
+  @NonNull
+  private GltfMemoryEstimate estimateModelMemoryInternal(@NonNull ModelAssetReader.Result source, @NonNull String assetPath) {
+    GltfMemoryEstimate estimate = GltfMemoryEstimate.estimate(source.buffer);
+    Log.i(TAG, "loadModel: " + assetPath + " " + estimate);
+    return estimate;
+  }
+
+  @Nullable
+  private ModelSidecar readSidecarInternal(@NonNull Context context, @NonNull String assetPath, int contentKey) {
+    if (contentKey == 0) return null;
+    return ModelSidecar.readAsset(context.getAssets(), assetPath, contentKey);
+  }
+
+  @NonNull
+  private ModelAssetReader.Result readAssetToByteBufferInternal(@NonNull Context context, @NonNull String assetPath) throws IOException {
+    ModelAssetReader.Result result = ModelAssetReader.read(context.getAssets(), assetPath);
+    Log.i(TAG, "loadModel: Read " + result.buffer.remaining() + " bytes of " + assetPath + " (" + result.mode + ").");
+    return result;
   }
 
+  /**
+   * 读取模型文件并完成不涉及 Filament 的解析（内存估算、内容键、构建期 sidecar）。不访问渲染线程状态，可在任意线程调用。
+   */
   @NonNull
-  private ByteBuffer readAssetToByteBufferInternal(@NonNull Context context, @NonNull String assetPath) throws IOException {
-    AssetManager assetManager = context.getAssets();
-    try (InputStream inputStream = assetManager.open(assetPath);
-         BufferedInputStream bufferedInputStream = new BufferedInputStream(inputStream);
-         ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream()) {
-      byte[] buffer = new byte[1024];
-      int len;
-      while ((len = bufferedInputStream.read(buffer)) != -1) {
-        byteArrayOutputStream.write(buffer, 0, len);
-      }
-      return ByteBuffer.wrap(byteArrayOutputStream.toByteArray());
-    }
+  private StagedSource readStagedSourceInternal(@NonNull Context context, @NonNull String assetPath) throws IOException {
+    final long startNanos = System.nanoTime();
+    final long heapBaseline = usedJavaHeapBytes();
+    final long nativeBaseline = android.os.Debug.getNativeHeapAllocatedSize();
+    ModelAssetReader.Result source = readAssetToByteBufferInternal(context, assetPath);
+    final long readNanos = System.nanoTime() - startNanos;
+    final GltfMemoryEstimate estimate = estimateModelMemoryInternal(source, assetPath);
+    final int contentKey = ModelSidecar.contentKey(source.buffer);
+    final ModelSidecar sidecar = readSidecarInternal(context, assetPath, contentKey);
+    return new StagedSource(source, startNanos, readNanos, heapBaseline, nativeBaseline, estimate, contentKey, sidecar);
+  }
+
+  private static long usedJavaHeapBytes() {
+    Runtime runtime = Runtime.getRuntime();
+    return runtime.totalMemory() - runtime.freeMemory();
   }
 
   @Nullable
-  private FilamentAsset createAndLoadFilamentAssetInternal(@NonNull ByteBuffer byteBuffer, @NonNull String assetPath) {
+  private FilamentAsset createAndLoadFilamentAssetInternal(@NonNull ByteBuffer byteBuffer, @NonNull String assetPath,
+                                                           long estimatedBytes) {
     if (mAssetLoader == null || mResourceLoader == null) {
       Log.e(TAG, "loadModel render thread: AssetLoader/ResourceLoader is null. Initialization incomplete?");
       return null; // Indicates failure
@@ -622,6 +1906,7 @@ public class ModelRender {
       Log.e(TAG, "loadModel render thread: Failed to load asset: " + assetPath + ". createAsset returned null.");
       return null;
     }
+    trackAssetInternal(newAsset, estimatedBytes);
     Log.i(TAG, "loadModel render thread: Asset created: " + assetPath);
 
     mResourceLoader.loadResources(newAsset);
@@ -630,72 +1915,7 @@ public class ModelRender {
     return newAsset;
   }
 
-  private void addAssetToSceneAndFilterEntitiesInternal(@NonNull FilamentAsset newAsset) {
-    mAssetEntities = newAsset.getEntities();
-    if (mScene == null || mAssetEntities == null || mAssetEntities.length == 0) {
-      Log.w(TAG, "addAssetToSceneAndFilterEntitiesInternal: Scene is null or asset has no entities.");
-      return;
-    }
-    mScene.addEntities(mAssetEntities); // Add all first
-    Log.i(TAG, "loadModel render thread: Added " + mAssetEntities.length + " entities to the scene.");
-
-    // Filter entities for visibility
-    RenderableManager rm = mEngine.getRenderableManager();
-    List<Integer> entitiesToHide = new ArrayList<>();
-    Log.i(TAG, "loadModel render thread: --- Filtering entities for visibility ---");
-    for (int entityId : mAssetEntities) {
-      String entityName = newAsset.getName(entityId);
-      if (entityName != null && !entityName.isEmpty() && rm.hasComponent(entityId)) {
-        if (!ENTITY_NAMES_TO_KEEP_VISIBLE.contains(entityName)) {
-          entitiesToHide.add(entityId);
-        }
-      }
-    }
-    if (!entitiesToHide.isEmpty()) {
-      mScene.removeEntities(entitiesToHide.stream().mapToInt(i -> i).toArray());
-      Log.i(TAG, "loadModel render thread: Hid " + entitiesToHide.size() + " entities by removing them from the scene.");
-      // Update mAssetEntities to only contain visible entities
-      List<Integer> visibleEntitiesList = new ArrayList<>();
-      for (int entityId : mAssetEntities) {
-        if (!entitiesToHide.contains(entityId)) {
-          visibleEntitiesList.add(entityId);
-        }
-      }
-      mAssetEntities = visibleEntitiesList.stream().mapToInt(i -> i).toArray();
-
-    }
-  }
-
-
-  private void recordInitialTransformsAndPrepareMorphTargetsInternal(@NonNull FilamentAsset asset) {
-    mEntityInitialTransforms.clear();
-    if (mAssetEntities == null || mAssetEntities.length == 0 || mEngine == null) {
-      Log.w(TAG, "recordInitialTransformsInternal: No asset entities or engine not available.");
-      return;
-    }
-
-    Log.i(TAG, "loadModel render thread: --- Processing Entities in Asset for Transform Map ---");
-    TransformManager tm = mEngine.getTransformManager();
-    for (int entityId : mAssetEntities) { // Iterate over potentially filtered mAssetEntities
-      String entityName = asset.getName(entityId);
-      if (entityName != null && !entityName.isEmpty()) {
-        if (tm.hasComponent(entityId)) {
-          int instance = tm.getInstance(entityId);
-          float[] transformMatrix = new float[16];
-          tm.getTransform(instance, transformMatrix);
-          mEntityInitialTransforms.put(entityName, transformMatrix);
-        } else {
-          Log.w(TAG, "loadModel render thread: Entity ID: " + entityId + ", Name: '" + entityName + "' has a name but no Transform component. Skipping transform storage.");
-        }
-      }
-    }
-    Log.i(TAG, "loadModel render thread: --- Finished Processing Entities for Transform Map ---");
-
-    // Prepare Morph Target Info (uses mCurrentAsset and mAssetEntities which are now set)
-    prepareMorphTargetInfoInternal();
-  }
-
-  private void applyRootTransformToUnitCubeInternal(@NonNull FilamentAsset asset) {
+  private void applyRootTransformToUnitCubeInternal(@NonNull FilamentAsset asset, @Nullable float[] knownBounds) {
     if (mEngine == null || !mEngine.isValid()) return;
 
     TransformManager tm = mEngine.getTransformManager();
@@ -705,9 +1925,16 @@ public class ModelRender {
       return;
     }
     int rootInstance = tm.getInstance(rootEntity);
-    Box aabb = asset.getBoundingBox(); // Use the asset's overall bounding box
-    float[] center = aabb.getCenter();
-    float[] halfExtent = aabb.getHalfExtent();
+    float[] center;
+    float[] halfExtent;
+    if (knownBounds != null) {
+      center = new float[]{knownBounds[0], knownBounds[1], knownBounds[2]};
+      halfExtent = new float[]{knownBounds[3], knownBounds[4], knownBounds[5]};
+    } else {
+      Box aabb = asset.getBoundingBox(); // Use the asset's overall bounding box
+      center = aabb.getCenter();
+      halfExtent = aabb.getHalfExtent();
+    }
 
     float maxExtent = Math.max(halfExtent[0], Math.max(halfExtent[1], halfExtent[2]));
     // Avoid division by zero or tiny numbers
@@ -716,38 +1943,65 @@ public class ModelRender {
     float ty = -center[1] * scaleFactor;
     float tz = -center[2] * scaleFactor;
 
-    float[] scaleMatrix = new float[16];
-    float[] translationMatrix = new float[16];
-    float[] finalTransform = new float[16];
-
-    Matrix.setIdentityM(scaleMatrix, 0);
-    Matrix.scaleM(scaleMatrix, 0, scaleFactor, scaleFactor, scaleFactor);
-    Matrix.setIdentityM(translationMatrix, 0);
-    Matrix.translateM(translationMatrix, 0, tx, ty, tz);
-    Matrix.multiplyMM(finalTransform, 0, translationMatrix, 0, scaleMatrix, 0);
+    // T * S
+    float[] finalTransform = mTransformMath.scaleThenTranslate(scaleFactor, tx, ty, tz);
 
     tm.setTransform(rootInstance, finalTransform);
   }
 
+  private void recordModelLoadReportInternal(@NonNull PreparedModel prepared, boolean mapped, long sizeBytes, long readNanos,
+                                            long startNanos, long peakHeapDelta, long nativeBaseline) {
+    ModelLoadReport report = new ModelLoadReport(prepared.assetPath, mapped, sizeBytes,
+      readNanos, System.nanoTime() - startNanos, Math.max(0, peakHeapDelta),
+      android.os.Debug.getNativeHeapAllocatedSize() - nativeBaseline,
+      prepared.excludedEntityCount, prepared.excludedUnreachableBytes, prepared.excludedRenderablesDestroyed, metadataSourceOf(prepared.metadata));
+    mModelLoadReports.put(prepared.assetPath, report);
+    Log.i(TAG, "loadModel render thread: " + report);
+  }
+
   private void performLoadModelOnRenderThread(@NonNull Context context, @NonNull String assetPath, @NonNull CompletableFuture<Boolean> loadFuture) {
     Log.i(TAG, "loadModel render thread: Task STARTED for " + assetPath);
+    forgetDroppedModelInternal();
+    mLoadGeneration++;
+    if (mProgressiveLoading) {
+      beginProgressiveLoadInternal(context, assetPath, loadFuture);
+      return;
+    }
+    loadModelNowInternal(context, assetPath, loadFuture);
+  }
+
+  /**
+   * 在渲染线程上一次性加载模型并换入场景（不渐进加载）。
+   */
+  private void loadModelNowInternal(@NonNull Context context, @NonNull String assetPath, @NonNull CompletableFuture<Boolean> loadFuture) {
+    cancelProgressiveLoadInternal("superseded by " + assetPath);
+    if (installCachedModelInternal(assetPath)) {
+      loadFuture.complete(true);
+      return;
+    }
     boolean success = false;
     FilamentAsset newAsset = null;
 
     try {
-      removePreviousAssetInternal();
-      ByteBuffer byteBuffer = readAssetToByteBufferInternal(context, assetPath);
-      newAsset = createAndLoadFilamentAssetInternal(byteBuffer, assetPath);
+      StagedSource staged = readStagedSourceInternal(context, assetPath);
+      final long heapBaseline = staged.heapBaseline;
+      long peakHeapDelta = usedJavaHeapBytes() - heapBaseline;
+      newAsset = createAndLoadFilamentAssetInternal(staged.source.buffer, assetPath, staged.estimate.totalBytes());
+      peakHeapDelta = Math.max(peakHeapDelta, usedJavaHeapBytes() - heapBaseline);
 
       if (newAsset == null) {
         loadFuture.complete(false); // createAndLoad... already logged the error
         return;
       }
-      mCurrentAsset = newAsset; // Set mCurrentAsset here so other internal methods can use it
 
-      addAssetToSceneAndFilterEntitiesInternal(newAsset); // This updates mAssetEntities
-      recordInitialTransformsAndPrepareMorphTargetsInternal(newAsset); // Uses mAssetEntities
-      applyRootTransformToUnitCubeInternal(newAsset);
+      // The previous model stays in the scene until the new one is fully prepared.
+      PreparedModel prepared = prepareModelInternal(assetPath, newAsset, staged.estimate, staged.sidecar, staged.contentKey,
+        staged.sizeBytes);
+      installPreparedModelInternal(prepared);
+      peakHeapDelta = Math.max(peakHeapDelta, usedJavaHeapBytes() - heapBaseline);
+
+      recordModelLoadReportInternal(prepared, staged.source.mode == ModelAssetReader.Mode.MAPPED, staged.sizeBytes,
+        staged.readNanos, staged.startNanos, peakHeapDelta, staged.nativeBaseline);
 
       success = true;
     } catch (IOException e) {
@@ -756,15 +2010,14 @@ public class ModelRender {
       return; // Exit before finally if future is already completed exceptionally
     } catch (Throwable t) {
       Log.e(TAG, "loadModel render thread: THROWABLE during model loading for " + assetPath, t);
-      if (newAsset != null && mAssetLoader != null) { // Check if mAssetLoader is still valid
+      // Only the staged asset is destroyed; the current model is left as it was.
+      if (newAsset != null && newAsset != mCurrentAsset && mAssetLoader != null) { // Check if mAssetLoader is still valid
         try {
-          mAssetLoader.destroyAsset(newAsset); // Clean up the newly created asset if something went wrong
+          destroyAssetInternal(newAsset); // Clean up the newly created asset if something went wrong
         } catch (Exception cleanupEx) {
           Log.e(TAG, "loadModel render thread: Exception during asset cleanup: ", cleanupEx);
         }
       }
-      mCurrentAsset = null; // Ensure mCurrentAsset is null on failure
-      mAssetEntities = null;
       loadFuture.completeExceptionally(t);
       return; // Exit before finally
     } finally {
@@ -778,6 +2031,172 @@ public class ModelRender {
       Log.i(TAG, "loadModel render thread: Task ENDED for " + assetPath);
     }
   }
+
+  /**
+   * 渐进加载：在渲染线程读取并解析资源后调用 asyncBeginLoad，纹理解码交给 Filament 的 job system。
+   * 之后每隔 ASYNC_LOAD_POLL_MILLIS 向渲染线程投递一次 asyncUpdateLoad，两次轮询之间渲染线程照常渲染旧模型；
+   * 全部资源就绪后才替换掉旧模型。同一时间只有一个渐进加载，新的加载会取消未完成的旧加载。
+   */
+  private void beginProgressiveLoadInternal(@NonNull Context context, @NonNull String assetPath, @NonNull CompletableFuture<Boolean> loadFuture) {
+    cancelProgressiveLoadInternal("superseded by " + assetPath);
+    if (installCachedModelInternal(assetPath)) {
+      loadFuture.complete(true);
+      return;
+    }
+    StagedSource staged;
+    try {
+      staged = readStagedSourceInternal(context, assetPath);
+    } catch (Throwable t) {
+      Log.e(TAG, "loadModel render thread: Failed to read asset: " + assetPath, t);
+      loadFuture.completeExceptionally(t);
+      return;
+    }
+    beginProgressiveLoadFromSourceInternal(assetPath, staged, loadFuture);
+  }
+
+  /**
+   * 渐进加载中必须在渲染线程完成的部分：createAsset 和 asyncBeginLoad（AssetLoader/ResourceLoader 不是线程安全的）。
+   */
+  private void beginProgressiveLoadFromSourceInternal(@NonNull String assetPath, @NonNull StagedSource staged,
+                                                      @NonNull CompletableFuture<Boolean> loadFuture) {
+    if (mAssetLoader == null || mResourceLoader == null) {
+      Log.e(TAG, "loadModel render thread: AssetLoader/ResourceLoader is null. Initialization incomplete?");
+      loadFuture.complete(false);
+      return;
+    }
+    FilamentAsset stagedAsset = null;
+    try {
+      final ModelAssetReader.Result source = staged.source;
+      final GltfMemoryEstimate estimate = staged.estimate;
+      final long heapBaseline = staged.heapBaseline;
+
+      stagedAsset = mAssetLoader.createAsset(source.buffer);
+      if (stagedAsset == null) {
+        Log.e(TAG, "loadModel render thread: Failed to load asset: " + assetPath + ". createAsset returned null.");
+        loadFuture.complete(false);
+        return;
+      }
+      trackAssetInternal(stagedAsset, estimate.totalBytes());
+      if (!mResourceLoader.asyncBeginLoad(stagedAsset)) {
+        Log.e(TAG, "loadModel render thread: asyncBeginLoad failed for " + assetPath);
+        destroyAssetInternal(stagedAsset);
+        loadFuture.complete(false);
+        return;
+      }
+      ProgressiveLoad load = new ProgressiveLoad(assetPath, stagedAsset, estimate, staged.sidecar, staged.contentKey, loadFuture,
+        source.mode == ModelAssetReader.Mode.MAPPED, staged.sizeBytes, staged.startNanos, staged.readNanos, heapBaseline,
+        staged.nativeBaseline);
+      load.peakHeapDelta = usedJavaHeapBytes() - heapBaseline;
+      mProgressiveLoad = load;
+      Log.i(TAG, "loadModel render thread: Progressive load started for " + assetPath);
+      notifyLoadProgressInternal(assetPath, 0.0f);
+      scheduleProgressiveLoadPollInternal(load);
+    } catch (Throwable t) {
+      Log.e(TAG, "loadModel render thread: THROWABLE while starting progressive load for " + assetPath, t);
+      if (stagedAsset != null && mAssetLoader != null) {
+        destroyAssetInternal(stagedAsset);
+      }
+      loadFuture.completeExceptionally(t);
+    }
+  }
+
+  private void scheduleProgressiveLoadPollInternal(@NonNull ProgressiveLoad load) {
+    final Handler handler = mReadbackHandler;
+    final RenderThreadActor executor = mRenderExecutor;
+    if (handler == null || executor == null || executor.isShutdown()) {
+      failProgressiveLoadInternal(load, new IllegalStateException("Renderer released during progressive load."));
+      return;
+    }
+    // The readback thread only acts as a timer here; the poll itself runs on the render thread.
+    boolean posted = handler.postDelayed(() -> {
+      try {
+        executor.execute(RenderThreadActor.Priority.ASSET, () -> pollProgressiveLoadInternal(load));
+      } catch (RejectedExecutionException e) {
+        load.future.completeExceptionally(new IllegalStateException("Renderer released during progressive load.", e));
+      }
+    }, ASYNC_LOAD_POLL_MILLIS);
+    if (!posted) {
+      // The readback looper quit after the check above; without a poll the load would never complete.
+      failProgressiveLoadInternal(load, new IllegalStateException("Renderer released during progressive load."));
+    }
+  }
+
+  private void pollProgressiveLoadInternal(@NonNull ProgressiveLoad load) {
+    if (mProgressiveLoad != load) return; // Cancelled or superseded
+    try {
+      mResourceLoader.asyncUpdateLoad();
+      float progress = mResourceLoader.asyncGetLoadProgress();
+      load.peakHeapDelta = Math.max(load.peakHeapDelta, usedJavaHeapBytes() - load.heapBaseline);
+      notifyLoadProgressInternal(load.assetPath, progress);
+      if (progress < 1.0f) {
+        scheduleProgressiveLoadPollInternal(load);
+        return;
+      }
+      mProgressiveLoad = null;
+      load.asset.releaseSourceData();
+
+      // All resources are ready: prepare the staged model and swap it in within this render-thread task.
+      PreparedModel prepared = prepareModelInternal(load.assetPath, load.asset, load.estimate, load.sidecar, load.contentKey, load.sizeBytes);
+      installPreparedModelInternal(prepared);
+      load.peakHeapDelta = Math.max(load.peakHeapDelta, usedJavaHeapBytes() - load.heapBaseline);
+      recordModelLoadReportInternal(prepared, load.mapped, load.sizeBytes, load.readNanos,
+        load.startNanos, load.peakHeapDelta, load.nativeBaseline);
+      Log.i(TAG, "loadModel render thread: Progressive load COMPLETED for " + load.assetPath);
+      load.future.complete(true);
+    } catch (Throwable t) {
+      Log.e(TAG, "loadModel render thread: THROWABLE during progressive load for " + load.assetPath, t);
+      if (mCurrentAsset != load.asset && mAssetLoader != null) {
+        destroyAssetInternal(load.asset);
+      }
+      mProgressiveLoad = null;
+      load.future.completeExceptionally(t);
+    }
+  }
+
+  private void failProgressiveLoadInternal(@NonNull ProgressiveLoad load, @NonNull Throwable error) {
+    if (mProgressiveLoad == load) {
+      abortProgressiveLoadInternal(error);
+    } else {
+      load.future.completeExceptionally(error);
+    }
+  }
+
+  /**
+   * 取消未完成的渐进加载并销毁暂存的资产。只在渲染线程调用。
+   */
+  private void cancelProgressiveLoadInternal(@Nullable String reason) {
+    abortProgressiveLoadInternal(new CancellationException("Progressive load cancelled: " + reason));
+  }
+
+  /**
+   * 中止未完成的渐进加载、销毁暂存的资产，并以 cause 结束它的 future（调用方看到的是真正的失败原因，而不是取消）。
+   * 只在渲染线程调用。
+   */
+  private void abortProgressiveLoadInternal(@NonNull Throwable cause) {
+    ProgressiveLoad load = mProgressiveLoad;
+    if (load == null) return;
+    mProgressiveLoad = null;
+    Log.w(TAG, "loadModel render thread: Aborting progressive load of " + load.assetPath + ": " + cause.getMessage());
+    try {
+      if (mResourceLoader != null) mResourceLoader.asyncCancelLoad();
+      destroyAssetInternal(load.asset);
+    } catch (Exception e) {
+      Log.e(TAG, "Exception while cancelling progressive load.", e);
+    }
+    load.future.completeExceptionally(cause);
+  }
+
+  private void notifyLoadProgressInternal(@NonNull String assetPath, float progress) {
+    mLoadProgress = progress;
+    LoadProgressListener listener = mLoadProgressListener;
+    if (listener != null) {
+      try {
+        listener.onLoadProgress(assetPath, progress);
+      } catch (Exception e) {
+        Log.e(TAG, "LoadProgressListener threw.", e);
+      }
+    }
+  }
   // --- loadModel refactored parts END ---
 
   @NonNull
@@ -796,12 +2215,82 @@ public class ModelRender {
       return loadFuture;
     }
 
-    mRenderExecutor.submit(() -> performLoadModelOnRenderThread(context, assetPath, loadFuture));
+    enqueueOrFail(mRenderExecutor, RenderThreadActor.Priority.ASSET,
+      () -> performLoadModelOnRenderThread(context, assetPath, loadFuture), loadFuture);
 
     Log.i(TAG, "loadModel: END for asset: " + assetPath + " (returning future)");
     return loadFuture;
   }
 
+  /**
+   * 热切换模型：在后台线程读取模型文件并完成内存估算、内容键和 sidecar 解析，然后在渲染线程 createAsset 并渐进加载资源，
+   * 在加入场景前准备好实体索引、morph 绑定表和视口适配，最后在两帧之间一次性换入场景，随后销毁旧模型。
+   * 加载期间继续渲染旧模型，不会出现空白帧。
+   * <p>
+   * 限制：createAsset（解析 glTF JSON、创建实体和顶点/索引缓冲）和 prepare 仍在渲染线程上同步执行，因为 gltfio 的
+   * AssetLoader 和 Engine 只能在同一个线程使用；模型越大，这两步占用的那一帧越长。纹理解码由 Filament 的 job system 并行完成。
+   * <p>
+   * future 在新模型换入后以 true 完成；资源无法加载时以 false 完成；被之后的 loadModel/swapModel 或丢弃模型的 trim
+   * 取代时以 CancellationException 失败。
+   */
+  @NonNull
+  public CompletableFuture<Boolean> swapModel(@NonNull String assetPath) {
+    CompletableFuture<Boolean> swapFuture = new CompletableFuture<>();
+    if (!mIsInitialized.get() || mIsCleanedUp.get()) {
+      swapFuture.completeExceptionally(new IllegalStateException("Renderer not initialized or already cleaned up."));
+      return swapFuture;
+    }
+    final Context context = mApplicationContext;
+    final RenderThreadActor executor = mRenderExecutor;
+    if (context == null || executor == null || executor.isShutdown()) {
+      swapFuture.completeExceptionally(new IllegalStateException("Render executor not available."));
+      return swapFuture;
+    }
+    Log.i(TAG, "swapModel: Staging " + assetPath);
+    enqueueOrFail(executor, RenderThreadActor.Priority.ASSET, () -> {
+      forgetDroppedModelInternal();
+      cancelProgressiveLoadInternal("superseded by " + assetPath);
+      final int generation = ++mLoadGeneration;
+      if (installCachedModelInternal(assetPath)) {
+        swapFuture.complete(true);
+        return;
+      }
+      try {
+        mModelReader.execute(() -> readSwapSourceInBackground(context, assetPath, generation, swapFuture));
+      } catch (RejectedExecutionException e) {
+        swapFuture.completeExceptionally(e);
+      }
+    }, swapFuture);
+    return swapFuture;
+  }
+
+  /**
+   * 在 mModelReader 上读取 swapModel 的模型文件，然后回到渲染线程继续渐进加载。
+   */
+  private void readSwapSourceInBackground(@NonNull Context context, @NonNull String assetPath, int generation,
+                                          @NonNull CompletableFuture<Boolean> swapFuture) {
+    final StagedSource staged;
+    try {
+      staged = readStagedSourceInternal(context, assetPath);
+    } catch (Throwable t) {
+      Log.e(TAG, "swapModel: Failed to read asset: " + assetPath, t);
+      swapFuture.completeExceptionally(t);
+      return;
+    }
+    RenderThreadActor executor = mRenderExecutor;
+    if (executor == null || executor.isShutdown()) {
+      swapFuture.completeExceptionally(new IllegalStateException("Renderer released during swap."));
+      return;
+    }
+    enqueueOrFail(executor, RenderThreadActor.Priority.ASSET, () -> {
+      if (generation != mLoadGeneration) {
+        swapFuture.completeExceptionally(new CancellationException("Swap to " + assetPath + " superseded."));
+        return;
+      }
+      beginProgressiveLoadFromSourceInternal(assetPath, staged, swapFuture);
+    }, swapFuture);
+  }
+
 
   // --- render refactored parts START ---
   private void setupFrameForRenderingInternal() {
@@ -814,7 +2303,9 @@ public class ModelRender {
     mRenderer.setClearOptions(clearOptions);
   }
 
-  private void performRenderOnRenderThread(@NonNull CompletableFuture<Bitmap> resultFuture) {
+  private void performRenderOnRenderThread(@NonNull CompletableFuture<RenderedFrame> resultFuture) {
+    mPendingRenderRequests.decrementAndGet();
+    if (skipIfCancelledInternal(resultFuture)) return;
     if (!mIsInitialized.get() || mIsCleanedUp.get()) {
       Log.w(TAG, "Render task executing but renderer is no longer initialized or cleaned up.");
       if (!resultFuture.isDone()) {
@@ -823,6 +2314,12 @@ public class ModelRender {
       return;
     }
 
+    final Handler readbackHandler = mReadbackHandler;
+    if (readbackHandler == null) {
+      resultFuture.completeExceptionally(new IllegalStateException("Readback thread not available."));
+      return;
+    }
+
     Log.i(TAG, "Starting background render task on render thread...");
     final CountDownLatch frameLatch = new CountDownLatch(1);
     final AtomicBoolean timedOut = new AtomicBoolean(false);
@@ -831,7 +2328,7 @@ public class ModelRender {
     Runnable timeoutRunnable = () -> {
       if (frameLatch.getCount() > 0) {
         if (timedOut.compareAndSet(false, true)) {
-          Log.e(TAG, "Rendering task timed out after " + RENDER_TIMEOUT_SECONDS + " seconds (Main Thread Timeout)!");
+          Log.e(TAG, "Rendering task timed out after " + RENDER_TIMEOUT_SECONDS + " seconds (Readback Thread Timeout)!");
           if (!callbackSuccess.get() && !resultFuture.isDone()) { // Check if future already completed
             resultFuture.completeExceptionally(new RuntimeException("Rendering timed out"));
           }
@@ -839,106 +2336,426 @@ public class ModelRender {
         }
       }
     };
-    mMainThreadHandler.postDelayed(timeoutRunnable, TimeUnit.SECONDS.toMillis(RENDER_TIMEOUT_SECONDS));
+    readbackHandler.postDelayed(timeoutRunnable, TimeUnit.SECONDS.toMillis(RENDER_TIMEOUT_SECONDS));
 
+    // The slot is owned by this task until readPixelsCallback hands it over to a RenderedFrame.
+    final AtomicBoolean slotHandedOver = new AtomicBoolean(false);
+    ReadbackPool.Slot slot = null;
+    boolean readbackIssued = false;
     try {
+      restoreTrimmedResourcesInternal();
       if (mRenderer == null || mSwapChain == null || mView == null || mEngine == null || !mEngine.isValid()) {
         throw new IllegalStateException("Filament resources are not valid at the start of render task.");
       }
+      // Frames left over from pipelined mode must complete before this one to keep submission order.
+      waitForInFlightFramesInternal(0);
+      if (skipIfCancelledInternal(resultFuture)) {
+        readbackHandler.removeCallbacks(timeoutRunnable);
+        frameLatch.countDown();
+        return;
+      }
 
-      final int bufferSize = IMAGE_WIDTH * IMAGE_HEIGHT * 4;
-      final ByteBuffer pixelBuffer = ByteBuffer.allocateDirect(bufferSize).order(ByteOrder.nativeOrder());
+      final ReadbackPool.Slot pixelSlot = mReadbackPool.acquire();
+      slot = pixelSlot;
+      final long frameTimeNanos = System.nanoTime();
 
       final Runnable readPixelsCallback = () -> {
         if (mIsCleanedUp.get()) { // Check if cleaned up before processing
           Log.w(TAG, "readPixelsCallback invoked but renderer cleaned up. Ignoring.");
+          releaseSlotOnce(pixelSlot, slotHandedOver);
           frameLatch.countDown();
           return;
         }
         if (timedOut.get()) {
           Log.w(TAG, "readPixelsCallback invoked after timeout. Ignoring bitmap creation.");
+          releaseSlotOnce(pixelSlot, slotHandedOver);
+          frameLatch.countDown();
+          return;
+        }
+        readbackHandler.removeCallbacks(timeoutRunnable); // Crucial: remove timeout if callback runs
+        if (resultFuture.isCancelled()) {
+          // Cancelled after submission: drop the pixels without copying them into the Bitmap.
+          mReadbacksDiscarded.incrementAndGet();
+          releaseSlotOnce(pixelSlot, slotHandedOver);
           frameLatch.countDown();
           return;
         }
-        mMainThreadHandler.removeCallbacks(timeoutRunnable); // Crucial: remove timeout if callback runs
+        final long callbackStartNanos = System.nanoTime();
         try {
-          Log.i(TAG, "readPixelsCallback: Processing received pixels on main thread...");
-          pixelBuffer.rewind();
-          Bitmap bitmap = Bitmap.createBitmap(IMAGE_WIDTH, IMAGE_HEIGHT, Bitmap.Config.ARGB_8888);
-          bitmap.copyPixelsFromBuffer(pixelBuffer);
+          Log.i(TAG, "readPixelsCallback: Processing received pixels on readback thread...");
+          pixelSlot.buffer.rewind();
+          pixelSlot.bitmap.copyPixelsFromBuffer(pixelSlot.buffer);
+          recordReadbackCallbackDuration(System.nanoTime() - callbackStartNanos);
+          recordFirstFrameInternal(frameTimeNanos);
           callbackSuccess.set(true);
-          if (!resultFuture.isDone()) resultFuture.complete(bitmap); // Complete future if not already done
-          Log.i(TAG, "Bitmap created and future completed successfully.");
+          if (slotHandedOver.compareAndSet(false, true)) {
+            RenderedFrame frame = new RenderedFrame(mReadbackPool, pixelSlot, frameTimeNanos);
+            if (!resultFuture.complete(frame)) frame.release(); // Nobody will consume it, give it back
+          }
+          Log.i(TAG, "Pooled bitmap filled and future completed successfully.");
         } catch (Exception e) {
           Log.e(TAG, "Exception in readPixelsCallback: ", e);
+          releaseSlotOnce(pixelSlot, slotHandedOver);
           if (!timedOut.get() && !resultFuture.isDone()) resultFuture.completeExceptionally(e);
         } finally {
           frameLatch.countDown();
         }
       };
 
-      final Texture.PixelBufferDescriptor descriptor = new Texture.PixelBufferDescriptor(
-        pixelBuffer, Texture.Format.RGBA, Texture.Type.UBYTE,
-        1, 0, 0, IMAGE_WIDTH, mMainThreadHandler, readPixelsCallback);
+      Log.i(TAG, "Beginning frame rendering on render thread...");
+      setupFrameForRenderingInternal();
+
+      if (mRenderer.beginFrame(mSwapChain, frameTimeNanos)) {
+        mRenderer.render(mView);
+        Log.i(TAG, "Requesting pixel readback on render thread...");
+        mFrameReadback.readPixels(mRenderer, IMAGE_WIDTH, IMAGE_HEIGHT, pixelSlot.buffer, readbackHandler, readPixelsCallback);
+        readbackIssued = true;
+        mRenderer.endFrame();
+        Log.i(TAG, "Frame ended on render thread.");
+
+        Log.i(TAG, "Calling flushAndWait on render thread...");
+        mEngine.flushAndWait();
+        Log.i(TAG, "flushAndWait completed on render thread.");
+
+        Log.i(TAG, "Render thread waiting for readPixelsCallback to complete...");
+        if (!frameLatch.await(RENDER_TIMEOUT_SECONDS + 5, TimeUnit.SECONDS)) { // Slightly longer for internal latch
+          Log.e(TAG, "Render thread timed out waiting for callback latch!");
+          if (!timedOut.get() && !resultFuture.isDone()) { // Check conditions before completing
+            resultFuture.completeExceptionally(new RuntimeException("Internal latch timeout waiting for callback"));
+          }
+        } else if (timedOut.get()) {
+          Log.w(TAG, "Render thread proceeding after timeout occurred (signaled by latch).");
+        } else {
+          Log.i(TAG, "Render thread resuming after callback completed normally.");
+        }
+      } else {
+        Log.e(TAG, "renderer.beginFrame() failed on render thread!");
+        readbackHandler.removeCallbacks(timeoutRunnable); // Ensure timeout is removed
+        if (!resultFuture.isDone())
+          resultFuture.completeExceptionally(new RuntimeException("Renderer beginFrame failed"));
+        frameLatch.countDown(); // Ensure latch is released
+      }
+    } catch (IllegalStateException ise) {
+      Log.e(TAG, "IllegalStateException during background render task: ", ise);
+      readbackHandler.removeCallbacks(timeoutRunnable);
+      if (!resultFuture.isDone()) resultFuture.completeExceptionally(ise);
+      frameLatch.countDown(); // Ensure latch is released
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      Log.e(TAG, "Background render task interrupted: ", e);
+      readbackHandler.removeCallbacks(timeoutRunnable);
+      if (!resultFuture.isDone()) resultFuture.completeExceptionally(e);
+      frameLatch.countDown(); // Ensure latch is released
+    } catch (Exception e) { // Catch-all for other unexpected exceptions
+      Log.e(TAG, "Exception during background render task: ", e);
+      readbackHandler.removeCallbacks(timeoutRunnable);
+      if (!resultFuture.isDone()) resultFuture.completeExceptionally(e);
+      frameLatch.countDown(); // Ensure latch is released
+    } finally {
+      // If readPixels was never issued the callback will not run; return the slot here.
+      // Otherwise readPixelsCallback owns the slot, even if it fires after a timeout.
+      if (slot != null && !readbackIssued) {
+        releaseSlotOnce(slot, slotHandedOver);
+      }
+      Log.i(TAG, "Background render task finished execution on render thread.");
+    }
+  }
+
+  private void releaseSlotOnce(@NonNull ReadbackPool.Slot slot, @NonNull AtomicBoolean handedOver) {
+    if (handedOver.compareAndSet(false, true)) {
+      mReadbackPool.release(slot);
+    }
+  }
+
+  private void performPipelinedRenderOnRenderThread(@NonNull CompletableFuture<RenderedFrame> resultFuture) {
+    mPendingRenderRequests.decrementAndGet();
+    if (skipIfCancelledInternal(resultFuture)) return;
+    if (!mIsInitialized.get() || mIsCleanedUp.get()) {
+      Log.w(TAG, "Pipelined render task executing but renderer is no longer initialized or cleaned up.");
+      resultFuture.completeExceptionally(new IllegalStateException("Renderer not ready or cleaned up for render task."));
+      return;
+    }
+
+    final Handler readbackHandler = mReadbackHandler;
+    if (readbackHandler == null) {
+      resultFuture.completeExceptionally(new IllegalStateException("Readback thread not available."));
+      return;
+    }
+
+    ReadbackPool.Slot slot = null;
+    InFlightFrame unqueuedFrame = null; // readback issued but not yet tracked in mInFlightFrames
+    try {
+      restoreTrimmedResourcesInternal();
+      if (mRenderer == null || mSwapChain == null || mView == null || mEngine == null || !mEngine.isValid()) {
+        throw new IllegalStateException("Filament resources are not valid at the start of render task.");
+      }
+      // Back-pressure: keep at most mPipelineDepth frames between submission and readback.
+      waitForInFlightFramesInternal(mPipelineDepth - 1);
+      if (skipIfCancelledInternal(resultFuture)) return;
+
+      slot = mReadbackPool.acquire();
+      final InFlightFrame frame = new InFlightFrame(mNextFrameSequence++, System.nanoTime(), slot, resultFuture);
+      setupFrameForRenderingInternal();
+
+      if (!mRenderer.beginFrame(mSwapChain, frame.frameTimeNanos)) {
+        Log.e(TAG, "renderer.beginFrame() failed on render thread (pipelined)!");
+        mReadbackPool.release(slot);
+        resultFuture.completeExceptionally(new RuntimeException("Renderer beginFrame failed"));
+        return;
+      }
+      mRenderer.render(mView);
+      mFrameReadback.readPixels(mRenderer, IMAGE_WIDTH, IMAGE_HEIGHT, frame.slot.buffer, readbackHandler,
+        () -> onPipelinedReadbackComplete(frame));
+      slot = null; // Owned by the in-flight frame from here on
+      unqueuedFrame = frame;
+      mRenderer.endFrame();
+
+      synchronized (mInFlightFrames) {
+        mInFlightFrames.addLast(frame);
+        unqueuedFrame = null;
+        mMaxObservedFramesInFlight = Math.max(mMaxObservedFramesInFlight, mInFlightFrames.size());
+        drainCompletedFramesLocked(); // The callback may already have fired
+      }
+      // Kick the backend without waiting; the readback completes while the next frame is prepared.
+      mEngine.flush();
+      Log.d(TAG, "Pipelined frame " + frame.sequence + " submitted. In flight: " + getFramesInFlight());
+
+      RenderThreadActor executor = mRenderExecutor;
+      if (executor != null && !executor.isShutdown()) {
+        // Runs once the queues are empty; later frames coalesce into the same command.
+        executor.execute(RenderThreadActor.Priority.IDLE, TAIL_FLUSH_COALESCE_KEY, this::flushPipelineTailIfIdle, null);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      Log.e(TAG, "Pipelined render task interrupted: ", e);
+      if (slot != null) mReadbackPool.release(slot);
+      if (unqueuedFrame != null) abandonInFlightFrame(unqueuedFrame);
+      resultFuture.completeExceptionally(e);
+    } catch (Exception e) {
+      Log.e(TAG, "Exception during pipelined render task: ", e);
+      if (slot != null) mReadbackPool.release(slot);
+      if (unqueuedFrame != null) abandonInFlightFrame(unqueuedFrame);
+      resultFuture.completeExceptionally(e);
+    }
+  }
+
+  /**
+   * 放弃一帧：回读已完成则立即归还槽位，否则交给迟到的回调归还。
+   */
+  private void abandonInFlightFrame(@NonNull InFlightFrame frame) {
+    synchronized (mInFlightFrames) {
+      if (frame.readbackDone) {
+        mReadbackPool.release(frame.slot);
+      } else {
+        frame.abandoned = true;
+      }
+    }
+  }
+
+  private void onPipelinedReadbackComplete(@NonNull InFlightFrame frame) {
+    try {
+      if (!frame.abandoned && frame.future.isCancelled()) {
+        mReadbacksDiscarded.incrementAndGet();
+      } else if (!frame.abandoned && !frame.future.isDone()) {
+        final long callbackStartNanos = System.nanoTime();
+        frame.slot.buffer.rewind();
+        frame.slot.bitmap.copyPixelsFromBuffer(frame.slot.buffer);
+        recordReadbackCallbackDuration(System.nanoTime() - callbackStartNanos);
+        recordFirstFrameInternal(frame.frameTimeNanos);
+      }
+    } catch (Exception e) {
+      Log.e(TAG, "Exception in pipelined readback callback: ", e);
+      frame.error = e;
+    }
+    synchronized (mInFlightFrames) {
+      if (frame.abandoned) {
+        // Timed out or released earlier; the buffer is no longer written to, so it can go back to the pool.
+        mReadbackPool.release(frame.slot);
+        return;
+      }
+      frame.readbackDone = true;
+      drainCompletedFramesLocked();
+    }
+  }
+
+  /**
+   * 帧请求在开始 GPU 工作前已被调用方取消时计数并返回 true。仅在渲染线程调用。
+   */
+  private boolean skipIfCancelledInternal(@NonNull CompletableFuture<RenderedFrame> resultFuture) {
+    if (!resultFuture.isCancelled()) return false;
+    mFramesCancelledBeforeRender.incrementAndGet();
+    Log.d(TAG, "Render request cancelled before any GPU work, skipping it.");
+    return true;
+  }
+
+  @NonNull
+  public CancellationStats getCancellationStats() {
+    return new CancellationStats(mFramesCancelledBeforeRender.get(), mReadbacksDiscarded.get(), mPosesCancelled.get());
+  }
+
+  private void recordReadbackCallbackDuration(long durationNanos) {
+    synchronized (mReadbackTimingLock) {
+      mReadbackCallbacks++;
+      mLastReadbackNanos = durationNanos;
+      mMaxReadbackNanos = Math.max(mMaxReadbackNanos, durationNanos);
+      mTotalReadbackNanos += durationNanos;
+    }
+    Log.d(TAG, "Readback callback took " + (durationNanos / 1000) + " us.");
+  }
+
+  private void recordFirstFrameInternal(long frameTimeNanos) {
+    if (!mFirstFrameRecorded.compareAndSet(false, true)) return;
+    long now = System.nanoTime();
+    mFirstFrameNanos = now - frameTimeNanos;
+    mTimeToFirstFrameNanos = now - mInitStartNanos;
+    Log.i(TAG, "First frame read back: " + getStartupTimings());
+  }
 
-      Log.i(TAG, "Beginning frame rendering on render thread...");
-      long frameTimeNanos = System.nanoTime();
-      setupFrameForRenderingInternal();
+  @NonNull
+  public StartupTimings getStartupTimings() {
+    return new StartupTimings(mWarmUpMode, mInitNanos, mWarmUpNanos, mWarmUpFramesRendered, mTimeToFirstFrameNanos, mFirstFrameNanos);
+  }
 
-      if (mRenderer.beginFrame(mSwapChain, frameTimeNanos)) {
-        mRenderer.render(mView);
-        Log.i(TAG, "Requesting pixel readback on render thread...");
-        mRenderer.readPixels(0, 0, IMAGE_WIDTH, IMAGE_HEIGHT, descriptor);
-        mRenderer.endFrame();
-        Log.i(TAG, "Frame ended on render thread.");
+  /**
+   * 预热结束（或确定不预热，包括初始化失败）时完成，从不异常完成。BACKGROUND 模式下可以用它判断第一帧是否还会排在预热之后。
+   */
+  @NonNull
+  public CompletableFuture<Void> getWarmUpFuture() {
+    // A dependent stage, so callers cannot complete the internal future.
+    return mWarmUpFuture.thenApply(v -> v);
+  }
 
-        Log.i(TAG, "Calling flushAndWait on render thread...");
-        mEngine.flushAndWait();
-        Log.i(TAG, "flushAndWait completed on render thread.");
+  @NonNull
+  public ReadbackTimingStats getReadbackTimingStats() {
+    synchronized (mReadbackTimingLock) {
+      return new ReadbackTimingStats(mReadbackCallbacks, mLastReadbackNanos, mMaxReadbackNanos, mTotalReadbackNanos);
+    }
+  }
 
-        Log.i(TAG, "Render thread waiting for readPixelsCallback to complete...");
-        if (!frameLatch.await(RENDER_TIMEOUT_SECONDS + 5, TimeUnit.SECONDS)) { // Slightly longer for internal latch
-          Log.e(TAG, "Render thread timed out waiting for callback latch!");
-          if (!timedOut.get() && !resultFuture.isDone()) { // Check conditions before completing
-            resultFuture.completeExceptionally(new RuntimeException("Internal latch timeout waiting for callback"));
-          }
-        } else if (timedOut.get()) {
-          Log.w(TAG, "Render thread proceeding after timeout occurred (signaled by latch).");
-        } else {
-          Log.i(TAG, "Render thread resuming after callback completed normally.");
-        }
+  /**
+   * 从队首开始完成所有已回读的帧，保证 future 按提交顺序完成。调用方必须持有 mInFlightFrames 锁。
+   */
+  private void drainCompletedFramesLocked() {
+    InFlightFrame head;
+    while ((head = mInFlightFrames.peekFirst()) != null && head.readbackDone) {
+      mInFlightFrames.pollFirst();
+      if (head.error != null) {
+        mReadbackPool.release(head.slot);
+        head.future.completeExceptionally(head.error);
+      } else if (head.future.isCancelled()) {
+        mReadbackPool.release(head.slot);
       } else {
-        Log.e(TAG, "renderer.beginFrame() failed on render thread!");
-        mMainThreadHandler.removeCallbacks(timeoutRunnable); // Ensure timeout is removed
-        if (!resultFuture.isDone())
-          resultFuture.completeExceptionally(new RuntimeException("Renderer beginFrame failed"));
-        frameLatch.countDown(); // Ensure latch is released
+        RenderedFrame renderedFrame = new RenderedFrame(mReadbackPool, head.slot, head.frameTimeNanos);
+        if (!head.future.complete(renderedFrame)) renderedFrame.release();
       }
-    } catch (IllegalStateException ise) {
-      Log.e(TAG, "IllegalStateException during background render task: ", ise);
-      mMainThreadHandler.removeCallbacks(timeoutRunnable);
-      if (!resultFuture.isDone()) resultFuture.completeExceptionally(ise);
-      frameLatch.countDown(); // Ensure latch is released
-    } catch (InterruptedException e) {
-      Thread.currentThread().interrupt();
-      Log.e(TAG, "Background render task interrupted: ", e);
-      mMainThreadHandler.removeCallbacks(timeoutRunnable);
-      if (!resultFuture.isDone()) resultFuture.completeExceptionally(e);
-      frameLatch.countDown(); // Ensure latch is released
-    } catch (Exception e) { // Catch-all for other unexpected exceptions
-      Log.e(TAG, "Exception during background render task: ", e);
-      mMainThreadHandler.removeCallbacks(timeoutRunnable);
-      if (!resultFuture.isDone()) resultFuture.completeExceptionally(e);
-      frameLatch.countDown(); // Ensure latch is released
-    } finally {
-      Log.i(TAG, "Background render task finished execution on render thread.");
+    }
+    mInFlightFrames.notifyAll();
+  }
+
+  /**
+   * 等待直到在途帧数不超过 maxRemaining。最老的一帧迟迟不回读时强制 flushAndWait 让回调得以触发；
+   * 超过 RENDER_TIMEOUT_SECONDS 仍未完成的帧以超时失败并被丢弃。仅在渲染线程调用。
+   */
+  private void waitForInFlightFramesInternal(int maxRemaining) throws InterruptedException {
+    final long deadlineNanos = System.nanoTime() + TimeUnit.SECONDS.toNanos(RENDER_TIMEOUT_SECONDS);
+    boolean forcedFlush = false;
+    while (true) {
+      synchronized (mInFlightFrames) {
+        if (mInFlightFrames.size() <= maxRemaining) return;
+        long remainingNanos = deadlineNanos - System.nanoTime();
+        if (remainingNanos <= 0) {
+          InFlightFrame stale = mInFlightFrames.pollFirst();
+          Log.e(TAG, "Pipelined frame " + stale.sequence + " timed out after " + RENDER_TIMEOUT_SECONDS + " seconds!");
+          // The GPU may still write into this buffer; its slot is returned by the late callback, if any.
+          stale.abandoned = true;
+          stale.future.completeExceptionally(new RuntimeException("Rendering timed out"));
+          drainCompletedFramesLocked();
+          continue;
+        }
+        long waitMillis = forcedFlush ? Math.max(1, TimeUnit.NANOSECONDS.toMillis(remainingNanos)) : PIPELINE_STALL_MILLIS;
+        mInFlightFrames.wait(waitMillis);
+        if (mInFlightFrames.size() <= maxRemaining || forcedFlush) continue;
+      }
+      // The oldest readback is still pending: make the backend finish so its callback can fire.
+      Log.d(TAG, "waitForInFlightFramesInternal: Pipeline stalled, forcing flushAndWait.");
+      mEngine.flushAndWait();
+      forcedFlush = true;
+    }
+  }
+
+  /**
+   * 没有后续渲染请求时，确保最后几帧的回读能够完成（部分后端只在后续命令或 flushAndWait 时处理回读完成）。
+   * 最后一帧提交后不足 PIPELINE_TAIL_FLUSH_DELAY_MILLIS 时不 flush，而是到期后再检查：期间到达的请求提交下一帧，
+   * 前面的帧随之完成回读，实时输入下各帧得以重叠。
+   */
+  private void flushPipelineTailIfIdle() {
+    if (mPendingRenderRequests.get() > 0 || mEngine == null || !mEngine.isValid()) return;
+    final long newestFrameNanos;
+    synchronized (mInFlightFrames) {
+      InFlightFrame newest = mInFlightFrames.peekLast();
+      if (newest == null) return;
+      newestFrameNanos = newest.frameTimeNanos;
+    }
+    long idleMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - newestFrameNanos);
+    if (idleMillis < PIPELINE_TAIL_FLUSH_DELAY_MILLIS) {
+      final Handler handler = mReadbackHandler;
+      if (handler != null) {
+        handler.removeCallbacks(mTailFlushSubmitter);
+        if (handler.postDelayed(mTailFlushSubmitter, PIPELINE_TAIL_FLUSH_DELAY_MILLIS - idleMillis)) return;
+      }
+      // No timer thread to recheck later: flush now rather than leave the tail pending.
+    }
+    mEngine.flushAndWait();
+  }
+
+  /**
+   * 在回读线程上调用：把尾部 flush 检查重新提交到渲染线程（与帧提交时的检查合并为一条）。
+   */
+  private void submitTailFlushInternal() {
+    final RenderThreadActor executor = mRenderExecutor;
+    if (executor == null || executor.isShutdown()) return; // release() aborts the remaining frames
+    try {
+      executor.execute(RenderThreadActor.Priority.IDLE, TAIL_FLUSH_COALESCE_KEY, this::flushPipelineTailIfIdle, null);
+    } catch (RejectedExecutionException e) {
+      Log.d(TAG, "Tail flush not submitted, render thread is shut down.");
+    }
+  }
+
+  /**
+   * 释放时让在途帧尽量完成，剩余的以失败结束。仅在渲染线程调用。
+   */
+  private void abortInFlightFramesInternal() {
+    if (getFramesInFlight() == 0) return;
+    try {
+      if (mEngine != null && mEngine.isValid()) mEngine.flushAndWait();
+    } catch (Exception e) {
+      Log.e(TAG, "abortInFlightFramesInternal: flushAndWait failed.", e);
+    }
+    synchronized (mInFlightFrames) {
+      InFlightFrame frame;
+      while ((frame = mInFlightFrames.pollFirst()) != null) {
+        abandonInFlightFrame(frame);
+        frame.future.completeExceptionally(new IllegalStateException("Renderer released while frame was in flight."));
+      }
+      mInFlightFrames.notifyAll();
     }
   }
   // --- render refactored parts END ---
 
+  /**
+   * 渲染一帧并返回独立的 Bitmap 拷贝，适合一次性截图。实时渲染请使用 {@link #renderFrame()}。
+   */
   @NonNull
   public CompletableFuture<Bitmap> render() {
-    CompletableFuture<Bitmap> resultFuture = new CompletableFuture<>();
+    return detachBitmap(renderFrame());
+  }
+
+  /**
+   * 渲染一帧，返回的 {@link RenderedFrame} 来自回读池，用完后必须 release()。
+   */
+  @NonNull
+  public CompletableFuture<RenderedFrame> renderFrame() {
+    CompletableFuture<RenderedFrame> resultFuture = new CompletableFuture<>();
 
     if (mIsCleanedUp.get()) {
       resultFuture.completeExceptionally(new IllegalStateException("HeadlessRenderer has been cleaned up. Cannot render."));
@@ -953,27 +2770,75 @@ public class ModelRender {
       return resultFuture;
     }
 
-    mRenderExecutor.submit(() -> performRenderOnRenderThread(resultFuture));
+    enqueueRenderCommandInternal(mRenderExecutor, () -> renderOnRenderThreadInternal(resultFuture), resultFuture);
     return resultFuture;
   }
 
-  private int findEntityByNameInternal(@NonNull String name) {
-    if (mCurrentAsset == null || mAssetEntities == null) {
-      Log.w(TAG, "findEntityByNameInternal: No asset loaded or entities not set.");
-      return Entity.NULL;
+  /**
+   * 提交一个 RENDER 命令。渲染队列满时最老的渲染命令被丢弃，它的 future 以 {@link FrameSkippedException} 结束。
+   */
+  private void enqueueRenderCommandInternal(@NonNull RenderThreadActor executor, @NonNull Runnable command,
+                                            @NonNull CompletableFuture<RenderedFrame> future) {
+    mPendingRenderRequests.incrementAndGet();
+    try {
+      executor.execute(RenderThreadActor.Priority.RENDER, null, command, () -> {
+        mPendingRenderRequests.decrementAndGet();
+        future.completeExceptionally(new FrameSkippedException("Frame shed: render queue full."));
+      });
+    } catch (RejectedExecutionException e) {
+      mPendingRenderRequests.decrementAndGet();
+      future.completeExceptionally(e);
     }
-    // Ensure mAssetEntities is iterated, which contains only visible entities if filtering occurred
-    for (int entityId : mAssetEntities) {
-      String currentName = mCurrentAsset.getName(entityId); // mCurrentAsset should be valid here
-      if (currentName != null && currentName.equals(name)) {
-        Log.d(TAG, "findEntityByNameInternal: Found entity '" + name + "' with ID: " + entityId);
-        return entityId;
-      }
+  }
+
+  /**
+   * 把命令排到渲染线程；队列已满或已关闭而被拒绝时让 future 以 RejectedExecutionException 失败。
+   */
+  private static void enqueueOrFail(@NonNull RenderThreadActor executor, @NonNull RenderThreadActor.Priority priority,
+                                    @NonNull Runnable command, @NonNull CompletableFuture<?> future) {
+    try {
+      executor.execute(priority, command);
+    } catch (RejectedExecutionException e) {
+      future.completeExceptionally(e);
+    }
+  }
+
+  /**
+   * 渲染线程各类命令的排队统计，尚未 init 或已释放时为 null。
+   */
+  @Nullable
+  public RenderThreadActor.Stats getRenderQueueStats() {
+    RenderThreadActor executor = mRenderExecutor;
+    return executor == null ? null : executor.getStats();
+  }
+
+  /**
+   * 按当前流水线深度选择同步或流水线渲染。仅在渲染线程调用，调用前 mPendingRenderRequests 已加一。
+   */
+  private void renderOnRenderThreadInternal(@NonNull CompletableFuture<RenderedFrame> resultFuture) {
+    if (mPipelineDepth > 1) {
+      performPipelinedRenderOnRenderThread(resultFuture);
+    } else {
+      performRenderOnRenderThread(resultFuture);
     }
-    Log.w(TAG, "findEntityByNameInternal: Entity with name '" + name + "' not found.");
-    return Entity.NULL;
   }
 
+  /**
+   * 回读池计数器。稳定渲染时 misses 不再增长，即每帧不再分配像素缓冲和 Bitmap。
+   */
+  @NonNull
+  public ReadbackPool.Stats getReadbackPoolStats() {
+    return mReadbackPool.getStats();
+  }
+
+  private void clearEntityIndexInternal() {
+    mEntityIndex = EntityIndex.EMPTY;
+    mHeadEntry = null;
+  }
+
+  /**
+   * 返回值是 mTransformMath 的临时矩阵，调用方需要立即使用。
+   */
   private float[] fitIntoUnitCubeInternal(@NonNull Box aabb, float zOffset, float scaleFactor) {
     float[] center = aabb.getCenter();
     float[] halfExtent = aabb.getHalfExtent();
@@ -989,21 +2854,14 @@ public class ModelRender {
     float verticalOffsetInAABBSpace = aabbHeight * VERTICAL_CENTERING_ADJUSTMENT_FACTOR;
     float targetYToCenter = center[1] + verticalOffsetInAABBSpace;
 
-    float[] scaleMatrix = new float[16];
-    float[] translationMatrix = new float[16];
-    float[] finalTransform = new float[16];
-
-    Matrix.setIdentityM(scaleMatrix, 0);
-    Matrix.scaleM(scaleMatrix, 0, finalScale, finalScale, finalScale);
-    Matrix.setIdentityM(translationMatrix, 0);
-    Matrix.translateM(translationMatrix, 0, -center[0], -targetYToCenter, -adjustedCenterZ);
-    Matrix.multiplyMM(finalTransform, 0, scaleMatrix, 0, translationMatrix, 0);
-
-    return finalTransform;
+    // S * T(-center): the translation is applied before scaling, so it is scaled too.
+    return mTransformMath.scaleThenTranslate(finalScale,
+      -center[0] * finalScale, -targetYToCenter * finalScale, -adjustedCenterZ * finalScale);
   }
 
+  @VisibleForTesting
   @NonNull
-  private CompletableFuture<Void> updateViewPortAsync(@Nullable String entityName, float scaleFactor) {
+  CompletableFuture<Void> updateViewPortAsync(@Nullable String entityName, float scaleFactor) {
     CompletableFuture<Void> future = new CompletableFuture<>();
     if (mIsCleanedUp.get()) {
       future.completeExceptionally(new IllegalStateException("Renderer is cleaned up."));
@@ -1014,7 +2872,7 @@ public class ModelRender {
       future.completeExceptionally(new IllegalStateException("Render executor not available."));
       return future;
     }
-    mRenderExecutor.submit(() -> {
+    enqueueOrFail(mRenderExecutor, RenderThreadActor.Priority.ASSET, () -> {
       try {
         updateViewPortInternal(entityName, scaleFactor);
         future.complete(null);
@@ -1022,12 +2880,23 @@ public class ModelRender {
         Log.e(TAG, "Exception during updateViewPortInternal execution.", e);
         future.completeExceptionally(e);
       }
-    });
+    }, future);
     return future;
   }
 
+  private void invalidateFitTransformCacheInternal() {
+    mFitCacheAsset = null;
+    mFitCacheEntityName = null;
+    mFitCacheScaleFactor = Float.NaN;
+  }
+
+  private boolean isFitTransformCachedInternal(@Nullable String entityName, float scaleFactor) {
+    return mFitCacheAsset != null && mFitCacheAsset == mCurrentAsset
+      && java.util.Objects.equals(mFitCacheEntityName, entityName)
+      && Float.compare(mFitCacheScaleFactor, scaleFactor) == 0;
+  }
+
   private void updateViewPortInternal(@Nullable String entityName, float scaleFactor) {
-    final float DEFAULT_VIEWPORT_Z_OFFSET = 4.0f;
     if (mEngine == null || !mEngine.isValid()) {
       Log.e(TAG, "updateViewPortInternal: Engine is not valid.");
       return;
@@ -1036,14 +2905,33 @@ public class ModelRender {
       Log.w(TAG, "updateViewPortInternal: No asset loaded.");
       return;
     }
+    // The fit only depends on the asset's static AABB, so the root transform set last time is still valid.
+    if (isFitTransformCachedInternal(entityName, scaleFactor)) {
+      return;
+    }
 
+    PreparedModel current = mCurrentModel;
+    ModelSidecar metadata = current != null && current.asset == mCurrentAsset ? current.metadata : null;
+    if (applyFitTransformInternal(mCurrentAsset, mEntityIndex, entityName, scaleFactor, metadata)) {
+      mFitCacheAsset = mCurrentAsset;
+      mFitCacheEntityName = entityName;
+      mFitCacheScaleFactor = scaleFactor;
+    }
+  }
+
+  /**
+   * 按 entityName 对应实体（找不到时用整个资产）的包围盒设置资产根变换，使其落入视口。成功返回 true。
+   */
+  private boolean applyFitTransformInternal(@NonNull FilamentAsset asset, @NonNull EntityIndex index,
+                                            @Nullable String entityName, float scaleFactor, @Nullable ModelSidecar metadata) {
+    final float DEFAULT_VIEWPORT_Z_OFFSET = 4.0f;
     TransformManager tcm = mEngine.getTransformManager();
     RenderableManager rm = mEngine.getRenderableManager();
-    int rootEntity = mCurrentAsset.getRoot();
+    int rootEntity = asset.getRoot();
 
     if (!tcm.hasComponent(rootEntity)) {
       Log.w(TAG, "updateViewPortInternal: Asset root entity (" + rootEntity + ") has no transform component.");
-      return;
+      return false;
     }
     int rootInstance = tcm.getInstance(rootEntity);
 
@@ -1051,14 +2939,18 @@ public class ModelRender {
     boolean specificAabbFound = false;
 
     if (entityName != null) {
-      int targetEntityId = findEntityByNameInternal(entityName);
-      if (targetEntityId != Entity.NULL) {
-        if (rm.hasComponent(targetEntityId)) {
-          int renderableInstance = rm.getInstance(targetEntityId);
+      EntityIndex.Entry target = index.get(entityName);
+      if (target != null) {
+        float[] knownBounds = metadata != null ? metadata.getBounds(entityName) : null;
+        if (target.hasRenderable() && knownBounds != null) {
+          targetAabb.setCenter(knownBounds[0], knownBounds[1], knownBounds[2]);
+          targetAabb.setHalfExtent(knownBounds[3], knownBounds[4], knownBounds[5]);
+          specificAabbFound = true;
+        } else if (target.hasRenderable()) {
           // It's crucial that getAxisAlignedBoundingBox populates the passed Box object.
-          rm.getAxisAlignedBoundingBox(renderableInstance, targetAabb);
+          rm.getAxisAlignedBoundingBox(target.renderableInstance, targetAabb);
           specificAabbFound = true;
-          Log.i(TAG, "updateViewPortInternal: Using AABB of specific entity '" + entityName + "' (ID: " + targetEntityId + "). Center: " + Arrays.toString(targetAabb.getCenter()) + ", HalfExtent: " + Arrays.toString(targetAabb.getHalfExtent()));
+          Log.i(TAG, "updateViewPortInternal: Using AABB of specific entity '" + entityName + "' (ID: " + target.entityId + "). Center: " + Arrays.toString(targetAabb.getCenter()) + ", HalfExtent: " + Arrays.toString(targetAabb.getHalfExtent()));
         } else {
           Log.w(TAG, "updateViewPortInternal: Entity '" + entityName + "' found, but has no renderable component. Falling back to asset AABB.");
         }
@@ -1067,8 +2959,12 @@ public class ModelRender {
       }
     }
 
-    if (!specificAabbFound) {
-      Box assetBox = mCurrentAsset.getBoundingBox(); // This should return a valid Box object
+    float[] knownAssetBounds = metadata != null ? metadata.getBounds(ModelSidecar.ASSET_BOUNDS) : null;
+    if (!specificAabbFound && knownAssetBounds != null) {
+      targetAabb.setCenter(knownAssetBounds[0], knownAssetBounds[1], knownAssetBounds[2]);
+      targetAabb.setHalfExtent(knownAssetBounds[3], knownAssetBounds[4], knownAssetBounds[5]);
+    } else if (!specificAabbFound) {
+      Box assetBox = asset.getBoundingBox(); // This should return a valid Box object
       if (assetBox != null) {
         // Manually copy values to targetAabb as Box might be immutable or direct assignment might share reference
         targetAabb.setCenter(assetBox.getCenter()[0], assetBox.getCenter()[1], assetBox.getCenter()[2]);
@@ -1076,7 +2972,7 @@ public class ModelRender {
         Log.i(TAG, "updateViewPortInternal: Using AABB of the entire asset. Center: " + Arrays.toString(targetAabb.getCenter()) + ", HalfExtent: " + Arrays.toString(targetAabb.getHalfExtent()));
       } else {
         Log.e(TAG, "updateViewPortInternal: Could not get bounding box from the asset. Cannot proceed.");
-        return;
+        return false;
       }
     }
 
@@ -1084,46 +2980,216 @@ public class ModelRender {
     final float epsilon = 1e-6f; // A small epsilon value
     if (Math.abs(halfExtent[0]) <= epsilon && Math.abs(halfExtent[1]) <= epsilon && Math.abs(halfExtent[2]) <= epsilon) {
       Log.e(TAG, "updateViewPortInternal: Invalid or zero-sized target AABB obtained (HalfExtent: " + Arrays.toString(halfExtent) + "). Cannot calculate transform.");
-      return;
+      return false;
     }
 
     float[] transformMatrix = fitIntoUnitCubeInternal(targetAabb, DEFAULT_VIEWPORT_Z_OFFSET, scaleFactor);
     tcm.setTransform(rootInstance, transformMatrix);
     Log.i(TAG, "updateViewPortInternal: Applied new transform to asset root (" + rootEntity + ").");
+    return true;
+  }
+
+  // --- resource tiers START ---
+  private void performTrimOnRenderThread(@NonNull ResourceTier target, @NonNull CompletableFuture<TrimReport> future) {
+    if (!mIsInitialized.get() || mIsCleanedUp.get() || mEngine == null || !mEngine.isValid()) {
+      future.completeExceptionally(new IllegalStateException("Renderer not ready or cleaned up for trim task."));
+      return;
+    }
+    final ResourceTier from = mResourceTier;
+    if (target.ordinal() <= from.ordinal()) {
+      future.complete(new TrimReport(from, from, 0, 0, 0));
+      return;
+    }
+    final long startNanos = System.nanoTime();
+    final long nativeBaseline = android.os.Debug.getNativeHeapAllocatedSize();
+    long estimatedBytes = 0;
+    try {
+      if (from.ordinal() < ResourceTier.CACHES_DROPPED.ordinal()) {
+        estimatedBytes += dropCachesInternal();
+      }
+      if (target.ordinal() >= ResourceTier.SURFACES_DROPPED.ordinal() && from.ordinal() < ResourceTier.SURFACES_DROPPED.ordinal()) {
+        estimatedBytes += dropSurfacesInternal();
+      }
+      if (target == ResourceTier.ASSET_DROPPED) {
+        estimatedBytes += dropCurrentModelInternal();
+      }
+      // Destroyed objects are only freed once the driver has processed the commands.
+      mEngine.flushAndWait();
+      mResourceTier = target;
+      TrimReport report = new TrimReport(from, target, estimatedBytes,
+        nativeBaseline - android.os.Debug.getNativeHeapAllocatedSize(), System.nanoTime() - startNanos);
+      mLastTrimReport = report;
+      Log.i(TAG, "Resources trimmed: " + report);
+      future.complete(report);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      future.completeExceptionally(e);
+    } catch (Exception e) {
+      Log.e(TAG, "Exception while trimming resources to " + target, e);
+      future.completeExceptionally(e);
+    }
+  }
+
+  /**
+   * 淘汰模型缓存、空闲的回读缓冲和 ResourceLoader 保留的源数据，返回估算释放的字节数。这些都会在用到时按需重建。
+   */
+  private long dropCachesInternal() {
+    long bytes = mAssetCache.getStats().residentBytes;
+    mAssetCache.clear();
+    int pooledBefore = mReadbackPool.getStats().pooledSlots;
+    mReadbackPool.clear();
+    bytes += (long) (pooledBefore - mReadbackPool.getStats().pooledSlots) * IMAGE_WIDTH * IMAGE_HEIGHT * 4;
+    if (mResourceLoader != null) mResourceLoader.evictResourceData();
+    return bytes;
+  }
+
+  /**
+   * 等在途帧回读完成后销毁离屏 SwapChain，返回估算释放的字节数（RGBA8 颜色 + 32 位深度）。
+   */
+  private long dropSurfacesInternal() throws InterruptedException {
+    waitForInFlightFramesInternal(0);
+    if (mSwapChain == null) return 0;
+    if (mEngine.isValidSwapChain(mSwapChain)) mEngine.destroySwapChain(mSwapChain);
+    mNativeResources.untrack(mSwapChain);
+    mSwapChain = null;
+    return (long) IMAGE_WIDTH * IMAGE_HEIGHT * 8;
+  }
+
+  /**
+   * 从场景移除并销毁当前模型，记下路径和视口适配参数供恢复时使用，返回模型的估算字节数。
+   */
+  private long dropCurrentModelInternal() {
+    cancelProgressiveLoadInternal("resources trimmed");
+    mLoadGeneration++; // Swaps still reading their file are dropped as well
+    PreparedModel current = mCurrentModel;
+    if (current == null || current.asset != mCurrentAsset) return 0;
+    mDroppedAssetPath = current.assetPath;
+    mDroppedFitEntityName = mFitCacheEntityName;
+    mDroppedFitScaleFactor = mFitCacheScaleFactor;
+    if (mScene != null && mAssetEntities != null) mScene.removeEntities(mAssetEntities);
+    destroyAssetInternal(current.asset);
+    mCurrentModel = null;
+    mCurrentAsset = null;
+    mAssetEntities = null;
+    clearEntityIndexInternal();
+    mMorphTargetInfoMap.clear();
+    mMorphBindings = MorphBindingTable.EMPTY;
+    invalidateFitTransformCacheInternal();
+    Log.i(TAG, "Dropped model " + current.assetPath + " (~" + current.estimatedBytes / 1024 + " KB).");
+    return current.estimatedBytes;
+  }
+
+  /**
+   * 在渲染线程上重建降级时释放的资源：SwapChain 和被销毁的模型（重新加载时使用 sidecar/磁盘缓存的元数据，
+   * 材质已在 AssetLoader 中编译好）；缓存和回读缓冲按需重建，不在这里分配。未降级时立即返回 null。
+   */
+  @Nullable
+  private RestoreReport restoreTrimmedResourcesInternal() {
+    final ResourceTier from = mResourceTier;
+    if (from == ResourceTier.FULL) return null;
+    if (mEngine == null || !mEngine.isValid()) return null;
+    final long startNanos = System.nanoTime();
+    if (mSwapChain == null) {
+      mSwapChain = createHeadlessSwapChainInternal();
+      if (mSwapChain == null) throw new IllegalStateException("Failed to recreate headless SwapChain.");
+    }
+    final String assetPath = mDroppedAssetPath;
+    final String fitEntityName = mDroppedFitEntityName;
+    final float fitScaleFactor = mDroppedFitScaleFactor;
+    final Context context = mApplicationContext;
+    // Settled before reloading: a model that fails to load is reported once, not re-parsed by every later frame.
+    forgetDroppedModelInternal();
+    mResourceTier = ResourceTier.FULL;
+    Throwable reloadFailure = null;
+    if (assetPath != null && context != null) {
+      CompletableFuture<Boolean> loadFuture = new CompletableFuture<>();
+      loadModelNowInternal(context, assetPath, loadFuture);
+      try {
+        if (!Boolean.TRUE.equals(loadFuture.getNow(false))) {
+          reloadFailure = new IllegalStateException("Failed to reload dropped model " + assetPath);
+        }
+      } catch (CompletionException e) {
+        reloadFailure = e.getCause() != null ? e.getCause() : e;
+      }
+      if (reloadFailure != null) {
+        Log.e(TAG, "Dropped model " + assetPath + " could not be reloaded, continuing without a model.", reloadFailure);
+      } else if (fitEntityName != null || !Float.isNaN(fitScaleFactor)) {
+        updateViewPortInternal(fitEntityName, fitScaleFactor);
+      }
+    }
+    RestoreReport report = new RestoreReport(from, System.nanoTime() - startNanos, reloadFailure);
+    mLastRestoreReport = report;
+    Log.i(TAG, "Resources restored: " + report);
+    return report;
+  }
+
+  /**
+   * 一次加载或切换被接受后，新模型取代 ASSET_DROPPED 时被销毁的模型，恢复时不再重新加载旧模型
+   * （否则会取消刚开始的渐进加载）。只在渲染线程调用。
+   */
+  private void forgetDroppedModelInternal() {
+    mDroppedAssetPath = null;
+    mDroppedFitEntityName = null;
+    mDroppedFitScaleFactor = Float.NaN;
   }
+  // --- resource tiers END ---
 
   // --- release() refactored parts START ---
-  private void performReleaseOnRenderThread(@NonNull ExecutorService executorToShutdown, @NonNull CompletableFuture<Void> releaseFuture) {
+  /**
+   * 在渲染线程上释放所有资源并关闭 actor。不能在渲染线程上等待 actor 终止（那要等当前命令返回），
+   * 因此只调用 shutdown()：已排队的命令之后仍会执行，它们看到未初始化状态后直接失败，然后线程退出。
+   */
+  private void performReleaseOnRenderThread(@NonNull RenderThreadActor executorToShutdown, @NonNull CompletableFuture<Void> releaseFuture) {
     try {
+      abortInFlightFramesInternal();
+      cancelProgressiveLoadInternal("renderer released");
       cleanupFilamentResourcesInternal();
+      quitReadbackThreadInternal();
       Log.i(TAG, "Filament resource cleanup task completed on render thread.");
       executorToShutdown.shutdown();
-      if (!executorToShutdown.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
-        Log.e(TAG, "Render executor did not terminate gracefully. Forcing shutdown...");
-        executorToShutdown.shutdownNow();
-        if (!executorToShutdown.awaitTermination(5, TimeUnit.SECONDS)) {
-          Log.e(TAG, "Render executor did not terminate even after shutdownNow().");
-          if (!releaseFuture.isDone())
-            releaseFuture.completeExceptionally(new RuntimeException("Executor failed to terminate."));
-          return; // Exit early if future already completed exceptionally
-        }
-      }
-      Log.i(TAG, "Render executor terminated.");
-      nullifyFilamentMembers(); // Set members to null after successful shutdown and cleanup
-      if (!releaseFuture.isDone()) releaseFuture.complete(null);
-    } catch (InterruptedException ie) {
-      Thread.currentThread().interrupt();
-      Log.e(TAG, "Interrupted during executor shutdown or cleanup.", ie);
-      executorToShutdown.shutdownNow(); // Force shutdown on interrupt
+      mNativeResources.untrack(executorToShutdown);
       nullifyFilamentMembers();
-      if (!releaseFuture.isDone()) releaseFuture.completeExceptionally(ie);
+      mReadbackPool.clear();
+      retireNativeResourcesInternal();
+      if (!releaseFuture.isDone()) releaseFuture.complete(null);
     } catch (Exception e) {
       Log.e(TAG, "Exception during resource cleanup or executor shutdown.", e);
+      executorToShutdown.shutdown();
+      mNativeResources.untrack(executorToShutdown);
       nullifyFilamentMembers();
+      retireNativeResourcesInternal();
       if (!releaseFuture.isDone()) releaseFuture.completeExceptionally(e);
     }
   }
 
+  /**
+   * 停止回读线程。已到期的回调仍会执行（quitSafely），未到期的超时任务被丢弃。
+   */
+  private void quitReadbackThreadInternal() {
+    mReadbackHandler = null;
+    if (mReadbackThread != null) {
+      mReadbackThread.quitSafely();
+      mNativeResources.untrack(mReadbackThread);
+      mReadbackThread = null;
+      Log.i(TAG, "Readback thread quit.");
+    }
+  }
+
+  /**
+   * release() 完成后注销清理动作。正常情况下登记表此时为空；仍有对象时记录下来并保留在全局快照中，
+   * 但不再兜底释放：Engine 已经销毁，这些句柄都已失效。
+   */
+  private void retireNativeResourcesInternal() {
+    mLeakCleanupExecutor.set(null);
+    NativeResourceTracker.Snapshot leftovers = mNativeResources.snapshot();
+    if (leftovers.liveCount == 0) {
+      mNativeCleanable.clean(); // Retires the scope
+      return;
+    }
+    Log.e(TAG, "Native resources still tracked after release(): " + leftovers);
+    mNativeResources.disarm();
+  }
+
   private void nullifyFilamentMembers() {
     mRenderer = null;
     mSwapChain = null;
@@ -1132,14 +3198,22 @@ public class ModelRender {
     mCamera = null;
     mSkybox = null;
     mAssetLoader = null;
+    mMaterialProvider = null;
     mResourceLoader = null;
     mCurrentAsset = null;
+    mCurrentModel = null;
     mAssetEntities = null;
     mEngine = null; // Engine last
+    ModelMetadataCache metadataCache = mMetadataCache;
+    mMetadataCache = null;
+    if (metadataCache != null) metadataCache.shutdown(); // Pending writes still finish
+    mModelReader.shutdown();
+    invalidateFitTransformCacheInternal();
     mLightEntity = 0;
     mCameraEntity = 0;
-    if (mEntityInitialTransforms != null) mEntityInitialTransforms.clear();
+    clearEntityIndexInternal();
     if (mMorphTargetInfoMap != null) mMorphTargetInfoMap.clear();
+    mMorphBindings = MorphBindingTable.EMPTY;
   }
   // --- release() refactored parts END ---
 
@@ -1149,23 +3223,28 @@ public class ModelRender {
     if (mIsCleanedUp.compareAndSet(false, true)) {
       Log.i(TAG, "release() called. Initiating shutdown...");
       mIsInitialized.set(false); // Mark as not initialized
-      mMainThreadHandler.removeCallbacksAndMessages(null); // Clear main thread tasks
+      mFrameScheduler.skipPending();
 
-      ExecutorService executor = mRenderExecutor; // Capture current executor
+      RenderThreadActor executor = mRenderExecutor; // Capture current executor
       mRenderExecutor = null; // Nullify immediately to prevent new submissions
 
       if (executor != null && !executor.isShutdown()) {
         Log.i(TAG, "Submitting final resource cleanup task to render thread...");
-        executor.submit(() -> performReleaseOnRenderThread(executor, releaseFuture));
+        // LIFECYCLE runs ahead of any queued asset, pose and render commands.
+        executor.execute(RenderThreadActor.Priority.LIFECYCLE, () -> performReleaseOnRenderThread(executor, releaseFuture));
       } else {
         Log.w(TAG, "Render executor was null or already shutdown. Performing direct cleanup if possible...");
         try {
           cleanupFilamentResourcesInternal(); // Attempt direct cleanup
+          quitReadbackThreadInternal();
+          if (executor != null) mNativeResources.untrack(executor);
           nullifyFilamentMembers();
+          retireNativeResourcesInternal();
           releaseFuture.complete(null);
         } catch (Exception e) {
           Log.e(TAG, "Exception during direct cleanup.", e);
           nullifyFilamentMembers(); // Still nullify
+          retireNativeResourcesInternal();
           releaseFuture.completeExceptionally(e);
         }
       }
@@ -1178,10 +3257,12 @@ public class ModelRender {
 
   // --- cleanupFilamentResourcesInternal refactored parts START ---
   private void destroyAssetAndLoadersInternal() {
+    mAssetCache.clear(); // Destroys cached assets while the AssetLoader is still alive
+    mCurrentModel = null;
     if (mCurrentAsset != null && mAssetLoader != null) {
       try {
         Log.i(TAG, "Destroying FilamentAsset...");
-        mAssetLoader.destroyAsset(mCurrentAsset);
+        destroyAssetInternal(mCurrentAsset);
         Log.i(TAG, "FilamentAsset destroyed.");
       } catch (Exception e) {
         Log.e(TAG, "Exception destroying FilamentAsset: ", e);
@@ -1194,6 +3275,7 @@ public class ModelRender {
       try {
         Log.i(TAG, "Destroying ResourceLoader...");
         mResourceLoader.destroy();
+        mNativeResources.untrack(mResourceLoader);
         Log.i(TAG, "ResourceLoader destroyed.");
       } catch (Exception e) {
         Log.e(TAG, "Exception destroying ResourceLoader: ", e);
@@ -1205,12 +3287,27 @@ public class ModelRender {
       try {
         Log.i(TAG, "Destroying AssetLoader...");
         mAssetLoader.destroy();
+        mNativeResources.untrack(mAssetLoader);
         Log.i(TAG, "AssetLoader destroyed.");
       } catch (Exception e) {
         Log.e(TAG, "Exception destroying AssetLoader: ", e);
       }
     }
     mAssetLoader = null;
+
+    // The AssetLoader does not own its MaterialProvider; its compiled materials are freed here.
+    if (mMaterialProvider != null) {
+      try {
+        Log.i(TAG, "Destroying MaterialProvider...");
+        mMaterialProvider.destroyMaterials();
+        mMaterialProvider.destroy();
+        mNativeResources.untrack(mMaterialProvider);
+        Log.i(TAG, "MaterialProvider destroyed.");
+      } catch (Exception e) {
+        Log.e(TAG, "Exception destroying MaterialProvider: ", e);
+      }
+    }
+    mMaterialProvider = null;
   }
 
   private void destroySceneContentsInternal() {
@@ -1259,6 +3356,7 @@ public class ModelRender {
         }
       }
     }
+    mNativeResources.untrack(mCamera);
     mCamera = null; // Nullify the reference
 
     if (mCameraEntity != 0 && EntityManager.get().isAlive(mCameraEntity)) {
@@ -1275,6 +3373,10 @@ public class ModelRender {
       if (mScene != null && mEngine.isValidScene(mScene)) mEngine.destroyScene(mScene);
       if (mRenderer != null && mEngine.isValidRenderer(mRenderer)) mEngine.destroyRenderer(mRenderer);
       if (mSwapChain != null && mEngine.isValidSwapChain(mSwapChain)) mEngine.destroySwapChain(mSwapChain);
+      mNativeResources.untrack(mView);
+      mNativeResources.untrack(mScene);
+      mNativeResources.untrack(mRenderer);
+      mNativeResources.untrack(mSwapChain);
     } catch (Exception e) {
       Log.e(TAG, "Exception destroying core Filament objects: ", e);
     }
@@ -1290,8 +3392,8 @@ public class ModelRender {
     Log.i(TAG, "Executing cleanupFilamentResourcesInternal on thread: " + Thread.currentThread().getName());
 
     if (mMorphTargetInfoMap != null) mMorphTargetInfoMap.clear();
-    if (mEntityInitialTransforms != null) mEntityInitialTransforms.clear();
-    // mEntityInitialTransforms = null; // Don't nullify the map itself here, nullifyFilamentMembers does it.
+    mMorphBindings = MorphBindingTable.EMPTY;
+    clearEntityIndexInternal();
 
     // Order of destruction can be important.
     // 1. Destroy things that depend on the engine but are "higher level" (assets, loaders).
@@ -1311,6 +3413,7 @@ public class ModelRender {
       try {
         Log.i(TAG, "Destroying Filament Engine...");
         mEngine.destroy();
+        mNativeResources.untrack(mEngine);
         Log.i(TAG, "Filament Engine destroyed.");
       } catch (Exception e) {
         Log.e(TAG, "Exception destroying Filament Engine: ", e);
@@ -1326,34 +3429,56 @@ public class ModelRender {
   }
 
 
-  @Override
-  protected void finalize() throws Throwable {
-    try {
-      if (!mIsCleanedUp.get()) {
-        Log.w(TAG, "ModelRender finalize() called without explicit release! This is problematic and indicates a potential resource leak.");
-        // Attempt a last-ditch cleanup, though it's not guaranteed to work correctly
-        // as it might not be on the render thread and executor might be gone.
-        // This is mostly for logging and awareness during development.
-        // A true fix is ensuring release() is always called.
-        // performDirectCleanupForFinalize(); // A hypothetical synchronous cleanup, unsafe.
+  /**
+   * 用 sidecar 中预先解析好的 morph 名称和类别编译绑定表，不再逐个实体读取 morph target 名称。
+   * sidecar 与加载出的实体对不上（morph 数不同）时返回 null，由调用方退回运行时解析。
+   */
+  @Nullable
+  private MorphBindingTable prepareMorphTargetsFromSidecarInternal(@NonNull ModelSidecar sidecar, @NonNull EntityIndex index,
+                                                                   @NonNull RenderableManager rm,
+                                                                   @NonNull Map<String, List<MorphInfo>> morphTargetInfo) {
+    MorphBindingTable.Builder bindings = new MorphBindingTable.Builder();
+    boolean countChecked = false;
+    for (ModelSidecar.MorphEntity morphEntity : sidecar.getMorphEntities()) {
+      EntityIndex.Entry entry = index.get(morphEntity.nodeName);
+      if (entry == null || !entry.hasRenderable()) continue; // Filtered out at load time
+      int morphCount = morphEntity.morphNames.length;
+      // The content key already ties the metadata to this exact glb; one spot check per asset guards against
+      // a gltfio that numbers morph targets differently, without a JNI call per entity.
+      if (!countChecked) {
+        if (rm.getMorphTargetCount(entry.renderableInstance) != morphCount) {
+          Log.w(TAG, "Sidecar morph count for '" + morphEntity.nodeName + "' does not match the asset, resolving morph targets at runtime.");
+          morphTargetInfo.clear();
+          return null;
+        }
+        countChecked = true;
+      }
+      for (int j = 0; j < morphCount; j++) {
+        String morphName = morphEntity.morphNames[j];
+        if (morphName.isEmpty()) continue;
+        morphTargetInfo.computeIfAbsent(morphName, k -> new ArrayList<>()).add(new MorphInfo(entry.entityId, morphName, j, morphCount));
+        bindings.addMorphTarget(morphName, morphEntity.categories[j], entry.entityId, entry.renderableInstance, j, morphCount);
       }
-    } finally {
-      super.finalize();
     }
+    return bindings.build();
   }
 
-  private void prepareMorphTargetInfoInternal() {
-    if (mEngine == null || !mEngine.isValid() || mCurrentAsset == null || mAssetEntities == null) {
-      Log.w(TAG, "prepareMorphTargetInfoInternal: Invalid state (engine, asset, or entities null/invalid).");
-      return;
+  /**
+   * 收集 entities 上的 morph target 信息写入 morphTargetInfo，并编译出每帧使用的绑定表。
+   */
+  @NonNull
+  private MorphBindingTable prepareMorphTargetInfoInternal(@NonNull FilamentAsset asset, @NonNull int[] entities,
+                                                           @NonNull Map<String, List<MorphInfo>> morphTargetInfo) {
+    if (mEngine == null || !mEngine.isValid()) {
+      Log.w(TAG, "prepareMorphTargetInfoInternal: Invalid state (engine null/invalid).");
+      return MorphBindingTable.EMPTY;
     }
-    mMorphTargetInfoMap.clear(); // Clear previous info
     Log.i(TAG, "--- Preparing Morph Target Information ---");
     RenderableManager rm = mEngine.getRenderableManager();
     int totalMorphTargetsFound = 0;
 
-    // Iterate over mAssetEntities which should contain only visible/relevant entities
-    for (int entityId : mAssetEntities) {
+    // Iterate over the entities that will be in the scene
+    for (int entityId : entities) {
       if (!rm.hasComponent(entityId)) {
         continue;
       }
@@ -1361,8 +3486,8 @@ public class ModelRender {
       int numMorphTargets = rm.getMorphTargetCount(instance);
 
       if (numMorphTargets > 0) {
-        Log.d(TAG, "Entity ID " + entityId + " (Name: " + mCurrentAsset.getName(entityId) + ") has " + numMorphTargets + " morph targets.");
-        String[] morphTargetNamesForEntity = mCurrentAsset.getMorphTargetNames(entityId); // Get all names for this entity once
+        Log.d(TAG, "Entity ID " + entityId + " (Name: " + asset.getName(entityId) + ") has " + numMorphTargets + " morph targets.");
+        String[] morphTargetNamesForEntity = asset.getMorphTargetNames(entityId); // Get all names for this entity once
 
         for (int j = 0; j < numMorphTargets; j++) {
           String morphName = null;
@@ -1375,7 +3500,7 @@ public class ModelRender {
 
           if (morphName != null && !morphName.isEmpty()) {
             MorphInfo info = new MorphInfo(entityId, morphName, j, numMorphTargets);
-            mMorphTargetInfoMap.computeIfAbsent(morphName, k -> new ArrayList<>()).add(info);
+            morphTargetInfo.computeIfAbsent(morphName, k -> new ArrayList<>()).add(info);
             Log.d(TAG, "  Added morph info: Name='" + morphName + "', Entity=" + entityId + ", Index=" + j);
             totalMorphTargetsFound++;
           } else {
@@ -1385,71 +3510,35 @@ public class ModelRender {
       }
     }
     Log.i(TAG, "--- Finished Preparing Morph Targets ---");
-    Log.i(TAG, "Found " + totalMorphTargetsFound + " named morph targets across " + mMorphTargetInfoMap.size() + " unique names.");
+    Log.i(TAG, "Found " + totalMorphTargetsFound + " named morph targets across " + morphTargetInfo.size() + " unique names.");
+
+    // Compile the per-frame binding table once, resolving renderable instances up front.
+    MorphBindingTable.Builder bindings = new MorphBindingTable.Builder();
+    for (Map.Entry<String, List<MorphInfo>> entry : morphTargetInfo.entrySet()) {
+      for (MorphInfo info : entry.getValue()) {
+        bindings.addMorphTarget(info.morphTargetName, info.entityId, rm.getInstance(info.entityId),
+          info.morphTargetIndex, info.totalMorphTargetsForEntity);
+      }
+    }
+    return bindings.build();
   }
 
-  private void setMorphWeightsInternal(@NonNull Map<String, Float> weights) {
+  /**
+   * 每帧的 morph 更新：直接按预编译绑定表写入权重，只上传变化超过 epsilon 的实体，不分配对象。scores 按 MediaPipe 类别下标索引。
+   */
+  private void setMorphWeightsInternal(@NonNull float[] scores) {
     if (mEngine == null || !mEngine.isValid() || mCurrentAsset == null) {
       Log.e(TAG, "setMorphWeightsInternal: Invalid state (engine or asset null/invalid).");
       return;
     }
-    if (mMorphTargetInfoMap.isEmpty()) {
+    MorphBindingTable bindings = mMorphBindings;
+    if (bindings.isEmpty()) {
       // Log.v(TAG, "setMorphWeightsInternal: No morph target info prepared, skipping.");
       return;
     }
-
-    RenderableManager rm = mEngine.getRenderableManager();
-    // Use a temporary map to build up weights per entity before applying
-    Map<Integer, float[]> entityWeightsMap = new HashMap<>();
-
-    for (Map.Entry<String, List<MorphInfo>> mapEntry : mMorphTargetInfoMap.entrySet()) {
-      String morphNameInModel = mapEntry.getKey();
-      List<MorphInfo> infos = mapEntry.getValue();
-      float desiredWeight = weights.getOrDefault(morphNameInModel, 0.0f); // Default to 0 if not in input
-
-      for (MorphInfo info : infos) {
-        // Ensure the entity still exists and has a renderable component
-        if (!EntityManager.get().isAlive(info.entityId) || !rm.hasComponent(info.entityId)) {
-          Log.w(TAG, "setMorphWeightsInternal: Entity " + info.entityId + " for morph target " + info.morphTargetName + " is no longer alive or has no renderable. Skipping.");
-          continue;
-        }
-
-        float[] weightsArray = entityWeightsMap.computeIfAbsent(info.entityId, k -> {
-          // Initialize with zeros, size based on this entity's total morph targets
-          float[] newArr = new float[info.totalMorphTargetsForEntity];
-          // Arrays.fill(newArr, 0.0f); // computeIfAbsent with new float[] already initializes to 0.0f
-          return newArr;
-        });
-
-        if (info.morphTargetIndex < weightsArray.length) {
-          weightsArray[info.morphTargetIndex] = desiredWeight;
-        } else {
-          Log.e(TAG, "  Error: Morph index " + info.morphTargetIndex + " for target '" + info.morphTargetName +
-            "' out of bounds for entity " + info.entityId + " (array size " + weightsArray.length + "). This should not happen if prepareMorphTargetInfoInternal was correct.");
-        }
-      }
-    }
-
-    // Log input weights not found in the model (excluding _neutral as it's common from MediaPipe)
-    for (String inputName : weights.keySet()) {
-      if (!inputName.equals("_neutral") && !mMorphTargetInfoMap.containsKey(inputName)) {
-        Log.w(TAG, "Input weight name '" + inputName + "' not found in prepared morph targets for the current model.");
-      }
-    }
-
-    // Apply the collected weights
-    if (!entityWeightsMap.isEmpty()) {
-      for (Map.Entry<Integer, float[]> entityEntry : entityWeightsMap.entrySet()) {
-        int entityId = entityEntry.getKey();
-        float[] finalWeights = entityEntry.getValue();
-        // Double check component before setting, though it should exist if it was in mMorphTargetInfoMap
-        if (rm.hasComponent(entityId)) {
-          var instance = rm.getInstance(entityId);
-          rm.setMorphWeights(instance, finalWeights, 0);
-        } else {
-          Log.e(TAG, "setMorphWeightsInternal: Entity " + entityId + " unexpectedly lost its Renderable component before weights could be applied.");
-        }
-      }
-    }
+    int uploads = bindings.apply(mEngine.getRenderableManager(), scores, mMorphWeightEpsilon);
+    mMorphUpdateFrames++;
+    mMorphUploads += uploads;
+    mMorphUploadsSkipped += bindings.getEntityCount() - uploads;
   }
-}
\ No newline at end of file
+}
@@ -0,0 +1,260 @@
+package com.example.filament_android_demo;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+/**
+ * 进程级的 {@link ModelRender} 持有者：按引用计数共享同一个渲染器，最后一个引用释放后再等一个宽限期才真正 release()。
+ * Activity 因旋转等配置变更重建时，新实例在宽限期内 acquire()，直接复用已初始化的 Engine 和已加载的模型（热接入），
+ * 不必重新创建引擎、重新解析和上传模型（冷接入）。
+ * <p>
+ * 渲染器只用 Application Context 初始化，不会持有 Activity。所有方法线程安全，宽限期计时在主线程上进行。
+ */
+public final class ModelRenderHolder {
+  private static final String TAG = "ModelRenderHolder";
+
+  // 最后一个引用释放后保留渲染器的时间，覆盖配置变更时 onDestroy 到新 Activity onCreate 的间隔
+  public static final long DEFAULT_GRACE_PERIOD_MILLIS = 5_000;
+
+  private static final ModelRenderHolder INSTANCE = new ModelRenderHolder(DEFAULT_GRACE_PERIOD_MILLIS);
+
+  /**
+   * 接入统计。时间为 acquire() 到渲染器可用（ready 完成）的耗时，尚无此类接入时为 -1。
+   */
+  public static final class AttachStats {
+    public final long coldAttaches;
+    public final long warmAttaches;
+    public final long lastColdAttachNanos;
+    public final long lastWarmAttachNanos;
+    public final int refCount;
+
+    AttachStats(long coldAttaches, long warmAttaches, long lastColdAttachNanos, long lastWarmAttachNanos, int refCount) {
+      this.coldAttaches = coldAttaches;
+      this.warmAttaches = warmAttaches;
+      this.lastColdAttachNanos = lastColdAttachNanos;
+      this.lastWarmAttachNanos = lastWarmAttachNanos;
+      this.refCount = refCount;
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+      return "ModelRenderHolder.AttachStats{cold=" + coldAttaches + ", warm=" + warmAttaches
+        + ", lastColdMs=" + lastColdAttachNanos / 1_000_000.0 + ", lastWarmMs=" + lastWarmAttachNanos / 1_000_000.0
+        + ", refCount=" + refCount + "}";
+    }
+  }
+
+  /**
+   * 一次 acquire() 得到的引用。用完后调用一次 {@link #close()}，重复调用无效果。
+   */
+  public final class Lease {
+    @NonNull
+    private final ModelRender mModelRender;
+    private final boolean mWarm;
+    @NonNull
+    private final CompletableFuture<Void> mReady;
+    private volatile long mAttachNanos = -1;
+    private boolean mClosed = false; // guarded by ModelRenderHolder.this
+
+    Lease(@NonNull ModelRender modelRender, boolean warm, @NonNull CompletableFuture<Void> initFuture, long acquireNanos) {
+      mModelRender = modelRender;
+      mWarm = warm;
+      // Recorded before ready completes, so callers of getReady() always see the attach time.
+      mReady = initFuture.whenComplete((v, t) -> {
+        if (t != null) return;
+        mAttachNanos = System.nanoTime() - acquireNanos;
+        recordAttach(warm, mAttachNanos);
+      });
+    }
+
+    @NonNull
+    public ModelRender getModelRender() {
+      return mModelRender;
+    }
+
+    /**
+     * 是否接入了已有的渲染器（没有重新创建 Engine 和加载模型）。
+     */
+    public boolean isWarm() {
+      return mWarm;
+    }
+
+    /**
+     * 渲染器初始化完成（热接入时为共享的初始化 future）后完成。
+     */
+    @NonNull
+    public CompletableFuture<Void> getReady() {
+      return mReady.thenApply(v -> v);
+    }
+
+    /**
+     * acquire() 到 ready 完成的耗时，尚未完成时为 -1。
+     */
+    public long getAttachNanos() {
+      return mAttachNanos;
+    }
+
+    /**
+     * 归还引用。引用计数归零后渲染器在宽限期后释放，期间再次 acquire() 会取消释放。
+     */
+    public void close() {
+      releaseLease(this, mGracePeriodMillis);
+    }
+
+    /**
+     * 归还引用，引用计数归零时立即释放渲染器（例如 Activity 真正结束而不是配置变更）。
+     */
+    public void closeWithoutGrace() {
+      releaseLease(this, 0);
+    }
+  }
+
+  private final long mGracePeriodMillis;
+  private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+
+  @Nullable
+  private ModelRender mModelRender; // guarded by this
+  @Nullable
+  private CompletableFuture<Void> mInitFuture; // guarded by this
+  private int mRefCount = 0; // guarded by this
+  @Nullable
+  private Runnable mPendingRelease; // guarded by this
+  private long mColdAttaches = 0; // guarded by this
+  private long mWarmAttaches = 0; // guarded by this
+  private long mLastColdAttachNanos = -1; // guarded by this
+  private long mLastWarmAttachNanos = -1; // guarded by this
+
+  @VisibleForTesting
+  ModelRenderHolder(long gracePeriodMillis) {
+    mGracePeriodMillis = gracePeriodMillis;
+  }
+
+  @NonNull
+  public static ModelRenderHolder getInstance() {
+    return INSTANCE;
+  }
+
+  @NonNull
+  public Lease acquire(@NonNull Context context) {
+    return acquire(context, null);
+  }
+
+  /**
+   * 取得共享渲染器的引用。没有可用的渲染器时新建并初始化（冷接入），configure 在 init() 之前对新实例调用一次，
+   * 用于设置预热模式等只能在初始化前设置的选项；已有渲染器时 configure 不会被调用。
+   */
+  @NonNull
+  public Lease acquire(@NonNull Context context, @Nullable Consumer<ModelRender> configure) {
+    return acquire(context, ModelRender.MODEL_PATH, configure);
+  }
+
+  @VisibleForTesting
+  @NonNull
+  synchronized Lease acquire(@NonNull Context context, @Nullable String modelPath, @Nullable Consumer<ModelRender> configure) {
+    final long startNanos = System.nanoTime();
+    if (mPendingRelease != null) {
+      mMainHandler.removeCallbacks(mPendingRelease);
+      mPendingRelease = null;
+      Log.i(TAG, "Pending release cancelled, reattaching to the existing renderer.");
+    }
+    final boolean warm = mModelRender != null;
+    final ModelRender modelRender;
+    final CompletableFuture<Void> initFuture;
+    if (warm) {
+      modelRender = mModelRender;
+      initFuture = mInitFuture;
+    } else {
+      modelRender = new ModelRender();
+      if (configure != null) configure.accept(modelRender);
+      initFuture = modelRender.init(context.getApplicationContext(), modelPath);
+      mModelRender = modelRender;
+      mInitFuture = initFuture;
+    }
+    mRefCount++;
+    Lease lease = new Lease(modelRender, warm, initFuture, startNanos);
+    if (!warm) {
+      initFuture.whenComplete((v, t) -> {
+        if (t != null) discardFailed(modelRender);
+      });
+    }
+    return lease;
+  }
+
+  @NonNull
+  public synchronized AttachStats getAttachStats() {
+    return new AttachStats(mColdAttaches, mWarmAttaches, mLastColdAttachNanos, mLastWarmAttachNanos, mRefCount);
+  }
+
+  private void recordAttach(boolean warm, long attachNanos) {
+    int refCount;
+    synchronized (this) {
+      if (warm) {
+        mWarmAttaches++;
+        mLastWarmAttachNanos = attachNanos;
+      } else {
+        mColdAttaches++;
+        mLastColdAttachNanos = attachNanos;
+      }
+      refCount = mRefCount;
+    }
+    Log.i(TAG, (warm ? "Warm" : "Cold") + " attach took " + attachNanos / 1_000_000.0 + "ms, refCount=" + refCount);
+  }
+
+  private synchronized void releaseLease(@NonNull Lease lease, long gracePeriodMillis) {
+    if (lease.mClosed) return;
+    lease.mClosed = true;
+    if (mModelRender != lease.mModelRender) return; // Renderer already discarded after a failed init
+    if (--mRefCount > 0) return;
+    if (mPendingRelease != null) mMainHandler.removeCallbacks(mPendingRelease);
+    final ModelRender modelRender = mModelRender;
+    mPendingRelease = () -> releaseIfUnused(modelRender);
+    if (gracePeriodMillis > 0) {
+      Log.i(TAG, "Last reference closed, releasing the renderer in " + gracePeriodMillis + "ms unless reattached.");
+      mMainHandler.postDelayed(mPendingRelease, gracePeriodMillis);
+    } else {
+      mPendingRelease.run();
+    }
+  }
+
+  private void releaseIfUnused(@NonNull ModelRender modelRender) {
+    synchronized (this) {
+      if (mModelRender != modelRender || mRefCount > 0) return;
+      mModelRender = null;
+      mInitFuture = null;
+      mPendingRelease = null;
+    }
+    Log.i(TAG, "Releasing the shared renderer.");
+    modelRender.release().whenComplete((v, t) -> {
+      if (t != null) Log.e(TAG, "Error releasing the shared renderer.", t);
+      else Log.i(TAG, "Shared renderer released.");
+    });
+  }
+
+  /**
+   * 初始化失败的渲染器不再共享，下一次 acquire() 重新冷启动；已有的引用仍指向它，它们的 ready 以同样的异常结束。
+   */
+  private void discardFailed(@NonNull ModelRender modelRender) {
+    synchronized (this) {
+      if (mModelRender != modelRender) return;
+      mModelRender = null;
+      mInitFuture = null;
+      mRefCount = 0;
+      if (mPendingRelease != null) {
+        mMainHandler.removeCallbacks(mPendingRelease);
+        mPendingRelease = null;
+      }
+    }
+    Log.w(TAG, "Shared renderer failed to initialize, discarding it.");
+    modelRender.release();
+  }
+}
@@ -0,0 +1,351 @@
+package com.example.filament_android_demo;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+
+import com.google.android.filament.Engine;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * 离线批量渲染用的多引擎工作池：N 个互相独立的 {@link ModelRender}，各自拥有 Engine、SwapChain、渲染线程
+ * 和模型实例，帧准备（姿态、骨骼、提交）在 N 个核心上并行。
+ * <p>
+ * 一批姿态按时间戳排序后交错分配给各 worker（第 i 帧交给 i % N 号 worker），输出按时间戳顺序交给
+ * {@link FrameSink}。每个 worker 最多有 {@link #WORKER_WINDOW} 帧已提交但尚未交给 sink，
+ * 因此较慢的 worker 不会让等待重排的帧无限堆积。
+ */
+public final class ModelRenderPool {
+  private static final String TAG = "ModelRenderPool";
+
+  // 每个 worker 已提交但尚未交给 sink 的最大帧数
+  public static final int WORKER_WINDOW = ModelRender.MAX_PIPELINE_DEPTH;
+
+  /**
+   * 一帧输入姿态。blendshapeScores 按 MediaPipe 类别下标排列，faceTransformMatrix 为 4x4 列主序矩阵，均可为 null。
+   */
+  public static final class PoseFrame {
+    public final long timestampNanos;
+    @Nullable
+    public final float[] blendshapeScores;
+    @Nullable
+    public final float[] faceTransformMatrix;
+
+    public PoseFrame(long timestampNanos, @Nullable float[] blendshapeScores, @Nullable float[] faceTransformMatrix) {
+      this.timestampNanos = timestampNanos;
+      this.blendshapeScores = blendshapeScores;
+      this.faceTransformMatrix = faceTransformMatrix;
+    }
+  }
+
+  /**
+   * 按时间戳顺序接收输出帧，同一时刻只有一个线程调用。frame 来自该 worker 的回读池，用完后必须 release()。
+   */
+  public interface FrameSink {
+    void onFrame(@NonNull PoseFrame pose, @NonNull RenderedFrame frame);
+  }
+
+  public static final class WorkerStats {
+    public final int worker;
+    public final long frames;
+    // 批次开始到该 worker 最后一帧渲染完成（回读完成）的时间，不含等待按序输出的时间
+    public final long wallNanos;
+
+    WorkerStats(int worker, long frames, long wallNanos) {
+      this.worker = worker;
+      this.frames = frames;
+      this.wallNanos = wallNanos;
+    }
+
+    public double framesPerSecond() {
+      return wallNanos <= 0 ? 0.0 : frames * 1e9 / wallNanos;
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+      return "worker" + worker + "{frames=" + frames + ", fps=" + String.format(Locale.US, "%.1f", framesPerSecond()) + "}";
+    }
+  }
+
+  /**
+   * 一批的吞吐：每个 worker 的帧数与 fps，以及整体 fps。时间从 renderBatch 调用到最后一帧交给 sink。
+   */
+  public static final class BatchReport {
+    @NonNull
+    public final List<WorkerStats> workers;
+    public final long frames;
+    public final long wallNanos;
+
+    BatchReport(@NonNull List<WorkerStats> workers, long frames, long wallNanos) {
+      this.workers = workers;
+      this.frames = frames;
+      this.wallNanos = wallNanos;
+    }
+
+    public double framesPerSecond() {
+      return wallNanos <= 0 ? 0.0 : frames * 1e9 / wallNanos;
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+      return "ModelRenderPool.BatchReport{workers=" + workers.size() + ", frames=" + frames + ", wallMs=" + wallNanos / 1_000_000.0
+        + ", fps=" + String.format(Locale.US, "%.1f", framesPerSecond()) + ", perWorker=" + workers + "}";
+    }
+  }
+
+  private final ModelRender[] mWorkers;
+  private final Object mBatchLock = new Object();
+  private boolean mBatchRunning = false; // guarded by mBatchLock
+
+  public ModelRenderPool(int workerCount) {
+    this(workerCount, Engine.Backend.DEFAULT);
+  }
+
+  public ModelRenderPool(int workerCount, @NonNull Engine.Backend backend) {
+    if (workerCount < 1) {
+      throw new IllegalArgumentException("Worker count must be >= 1: " + workerCount);
+    }
+    mWorkers = new ModelRender[workerCount];
+    for (int i = 0; i < workerCount; i++) {
+      mWorkers[i] = new ModelRender();
+      mWorkers[i].setBackend(backend);
+      // Warm-up overlaps across workers anyway; batch rendering has no first-frame deadline.
+      mWorkers[i].setWarmUpMode(ModelRender.WarmUpMode.OFF);
+    }
+  }
+
+  public int getWorkerCount() {
+    return mWorkers.length;
+  }
+
+  @NonNull
+  public CompletableFuture<Void> init(@NonNull Context context) {
+    return init(context, ModelRender.MODEL_PATH);
+  }
+
+  /**
+   * 并行初始化所有 worker，每个 worker 加载自己的模型实例。modelPath 为 null 时为空场景。
+   */
+  @NonNull
+  CompletableFuture<Void> init(@NonNull Context context, @Nullable String modelPath) {
+    CompletableFuture<?>[] futures = new CompletableFuture<?>[mWorkers.length];
+    for (int i = 0; i < mWorkers.length; i++) {
+      futures[i] = mWorkers[i].init(context, modelPath);
+    }
+    return CompletableFuture.allOf(futures);
+  }
+
+  @VisibleForTesting
+  void setFrameReadback(@NonNull FrameReadback frameReadback) {
+    for (ModelRender worker : mWorkers) worker.setFrameReadback(frameReadback);
+  }
+
+  /**
+   * 渲染一批姿态，按时间戳顺序把输出交给 sink。同一时间只能有一批在进行。
+   * 任一帧失败（或 sink 抛出异常）时 future 以该异常结束，不再提交新帧，之后完成的帧直接还给回读池。
+   */
+  @NonNull
+  public CompletableFuture<BatchReport> renderBatch(@NonNull List<PoseFrame> poses, @NonNull FrameSink sink) {
+    synchronized (mBatchLock) {
+      if (mBatchRunning) {
+        CompletableFuture<BatchReport> busy = new CompletableFuture<>();
+        busy.completeExceptionally(new IllegalStateException("A batch is already running."));
+        return busy;
+      }
+      mBatchRunning = true;
+    }
+    List<PoseFrame> sorted = new ArrayList<>(poses);
+    Collections.sort(sorted, (a, b) -> Long.compare(a.timestampNanos, b.timestampNanos));
+    Batch batch = new Batch(sorted, sink);
+    batch.result.whenComplete((report, error) -> {
+      synchronized (mBatchLock) {
+        mBatchRunning = false;
+      }
+    });
+    batch.start();
+    return batch.result;
+  }
+
+  /**
+   * 释放所有 worker。
+   */
+  @NonNull
+  public CompletableFuture<Void> release() {
+    CompletableFuture<?>[] futures = new CompletableFuture<?>[mWorkers.length];
+    for (int i = 0; i < mWorkers.length; i++) {
+      futures[i] = mWorkers[i].release();
+    }
+    return CompletableFuture.allOf(futures);
+  }
+
+  /**
+   * 一批渲染的状态：交错分片、每个 worker 的提交窗口和按序输出的重排缓冲。
+   */
+  private final class Batch {
+    final List<PoseFrame> poses;
+    final FrameSink sink;
+    final CompletableFuture<BatchReport> result = new CompletableFuture<>();
+    final long startNanos = System.nanoTime();
+
+    final Object lock = new Object();
+    // 已渲染、等待按序输出的帧，键为排序后的下标
+    final Map<Integer, RenderedFrame> reorderBuffer = new HashMap<>(); // guarded by lock
+    final int[] nextIndex; // guarded by lock; next frame index each worker submits
+    final int[] window; // guarded by lock; frames submitted but not yet handed to the sink
+    final long[] rendered; // guarded by lock
+    final long[] lastRenderedNanos; // guarded by lock
+    int nextToEmit = 0; // guarded by lock
+    boolean draining = false; // guarded by lock
+    Throwable failure = null; // guarded by lock
+
+    Batch(@NonNull List<PoseFrame> poses, @NonNull FrameSink sink) {
+      this.poses = poses;
+      this.sink = sink;
+      int n = mWorkers.length;
+      nextIndex = new int[n];
+      window = new int[n];
+      rendered = new long[n];
+      lastRenderedNanos = new long[n];
+      for (int w = 0; w < n; w++) nextIndex[w] = w;
+    }
+
+    void start() {
+      if (poses.isEmpty()) {
+        result.complete(report());
+        return;
+      }
+      for (int w = 0; w < mWorkers.length; w++) submitMore(w);
+    }
+
+    private void submitMore(int worker) {
+      while (true) {
+        final int index;
+        synchronized (lock) {
+          if (failure != null || window[worker] >= WORKER_WINDOW || nextIndex[worker] >= poses.size()) return;
+          index = nextIndex[worker];
+          nextIndex[worker] += mWorkers.length;
+          window[worker]++;
+        }
+        PoseFrame pose = poses.get(index);
+        CompletableFuture<RenderedFrame> future;
+        try {
+          future = mWorkers[worker].renderPoseFrame(pose.blendshapeScores, pose.faceTransformMatrix);
+        } catch (Throwable t) {
+          fail(t);
+          return;
+        }
+        future.whenComplete((frame, error) -> onRendered(index, frame, error));
+      }
+    }
+
+    private void onRendered(int index, @Nullable RenderedFrame frame, @Nullable Throwable error) {
+      if (error != null) {
+        fail(error instanceof CompletionException && error.getCause() != null ? error.getCause() : error);
+        return;
+      }
+      final long renderedNanos = System.nanoTime();
+      final int worker = index % mWorkers.length;
+      synchronized (lock) {
+        if (failure != null) {
+          if (frame != null) frame.release();
+          return;
+        }
+        // Timed here rather than at emission, which the in-order drain paces to the slowest worker.
+        rendered[worker]++;
+        lastRenderedNanos[worker] = Math.max(lastRenderedNanos[worker], renderedNanos);
+        reorderBuffer.put(index, frame);
+      }
+      drain();
+    }
+
+    /**
+     * 按下标顺序把缓冲中连续的帧交给 sink。只有一个线程在输出，其他线程只放入缓冲。
+     */
+    private void drain() {
+      synchronized (lock) {
+        if (draining) return;
+        draining = true;
+      }
+      while (true) {
+        final int index;
+        final RenderedFrame frame;
+        synchronized (lock) {
+          frame = failure == null ? reorderBuffer.remove(nextToEmit) : null;
+          if (frame == null) {
+            draining = false;
+            break;
+          }
+          index = nextToEmit++;
+        }
+        int worker = index % mWorkers.length;
+        try {
+          sink.onFrame(poses.get(index), frame);
+        } catch (Throwable t) {
+          frame.release();
+          fail(t);
+          return;
+        }
+        synchronized (lock) {
+          window[worker]--;
+        }
+        submitMore(worker);
+      }
+      // A frame buffered after the check above starts its own drain, since draining was cleared under the same lock.
+      boolean done;
+      synchronized (lock) {
+        done = failure == null && nextToEmit == poses.size();
+      }
+      if (done) {
+        BatchReport report = report();
+        if (result.complete(report)) Log.i(TAG, report.toString());
+      }
+    }
+
+    private void fail(@NonNull Throwable t) {
+      List<RenderedFrame> buffered;
+      synchronized (lock) {
+        if (failure != null) return;
+        failure = t;
+        buffered = new ArrayList<>(reorderBuffer.values());
+        reorderBuffer.clear();
+      }
+      for (RenderedFrame frame : buffered) frame.release();
+      Log.e(TAG, "Batch failed after " + nextToEmitSnapshot() + " frames.", t);
+      result.completeExceptionally(t);
+    }
+
+    private int nextToEmitSnapshot() {
+      synchronized (lock) {
+        return nextToEmit;
+      }
+    }
+
+    @NonNull
+    private BatchReport report() {
+      long endNanos = System.nanoTime();
+      List<WorkerStats> workers = new ArrayList<>(mWorkers.length);
+      long total = 0;
+      synchronized (lock) {
+        for (int w = 0; w < mWorkers.length; w++) {
+          long workerEnd = rendered[w] > 0 ? lastRenderedNanos[w] : startNanos;
+          workers.add(new WorkerStats(w, rendered[w], workerEnd - startNanos));
+          total += rendered[w];
+        }
+      }
+      return new BatchReport(Collections.unmodifiableList(workers), total, endNanos - startNanos);
+    }
+  }
+}
@@ -0,0 +1,282 @@
+package com.example.filament_android_demo;
+
+import android.content.res.AssetManager;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * 模型加载时需要推导的元数据：有名称节点的初始局部变换、每个 morph 实体预先解析好的 (morph 名称, MediaPipe 类别)
+ * 绑定、包围盒，以及按 FilamentAsset.getEntities() 顺序排列的实体名称。加载时用它代替逐个实体调用
+ * getName/getMorphTargetNames/getTransform/getBoundingBox。
+ * <p>
+ * 有两个来源，格式相同：构建期预处理（buildSrc 中的 GlbPreprocessor）生成的 {@code <模型>.sidecar}，
+ * 以及运行时第一次加载后写入的磁盘缓存（{@link ModelMetadataCache}）。数据中记录了 glb JSON 块的 CRC32
+ * 和 blendshape 列表的哈希，与当前模型或 {@link MorphBindingTable#BLENDSHAPE_NAMES} 不一致时视为过期。
+ * <p>
+ * 格式（大端）：magic, version, JSON 块 CRC32, blendshape 列表哈希；节点数 + 每个 (名称, 16 个 float 列主序局部变换)；
+ * morph 实体数 + 每个 (节点名, morph 数, 每个 (名称, 类别))；包围盒数 + 每个 (名称, center xyz, halfExtent xyz)，
+ * 名称为空表示整个资产；实体名称数 + 每个名称（无名实体为空串）。实体顺序由 gltfio 决定，只有运行时写入的磁盘缓存
+ * 记录实体名称，构建期的 sidecar 写 0。字符串为 unsigned short 长度 + UTF-8 字节。
+ */
+final class ModelSidecar {
+  private static final String TAG = "ModelSidecar";
+  static final String SUFFIX = ".sidecar";
+
+  private static final int MAGIC = 0x46415343; // "FASC"
+  private static final int VERSION = 3;
+  private static final int GLB_MAGIC = 0x46546C67;
+  // 包围盒表中表示整个资产的名称
+  static final String ASSET_BOUNDS = "";
+
+  enum Origin {
+    BUILD,
+    DISK_CACHE
+  }
+
+  static final class MorphEntity {
+    @NonNull
+    final String nodeName;
+    @NonNull
+    final String[] morphNames;
+    // MediaPipe 类别下标，-1 表示没有对应的 blendshape
+    @NonNull
+    final int[] categories;
+
+    MorphEntity(@NonNull String nodeName, @NonNull String[] morphNames, @NonNull int[] categories) {
+      this.nodeName = nodeName;
+      this.morphNames = morphNames;
+      this.categories = categories;
+    }
+  }
+
+  @NonNull
+  private final Origin mOrigin;
+  private final Map<String, float[]> mInitialTransforms;
+  private final MorphEntity[] mMorphEntities;
+  private final Map<String, float[]> mBounds;
+  @Nullable
+  private final String[] mEntityNames;
+
+  private ModelSidecar(@NonNull Origin origin, @NonNull Map<String, float[]> initialTransforms,
+                       @NonNull MorphEntity[] morphEntities, @NonNull Map<String, float[]> bounds,
+                       @Nullable String[] entityNames) {
+    mOrigin = origin;
+    mInitialTransforms = initialTransforms;
+    mMorphEntities = morphEntities;
+    mBounds = bounds;
+    mEntityNames = entityNames;
+  }
+
+  /**
+   * 读取与 assetPath 一起打包的 sidecar。没有 sidecar、格式不对或与 contentKey 不符时返回 null。
+   */
+  @Nullable
+  static ModelSidecar readAsset(@NonNull AssetManager assetManager, @NonNull String assetPath, int contentKey) {
+    String sidecarPath = assetPath + SUFFIX;
+    ModelAssetReader.Result data;
+    try {
+      data = ModelAssetReader.read(assetManager, sidecarPath);
+    } catch (FileNotFoundException e) {
+      return null;
+    } catch (IOException e) {
+      Log.w(TAG, "Failed to read " + sidecarPath + ", ignoring it.", e);
+      return null;
+    }
+    return parse(data.buffer, contentKey, Origin.BUILD, sidecarPath);
+  }
+
+  /**
+   * 解析元数据并校验它属于 contentKey 对应的模型，不符合时返回 null。data 可以是内存映射的缓冲区，不会被修改。
+   */
+  @Nullable
+  static ModelSidecar parse(@NonNull ByteBuffer data, int contentKey, @NonNull Origin origin, @NonNull String description) {
+    ByteBuffer in = data.duplicate().order(ByteOrder.BIG_ENDIAN);
+    try {
+      if (in.getInt() != MAGIC || in.getInt() != VERSION) {
+        Log.w(TAG, "Unrecognized metadata format in " + description + ", ignoring it.");
+        return null;
+      }
+      if (in.getInt() != contentKey) {
+        Log.w(TAG, description + " does not match the model, ignoring it.");
+        return null;
+      }
+      if (in.getInt() != blendshapeListHash()) {
+        Log.w(TAG, description + " was built with a different blendshape list, ignoring it.");
+        return null;
+      }
+
+      int nodeCount = in.getInt();
+      Map<String, float[]> transforms = new HashMap<>(nodeCount * 2);
+      for (int i = 0; i < nodeCount; i++) {
+        String name = readString(in);
+        transforms.put(name, readFloats(in, 16));
+      }
+      int morphEntityCount = in.getInt();
+      MorphEntity[] morphEntities = new MorphEntity[morphEntityCount];
+      for (int i = 0; i < morphEntityCount; i++) {
+        String nodeName = readString(in);
+        int morphCount = in.getInt();
+        String[] names = new String[morphCount];
+        int[] categories = new int[morphCount];
+        for (int t = 0; t < morphCount; t++) {
+          names[t] = readString(in);
+          categories[t] = in.getInt();
+        }
+        morphEntities[i] = new MorphEntity(nodeName, names, categories);
+      }
+      int boundsCount = in.getInt();
+      Map<String, float[]> bounds = new HashMap<>(boundsCount * 2);
+      for (int i = 0; i < boundsCount; i++) {
+        String name = readString(in);
+        bounds.put(name, readFloats(in, 6));
+      }
+      int entityNameCount = in.getInt();
+      String[] entityNames = entityNameCount > 0 ? new String[entityNameCount] : null;
+      for (int i = 0; i < entityNameCount; i++) {
+        entityNames[i] = readString(in);
+      }
+      Log.i(TAG, "Using " + description + ": " + nodeCount + " transforms, " + morphEntityCount + " morph entities, "
+        + boundsCount + " bounds, " + entityNameCount + " entity names.");
+      return new ModelSidecar(origin, Collections.unmodifiableMap(transforms), morphEntities, Collections.unmodifiableMap(bounds),
+        entityNames);
+    } catch (BufferUnderflowException | IllegalArgumentException | NegativeArraySizeException e) {
+      Log.w(TAG, "Truncated or corrupt metadata in " + description + ", ignoring it.", e);
+      return null;
+    }
+  }
+
+  /**
+   * 按 {@link #parse} 的格式编码。transforms/bounds 的键为节点名称，bounds 中 {@link #ASSET_BOUNDS} 表示整个资产。
+   * entityNames 按 getEntities() 顺序排列（null 元素表示无名实体），为 null 时不记录。
+   */
+  @NonNull
+  static byte[] encode(int contentKey, @NonNull Map<String, float[]> transforms, @NonNull MorphEntity[] morphEntities,
+                       @NonNull Map<String, float[]> bounds, @Nullable String[] entityNames) {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream(4096);
+    try (DataOutputStream out = new DataOutputStream(bytes)) {
+      out.writeInt(MAGIC);
+      out.writeInt(VERSION);
+      out.writeInt(contentKey);
+      out.writeInt(blendshapeListHash());
+      out.writeInt(transforms.size());
+      for (Map.Entry<String, float[]> e : transforms.entrySet()) {
+        writeString(out, e.getKey());
+        for (float v : e.getValue()) out.writeFloat(v);
+      }
+      out.writeInt(morphEntities.length);
+      for (MorphEntity entity : morphEntities) {
+        writeString(out, entity.nodeName);
+        out.writeInt(entity.morphNames.length);
+        for (int t = 0; t < entity.morphNames.length; t++) {
+          writeString(out, entity.morphNames[t]);
+          out.writeInt(entity.categories[t]);
+        }
+      }
+      out.writeInt(bounds.size());
+      for (Map.Entry<String, float[]> e : bounds.entrySet()) {
+        writeString(out, e.getKey());
+        for (float v : e.getValue()) out.writeFloat(v);
+      }
+      out.writeInt(entityNames != null ? entityNames.length : 0);
+      if (entityNames != null) {
+        for (String name : entityNames) writeString(out, name != null ? name : "");
+      }
+    } catch (IOException e) {
+      throw new IllegalStateException("ByteArrayOutputStream does not throw", e);
+    }
+    return bytes.toByteArray();
+  }
+
+  @NonNull
+  Origin getOrigin() {
+    return mOrigin;
+  }
+
+  /**
+   * 节点名称 → 初始局部变换（列主序）。不要修改其中的数组。
+   */
+  @NonNull
+  Map<String, float[]> getInitialTransforms() {
+    return mInitialTransforms;
+  }
+
+  @NonNull
+  MorphEntity[] getMorphEntities() {
+    return mMorphEntities;
+  }
+
+  /**
+   * 名称对应的包围盒 {cx, cy, cz, hx, hy, hz}，没有记录时返回 null。不要修改返回的数组。
+   */
+  @Nullable
+  float[] getBounds(@NonNull String name) {
+    return mBounds.get(name);
+  }
+
+  /**
+   * 按 FilamentAsset.getEntities() 顺序排列的实体名称（无名实体为空串），没有记录时返回 null。不要修改返回的数组。
+   */
+  @Nullable
+  String[] getEntityNames() {
+    return mEntityNames;
+  }
+
+  static int blendshapeListHash() {
+    return String.join(",", MorphBindingTable.BLENDSHAPE_NAMES).hashCode();
+  }
+
+  /**
+   * 模型内容的键：glb JSON 块的 CRC32。节点、变换、morph 名称和包围盒（accessor min/max）都来自 JSON，
+   * 不需要对整个 BIN 计算哈希。不是 glb 时返回 0。
+   */
+  static int contentKey(@NonNull ByteBuffer glb) {
+    ByteBuffer view = glb.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+    int base = view.position();
+    if (view.remaining() < 20 || view.getInt(base) != GLB_MAGIC) return 0;
+    int jsonLength = view.getInt(base + 12);
+    if (jsonLength < 0 || jsonLength > view.remaining() - 20) return 0;
+    view.position(base + 20);
+    view.limit(base + 20 + jsonLength);
+    CRC32 crc = new CRC32();
+    crc.update(view);
+    return (int) crc.getValue();
+  }
+
+  @NonNull
+  private static String readString(@NonNull ByteBuffer in) {
+    int length = in.getShort() & 0xFFFF;
+    if (length > in.remaining()) throw new BufferUnderflowException();
+    byte[] bytes = new byte[length];
+    in.get(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  @NonNull
+  private static float[] readFloats(@NonNull ByteBuffer in, int count) {
+    float[] values = new float[count];
+    for (int i = 0; i < count; i++) values[i] = in.getFloat();
+    return values;
+  }
+
+  private static void writeString(@NonNull DataOutputStream out, @NonNull String s) throws IOException {
+    byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+    if (bytes.length > 0xFFFF) throw new IllegalArgumentException("Name too long: " + s.length());
+    out.writeShort(bytes.length);
+    out.write(bytes);
+  }
+}
@@ -0,0 +1,208 @@
+package com.example.filament_android_demo;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import com.google.android.filament.RenderableManager;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * MediaPipe blendshape → morph target 的预编译绑定表。
+ * <p>
+ * 模型加载时编译一次：把 MediaPipe blendshape 类别下标直接映射到 (renderable instance, morph 下标)，
+ * 全部存放在扁平 int 数组中，每个实体的权重数组也预先分配。每帧 {@link #apply} 只做数组读写和
+ * setMorphWeights 调用，不分配对象、不做字符串查找。只在渲染线程使用。
+ */
+final class MorphBindingTable {
+  private static final String TAG = "MorphBindingTable";
+
+  /**
+   * MediaPipe FaceLandmarker 输出的 52 个 blendshape，按类别下标排列。
+   */
+  static final String[] BLENDSHAPE_NAMES = {
+    "_neutral",
+    "browDownLeft", "browDownRight", "browInnerUp", "browOuterUpLeft", "browOuterUpRight",
+    "cheekPuff", "cheekSquintLeft", "cheekSquintRight",
+    "eyeBlinkLeft", "eyeBlinkRight",
+    "eyeLookDownLeft", "eyeLookDownRight", "eyeLookInLeft", "eyeLookInRight",
+    "eyeLookOutLeft", "eyeLookOutRight", "eyeLookUpLeft", "eyeLookUpRight",
+    "eyeSquintLeft", "eyeSquintRight", "eyeWideLeft", "eyeWideRight",
+    "jawForward", "jawLeft", "jawOpen", "jawRight",
+    "mouthClose", "mouthDimpleLeft", "mouthDimpleRight", "mouthFrownLeft", "mouthFrownRight",
+    "mouthFunnel", "mouthLeft", "mouthLowerDownLeft", "mouthLowerDownRight",
+    "mouthPressLeft", "mouthPressRight", "mouthPucker", "mouthRight",
+    "mouthRollLower", "mouthRollUpper", "mouthShrugLower", "mouthShrugUpper",
+    "mouthSmileLeft", "mouthSmileRight", "mouthStretchLeft", "mouthStretchRight",
+    "mouthUpperUpLeft", "mouthUpperUpRight", "noseSneerLeft", "noseSneerRight"
+  };
+  static final int BLENDSHAPE_COUNT = BLENDSHAPE_NAMES.length;
+
+  private static final Map<String, Integer> BLENDSHAPE_INDEX = new HashMap<>();
+
+  static {
+    for (int i = 0; i < BLENDSHAPE_NAMES.length; i++) {
+      BLENDSHAPE_INDEX.put(BLENDSHAPE_NAMES[i], i);
+    }
+  }
+
+  static final MorphBindingTable EMPTY = new MorphBindingTable(new int[0], new int[0], new float[0][], new int[0], new int[0], new int[0]);
+
+  /**
+   * 返回 MediaPipe 类别下标，不是 MediaPipe blendshape 名称时返回 -1。
+   */
+  static int blendshapeIndexOf(@NonNull String name) {
+    Integer index = BLENDSHAPE_INDEX.get(name);
+    return index != null ? index : -1;
+  }
+
+  // 每个绑定实体一项
+  private final int[] mEntityIds;
+  private final int[] mRenderableInstances;
+  private final float[][] mWeights;
+  // 上一次上传给 Filament 的权重，用于只上传有变化的实体
+  private final float[][] mUploadedWeights;
+  private final boolean[] mNeverUploaded;
+  // 每个 (blendshape, 实体, morph 下标) 绑定一项
+  private final int[] mBindingCategory;
+  private final int[] mBindingEntitySlot;
+  private final int[] mBindingMorphIndex;
+
+  private MorphBindingTable(int[] entityIds, int[] renderableInstances, float[][] weights,
+                            int[] bindingCategory, int[] bindingEntitySlot, int[] bindingMorphIndex) {
+    mEntityIds = entityIds;
+    mRenderableInstances = renderableInstances;
+    mWeights = weights;
+    mUploadedWeights = new float[weights.length][];
+    mNeverUploaded = new boolean[weights.length];
+    for (int slot = 0; slot < weights.length; slot++) {
+      mUploadedWeights[slot] = new float[weights[slot].length];
+      mNeverUploaded[slot] = true;
+    }
+    mBindingCategory = bindingCategory;
+    mBindingEntitySlot = bindingEntitySlot;
+    mBindingMorphIndex = bindingMorphIndex;
+  }
+
+  boolean isEmpty() {
+    return mEntityIds.length == 0;
+  }
+
+  int getEntityCount() {
+    return mEntityIds.length;
+  }
+
+  int getBindingCount() {
+    return mBindingCategory.length;
+  }
+
+  /**
+   * 把一帧的 blendshape 分数写入各实体的权重数组，只上传有变化的实体。scores 按 MediaPipe 类别下标索引，
+   * 缺失的类别按 0 处理；模型中未绑定的 morph target 始终为 0。
+   * <p>
+   * 某个实体只要有一个权重与上次上传的值相差超过 epsilon 就整体上传；epsilon 为 0 时任何变化都会上传。
+   * 每个实体第一次总是上传。返回本次实际调用 setMorphWeights 的实体数。
+   */
+  int apply(@NonNull RenderableManager rm, @NonNull float[] scores, float epsilon) {
+    for (int b = 0; b < mBindingCategory.length; b++) {
+      int category = mBindingCategory[b];
+      mWeights[mBindingEntitySlot[b]][mBindingMorphIndex[b]] = category < scores.length ? scores[category] : 0.0f;
+    }
+    int uploads = 0;
+    for (int slot = 0; slot < mRenderableInstances.length; slot++) {
+      float[] weights = mWeights[slot];
+      float[] uploaded = mUploadedWeights[slot];
+      if (!mNeverUploaded[slot] && !exceedsEpsilon(weights, uploaded, epsilon)) continue;
+      rm.setMorphWeights(mRenderableInstances[slot], weights, 0);
+      System.arraycopy(weights, 0, uploaded, 0, weights.length);
+      mNeverUploaded[slot] = false;
+      uploads++;
+    }
+    return uploads;
+  }
+
+  private static boolean exceedsEpsilon(@NonNull float[] weights, @NonNull float[] uploaded, float epsilon) {
+    for (int i = 0; i < weights.length; i++) {
+      if (Math.abs(weights[i] - uploaded[i]) > epsilon) return true;
+    }
+    return false;
+  }
+
+  /**
+   * 在 prepareMorphTargetInfoInternal 中逐个登记 morph target，最后 build() 得到绑定表。
+   */
+  static final class Builder {
+    private final List<int[]> mEntities = new ArrayList<>(); // {entityId, renderableInstance, morphCount}
+    private final Map<Integer, Integer> mEntitySlots = new HashMap<>();
+    private final List<int[]> mBindings = new ArrayList<>(); // {category, entitySlot, morphIndex}
+    private final Map<String, Boolean> mUnmatchedNames = new HashMap<>();
+
+    void addMorphTarget(@NonNull String morphName, int entityId, int renderableInstance, int morphIndex, int morphCount) {
+      addMorphTarget(morphName, blendshapeIndexOf(morphName), entityId, renderableInstance, morphIndex, morphCount);
+    }
+
+    /**
+     * category 已预先解析（例如来自 ModelSidecar），-1 表示没有对应的 blendshape。
+     */
+    void addMorphTarget(@NonNull String morphName, int category, int entityId, int renderableInstance, int morphIndex, int morphCount) {
+      Integer slot = mEntitySlots.get(entityId);
+      if (slot == null) {
+        slot = mEntities.size();
+        mEntities.add(new int[]{entityId, renderableInstance, morphCount});
+        mEntitySlots.put(entityId, slot);
+      }
+      if (category < 0 || category >= BLENDSHAPE_COUNT) {
+        mUnmatchedNames.put(morphName, Boolean.TRUE);
+        return;
+      }
+      if (morphIndex >= morphCount) {
+        Log.e(TAG, "Morph index " + morphIndex + " for '" + morphName + "' out of bounds for entity " + entityId + " (count " + morphCount + ").");
+        return;
+      }
+      mBindings.add(new int[]{category, slot, morphIndex});
+    }
+
+    @NonNull
+    MorphBindingTable build() {
+      // Entities whose morph targets match no blendshape still get uploaded (all zeros), as before.
+      int entityCount = mEntities.size();
+      int[] entityIds = new int[entityCount];
+      int[] instances = new int[entityCount];
+      float[][] weights = new float[entityCount][];
+      for (int i = 0; i < entityCount; i++) {
+        int[] entity = mEntities.get(i);
+        entityIds[i] = entity[0];
+        instances[i] = entity[1];
+        weights[i] = new float[entity[2]];
+      }
+      int bindingCount = mBindings.size();
+      int[] categories = new int[bindingCount];
+      int[] slots = new int[bindingCount];
+      int[] morphIndices = new int[bindingCount];
+      for (int b = 0; b < bindingCount; b++) {
+        int[] binding = mBindings.get(b);
+        categories[b] = binding[0];
+        slots[b] = binding[1];
+        morphIndices[b] = binding[2];
+      }
+      boolean[] bound = new boolean[BLENDSHAPE_COUNT];
+      for (int category : categories) bound[category] = true;
+      List<String> unboundBlendshapes = new ArrayList<>();
+      for (int i = 1; i < BLENDSHAPE_COUNT; i++) { // _neutral is not expected in models
+        if (!bound[i]) unboundBlendshapes.add(BLENDSHAPE_NAMES[i]);
+      }
+      if (!unboundBlendshapes.isEmpty()) {
+        Log.w(TAG, "MediaPipe blendshapes not found in the current model: " + unboundBlendshapes);
+      }
+      if (!mUnmatchedNames.isEmpty()) {
+        Log.w(TAG, "Morph targets without a MediaPipe blendshape (always 0): " + mUnmatchedNames.keySet());
+      }
+      Log.i(TAG, "Compiled " + bindingCount + " blendshape bindings across " + entityCount + " entities.");
+      return new MorphBindingTable(entityIds, instances, weights, categories, slots, morphIndices);
+    }
+  }
+}
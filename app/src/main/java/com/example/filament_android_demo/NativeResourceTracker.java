@@ -0,0 +1,348 @@
+package com.example.filament_android_demo;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.lang.ref.PhantomReference;
+import java.lang.ref.ReferenceQueue;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
+
+/**
+ * 进程级的 native 资源登记表：记录每个存活的 native 对象（Engine、SwapChain、FilamentAsset 等）的类型和估算字节数，
+ * 可以在运行时按类型查询数量和字节数，长时间运行时据此确认没有累积泄漏。
+ * <p>
+ * 资源按所有者分组为 {@link Scope}。{@link #register} 提供与 java.lang.ref.Cleaner 相同的语义（Cleaner 需要 API 33）：
+ * 所有者变得不可达后，在 "NativeResourceCleaner" 守护线程上执行一次清理动作；显式调用 {@link Cleanable#clean()} 时立即执行并注销。
+ * 与 finalize() 不同，所有者本身不会被推迟回收。
+ */
+public final class NativeResourceTracker {
+  private static final String TAG = "NativeResourceTracker";
+
+  private static final NativeResourceTracker INSTANCE = new NativeResourceTracker();
+
+  /**
+   * 一类资源的存活数量和估算字节数。
+   */
+  public static final class TypeStats {
+    public final int count;
+    public final long estimatedBytes;
+
+    TypeStats(int count, long estimatedBytes) {
+      this.count = count;
+      this.estimatedBytes = estimatedBytes;
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+      return count + " (" + estimatedBytes / 1024 + " KB)";
+    }
+  }
+
+  /**
+   * 登记表快照。byType 按类型名排序；tracked/released 为累计登记和注销的次数，两者之差就是 liveCount。
+   */
+  public static final class Snapshot {
+    @NonNull
+    public final Map<String, TypeStats> byType;
+    public final int liveCount;
+    public final long estimatedBytes;
+    public final long tracked;
+    public final long released;
+
+    Snapshot(@NonNull Map<String, TypeStats> byType, int liveCount, long estimatedBytes, long tracked, long released) {
+      this.byType = byType;
+      this.liveCount = liveCount;
+      this.estimatedBytes = estimatedBytes;
+      this.tracked = tracked;
+      this.released = released;
+    }
+
+    public int count(@NonNull String type) {
+      TypeStats stats = byType.get(type);
+      return stats == null ? 0 : stats.count;
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+      return "NativeResources{live=" + liveCount + ", estimatedKb=" + estimatedBytes / 1024 + ", tracked=" + tracked
+        + ", released=" + released + ", byType=" + byType + "}";
+    }
+  }
+
+  /**
+   * 一个所有者登记的资源。同一对象只登记一次；释放顺序为登记的逆序，与创建依赖（Engine 最先创建）一致。
+   */
+  public final class Scope {
+    @NonNull
+    private final String mName;
+    // Lookup by identity; mOrder keeps the registration order. Both guarded by NativeResourceTracker.this
+    private final Map<Object, Entry> mEntries = new IdentityHashMap<>();
+    private final List<Entry> mOrder = new ArrayList<>(); // guarded by NativeResourceTracker.this
+    private long mScopeTracked = 0; // guarded by NativeResourceTracker.this
+    private long mScopeReleased = 0; // guarded by NativeResourceTracker.this
+
+    Scope(@NonNull String name) {
+      mName = name;
+    }
+
+    /**
+     * 登记一个 native 对象。leakRelease 只在所有者未正常释放、由清理动作兜底时调用，不能引用所有者本身。
+     */
+    public void track(@NonNull String type, @NonNull Object resource, long estimatedBytes, @Nullable Runnable leakRelease) {
+      synchronized (NativeResourceTracker.this) {
+        if (mEntries.containsKey(resource)) return;
+        Entry entry = new Entry(type, resource, Math.max(0, estimatedBytes), leakRelease);
+        mEntries.put(resource, entry);
+        mOrder.add(entry);
+        mScopeTracked++;
+        mTracked++;
+      }
+    }
+
+    /**
+     * 对象已被销毁。未登记的对象（或 null）直接忽略。
+     */
+    public void untrack(@Nullable Object resource) {
+      if (resource == null) return;
+      synchronized (NativeResourceTracker.this) {
+        Entry entry = mEntries.remove(resource);
+        if (entry == null) return;
+        mOrder.remove(entry);
+        mScopeReleased++;
+        mReleased++;
+      }
+    }
+
+    public int liveCount() {
+      synchronized (NativeResourceTracker.this) {
+        return mEntries.size();
+      }
+    }
+
+    @NonNull
+    public Snapshot snapshot() {
+      synchronized (NativeResourceTracker.this) {
+        return snapshotOf(Collections.singletonList(this), mScopeTracked, mScopeReleased);
+      }
+    }
+
+    /**
+     * 按登记的逆序对所有存活对象调用 leakRelease 并注销它们。用于所有者没有调用 release() 就被回收的情况。
+     */
+    void releaseLeaked() {
+      List<Entry> leaked;
+      List<Runnable> releases = new ArrayList<>();
+      synchronized (NativeResourceTracker.this) {
+        leaked = new ArrayList<>(mOrder);
+        for (Entry entry : leaked) releases.add(entry.leakRelease);
+        mOrder.clear();
+        mEntries.clear();
+        mScopeReleased += leaked.size();
+        mReleased += leaked.size();
+        mScopes.remove(this);
+      }
+      for (int i = leaked.size() - 1; i >= 0; i--) {
+        Runnable release = releases.get(i);
+        if (release == null) continue;
+        try {
+          release.run();
+        } catch (Throwable t) {
+          Log.e(TAG, "Releasing leaked " + leaked.get(i).type + " of " + mName + " failed.", t);
+        }
+      }
+    }
+
+    /**
+     * 保留存活对象的登记（仍计入快照），但不再兜底释放它们。用于所有者已销毁了这些对象依赖的上级对象、句柄已失效的情况。
+     */
+    void disarm() {
+      synchronized (NativeResourceTracker.this) {
+        for (Entry entry : mOrder) entry.leakRelease = null;
+      }
+    }
+
+    @NonNull
+    public String getName() {
+      return mName;
+    }
+  }
+
+  /**
+   * {@link #register} 的返回值。
+   */
+  public interface Cleanable {
+    /**
+     * 立即执行清理动作并注销；之后所有者被回收时不再执行。多次调用只执行一次。
+     */
+    void clean();
+  }
+
+  private static final class Entry {
+    final String type;
+    final Object resource;
+    final long estimatedBytes;
+    @Nullable
+    Runnable leakRelease; // guarded by NativeResourceTracker.this
+
+    Entry(String type, Object resource, long estimatedBytes, @Nullable Runnable leakRelease) {
+      this.type = type;
+      this.resource = resource;
+      this.estimatedBytes = estimatedBytes;
+      this.leakRelease = leakRelease;
+    }
+  }
+
+  private final class PhantomCleanable extends PhantomReference<Object> implements Cleanable {
+    private Runnable mAction; // guarded by NativeResourceTracker.this; null once cleaned
+
+    PhantomCleanable(@NonNull Object owner, @NonNull Runnable action) {
+      super(owner, mQueue);
+      mAction = action;
+    }
+
+    @Override
+    public void clean() {
+      Runnable action;
+      synchronized (NativeResourceTracker.this) {
+        action = mAction;
+        mAction = null;
+        mCleanables.remove(this);
+      }
+      if (action == null) return;
+      try {
+        action.run();
+      } catch (Throwable t) {
+        Log.e(TAG, "Cleanup action threw.", t);
+      }
+    }
+  }
+
+  private final ReferenceQueue<Object> mQueue = new ReferenceQueue<>();
+  // Keeps registered cleanables reachable until they run; guarded by this
+  private final Set<PhantomCleanable> mCleanables = Collections.newSetFromMap(new IdentityHashMap<>());
+  private final List<Scope> mScopes = new ArrayList<>(); // guarded by this
+  private long mTracked = 0; // guarded by this
+  private long mReleased = 0; // guarded by this
+  private Thread mCleanerThread = null; // guarded by this
+
+  private NativeResourceTracker() {
+  }
+
+  @NonNull
+  public static NativeResourceTracker getInstance() {
+    return INSTANCE;
+  }
+
+  /**
+   * 新建一个资源分组。分组在 {@link #retire} 之前一直计入全局快照。
+   */
+  @NonNull
+  public synchronized Scope newScope(@NonNull String name) {
+    Scope scope = new Scope(name);
+    mScopes.add(scope);
+    return scope;
+  }
+
+  /**
+   * owner 变得不可达后在清理线程上执行 action。action 不能引用 owner，否则 owner 永远不会不可达。
+   */
+  @NonNull
+  public synchronized Cleanable register(@NonNull Object owner, @NonNull Runnable action) {
+    PhantomCleanable cleanable = new PhantomCleanable(owner, action);
+    mCleanables.add(cleanable);
+    if (mCleanerThread == null) {
+      mCleanerThread = new Thread(this::runCleaner, "NativeResourceCleaner");
+      mCleanerThread.setDaemon(true);
+      mCleanerThread.start();
+    }
+    return cleanable;
+  }
+
+  /**
+   * 所有者已正常释放：分组不再计入全局快照。仍有存活对象时保留分组，让泄漏继续可见。
+   */
+  public synchronized void retire(@NonNull Scope scope) {
+    if (scope.mEntries.isEmpty()) mScopes.remove(scope);
+  }
+
+  @NonNull
+  public synchronized Snapshot snapshot() {
+    return snapshotOf(mScopes, mTracked, mReleased);
+  }
+
+  /**
+   * 返回一个清理动作：分组中仍有存活对象时记录泄漏，并在 executor 上（executor 为 null 或拒绝时在当前线程上）释放它们。
+   */
+  @NonNull
+  Runnable leakCleanupOf(@NonNull Scope scope, @NonNull Supplier<Executor> executorSource) {
+    return () -> {
+      if (scope.liveCount() == 0) {
+        retire(scope);
+        return;
+      }
+      Log.e(TAG, scope.getName() + " was garbage collected without release(), leaked: " + scope.snapshot());
+      Executor executor = executorSource.get();
+      Runnable release = scope::releaseLeaked;
+      if (executor != null) {
+        try {
+          executor.execute(release);
+          return;
+        } catch (RuntimeException e) {
+          Log.w(TAG, "Executor rejected the leak cleanup, releasing on the cleaner thread.", e);
+        }
+      }
+      release.run();
+    };
+  }
+
+  @NonNull
+  private static Snapshot snapshotOf(@NonNull List<Scope> scopes, long tracked, long released) {
+    Map<String, int[]> counts = new TreeMap<>();
+    Map<String, long[]> bytes = new TreeMap<>();
+    int live = 0;
+    long totalBytes = 0;
+    for (Scope scope : scopes) {
+      for (Entry entry : scope.mOrder) {
+        int[] count = counts.get(entry.type);
+        if (count == null) {
+          counts.put(entry.type, count = new int[1]);
+          bytes.put(entry.type, new long[1]);
+        }
+        count[0]++;
+        bytes.get(entry.type)[0] += entry.estimatedBytes;
+        live++;
+        totalBytes += entry.estimatedBytes;
+      }
+    }
+    Map<String, TypeStats> byType = new LinkedHashMap<>();
+    for (Map.Entry<String, int[]> e : counts.entrySet()) {
+      byType.put(e.getKey(), new TypeStats(e.getValue()[0], bytes.get(e.getKey())[0]));
+    }
+    return new Snapshot(Collections.unmodifiableMap(byType), live, totalBytes, tracked, released);
+  }
+
+  private void runCleaner() {
+    while (true) {
+      try {
+        ((PhantomCleanable) mQueue.remove()).clean();
+      } catch (InterruptedException e) {
+        // Daemon thread; keep serving the queue.
+      } catch (Throwable t) {
+        Log.e(TAG, "Cleaner thread error.", t);
+      }
+    }
+  }
+}
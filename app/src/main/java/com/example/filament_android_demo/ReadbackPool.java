@@ -0,0 +1,151 @@
+package com.example.filament_android_demo;
+
+import android.graphics.Bitmap;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayDeque;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * ModelRender 专用的回读缓冲池：固定容量的 direct ByteBuffer + 可复用 Bitmap 组成的环。
+ * <p>
+ * 渲染线程通过 {@link #acquire()} 取出一个槽位用于 readPixels，调用方通过
+ * {@link RenderedFrame#release()} 归还。池内槽位耗尽时会临时分配一个池外槽位（计为 miss），
+ * 该槽位归还后直接丢弃，因此常驻内存上界为 capacity 个槽位。
+ */
+public final class ReadbackPool {
+  private static final String TAG = "ReadbackPool";
+
+  /**
+   * 单个回读槽位：一块 RGBA 像素缓冲以及与之同尺寸的 Bitmap。
+   */
+  static final class Slot {
+    final ByteBuffer buffer;
+    final Bitmap bitmap;
+    final boolean pooled;
+
+    Slot(int width, int height, boolean pooled) {
+      this.buffer = ByteBuffer.allocateDirect(width * height * 4).order(ByteOrder.nativeOrder());
+      this.bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+      this.pooled = pooled;
+    }
+  }
+
+  /**
+   * 池计数器快照。
+   */
+  public static final class Stats {
+    public final long hits;
+    public final long misses;
+    public final int outstanding;
+    public final int pooledSlots;
+    public final int capacity;
+
+    Stats(long hits, long misses, int outstanding, int pooledSlots, int capacity) {
+      this.hits = hits;
+      this.misses = misses;
+      this.outstanding = outstanding;
+      this.pooledSlots = pooledSlots;
+      this.capacity = capacity;
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+      return "ReadbackPool.Stats{hits=" + hits + ", misses=" + misses + ", outstanding=" + outstanding
+        + ", pooledSlots=" + pooledSlots + "/" + capacity + "}";
+    }
+  }
+
+  private final int mWidth;
+  private final int mHeight;
+  private final int mCapacity;
+
+  // guarded by this
+  private final ArrayDeque<Slot> mFreeSlots = new ArrayDeque<>();
+  private int mPooledSlots = 0;
+
+  private final AtomicLong mHits = new AtomicLong();
+  private final AtomicLong mMisses = new AtomicLong();
+  private final AtomicInteger mOutstanding = new AtomicInteger();
+
+  ReadbackPool(int width, int height, int capacity) {
+    if (capacity <= 0) throw new IllegalArgumentException("capacity must be positive: " + capacity);
+    mWidth = width;
+    mHeight = height;
+    mCapacity = capacity;
+  }
+
+  int getWidth() {
+    return mWidth;
+  }
+
+  int getHeight() {
+    return mHeight;
+  }
+
+  /**
+   * 取出一个槽位。优先复用空闲槽位（hit），否则在容量内新建池内槽位，超出容量则新建池外槽位（均计为 miss）。
+   */
+  @NonNull
+  Slot acquire() {
+    Slot slot;
+    boolean allocatePooled = false;
+    synchronized (this) {
+      slot = mFreeSlots.pollFirst();
+      if (slot == null && mPooledSlots < mCapacity) {
+        mPooledSlots++;
+        allocatePooled = true;
+      }
+    }
+    mOutstanding.incrementAndGet();
+    if (slot != null) {
+      mHits.incrementAndGet();
+      return slot;
+    }
+    mMisses.incrementAndGet();
+    if (!allocatePooled) {
+      Log.w(TAG, "acquire: All " + mCapacity + " pooled slots are outstanding. Allocating a transient slot.");
+    }
+    return new Slot(mWidth, mHeight, allocatePooled);
+  }
+
+  /**
+   * 归还槽位。池内槽位回到空闲队列，池外槽位直接丢弃。
+   */
+  void release(@NonNull Slot slot) {
+    mOutstanding.decrementAndGet();
+    if (slot.pooled) {
+      synchronized (this) {
+        mFreeSlots.addLast(slot);
+      }
+    } else {
+      slot.bitmap.recycle();
+    }
+  }
+
+  /**
+   * 丢弃所有空闲槽位。仍在外部持有的槽位归还时按池内槽位处理，会重新进入空闲队列。
+   */
+  void clear() {
+    synchronized (this) {
+      for (Slot slot : mFreeSlots) {
+        slot.bitmap.recycle();
+      }
+      mPooledSlots -= mFreeSlots.size();
+      mFreeSlots.clear();
+    }
+  }
+
+  @NonNull
+  public Stats getStats() {
+    synchronized (this) {
+      return new Stats(mHits.get(), mMisses.get(), mOutstanding.get(), mPooledSlots, mCapacity);
+    }
+  }
+}
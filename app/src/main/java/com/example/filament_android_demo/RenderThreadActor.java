@@ -0,0 +1,343 @@
+package com.example.filament_android_demo;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 渲染线程 actor：单线程执行命令，命令按优先级分类排队，高优先级的类总是先执行，同一类内按提交顺序执行。
+ * 优先级从高到低为 LIFECYCLE（初始化/释放）、ASSET（模型加载/切换）、POSE（姿态更新）、RENDER（渲染帧）、
+ * IDLE（其他队列都空时才执行的内部维护命令），因此大量渲染请求不会推迟 release() 或模型切换。
+ * <p>
+ * 除 LIFECYCLE 外每类队列都有上限。ASSET 满时拒绝新命令（抛出 RejectedExecutionException）；POSE/RENDER 满时
+ * 丢弃该类中最老的命令（shed）。IDLE 只容纳一条命令，提交时必须带合并键，不占用也不挤掉 RENDER 的名额。
+ * 命令可以带合并键，队列中已有同键命令时由新命令取代。
+ * 被丢弃或取代的命令不会执行，改为调用提交时给出的 onDropped。
+ * <p>
+ * 作为 ExecutorService 使用时（execute/submit）命令归入 ASSET 类。
+ */
+public final class RenderThreadActor extends AbstractExecutorService {
+  private static final String TAG = "RenderThreadActor";
+
+  public enum Priority {
+    LIFECYCLE(false),
+    ASSET(false),
+    POSE(true),
+    RENDER(true),
+    IDLE(false);
+
+    // 队列满时丢弃最老的命令；否则拒绝新命令
+    final boolean sheddable;
+
+    Priority(boolean sheddable) {
+      this.sheddable = sheddable;
+    }
+  }
+
+  /**
+   * 一类命令的计数器。排队时间为提交（或被合并更新）到开始执行的时间。
+   */
+  public static final class ClassStats {
+    public final long submitted;
+    public final long executed;
+    public final long coalesced;
+    public final long shed;
+    public final long rejected;
+    public final int queueDepth;
+    public final int maxQueueDepth;
+    public final long totalQueueNanos;
+    public final long maxQueueNanos;
+
+    ClassStats(long submitted, long executed, long coalesced, long shed, long rejected, int queueDepth, int maxQueueDepth,
+               long totalQueueNanos, long maxQueueNanos) {
+      this.submitted = submitted;
+      this.executed = executed;
+      this.coalesced = coalesced;
+      this.shed = shed;
+      this.rejected = rejected;
+      this.queueDepth = queueDepth;
+      this.maxQueueDepth = maxQueueDepth;
+      this.totalQueueNanos = totalQueueNanos;
+      this.maxQueueNanos = maxQueueNanos;
+    }
+
+    public double averageQueueMillis() {
+      return executed == 0 ? 0.0 : totalQueueNanos / (executed * 1_000_000.0);
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+      return "{submitted=" + submitted + ", executed=" + executed + ", coalesced=" + coalesced + ", shed=" + shed
+        + ", rejected=" + rejected + ", queueDepth=" + queueDepth + ", maxQueueDepth=" + maxQueueDepth
+        + ", avgQueueMs=" + averageQueueMillis() + ", maxQueueMs=" + maxQueueNanos / 1_000_000.0 + "}";
+    }
+  }
+
+  public static final class Stats {
+    @NonNull
+    public final Map<Priority, ClassStats> byPriority;
+
+    Stats(@NonNull Map<Priority, ClassStats> byPriority) {
+      this.byPriority = byPriority;
+    }
+
+    @NonNull
+    public ClassStats get(@NonNull Priority priority) {
+      return byPriority.get(priority);
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+      return "RenderThreadActor.Stats" + byPriority;
+    }
+  }
+
+  private static final class Command {
+    @Nullable
+    final Object coalesceKey;
+    Runnable task;
+    @Nullable
+    Runnable onDropped;
+    long enqueueNanos;
+
+    Command(@Nullable Object coalesceKey, Runnable task, @Nullable Runnable onDropped, long enqueueNanos) {
+      this.coalesceKey = coalesceKey;
+      this.task = task;
+      this.onDropped = onDropped;
+      this.enqueueNanos = enqueueNanos;
+    }
+  }
+
+  private static final class Counters {
+    long submitted;
+    long executed;
+    long coalesced;
+    long shed;
+    long rejected;
+    int maxQueueDepth;
+    long totalQueueNanos;
+    long maxQueueNanos;
+  }
+
+  private static final Priority[] PRIORITIES = Priority.values();
+
+  private final Object mLock = new Object();
+  private final ArrayList<ArrayDeque<Command>> mQueues = new ArrayList<>(PRIORITIES.length); // guarded by mLock
+  private final Counters[] mCounters = new Counters[PRIORITIES.length]; // guarded by mLock
+  private final int[] mCapacities = new int[PRIORITIES.length];
+  private boolean mShutdown = false; // guarded by mLock
+  private boolean mTerminated = false; // guarded by mLock
+  private final Thread mThread;
+
+  RenderThreadActor(@NonNull String threadName, int assetCapacity, int poseCapacity, int renderCapacity) {
+    if (assetCapacity < 1 || poseCapacity < 1 || renderCapacity < 1) {
+      throw new IllegalArgumentException("Queue capacities must be >= 1.");
+    }
+    for (int i = 0; i < PRIORITIES.length; i++) {
+      mQueues.add(new ArrayDeque<>());
+      mCounters[i] = new Counters();
+    }
+    mCapacities[Priority.LIFECYCLE.ordinal()] = Integer.MAX_VALUE; // Never rejected
+    mCapacities[Priority.ASSET.ordinal()] = assetCapacity;
+    mCapacities[Priority.POSE.ordinal()] = poseCapacity;
+    mCapacities[Priority.RENDER.ordinal()] = renderCapacity;
+    mCapacities[Priority.IDLE.ordinal()] = 1; // Always coalesced into the one queued command
+    mThread = new Thread(this::runLoop, threadName);
+    mThread.start();
+  }
+
+  @Override
+  public void execute(@NonNull Runnable command) {
+    execute(Priority.ASSET, null, command, null);
+  }
+
+  public void execute(@NonNull Priority priority, @NonNull Runnable command) {
+    execute(priority, null, command, null);
+  }
+
+  /**
+   * 提交命令。coalesceKey 不为 null 时取代同类队列中同键的命令；onDropped 在命令被丢弃或取代、不会执行时调用
+   * （在提交线程上）。
+   *
+   * @throws RejectedExecutionException 已关闭，或不可丢弃的类队列已满
+   */
+  public void execute(@NonNull Priority priority, @Nullable Object coalesceKey, @NonNull Runnable command,
+                      @Nullable Runnable onDropped) {
+    Runnable dropped = null;
+    synchronized (mLock) {
+      Counters counters = mCounters[priority.ordinal()];
+      if (mShutdown) {
+        counters.rejected++;
+        throw new RejectedExecutionException("Render thread is shut down.");
+      }
+      ArrayDeque<Command> queue = mQueues.get(priority.ordinal());
+      long now = System.nanoTime();
+      boolean coalesced = false;
+      if (coalesceKey != null) {
+        for (Command queued : queue) {
+          if (coalesceKey.equals(queued.coalesceKey)) {
+            dropped = queued.onDropped;
+            queued.task = command;
+            queued.onDropped = onDropped;
+            queued.enqueueNanos = now;
+            counters.coalesced++;
+            coalesced = true;
+            break;
+          }
+        }
+      }
+      if (!coalesced) {
+        if (queue.size() >= mCapacities[priority.ordinal()]) {
+          if (!priority.sheddable) {
+            counters.rejected++;
+            throw new RejectedExecutionException(priority + " queue is full (" + queue.size() + ").");
+          }
+          Command oldest = queue.pollFirst();
+          counters.shed++;
+          dropped = oldest.onDropped;
+        }
+        queue.addLast(new Command(coalesceKey, command, onDropped, now));
+        counters.maxQueueDepth = Math.max(counters.maxQueueDepth, queue.size());
+        mLock.notifyAll();
+      }
+      counters.submitted++;
+    }
+    if (dropped != null) {
+      try {
+        dropped.run();
+      } catch (Throwable t) {
+        Log.e(TAG, "onDropped callback threw.", t);
+      }
+    }
+  }
+
+  /**
+   * 当前线程是否为渲染线程。
+   */
+  public boolean isRenderThread() {
+    return Thread.currentThread() == mThread;
+  }
+
+  @NonNull
+  public Stats getStats() {
+    Map<Priority, ClassStats> byPriority = new EnumMap<>(Priority.class);
+    synchronized (mLock) {
+      for (Priority priority : PRIORITIES) {
+        Counters c = mCounters[priority.ordinal()];
+        byPriority.put(priority, new ClassStats(c.submitted, c.executed, c.coalesced, c.shed, c.rejected,
+          mQueues.get(priority.ordinal()).size(), c.maxQueueDepth, c.totalQueueNanos, c.maxQueueNanos));
+      }
+    }
+    return new Stats(Collections.unmodifiableMap(byPriority));
+  }
+
+  /**
+   * 不再接受新命令，已排队的命令仍会按优先级执行完。
+   */
+  @Override
+  public void shutdown() {
+    synchronized (mLock) {
+      mShutdown = true;
+      mLock.notifyAll();
+    }
+  }
+
+  /**
+   * 不再接受新命令并移出所有排队的命令（不调用 onDropped），中断渲染线程。
+   */
+  @NonNull
+  @Override
+  public List<Runnable> shutdownNow() {
+    List<Runnable> pending = new ArrayList<>();
+    synchronized (mLock) {
+      mShutdown = true;
+      for (ArrayDeque<Command> queue : mQueues) {
+        for (Command command : queue) pending.add(command.task);
+        queue.clear();
+      }
+      mLock.notifyAll();
+    }
+    mThread.interrupt();
+    return pending;
+  }
+
+  @Override
+  public boolean isShutdown() {
+    synchronized (mLock) {
+      return mShutdown;
+    }
+  }
+
+  @Override
+  public boolean isTerminated() {
+    synchronized (mLock) {
+      return mTerminated;
+    }
+  }
+
+  @Override
+  public boolean awaitTermination(long timeout, @NonNull TimeUnit unit) throws InterruptedException {
+    long deadline = System.nanoTime() + unit.toNanos(timeout);
+    synchronized (mLock) {
+      while (!mTerminated) {
+        long remainingNanos = deadline - System.nanoTime();
+        if (remainingNanos <= 0) return false;
+        TimeUnit.NANOSECONDS.timedWait(mLock, remainingNanos);
+      }
+      return true;
+    }
+  }
+
+  private void runLoop() {
+    while (true) {
+      Command command;
+      synchronized (mLock) {
+        while ((command = pollHighestLocked()) == null) {
+          if (mShutdown) {
+            mTerminated = true;
+            mLock.notifyAll();
+            return;
+          }
+          try {
+            mLock.wait();
+          } catch (InterruptedException e) {
+            // shutdownNow(); the loop exits once the queues are empty.
+          }
+        }
+      }
+      try {
+        command.task.run();
+      } catch (Throwable t) {
+        Log.e(TAG, "Render command threw.", t);
+      }
+    }
+  }
+
+  @Nullable
+  private Command pollHighestLocked() {
+    for (Priority priority : PRIORITIES) {
+      Command command = mQueues.get(priority.ordinal()).pollFirst();
+      if (command == null) continue;
+      long waitedNanos = System.nanoTime() - command.enqueueNanos;
+      Counters counters = mCounters[priority.ordinal()];
+      counters.executed++;
+      counters.totalQueueNanos += waitedNanos;
+      counters.maxQueueNanos = Math.max(counters.maxQueueNanos, waitedNanos);
+      return command;
+    }
+    return null;
+  }
+}
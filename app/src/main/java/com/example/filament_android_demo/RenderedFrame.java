@@ -0,0 +1,60 @@
+package com.example.filament_android_demo;
+
+import android.graphics.Bitmap;
+
+import androidx.annotation.NonNull;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * ModelRender 回读得到的一帧，Bitmap 来自 {@link ReadbackPool}。
+ * <p>
+ * 约定：持有者用完后必须调用 {@link #release()}（或 close()）把 Bitmap 还给池；
+ * release 之后不得再访问 {@link #getBitmap()} 返回的对象，它会被后续帧覆盖。
+ * 需要长期保留图像时请先 {@code getBitmap().copy(...)}。
+ */
+public final class RenderedFrame implements AutoCloseable {
+  private final ReadbackPool mPool;
+  private final ReadbackPool.Slot mSlot;
+  private final long mFrameTimeNanos;
+  private final AtomicBoolean mReleased = new AtomicBoolean(false);
+
+  RenderedFrame(@NonNull ReadbackPool pool, @NonNull ReadbackPool.Slot slot, long frameTimeNanos) {
+    mPool = pool;
+    mSlot = slot;
+    mFrameTimeNanos = frameTimeNanos;
+  }
+
+  @NonNull
+  public Bitmap getBitmap() {
+    if (mReleased.get()) {
+      throw new IllegalStateException("RenderedFrame has already been released.");
+    }
+    return mSlot.bitmap;
+  }
+
+  /**
+   * 该帧提交给 Renderer.beginFrame 时使用的时间戳（System.nanoTime）。
+   */
+  public long getFrameTimeNanos() {
+    return mFrameTimeNanos;
+  }
+
+  public boolean isReleased() {
+    return mReleased.get();
+  }
+
+  /**
+   * 把底层缓冲还给池。可重复调用，只有第一次生效。
+   */
+  public void release() {
+    if (mReleased.compareAndSet(false, true)) {
+      mPool.release(mSlot);
+    }
+  }
+
+  @Override
+  public void close() {
+    release();
+  }
+}
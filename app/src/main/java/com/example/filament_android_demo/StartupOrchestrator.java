@@ -0,0 +1,270 @@
+package com.example.filament_android_demo;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
+/**
+ * 启动编排：按显式声明的依赖关系并行执行启动阶段。每个阶段在它的所有依赖完成后立即开始，
+ * 依赖失败时不再执行，以同样的异常结束。
+ * <p>
+ * 记录每个阶段相对 {@link #start()} 的开始和结束时间，以及 {@link #recordEvent} 标记的里程碑，
+ * 时间线中给出关键路径（决定总耗时的依赖链），用来分析冷启动耗时花在哪里。
+ * 阶段只能依赖已经添加的阶段，因此依赖图天然无环。
+ */
+public final class StartupOrchestrator {
+  private static final String TAG = "StartupOrchestrator";
+
+  /**
+   * 阶段的工作。返回的 future 完成时阶段结束，可以是异步工作的 future；直接抛出异常视为阶段失败。
+   */
+  public interface PhaseAction {
+    @NonNull
+    CompletableFuture<?> run() throws Exception;
+  }
+
+  /**
+   * 一个阶段的耗时。时间相对 start()，尚未开始/结束时为 -1；依赖失败而未执行的阶段 startNanos 为 -1。
+   */
+  public static final class PhaseTiming {
+    @NonNull
+    public final String name;
+    @NonNull
+    public final List<String> dependencies;
+    public final long startNanos;
+    public final long endNanos;
+    @Nullable
+    public final Throwable failure;
+
+    PhaseTiming(@NonNull String name, @NonNull List<String> dependencies, long startNanos, long endNanos, @Nullable Throwable failure) {
+      this.name = name;
+      this.dependencies = dependencies;
+      this.startNanos = startNanos;
+      this.endNanos = endNanos;
+      this.failure = failure;
+    }
+
+    public long durationNanos() {
+      return startNanos < 0 || endNanos < 0 ? -1 : endNanos - startNanos;
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+      String state = failure != null ? (startNanos < 0 ? " SKIPPED" : " FAILED: " + failure) : (endNanos < 0 ? " RUNNING" : "");
+      return name + " start=" + startNanos / 1_000_000.0 + "ms end=" + endNanos / 1_000_000.0 + "ms duration="
+        + durationNanos() / 1_000_000.0 + "ms after=" + dependencies + state;
+    }
+  }
+
+  /**
+   * 启动时间线快照。phases 按添加顺序排列；events 为里程碑名称 → 相对 start() 的时间。
+   */
+  public static final class Timeline {
+    @NonNull
+    public final List<PhaseTiming> phases;
+    @NonNull
+    public final Map<String, Long> events;
+    // 最晚结束的阶段及其依赖中最晚结束者组成的链，从最早的阶段开始
+    @NonNull
+    public final List<String> criticalPath;
+    public final long totalNanos;
+
+    Timeline(@NonNull List<PhaseTiming> phases, @NonNull Map<String, Long> events, @NonNull List<String> criticalPath, long totalNanos) {
+      this.phases = phases;
+      this.events = events;
+      this.criticalPath = criticalPath;
+      this.totalNanos = totalNanos;
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+      StringBuilder sb = new StringBuilder("StartupTimeline{totalMs=").append(totalNanos / 1_000_000.0)
+        .append(", criticalPath=").append(String.join(" -> ", criticalPath));
+      for (PhaseTiming phase : phases) sb.append("\n  ").append(phase);
+      for (Map.Entry<String, Long> e : events.entrySet()) {
+        sb.append("\n  event ").append(e.getKey()).append(" at ").append(e.getValue() / 1_000_000.0).append("ms");
+      }
+      return sb.append("\n}").toString();
+    }
+  }
+
+  private static final class Phase {
+    final String name;
+    final List<String> dependencies;
+    @Nullable
+    final Executor executor;
+    final PhaseAction action;
+    CompletableFuture<Void> future; // set once in start()
+    volatile long startNanos = -1;
+    volatile long endNanos = -1;
+    volatile Throwable failure = null;
+
+    Phase(String name, List<String> dependencies, @Nullable Executor executor, PhaseAction action) {
+      this.name = name;
+      this.dependencies = dependencies;
+      this.executor = executor;
+      this.action = action;
+    }
+  }
+
+  private final Map<String, Phase> mPhases = new LinkedHashMap<>(); // guarded by this
+  private final Map<String, Long> mEvents = new LinkedHashMap<>(); // guarded by mEvents
+  private volatile long mStartNanos = -1;
+
+  /**
+   * 添加阶段。dependsOn 中的阶段必须已经添加；executor 为 null 时阶段在完成最后一个依赖的线程上开始
+   * （没有依赖时就是调用 start() 的线程），适合本身就是异步的工作。
+   */
+  @NonNull
+  public synchronized StartupOrchestrator addPhase(@NonNull String name, @NonNull Collection<String> dependsOn,
+                                                   @Nullable Executor executor, @NonNull PhaseAction action) {
+    if (mStartNanos >= 0) {
+      throw new IllegalStateException("addPhase() must be called before start().");
+    }
+    if (mPhases.containsKey(name)) {
+      throw new IllegalArgumentException("Duplicate startup phase: " + name);
+    }
+    for (String dependency : dependsOn) {
+      if (!mPhases.containsKey(dependency)) {
+        throw new IllegalArgumentException("Phase " + name + " depends on unknown phase " + dependency);
+      }
+    }
+    mPhases.put(name, new Phase(name, Collections.unmodifiableList(new ArrayList<>(dependsOn)), executor, action));
+    return this;
+  }
+
+  /**
+   * 开始执行所有阶段。返回的 future 在所有阶段结束（成功、失败或因依赖失败跳过）后以时间线完成，不会异常完成；
+   * 各阶段的失败记录在 {@link PhaseTiming#failure} 中。
+   * <p>
+   * 依赖关系在锁内连接好，阶段在释放锁之后才开始，因此在调用线程上同步执行的阶段不会让 {@link #timeline()} 等待。
+   */
+  @NonNull
+  public CompletableFuture<Timeline> start() {
+    // Phases without dependencies wait on this gate, which opens only once the lock is released.
+    CompletableFuture<Void> gate = new CompletableFuture<>();
+    CompletableFuture<Timeline> done;
+    synchronized (this) {
+      if (mStartNanos >= 0) {
+        throw new IllegalStateException("start() called twice.");
+      }
+      mStartNanos = System.nanoTime();
+      List<CompletableFuture<Void>> all = new ArrayList<>(mPhases.size());
+      // Insertion order is a topological order because dependencies must be added first.
+      for (Phase phase : mPhases.values()) {
+        CompletableFuture<?>[] dependencies = new CompletableFuture<?>[phase.dependencies.size()];
+        for (int i = 0; i < dependencies.length; i++) {
+          dependencies[i] = mPhases.get(phase.dependencies.get(i)).future;
+        }
+        CompletableFuture<Void> ready = dependencies.length == 0 ? gate : CompletableFuture.allOf(dependencies);
+        CompletableFuture<Void> future = phase.executor == null
+          ? ready.thenCompose(v -> runPhase(phase))
+          : ready.thenComposeAsync(v -> runPhase(phase), phase.executor);
+        phase.future = future.whenComplete((v, t) -> {
+          if (t != null && phase.failure == null) phase.failure = unwrap(t);
+          if (phase.startNanos >= 0) phase.endNanos = System.nanoTime() - mStartNanos;
+          Log.i(TAG, "Phase " + snapshotOf(phase));
+        });
+        all.add(phase.future);
+      }
+      done = CompletableFuture.allOf(all.toArray(new CompletableFuture<?>[0]))
+        .handle((v, t) -> {
+          Timeline timeline = timeline();
+          Log.i(TAG, timeline.toString());
+          return timeline;
+        });
+    }
+    gate.complete(null); // Inline phases run here, on the calling thread but outside the lock
+    return done;
+  }
+
+  /**
+   * 记录一个里程碑（例如第一次拿到检测结果），时间相对 start()。同名事件只记录第一次，start() 之前调用会被忽略。
+   */
+  public void recordEvent(@NonNull String name) {
+    long startNanos = mStartNanos;
+    if (startNanos < 0) return;
+    long at = System.nanoTime() - startNanos;
+    synchronized (mEvents) {
+      if (!mEvents.containsKey(name)) mEvents.put(name, at);
+    }
+  }
+
+  /**
+   * 当前时间线快照，可以在所有阶段结束之前或之后调用。
+   */
+  @NonNull
+  public synchronized Timeline timeline() {
+    List<PhaseTiming> phases = new ArrayList<>(mPhases.size());
+    Map<String, PhaseTiming> byName = new LinkedHashMap<>();
+    for (Phase phase : mPhases.values()) {
+      PhaseTiming timing = snapshotOf(phase);
+      phases.add(timing);
+      byName.put(timing.name, timing);
+    }
+    Map<String, Long> events;
+    synchronized (mEvents) {
+      events = Collections.unmodifiableMap(new LinkedHashMap<>(mEvents));
+    }
+    long totalNanos = -1;
+    for (PhaseTiming phase : phases) totalNanos = Math.max(totalNanos, phase.endNanos);
+    return new Timeline(Collections.unmodifiableList(phases), events, criticalPath(byName), totalNanos);
+  }
+
+  @NonNull
+  private CompletableFuture<Void> runPhase(@NonNull Phase phase) {
+    phase.startNanos = System.nanoTime() - mStartNanos;
+    Log.i(TAG, "Phase " + phase.name + " started at " + phase.startNanos / 1_000_000.0 + "ms.");
+    try {
+      return phase.action.run().thenApply(result -> null);
+    } catch (Throwable t) {
+      CompletableFuture<Void> failed = new CompletableFuture<>();
+      failed.completeExceptionally(t);
+      return failed;
+    }
+  }
+
+  @NonNull
+  private static PhaseTiming snapshotOf(@NonNull Phase phase) {
+    return new PhaseTiming(phase.name, phase.dependencies, phase.startNanos, phase.endNanos, phase.failure);
+  }
+
+  @NonNull
+  private static List<String> criticalPath(@NonNull Map<String, PhaseTiming> phases) {
+    PhaseTiming last = latestEnding(phases.keySet(), phases);
+    List<String> path = new ArrayList<>();
+    while (last != null) {
+      path.add(0, last.name);
+      last = latestEnding(last.dependencies, phases);
+    }
+    return Collections.unmodifiableList(path);
+  }
+
+  @Nullable
+  private static PhaseTiming latestEnding(@NonNull Collection<String> names, @NonNull Map<String, PhaseTiming> phases) {
+    PhaseTiming latest = null;
+    for (String name : names) {
+      PhaseTiming phase = phases.get(name);
+      if (phase.endNanos >= 0 && (latest == null || phase.endNanos > latest.endNanos)) latest = phase;
+    }
+    return latest;
+  }
+
+  @NonNull
+  private static Throwable unwrap(@NonNull Throwable t) {
+    return t instanceof CompletionException && t.getCause() != null ? t.getCause() : t;
+  }
+}
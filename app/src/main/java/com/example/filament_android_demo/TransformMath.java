@@ -0,0 +1,88 @@
+package com.example.filament_android_demo;
+
+import android.opengl.Matrix;
+
+import androidx.annotation.NonNull;
+
+/**
+ * 渲染线程专用的矩阵运算工作区。所有方法写入预先分配的临时矩阵并返回它，不分配对象；
+ * 返回值在下一次调用同一方法前有效，调用方应立即使用（例如传给 TransformManager.setTransform，
+ * 它会复制数据）而不要持有。矩阵均为列主序，与 android.opengl.Matrix 和 Filament 一致。
+ * <p>
+ * 非线程安全，只能在渲染线程使用。
+ */
+final class TransformMath {
+  private final float[] mRotation = new float[16];
+  private final float[] mProduct = new float[16];
+  private final float[] mScaleTranslation = new float[16];
+
+  TransformMath() {
+    // Only the 3x3 block of mRotation is ever written; the rest stays identity.
+    Matrix.setIdentityM(mRotation, 0);
+    Matrix.setIdentityM(mScaleTranslation, 0);
+  }
+
+  /**
+   * 取 source（列主序 4x4）的 3x3 旋转部分，平移清零。
+   */
+  @NonNull
+  float[] rotationFrom(@NonNull float[] source) {
+    mRotation[0] = source[0];
+    mRotation[1] = source[1];
+    mRotation[2] = source[2];
+    mRotation[4] = source[4];
+    mRotation[5] = source[5];
+    mRotation[6] = source[6];
+    mRotation[8] = source[8];
+    mRotation[9] = source[9];
+    mRotation[10] = source[10];
+    return mRotation;
+  }
+
+  /**
+   * 由欧拉角（弧度）直接构造旋转矩阵 Rz * Ry * Rx，即先绕 X、再绕 Y、最后绕 Z 旋转。
+   * 等价于用 Matrix.rotateM 分别构造三个矩阵后相乘，但只计算 3x3 部分。
+   */
+  @NonNull
+  float[] rotationFromEuler(float x, float y, float z) {
+    final float cx = (float) Math.cos(x), sx = (float) Math.sin(x);
+    final float cy = (float) Math.cos(y), sy = (float) Math.sin(y);
+    final float cz = (float) Math.cos(z), sz = (float) Math.sin(z);
+    // Column 0
+    mRotation[0] = cz * cy;
+    mRotation[1] = sz * cy;
+    mRotation[2] = -sy;
+    // Column 1
+    mRotation[4] = cz * sy * sx - sz * cx;
+    mRotation[5] = sz * sy * sx + cz * cx;
+    mRotation[6] = cy * sx;
+    // Column 2
+    mRotation[8] = cz * sy * cx + sz * sx;
+    mRotation[9] = sz * sy * cx - cz * sx;
+    mRotation[10] = cy * cx;
+    return mRotation;
+  }
+
+  /**
+   * lhs * rhs。两个参数都不能是本方法的返回值。
+   */
+  @NonNull
+  float[] multiply(@NonNull float[] lhs, @NonNull float[] rhs) {
+    Matrix.multiplyMM(mProduct, 0, lhs, 0, rhs, 0);
+    return mProduct;
+  }
+
+  /**
+   * 均匀缩放后再平移的变换：p' = scale * p + (tx, ty, tz)。
+   */
+  @NonNull
+  float[] scaleThenTranslate(float scale, float tx, float ty, float tz) {
+    mScaleTranslation[0] = scale;
+    mScaleTranslation[5] = scale;
+    mScaleTranslation[10] = scale;
+    mScaleTranslation[12] = tx;
+    mScaleTranslation[13] = ty;
+    mScaleTranslation[14] = tz;
+    return mScaleTranslation;
+  }
+}
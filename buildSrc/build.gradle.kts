@@ -0,0 +1,23 @@
+// Build logic for the app module. Plain Java on the Gradle API, so it runs on any JVM.
+plugins {
+    `java-library`
+}
+
+repositories {
+    mavenCentral()
+}
+
+dependencies {
+    implementation(gradleApi())
+    // Same JUnit as the app module (gradle/libs.versions.toml); buildSrc cannot see the version catalog.
+    testImplementation("junit:junit:4.13.2")
+}
+
+java {
+    sourceCompatibility = JavaVersion.VERSION_11
+    targetCompatibility = JavaVersion.VERSION_11
+}
+
+tasks.withType<JavaCompile>().configureEach {
+    options.encoding = "UTF-8"
+}
@@ -0,0 +1,811 @@
+package com.example.filament_android_demo.buildtools;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.CRC32;
+
+/**
+ * 构建期的 .glb 预处理，只依赖 JDK，可在任何 JVM 上运行：
+ * <ol>
+ *   <li>去掉名称不在保留列表中的网格节点（与运行时 EntityFilter 的规则一致），仍被骨骼或动画引用的节点只去掉网格；</li>
+ *   <li>去掉名称不在 morph 列表中的 morph target；</li>
+ *   <li>删除不再被引用的网格、蒙皮、材质、纹理、图片、采样器、accessor 和 bufferView，重新打包 BIN；</li>
+ *   <li>用 KHR_mesh_quantization 把法线/切线量化为 normalized byte，[0, 1] 内的纹理坐标量化为 normalized ushort；</li>
+ *   <li>生成 sidecar：有名称节点的初始局部变换和每个 morph 实体的 (名称, MediaPipe 类别) 绑定表。</li>
+ * </ol>
+ * 位置不量化：量化位置需要在节点上补偿缩放/偏移，会和蒙皮的 inverse bind matrix 冲突。
+ */
+public final class GlbPreprocessor {
+  private static final int GLB_MAGIC = 0x46546C67; // "glTF"
+  private static final int CHUNK_JSON = 0x4E4F534A;
+  private static final int CHUNK_BIN = 0x004E4942;
+
+  // 与 app 中 ModelSidecar 保持一致
+  static final int SIDECAR_MAGIC = 0x46415343; // "FASC"
+  static final int SIDECAR_VERSION = 3;
+
+  private static final int FLOAT = 5126;
+  private static final int BYTE = 5120;
+  private static final int UNSIGNED_SHORT = 5123;
+  private static final int ARRAY_BUFFER = 34962;
+
+  private static final String QUANTIZATION_EXTENSION = "KHR_mesh_quantization";
+  private static final Set<String> UNSUPPORTED_EXTENSIONS = new HashSet<>(Arrays.asList(
+    "KHR_draco_mesh_compression", "EXT_meshopt_compression", "KHR_meshopt_compression"));
+  // Marks bufferViews created by quantization; their bytes live in mPendingViewData.
+  private static final String PENDING_KEY = "__pendingData";
+
+  /**
+   * MediaPipe FaceLandmarker 的 52 个 blendshape，按类别下标排列。必须与 app 中 MorphBindingTable.BLENDSHAPE_NAMES 相同，
+   * sidecar 记录列表的哈希，运行时不一致就不使用 sidecar。
+   */
+  public static final List<String> MEDIAPIPE_BLENDSHAPES = Arrays.asList(
+    "_neutral",
+    "browDownLeft", "browDownRight", "browInnerUp", "browOuterUpLeft", "browOuterUpRight",
+    "cheekPuff", "cheekSquintLeft", "cheekSquintRight",
+    "eyeBlinkLeft", "eyeBlinkRight",
+    "eyeLookDownLeft", "eyeLookDownRight", "eyeLookInLeft", "eyeLookInRight",
+    "eyeLookOutLeft", "eyeLookOutRight", "eyeLookUpLeft", "eyeLookUpRight",
+    "eyeSquintLeft", "eyeSquintRight", "eyeWideLeft", "eyeWideRight",
+    "jawForward", "jawLeft", "jawOpen", "jawRight",
+    "mouthClose", "mouthDimpleLeft", "mouthDimpleRight", "mouthFrownLeft", "mouthFrownRight",
+    "mouthFunnel", "mouthLeft", "mouthLowerDownLeft", "mouthLowerDownRight",
+    "mouthPressLeft", "mouthPressRight", "mouthPucker", "mouthRight",
+    "mouthRollLower", "mouthRollUpper", "mouthShrugLower", "mouthShrugUpper",
+    "mouthSmileLeft", "mouthSmileRight", "mouthStretchLeft", "mouthStretchRight",
+    "mouthUpperUpLeft", "mouthUpperUpRight", "noseSneerLeft", "noseSneerRight"
+  );
+
+  public static final class Options {
+    // null 表示保留全部节点 / 全部 morph target
+    final Set<String> keepNodes;
+    final Set<String> keepMorphTargets;
+    final boolean quantize;
+
+    public Options(Set<String> keepNodes, Set<String> keepMorphTargets, boolean quantize) {
+      this.keepNodes = keepNodes;
+      this.keepMorphTargets = keepMorphTargets;
+      this.quantize = quantize;
+    }
+  }
+
+  public static final class Result {
+    public final byte[] glb;
+    public final byte[] sidecar;
+    public final String summary;
+
+    Result(byte[] glb, byte[] sidecar, String summary) {
+      this.glb = glb;
+      this.sidecar = sidecar;
+      this.summary = summary;
+    }
+  }
+
+  private interface RefVisitor {
+    void visit(Map<String, Object> holder, String key);
+  }
+
+  private final Map<String, Object> mRoot;
+  private final byte[] mBin;
+  private final Options mOptions;
+  private final List<byte[]> mPendingViewData = new ArrayList<>();
+  private final StringBuilder mSummary = new StringBuilder();
+
+  private GlbPreprocessor(Map<String, Object> root, byte[] bin, Options options) {
+    mRoot = root;
+    mBin = bin;
+    mOptions = options;
+  }
+
+  public static int blendshapeListHash() {
+    return String.join(",", MEDIAPIPE_BLENDSHAPES).hashCode();
+  }
+
+  public static Result process(byte[] glb, Options options) throws IOException {
+    ByteBuffer in = ByteBuffer.wrap(glb).order(ByteOrder.LITTLE_ENDIAN);
+    if (glb.length < 20 || in.getInt(0) != GLB_MAGIC || in.getInt(4) != 2) {
+      throw new IOException("Not a glTF 2.0 binary file.");
+    }
+    int jsonLength = in.getInt(12);
+    if (in.getInt(16) != CHUNK_JSON || 20L + jsonLength > glb.length) {
+      throw new IOException("Missing or truncated JSON chunk.");
+    }
+    String jsonText = new String(glb, 20, jsonLength, StandardCharsets.UTF_8);
+    byte[] bin = new byte[0];
+    int binHeader = 20 + jsonLength;
+    if (binHeader + 8 <= glb.length && in.getInt(binHeader + 4) == CHUNK_BIN) {
+      int binLength = in.getInt(binHeader);
+      if ((long) binHeader + 8 + binLength > glb.length) throw new IOException("Truncated BIN chunk.");
+      bin = Arrays.copyOfRange(glb, binHeader + 8, binHeader + 8 + binLength);
+    }
+    Object parsed;
+    try {
+      parsed = Json.parse(jsonText.trim());
+    } catch (IllegalArgumentException e) {
+      throw new IOException("Malformed glTF JSON: " + e.getMessage(), e);
+    }
+    if (!(parsed instanceof Map)) throw new IOException("glTF JSON root is not an object.");
+    GlbPreprocessor p = new GlbPreprocessor(asMap(parsed), bin, options);
+    return p.run(glb.length);
+  }
+
+  private Result run(int inputLength) throws IOException {
+    checkSupported();
+    int nodesBefore = list(mRoot, "nodes").size();
+    stripNodes();
+    pruneMorphTargets();
+    collectMeshesAndSkins();
+    collectMaterials();
+    collectTexturesImagesSamplers();
+    collectAccessors();
+    if (mOptions.quantize) quantizeAttributes();
+    collectAccessors(); // quantization may have replaced accessor bufferViews
+    int binBefore = mBin.length;
+    byte[] bin = repackBuffer();
+
+    byte[] json = padded(Json.write(mRoot).getBytes(StandardCharsets.UTF_8), (byte) ' ');
+    byte[] glb = assembleGlb(json, bin);
+    byte[] sidecar = buildSidecar(json);
+    mSummary.insert(0, "nodes " + nodesBefore + " -> " + list(mRoot, "nodes").size()
+      + ", bin " + binBefore / 1024 + " KB -> " + bin.length / 1024 + " KB"
+      + ", glb " + inputLength / 1024 + " KB -> " + glb.length / 1024 + " KB");
+    return new Result(glb, sidecar, mSummary.toString());
+  }
+
+  private void checkSupported() throws IOException {
+    for (String key : new String[]{"extensionsUsed", "extensionsRequired"}) {
+      for (Object ext : list(mRoot, key)) {
+        if (UNSUPPORTED_EXTENSIONS.contains(ext)) {
+          throw new IOException("Extension " + ext + " is not supported by the preprocessor.");
+        }
+      }
+    }
+    List<Object> buffers = list(mRoot, "buffers");
+    if (buffers.size() > 1 || (buffers.size() == 1 && asMap(buffers.get(0)).containsKey("uri"))) {
+      throw new IOException("Only a single embedded GLB buffer is supported.");
+    }
+  }
+
+  // --- 1. Node stripping ---
+
+  private void stripNodes() {
+    if (mOptions.keepNodes == null) return;
+    List<Object> nodes = list(mRoot, "nodes");
+    boolean[] referenced = new boolean[nodes.size()];
+    for (Object skinObj : list(mRoot, "skins")) {
+      Map<String, Object> skin = asMap(skinObj);
+      for (Object joint : list(skin, "joints")) referenced[intOf(joint)] = true;
+      if (skin.containsKey("skeleton")) referenced[intOf(skin.get("skeleton"))] = true;
+    }
+    for (Object animObj : list(mRoot, "animations")) {
+      for (Object channelObj : list(asMap(animObj), "channels")) {
+        Map<String, Object> target = asMap(asMap(channelObj).get("target"));
+        if (target != null && target.containsKey("node")) referenced[intOf(target.get("node"))] = true;
+      }
+    }
+
+    boolean[] remove = new boolean[nodes.size()];
+    int demoted = 0;
+    for (int i = 0; i < nodes.size(); i++) {
+      Map<String, Object> node = asMap(nodes.get(i));
+      Object name = node.get("name");
+      if (!node.containsKey("mesh") || !(name instanceof String) || ((String) name).isEmpty()
+        || mOptions.keepNodes.contains(name)) {
+        continue;
+      }
+      node.remove("mesh");
+      node.remove("skin");
+      node.remove("weights");
+      demoted++;
+      remove[i] = !referenced[i] && list(node, "children").isEmpty()
+        && !node.containsKey("camera") && !node.containsKey("extensions");
+    }
+
+    int[] remap = compact(mRoot, "nodes", invert(remove));
+    for (Object nodeObj : list(mRoot, "nodes")) {
+      remapIndexList(asMap(nodeObj), "children", remap);
+    }
+    for (Object sceneObj : list(mRoot, "scenes")) {
+      remapIndexList(asMap(sceneObj), "nodes", remap);
+    }
+    for (Object skinObj : list(mRoot, "skins")) {
+      Map<String, Object> skin = asMap(skinObj);
+      remapIndexList(skin, "joints", remap);
+      remapIndex(skin, "skeleton", remap);
+    }
+    for (Object animObj : list(mRoot, "animations")) {
+      for (Object channelObj : list(asMap(animObj), "channels")) {
+        remapIndex(asMap(asMap(channelObj).get("target")), "node", remap);
+      }
+    }
+    mSummary.append(", stripped meshes from ").append(demoted).append(" nodes");
+  }
+
+  // --- 2. Morph target pruning ---
+
+  private void pruneMorphTargets() {
+    if (mOptions.keepMorphTargets == null) return;
+    List<Object> nodes = list(mRoot, "nodes");
+    Set<Integer> weightAnimatedMeshes = new HashSet<>();
+    for (Object animObj : list(mRoot, "animations")) {
+      for (Object channelObj : list(asMap(animObj), "channels")) {
+        Map<String, Object> target = asMap(asMap(channelObj).get("target"));
+        if (target == null || !"weights".equals(target.get("path")) || !target.containsKey("node")) continue;
+        Map<String, Object> node = asMap(nodes.get(intOf(target.get("node"))));
+        if (node.containsKey("mesh")) weightAnimatedMeshes.add(intOf(node.get("mesh")));
+      }
+    }
+
+    int removedTargets = 0;
+    List<Object> meshes = list(mRoot, "meshes");
+    for (int m = 0; m < meshes.size(); m++) {
+      Map<String, Object> mesh = asMap(meshes.get(m));
+      Map<String, Object> extras = asMap(mesh.get("extras"));
+      List<Object> names = list(extras, "targetNames");
+      if (names.isEmpty() || weightAnimatedMeshes.contains(m)) continue;
+      boolean consistent = true;
+      for (Object primObj : list(mesh, "primitives")) {
+        if (list(asMap(primObj), "targets").size() != names.size()) consistent = false;
+      }
+      if (!consistent) continue;
+
+      boolean[] keep = new boolean[names.size()];
+      int kept = 0;
+      for (int t = 0; t < names.size(); t++) {
+        keep[t] = mOptions.keepMorphTargets.contains(names.get(t));
+        if (keep[t]) kept++;
+      }
+      if (kept == names.size()) continue;
+      removedTargets += names.size() - kept;
+
+      for (Object primObj : list(mesh, "primitives")) {
+        filterList(asMap(primObj), "targets", keep);
+      }
+      filterList(mesh, "weights", keep);
+      filterList(extras, "targetNames", keep);
+      if (extras.isEmpty()) mesh.remove("extras");
+      for (Object nodeObj : nodes) {
+        Map<String, Object> node = asMap(nodeObj);
+        if (node.containsKey("mesh") && intOf(node.get("mesh")) == m) filterList(node, "weights", keep);
+      }
+    }
+    mSummary.append(", removed ").append(removedTargets).append(" morph targets");
+  }
+
+  // --- 3. Unused object collection ---
+
+  private void collectMeshesAndSkins() {
+    String[][] kinds = {{"mesh", "meshes"}, {"skin", "skins"}};
+    for (String[] kind : kinds) {
+      String type = kind[0];
+      String collection = kind[1];
+      boolean[] used = new boolean[list(mRoot, collection).size()];
+      for (Object nodeObj : list(mRoot, "nodes")) {
+        Map<String, Object> node = asMap(nodeObj);
+        if (node.containsKey(type)) used[intOf(node.get(type))] = true;
+      }
+      int[] remap = compact(mRoot, collection, used);
+      for (Object nodeObj : list(mRoot, "nodes")) {
+        remapIndex(asMap(nodeObj), type, remap);
+      }
+      mSummary.append(", ").append(collection).append(" kept ").append(list(mRoot, collection).size());
+    }
+  }
+
+  private void collectMaterials() {
+    boolean[] used = new boolean[list(mRoot, "materials").size()];
+    forEachPrimitive(prim -> {
+      if (prim.containsKey("material")) used[intOf(prim.get("material"))] = true;
+    });
+    int[] remap = compact(mRoot, "materials", used);
+    forEachPrimitive(prim -> remapIndex(prim, "material", remap));
+    mSummary.append(", materials kept ").append(list(mRoot, "materials").size());
+  }
+
+  private void collectTexturesImagesSamplers() {
+    boolean[] usedTextures = new boolean[list(mRoot, "textures").size()];
+    RefVisitor markTexture = (holder, key) -> usedTextures[intOf(holder.get(key))] = true;
+    for (Object material : list(mRoot, "materials")) forEachTextureRef(material, markTexture);
+    int[] textureRemap = compact(mRoot, "textures", usedTextures);
+    for (Object material : list(mRoot, "materials")) {
+      forEachTextureRef(material, (holder, key) -> remapIndex(holder, key, textureRemap));
+    }
+
+    boolean[] usedImages = new boolean[list(mRoot, "images").size()];
+    boolean[] usedSamplers = new boolean[list(mRoot, "samplers").size()];
+    forEachImageRef((holder, key) -> usedImages[intOf(holder.get(key))] = true);
+    for (Object textureObj : list(mRoot, "textures")) {
+      Map<String, Object> texture = asMap(textureObj);
+      if (texture.containsKey("sampler")) usedSamplers[intOf(texture.get("sampler"))] = true;
+    }
+    int[] imageRemap = compact(mRoot, "images", usedImages);
+    int[] samplerRemap = compact(mRoot, "samplers", usedSamplers);
+    forEachImageRef((holder, key) -> remapIndex(holder, key, imageRemap));
+    for (Object textureObj : list(mRoot, "textures")) {
+      remapIndex(asMap(textureObj), "sampler", samplerRemap);
+    }
+    mSummary.append(", textures kept ").append(list(mRoot, "textures").size())
+      .append(", images kept ").append(list(mRoot, "images").size());
+  }
+
+  private void collectAccessors() {
+    boolean[] used = new boolean[list(mRoot, "accessors").size()];
+    forEachAccessorRef((holder, key) -> used[intOf(holder.get(key))] = true);
+    int[] remap = compact(mRoot, "accessors", used);
+    forEachAccessorRef((holder, key) -> remapIndex(holder, key, remap));
+  }
+
+  // --- 4. Quantization ---
+
+  private void quantizeAttributes() {
+    // Accessor index -> how it is used; "" marks conflicting uses, which are left as float.
+    Map<Integer, String> usage = new HashMap<>();
+    forEachPrimitive(prim -> {
+      for (Map.Entry<String, Object> attr : asMap(prim.get("attributes")).entrySet()) {
+        recordUsage(usage, intOf(attr.getValue()), attr.getKey());
+      }
+      for (Object targetObj : list(prim, "targets")) {
+        for (Map.Entry<String, Object> attr : asMap(targetObj).entrySet()) {
+          recordUsage(usage, intOf(attr.getValue()), "target:" + attr.getKey());
+        }
+      }
+    });
+
+    List<Object> accessors = list(mRoot, "accessors");
+    int quantized = 0;
+    boolean needsExtension = false;
+    for (Map.Entry<Integer, String> e : usage.entrySet()) {
+      Map<String, Object> accessor = asMap(accessors.get(e.getKey()));
+      String semantic = e.getValue();
+      if (!accessor.containsKey("bufferView") || accessor.containsKey("sparse")
+        || intOf(accessor.get("componentType")) != FLOAT || Boolean.TRUE.equals(accessor.get("normalized"))) {
+        continue;
+      }
+      String type = (String) accessor.get("type");
+      if ((semantic.equals("NORMAL") && "VEC3".equals(type))
+        || (semantic.equals("TANGENT") && "VEC4".equals(type))
+        || (semantic.equals("target:NORMAL") && "VEC3".equals(type))
+        || (semantic.equals("target:TANGENT") && "VEC3".equals(type))) {
+        if (quantizeSigned(accessor, type.equals("VEC3") ? 3 : 4)) {
+          quantized++;
+          needsExtension = true;
+        }
+      } else if (semantic.startsWith("TEXCOORD_") && "VEC2".equals(type)) {
+        if (quantizeTexcoord(accessor)) quantized++;
+      }
+    }
+    if (needsExtension) {
+      addExtension("extensionsUsed");
+      addExtension("extensionsRequired");
+    }
+    mSummary.append(", quantized ").append(quantized).append(" accessors");
+  }
+
+  private static void recordUsage(Map<Integer, String> usage, int accessor, String semantic) {
+    String previous = usage.putIfAbsent(accessor, semantic);
+    if (previous != null && !previous.equals(semantic)) usage.put(accessor, "");
+  }
+
+  /**
+   * 单位向量（及不超过 1 的增量）→ normalized signed byte，每个元素按 4 字节对齐。
+   */
+  private boolean quantizeSigned(Map<String, Object> accessor, int components) {
+    float[] values = readFloats(accessor, components);
+    for (float v : values) {
+      if (!(Math.abs(v) <= 1.0001f)) return false;
+    }
+    int count = values.length / components;
+    byte[] data = new byte[count * 4];
+    for (int i = 0; i < count; i++) {
+      for (int c = 0; c < components; c++) {
+        float v = Math.max(-1.0f, Math.min(1.0f, values[i * components + c]));
+        data[i * 4 + c] = (byte) Math.round(v * 127.0f);
+      }
+    }
+    replaceAccessorData(accessor, data, BYTE);
+    return true;
+  }
+
+  /**
+   * [0, 1] 范围内的纹理坐标 → normalized unsigned short；超出范围（平铺贴图）时保持 float。
+   */
+  private boolean quantizeTexcoord(Map<String, Object> accessor) {
+    float[] values = readFloats(accessor, 2);
+    for (float v : values) {
+      if (!(v >= 0.0f && v <= 1.0f)) return false;
+    }
+    int count = values.length / 2;
+    ByteBuffer data = ByteBuffer.allocate(count * 4).order(ByteOrder.LITTLE_ENDIAN);
+    for (float v : values) {
+      data.putShort((short) Math.round(v * 65535.0f));
+    }
+    replaceAccessorData(accessor, data.array(), UNSIGNED_SHORT);
+    return true;
+  }
+
+  private float[] readFloats(Map<String, Object> accessor, int components) {
+    Map<String, Object> view = asMap(list(mRoot, "bufferViews").get(intOf(accessor.get("bufferView"))));
+    int count = intOf(accessor.get("count"));
+    int elementSize = components * 4;
+    int stride = view.containsKey("byteStride") ? intOf(view.get("byteStride")) : elementSize;
+    int base = intOrZero(view, "byteOffset") + intOrZero(accessor, "byteOffset");
+    ByteBuffer bin = ByteBuffer.wrap(mBin).order(ByteOrder.LITTLE_ENDIAN);
+    float[] values = new float[count * components];
+    for (int i = 0; i < count; i++) {
+      for (int c = 0; c < components; c++) {
+        values[i * components + c] = bin.getFloat(base + i * stride + c * 4);
+      }
+    }
+    return values;
+  }
+
+  private void replaceAccessorData(Map<String, Object> accessor, byte[] data, int componentType) {
+    List<Object> views = list(mRoot, "bufferViews");
+    Map<String, Object> view = new LinkedHashMap<>();
+    view.put("buffer", 0L);
+    view.put("byteLength", (long) data.length);
+    view.put("byteStride", 4L);
+    view.put("target", (long) ARRAY_BUFFER);
+    view.put(PENDING_KEY, (long) mPendingViewData.size());
+    mPendingViewData.add(data);
+    views.add(view);
+    mRoot.put("bufferViews", views);
+    accessor.put("bufferView", (long) (views.size() - 1));
+    accessor.remove("byteOffset");
+    accessor.put("componentType", (long) componentType);
+    accessor.put("normalized", Boolean.TRUE);
+    // min/max are only required for POSITION, which is never quantized.
+    accessor.remove("min");
+    accessor.remove("max");
+  }
+
+  private void addExtension(String key) {
+    List<Object> extensions = list(mRoot, key);
+    if (!extensions.contains(QUANTIZATION_EXTENSION)) extensions.add(QUANTIZATION_EXTENSION);
+    mRoot.put(key, extensions);
+  }
+
+  // --- 5. Buffer repacking ---
+
+  private byte[] repackBuffer() {
+    List<Object> views = list(mRoot, "bufferViews");
+    boolean[] used = new boolean[views.size()];
+    forEachBufferViewRef((holder, key) -> used[intOf(holder.get(key))] = true);
+    int[] remap = compact(mRoot, "bufferViews", used);
+    forEachBufferViewRef((holder, key) -> remapIndex(holder, key, remap));
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    for (Object viewObj : list(mRoot, "bufferViews")) {
+      Map<String, Object> view = asMap(viewObj);
+      while (out.size() % 4 != 0) out.write(0);
+      int length = intOf(view.get("byteLength"));
+      Object pending = view.remove(PENDING_KEY);
+      if (pending != null) {
+        out.write(mPendingViewData.get(intOf(pending)), 0, length);
+      } else {
+        out.write(mBin, intOrZero(view, "byteOffset"), length);
+      }
+      view.put("byteOffset", (long) (out.size() - length));
+      view.put("buffer", 0L);
+    }
+    byte[] bin = padded(out.toByteArray(), (byte) 0);
+    if (bin.length == 0) {
+      mRoot.remove("buffers");
+    } else {
+      Map<String, Object> buffer = new LinkedHashMap<>();
+      buffer.put("byteLength", (long) bin.length);
+      List<Object> buffers = new ArrayList<>();
+      buffers.add(buffer);
+      mRoot.put("buffers", buffers);
+    }
+    return bin;
+  }
+
+  private static byte[] assembleGlb(byte[] json, byte[] bin) {
+    int length = 12 + 8 + json.length + (bin.length > 0 ? 8 + bin.length : 0);
+    ByteBuffer out = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+    out.putInt(GLB_MAGIC).putInt(2).putInt(length);
+    out.putInt(json.length).putInt(CHUNK_JSON).put(json);
+    if (bin.length > 0) {
+      out.putInt(bin.length).putInt(CHUNK_BIN).put(bin);
+    }
+    return out.array();
+  }
+
+  // --- 6. Sidecar ---
+
+  /**
+   * sidecar 格式见 app 中的 ModelSidecar。包围盒表留空：运行时从 gltfio 读取并写入磁盘缓存。
+   */
+  private byte[] buildSidecar(byte[] json) throws IOException {
+    CRC32 crc = new CRC32();
+    crc.update(json, 0, json.length);
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(bytes);
+    out.writeInt(SIDECAR_MAGIC);
+    out.writeInt(SIDECAR_VERSION);
+    out.writeInt((int) crc.getValue());
+    out.writeInt(blendshapeListHash());
+
+    List<Object> nodes = list(mRoot, "nodes");
+    List<Map<String, Object>> named = new ArrayList<>();
+    Set<String> seen = new HashSet<>();
+    for (Object nodeObj : nodes) {
+      Map<String, Object> node = asMap(nodeObj);
+      Object name = node.get("name");
+      // First node wins for duplicate names, as in the runtime EntityIndex.
+      if (name instanceof String && !((String) name).isEmpty() && seen.add((String) name)) named.add(node);
+    }
+    out.writeInt(named.size());
+    for (Map<String, Object> node : named) {
+      writeString(out, (String) node.get("name"));
+      for (float v : localTransform(node)) out.writeFloat(v);
+    }
+
+    List<Object> meshes = list(mRoot, "meshes");
+    List<Map<String, Object>> morphNodes = new ArrayList<>();
+    for (Map<String, Object> node : named) {
+      if (!node.containsKey("mesh")) continue;
+      List<Object> prims = list(asMap(meshes.get(intOf(node.get("mesh")))), "primitives");
+      if (!prims.isEmpty() && !list(asMap(prims.get(0)), "targets").isEmpty()) morphNodes.add(node);
+    }
+    out.writeInt(morphNodes.size());
+    for (Map<String, Object> node : morphNodes) {
+      Map<String, Object> mesh = asMap(meshes.get(intOf(node.get("mesh"))));
+      int morphCount = list(asMap(list(mesh, "primitives").get(0)), "targets").size();
+      List<Object> names = list(asMap(mesh.get("extras")), "targetNames");
+      writeString(out, (String) node.get("name"));
+      out.writeInt(morphCount);
+      for (int t = 0; t < morphCount; t++) {
+        String morphName = t < names.size() && names.get(t) instanceof String ? (String) names.get(t) : "";
+        writeString(out, morphName);
+        out.writeInt(MEDIAPIPE_BLENDSHAPES.indexOf(morphName));
+      }
+    }
+    out.writeInt(0); // bounds
+    out.writeInt(0); // entity names: gltfio decides the entity order at load time
+    out.flush();
+    mSummary.append(", sidecar ").append(named.size()).append(" transforms / ").append(morphNodes.size()).append(" morph entities");
+    return bytes.toByteArray();
+  }
+
+  private static void writeString(DataOutputStream out, String s) throws IOException {
+    byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+    if (bytes.length > 0xFFFF) throw new IOException("Name too long: " + s);
+    out.writeShort(bytes.length);
+    out.write(bytes);
+  }
+
+  /**
+   * 节点的局部变换（列主序），matrix 优先，否则按 T * R * S 组合。
+   */
+  static float[] localTransform(Map<String, Object> node) {
+    float[] m = new float[16];
+    List<Object> matrix = list(node, "matrix");
+    if (matrix.size() == 16) {
+      for (int i = 0; i < 16; i++) m[i] = floatOf(matrix.get(i));
+      return m;
+    }
+    float[] t = floats(list(node, "translation"), new float[]{0, 0, 0});
+    float[] r = floats(list(node, "rotation"), new float[]{0, 0, 0, 1});
+    float[] s = floats(list(node, "scale"), new float[]{1, 1, 1});
+    float x = r[0], y = r[1], z = r[2], w = r[3];
+    m[0] = (1 - 2 * (y * y + z * z)) * s[0];
+    m[1] = (2 * (x * y + z * w)) * s[0];
+    m[2] = (2 * (x * z - y * w)) * s[0];
+    m[4] = (2 * (x * y - z * w)) * s[1];
+    m[5] = (1 - 2 * (x * x + z * z)) * s[1];
+    m[6] = (2 * (y * z + x * w)) * s[1];
+    m[8] = (2 * (x * z + y * w)) * s[2];
+    m[9] = (2 * (y * z - x * w)) * s[2];
+    m[10] = (1 - 2 * (x * x + y * y)) * s[2];
+    m[12] = t[0];
+    m[13] = t[1];
+    m[14] = t[2];
+    m[15] = 1;
+    return m;
+  }
+
+  // --- Reference traversal ---
+
+  private interface PrimitiveVisitor {
+    void visit(Map<String, Object> primitive);
+  }
+
+  private void forEachPrimitive(PrimitiveVisitor visitor) {
+    for (Object meshObj : list(mRoot, "meshes")) {
+      for (Object primObj : list(asMap(meshObj), "primitives")) {
+        visitor.visit(asMap(primObj));
+      }
+    }
+  }
+
+  /**
+   * 材质中所有 textureInfo（键名以 "Texture" 结尾、带 index 的对象），包括扩展中的。
+   */
+  private static void forEachTextureRef(Object value, RefVisitor visitor) {
+    if (value instanceof Map) {
+      for (Map.Entry<String, Object> e : asMap(value).entrySet()) {
+        Map<String, Object> child = e.getValue() instanceof Map ? asMap(e.getValue()) : null;
+        if (child != null && e.getKey().endsWith("Texture") && child.containsKey("index")) {
+          visitor.visit(child, "index");
+        }
+        forEachTextureRef(e.getValue(), visitor);
+      }
+    } else if (value instanceof List) {
+      for (Object item : (List<?>) value) forEachTextureRef(item, visitor);
+    }
+  }
+
+  private void forEachImageRef(RefVisitor visitor) {
+    for (Object textureObj : list(mRoot, "textures")) {
+      Map<String, Object> texture = asMap(textureObj);
+      if (texture.containsKey("source")) visitor.visit(texture, "source");
+      Map<String, Object> extensions = asMap(texture.get("extensions"));
+      if (extensions == null) continue;
+      for (Object extObj : extensions.values()) {
+        Map<String, Object> ext = asMap(extObj);
+        if (ext != null && ext.containsKey("source")) visitor.visit(ext, "source");
+      }
+    }
+  }
+
+  private void forEachAccessorRef(RefVisitor visitor) {
+    forEachPrimitive(prim -> {
+      Map<String, Object> attributes = asMap(prim.get("attributes"));
+      for (String key : new ArrayList<>(attributes.keySet())) visitor.visit(attributes, key);
+      if (prim.containsKey("indices")) visitor.visit(prim, "indices");
+      for (Object targetObj : list(prim, "targets")) {
+        Map<String, Object> target = asMap(targetObj);
+        for (String key : new ArrayList<>(target.keySet())) visitor.visit(target, key);
+      }
+    });
+    for (Object skinObj : list(mRoot, "skins")) {
+      Map<String, Object> skin = asMap(skinObj);
+      if (skin.containsKey("inverseBindMatrices")) visitor.visit(skin, "inverseBindMatrices");
+    }
+    for (Object animObj : list(mRoot, "animations")) {
+      for (Object samplerObj : list(asMap(animObj), "samplers")) {
+        Map<String, Object> sampler = asMap(samplerObj);
+        visitor.visit(sampler, "input");
+        visitor.visit(sampler, "output");
+      }
+    }
+  }
+
+  private void forEachBufferViewRef(RefVisitor visitor) {
+    for (Object accessorObj : list(mRoot, "accessors")) {
+      Map<String, Object> accessor = asMap(accessorObj);
+      if (accessor.containsKey("bufferView")) visitor.visit(accessor, "bufferView");
+      Map<String, Object> sparse = asMap(accessor.get("sparse"));
+      if (sparse != null) {
+        visitor.visit(asMap(sparse.get("indices")), "bufferView");
+        visitor.visit(asMap(sparse.get("values")), "bufferView");
+      }
+    }
+    for (Object imageObj : list(mRoot, "images")) {
+      Map<String, Object> image = asMap(imageObj);
+      if (image.containsKey("bufferView")) visitor.visit(image, "bufferView");
+    }
+  }
+
+  // --- Helpers ---
+
+  /**
+   * 只保留 used 为 true 的元素，返回旧下标 → 新下标（被删除为 -1）。列表为空时删除该键。
+   */
+  private static int[] compact(Map<String, Object> root, String key, boolean[] used) {
+    List<Object> items = list(root, key);
+    int[] remap = new int[items.size()];
+    List<Object> kept = new ArrayList<>();
+    for (int i = 0; i < items.size(); i++) {
+      if (used[i]) {
+        remap[i] = kept.size();
+        kept.add(items.get(i));
+      } else {
+        remap[i] = -1;
+      }
+    }
+    if (kept.isEmpty()) {
+      root.remove(key);
+    } else {
+      root.put(key, kept);
+    }
+    return remap;
+  }
+
+  private static void remapIndex(Map<String, Object> holder, String key, int[] remap) {
+    if (holder == null || !holder.containsKey(key)) return;
+    int mapped = remap[intOf(holder.get(key))];
+    if (mapped < 0) {
+      holder.remove(key);
+    } else {
+      holder.put(key, (long) mapped);
+    }
+  }
+
+  private static void remapIndexList(Map<String, Object> holder, String key, int[] remap) {
+    List<Object> indices = list(holder, key);
+    if (indices.isEmpty()) return;
+    List<Object> mapped = new ArrayList<>();
+    for (Object index : indices) {
+      int m = remap[intOf(index)];
+      if (m >= 0) mapped.add((long) m);
+    }
+    if (mapped.isEmpty()) {
+      holder.remove(key);
+    } else {
+      holder.put(key, mapped);
+    }
+  }
+
+  private static void filterList(Map<String, Object> holder, String key, boolean[] keep) {
+    List<Object> items = list(holder, key);
+    if (items.size() != keep.length) return;
+    List<Object> kept = new ArrayList<>();
+    for (int i = 0; i < items.size(); i++) {
+      if (keep[i]) kept.add(items.get(i));
+    }
+    if (kept.isEmpty()) {
+      holder.remove(key);
+    } else {
+      holder.put(key, kept);
+    }
+  }
+
+  private static boolean[] invert(boolean[] flags) {
+    boolean[] inverted = new boolean[flags.length];
+    for (int i = 0; i < flags.length; i++) inverted[i] = !flags[i];
+    return inverted;
+  }
+
+  private static byte[] padded(byte[] data, byte pad) {
+    if (data.length % 4 == 0) return data;
+    byte[] out = Arrays.copyOf(data, (data.length + 3) & ~3);
+    Arrays.fill(out, data.length, out.length, pad);
+    return out;
+  }
+
+  @SuppressWarnings("unchecked")
+  private static Map<String, Object> asMap(Object value) {
+    return value instanceof Map ? (Map<String, Object>) value : null;
+  }
+
+  @SuppressWarnings("unchecked")
+  private static List<Object> list(Map<String, Object> holder, String key) {
+    Object value = holder == null ? null : holder.get(key);
+    return value instanceof List ? (List<Object>) value : new ArrayList<>();
+  }
+
+  private static int intOf(Object value) {
+    return ((Number) value).intValue();
+  }
+
+  private static int intOrZero(Map<String, Object> holder, String key) {
+    Object value = holder.get(key);
+    return value == null ? 0 : intOf(value);
+  }
+
+  private static float floatOf(Object value) {
+    return ((Number) value).floatValue();
+  }
+
+  private static float[] floats(List<Object> values, float[] defaults) {
+    if (values.size() != defaults.length) return defaults;
+    float[] out = new float[defaults.length];
+    for (int i = 0; i < out.length; i++) out[i] = floatOf(values.get(i));
+    return out;
+  }
+}
@@ -0,0 +1,262 @@
+package com.example.filament_android_demo.buildtools;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * glTF JSON 的最小读写实现：对象为保持键顺序的 LinkedHashMap，数组为 ArrayList，
+ * 整数读成 Long，其余数字读成 Double。只用于构建期的模型预处理，不依赖任何第三方库。
+ */
+final class Json {
+  private final String mText;
+  private int mPos;
+
+  private Json(String text) {
+    mText = text;
+  }
+
+  static Object parse(String text) {
+    Json json = new Json(text);
+    json.skipWhitespace();
+    Object value = json.readValue();
+    json.skipWhitespace();
+    if (json.mPos != text.length()) {
+      throw json.error("Trailing characters");
+    }
+    return value;
+  }
+
+  static String write(Object value) {
+    StringBuilder out = new StringBuilder();
+    writeValue(out, value);
+    return out.toString();
+  }
+
+  private Object readValue() {
+    if (mPos >= mText.length()) throw error("Unexpected end of input");
+    char c = mText.charAt(mPos);
+    switch (c) {
+      case '{':
+        return readObject();
+      case '[':
+        return readArray();
+      case '"':
+        return readString();
+      case 't':
+        expect("true");
+        return Boolean.TRUE;
+      case 'f':
+        expect("false");
+        return Boolean.FALSE;
+      case 'n':
+        expect("null");
+        return null;
+      default:
+        return readNumber();
+    }
+  }
+
+  private Map<String, Object> readObject() {
+    Map<String, Object> map = new LinkedHashMap<>();
+    mPos++; // {
+    skipWhitespace();
+    if (peek() == '}') {
+      mPos++;
+      return map;
+    }
+    while (true) {
+      skipWhitespace();
+      if (peek() != '"') throw error("Expected object key");
+      String key = readString();
+      skipWhitespace();
+      if (peek() != ':') throw error("Expected ':'");
+      mPos++;
+      skipWhitespace();
+      map.put(key, readValue());
+      skipWhitespace();
+      char c = peek();
+      mPos++;
+      if (c == '}') return map;
+      if (c != ',') throw error("Expected ',' or '}'");
+    }
+  }
+
+  private List<Object> readArray() {
+    List<Object> list = new ArrayList<>();
+    mPos++; // [
+    skipWhitespace();
+    if (peek() == ']') {
+      mPos++;
+      return list;
+    }
+    while (true) {
+      skipWhitespace();
+      list.add(readValue());
+      skipWhitespace();
+      char c = peek();
+      mPos++;
+      if (c == ']') return list;
+      if (c != ',') throw error("Expected ',' or ']'");
+    }
+  }
+
+  private String readString() {
+    mPos++; // opening quote
+    StringBuilder sb = new StringBuilder();
+    while (true) {
+      if (mPos >= mText.length()) throw error("Unterminated string");
+      char c = mText.charAt(mPos++);
+      if (c == '"') return sb.toString();
+      if (c != '\\') {
+        sb.append(c);
+        continue;
+      }
+      char e = mText.charAt(mPos++);
+      switch (e) {
+        case '"':
+        case '\\':
+        case '/':
+          sb.append(e);
+          break;
+        case 'b':
+          sb.append('\b');
+          break;
+        case 'f':
+          sb.append('\f');
+          break;
+        case 'n':
+          sb.append('\n');
+          break;
+        case 'r':
+          sb.append('\r');
+          break;
+        case 't':
+          sb.append('\t');
+          break;
+        case 'u':
+          sb.append((char) Integer.parseInt(mText.substring(mPos, mPos + 4), 16));
+          mPos += 4;
+          break;
+        default:
+          throw error("Bad escape '\\" + e + "'");
+      }
+    }
+  }
+
+  private Object readNumber() {
+    int start = mPos;
+    boolean integral = true;
+    while (mPos < mText.length()) {
+      char c = mText.charAt(mPos);
+      if (c == '.' || c == 'e' || c == 'E') {
+        integral = false;
+      } else if (!(c == '-' || c == '+' || (c >= '0' && c <= '9'))) {
+        break;
+      }
+      mPos++;
+    }
+    if (start == mPos) throw error("Unexpected character '" + mText.charAt(mPos) + "'");
+    String number = mText.substring(start, mPos);
+    if (integral) {
+      try {
+        return Long.parseLong(number);
+      } catch (NumberFormatException ignored) {
+        // Out of long range: fall through to double.
+      }
+    }
+    return Double.parseDouble(number);
+  }
+
+  private void expect(String literal) {
+    if (!mText.startsWith(literal, mPos)) throw error("Expected '" + literal + "'");
+    mPos += literal.length();
+  }
+
+  private char peek() {
+    if (mPos >= mText.length()) throw error("Unexpected end of input");
+    return mText.charAt(mPos);
+  }
+
+  private void skipWhitespace() {
+    while (mPos < mText.length()) {
+      char c = mText.charAt(mPos);
+      if (c != ' ' && c != '\t' && c != '\n' && c != '\r') return;
+      mPos++;
+    }
+  }
+
+  private IllegalArgumentException error(String message) {
+    return new IllegalArgumentException(message + " at offset " + mPos);
+  }
+
+  @SuppressWarnings("unchecked")
+  private static void writeValue(StringBuilder out, Object value) {
+    if (value == null) {
+      out.append("null");
+    } else if (value instanceof Map) {
+      out.append('{');
+      boolean first = true;
+      for (Map.Entry<String, Object> e : ((Map<String, Object>) value).entrySet()) {
+        if (!first) out.append(',');
+        first = false;
+        writeString(out, e.getKey());
+        out.append(':');
+        writeValue(out, e.getValue());
+      }
+      out.append('}');
+    } else if (value instanceof List) {
+      out.append('[');
+      boolean first = true;
+      for (Object item : (List<Object>) value) {
+        if (!first) out.append(',');
+        first = false;
+        writeValue(out, item);
+      }
+      out.append(']');
+    } else if (value instanceof String) {
+      writeString(out, (String) value);
+    } else if (value instanceof Double || value instanceof Float) {
+      double d = ((Number) value).doubleValue();
+      if (d == Math.rint(d) && Math.abs(d) < 1e15) {
+        out.append((long) d).append(".0");
+      } else {
+        out.append(d);
+      }
+    } else {
+      out.append(value); // Long, Integer, Boolean
+    }
+  }
+
+  private static void writeString(StringBuilder out, String s) {
+    out.append('"');
+    for (int i = 0; i < s.length(); i++) {
+      char c = s.charAt(i);
+      switch (c) {
+        case '"':
+          out.append("\\\"");
+          break;
+        case '\\':
+          out.append("\\\\");
+          break;
+        case '\n':
+          out.append("\\n");
+          break;
+        case '\r':
+          out.append("\\r");
+          break;
+        case '\t':
+          out.append("\\t");
+          break;
+        default:
+          if (c < 0x20) {
+            out.append(String.format("\\u%04x", (int) c));
+          } else {
+            out.append(c);
+          }
+      }
+    }
+    out.append('"');
+  }
+}
@@ -0,0 +1,93 @@
+package com.example.filament_android_demo.buildtools;
+
+import org.gradle.api.DefaultTask;
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.provider.ListProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.CacheableTask;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.InputFiles;
+import org.gradle.api.tasks.OutputDirectory;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
+import org.gradle.api.tasks.TaskAction;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 把完整的 .glb 预处理成只含头部的精简模型和 sidecar，输出到一个 assets 目录：
+ * {@code <outputName>} 和 {@code <outputName>.sidecar}。
+ * <p>
+ * 源模型不存在时只打印警告并清空输出目录，应用照常使用 src/main/assets 中已有的模型。
+ */
+@CacheableTask
+public abstract class PreprocessGlbTask extends DefaultTask {
+
+  // Declared as a file collection so that a missing source model is not a validation error.
+  @InputFiles
+  @PathSensitive(PathSensitivity.NONE)
+  public abstract ConfigurableFileCollection getSourceModel();
+
+  @Input
+  public abstract Property<String> getOutputName();
+
+  // 保留的网格节点名称；为空表示全部保留
+  @Input
+  public abstract ListProperty<String> getKeepNodes();
+
+  // 保留的 morph target 名称；为空表示全部保留
+  @Input
+  public abstract ListProperty<String> getKeepMorphTargets();
+
+  @Input
+  public abstract Property<Boolean> getQuantize();
+
+  @OutputDirectory
+  public abstract DirectoryProperty getOutputDir();
+
+  public PreprocessGlbTask() {
+    getKeepMorphTargets().convention(GlbPreprocessor.MEDIAPIPE_BLENDSHAPES);
+    getQuantize().convention(true);
+  }
+
+  @TaskAction
+  public void preprocess() throws IOException {
+    File outputDir = getOutputDir().get().getAsFile();
+    File[] stale = outputDir.listFiles();
+    if (stale != null) {
+      for (File file : stale) Files.delete(file.toPath());
+    }
+
+    File source = null;
+    for (File candidate : getSourceModel().getFiles()) {
+      if (candidate.isFile()) {
+        source = candidate;
+        break;
+      }
+    }
+    if (source == null) {
+      getLogger().warn("preprocessGlb: source model " + getSourceModel().getFiles()
+        + " not found, skipping. The app falls back to the model in src/main/assets.");
+      return;
+    }
+
+    GlbPreprocessor.Options options = new GlbPreprocessor.Options(
+      toSetOrNull(getKeepNodes().get()), toSetOrNull(getKeepMorphTargets().get()), getQuantize().get());
+    GlbPreprocessor.Result result = GlbPreprocessor.process(Files.readAllBytes(source.toPath()), options);
+
+    String name = getOutputName().get();
+    Files.write(new File(outputDir, name).toPath(), result.glb);
+    Files.write(new File(outputDir, name + ".sidecar").toPath(), result.sidecar);
+    getLogger().lifecycle("preprocessGlb: " + source.getName() + " -> " + name + ": " + result.summary);
+  }
+
+  private static Set<String> toSetOrNull(List<String> names) {
+    return names.isEmpty() ? null : new HashSet<>(names);
+  }
+}
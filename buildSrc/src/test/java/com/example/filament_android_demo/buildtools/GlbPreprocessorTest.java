@@ -0,0 +1,341 @@
+package com.example.filament_android_demo.buildtools;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 用一个合成的 glb 检查预处理的各个步骤：节点裁剪、morph target 筛选、KHR_mesh_quantization 量化，以及 sidecar 的格式。
+ * <p>
+ * 合成模型：Root（平移 (1, 2, 3)，子节点 Head 和 Body）；Head 的网格带 jawOpen、customTarget、eyeBlinkLeft 三个 morph target，
+ * 有 POSITION/NORMAL/TEXCOORD_0；Body 的网格使用一张带纹理的材质。
+ */
+public class GlbPreprocessorTest {
+  private static final float[] POSITIONS = {0, 0, 0, 1, 0, 0, 0, 1, 0};
+  private static final float[] NORMALS = {0, 0, 1, 0.6f, 0, 0.8f, -0.6f, 0, -0.8f};
+  private static final float[] TEXCOORDS = {0, 0, 1, 0, 0.25f, 0.75f};
+  private static final float[] TARGET_DELTAS = {0, 0, 0.1f, 0, 0, 0.2f, 0, 0, 0.3f};
+  private static final String[] TARGET_NAMES = {"jawOpen", "customTarget", "eyeBlinkLeft"};
+
+  @Test
+  public void stripsNodesOutsideTheKeepList() throws IOException {
+    Map<String, Object> json = jsonOf(process(options(false)).glb);
+
+    List<Object> nodes = list(json, "nodes");
+    assertEquals(2, nodes.size());
+    assertEquals("Root", map(nodes.get(0)).get("name"));
+    assertEquals("Head", map(nodes.get(1)).get("name"));
+    assertEquals(Collections.singletonList(1L), list(map(nodes.get(0)), "children"));
+    assertEquals(Collections.singletonList(0L), list(map(list(json, "scenes").get(0)), "nodes"));
+    // Body's mesh, its material and the texture/image/sampler only it used are collected.
+    assertEquals(1, list(json, "meshes").size());
+    assertEquals(1, list(json, "materials").size());
+    assertFalse(json.containsKey("textures"));
+    assertFalse(json.containsKey("images"));
+    assertFalse(json.containsKey("samplers"));
+    assertEquals(0L, primitive(json).get("material"));
+  }
+
+  @Test
+  public void prunesMorphTargetsThatAreNotBlendshapes() throws IOException {
+    byte[] glb = process(options(false)).glb;
+    Map<String, Object> json = jsonOf(glb);
+
+    Map<String, Object> mesh = map(list(json, "meshes").get(0));
+    assertEquals(Arrays.asList("jawOpen", "eyeBlinkLeft"), list(map(mesh.get("extras")), "targetNames"));
+    assertEquals(Arrays.asList(0.5, 0.25), list(mesh, "weights"));
+    List<Object> targets = list(primitive(json), "targets");
+    assertEquals(2, targets.size());
+    // The remaining targets still point at the right deltas after accessor compaction.
+    assertArrayEquals(TARGET_DELTAS, readFloatAccessor(glb, json, intOf(map(targets.get(0)).get("POSITION"))), 0f);
+    float[] eyeBlink = readFloatAccessor(glb, json, intOf(map(targets.get(1)).get("POSITION")));
+    assertEquals(TARGET_DELTAS[8] * 3, eyeBlink[8], 1e-6f);
+  }
+
+  @Test
+  public void quantizesNormalsAndTexcoordsWithinBounds() throws IOException {
+    byte[] glb = process(options(true)).glb;
+    Map<String, Object> json = jsonOf(glb);
+
+    assertTrue(list(json, "extensionsUsed").contains("KHR_mesh_quantization"));
+    assertTrue(list(json, "extensionsRequired").contains("KHR_mesh_quantization"));
+
+    Map<String, Object> attributes = map(primitive(json).get("attributes"));
+    Map<String, Object> position = accessor(json, attributes.get("POSITION"));
+    assertEquals(5126L, position.get("componentType"));
+    assertEquals(Arrays.asList(0.0, 0.0, 0.0), position.get("min"));
+    assertEquals(Arrays.asList(1.0, 1.0, 0.0), position.get("max"));
+
+    Map<String, Object> normal = accessor(json, attributes.get("NORMAL"));
+    assertEquals(5120L, normal.get("componentType"));
+    assertEquals(Boolean.TRUE, normal.get("normalized"));
+    assertFalse(normal.containsKey("min"));
+    float[] normals = readNormalized(glb, json, normal, 3, true);
+    for (int i = 0; i < NORMALS.length; i++) {
+      assertTrue(Math.abs(normals[i]) <= 1.0f);
+      assertEquals(NORMALS[i], normals[i], 0.5f / 127);
+    }
+
+    Map<String, Object> texcoord = accessor(json, attributes.get("TEXCOORD_0"));
+    assertEquals(5123L, texcoord.get("componentType"));
+    float[] texcoords = readNormalized(glb, json, texcoord, 2, false);
+    for (int i = 0; i < TEXCOORDS.length; i++) {
+      assertTrue(texcoords[i] >= 0.0f && texcoords[i] <= 1.0f);
+      assertEquals(TEXCOORDS[i], texcoords[i], 0.5f / 65535);
+    }
+  }
+
+  @Test
+  public void leavesTheModelUntouchedWithoutQuantization() throws IOException {
+    Map<String, Object> json = jsonOf(process(options(false)).glb);
+
+    assertFalse(json.containsKey("extensionsRequired"));
+    Map<String, Object> normal = accessor(json, map(primitive(json).get("attributes")).get("NORMAL"));
+    assertEquals(5126L, normal.get("componentType"));
+  }
+
+  @Test
+  public void sidecarDescribesTheProcessedModel() throws IOException {
+    GlbPreprocessor.Result result = process(options(true));
+    ByteBuffer in = ByteBuffer.wrap(result.sidecar); // Big-endian, as ModelSidecar reads it
+
+    assertEquals(GlbPreprocessor.SIDECAR_MAGIC, in.getInt());
+    assertEquals(GlbPreprocessor.SIDECAR_VERSION, in.getInt());
+    assertEquals(jsonChunkCrc(result.glb), in.getInt());
+    assertEquals(GlbPreprocessor.blendshapeListHash(), in.getInt());
+
+    Map<String, float[]> transforms = new LinkedHashMap<>();
+    int nodeCount = in.getInt();
+    for (int i = 0; i < nodeCount; i++) {
+      String name = readString(in);
+      float[] m = new float[16];
+      for (int k = 0; k < 16; k++) m[k] = in.getFloat();
+      transforms.put(name, m);
+    }
+    assertEquals(new HashSet<>(Arrays.asList("Root", "Head")), transforms.keySet());
+    assertArrayEquals(new float[]{1, 0, 0, 0, 0, 1, 0, 0, 0, 0, 1, 0, 1, 2, 3, 1}, transforms.get("Root"), 1e-6f);
+
+    assertEquals(1, in.getInt());
+    assertEquals("Head", readString(in));
+    assertEquals(2, in.getInt());
+    assertEquals("jawOpen", readString(in));
+    assertEquals(GlbPreprocessor.MEDIAPIPE_BLENDSHAPES.indexOf("jawOpen"), in.getInt());
+    assertEquals("eyeBlinkLeft", readString(in));
+    assertEquals(GlbPreprocessor.MEDIAPIPE_BLENDSHAPES.indexOf("eyeBlinkLeft"), in.getInt());
+
+    assertEquals(0, in.getInt()); // Bounds are filled in at runtime
+    assertEquals(0, in.getInt()); // So are the entity names
+    assertFalse(in.hasRemaining());
+  }
+
+  @Test(expected = IOException.class)
+  public void rejectsInputThatIsNotAGlb() throws IOException {
+    GlbPreprocessor.process("{\"asset\":{}}".getBytes(StandardCharsets.UTF_8), options(false));
+  }
+
+  // --- Synthetic model ---
+
+  private static GlbPreprocessor.Options options(boolean quantize) {
+    return new GlbPreprocessor.Options(Collections.singleton("Head"),
+      new HashSet<>(GlbPreprocessor.MEDIAPIPE_BLENDSHAPES), quantize);
+  }
+
+  private static GlbPreprocessor.Result process(GlbPreprocessor.Options options) throws IOException {
+    return GlbPreprocessor.process(syntheticGlb(), options);
+  }
+
+  private static byte[] syntheticGlb() {
+    ByteBuffer bin = ByteBuffer.allocate(4 * (POSITIONS.length * 2 + NORMALS.length + TEXCOORDS.length
+      + TARGET_DELTAS.length * TARGET_NAMES.length) + 4).order(ByteOrder.LITTLE_ENDIAN);
+    List<Object> views = new ArrayList<>();
+    List<Object> accessors = new ArrayList<>();
+    long positions = addFloatAccessor(bin, views, accessors, POSITIONS, "VEC3", true);
+    long normals = addFloatAccessor(bin, views, accessors, NORMALS, "VEC3", false);
+    long texcoords = addFloatAccessor(bin, views, accessors, TEXCOORDS, "VEC2", false);
+    List<Object> targets = new ArrayList<>();
+    for (int t = 0; t < TARGET_NAMES.length; t++) {
+      float[] delta = TARGET_DELTAS.clone();
+      for (int i = 0; i < delta.length; i++) delta[i] *= t + 1;
+      targets.add(obj("POSITION", addFloatAccessor(bin, views, accessors, delta, "VEC3", true)));
+    }
+    long bodyPositions = addFloatAccessor(bin, views, accessors, POSITIONS, "VEC3", true);
+    int imageOffset = bin.position();
+    bin.putInt(0x474E5089); // PNG signature start; the image is never decoded
+    views.add(obj("buffer", 0L, "byteOffset", (long) imageOffset, "byteLength", 4L));
+
+    Map<String, Object> root = new LinkedHashMap<>();
+    root.put("asset", obj("version", "2.0"));
+    root.put("scene", 0L);
+    root.put("scenes", listOf(obj("nodes", listOf(0L))));
+    root.put("nodes", listOf(
+      obj("name", "Root", "children", listOf(1L, 2L), "translation", listOf(1.0, 2.0, 3.0)),
+      obj("name", "Head", "mesh", 0L),
+      obj("name", "Body", "mesh", 1L)));
+    root.put("meshes", listOf(
+      obj("primitives", listOf(obj("attributes", obj("POSITION", positions, "NORMAL", normals, "TEXCOORD_0", texcoords),
+          "targets", targets, "material", 0L)),
+        "weights", listOf(0.5, 0.0, 0.25),
+        "extras", obj("targetNames", listOf((Object[]) TARGET_NAMES))),
+      obj("primitives", listOf(obj("attributes", obj("POSITION", bodyPositions), "material", 1L)))));
+    root.put("materials", listOf(
+      obj("name", "HeadMaterial"),
+      obj("name", "BodyMaterial", "pbrMetallicRoughness", obj("baseColorTexture", obj("index", 0L)))));
+    root.put("textures", listOf(obj("source", 0L, "sampler", 0L)));
+    root.put("images", listOf(obj("bufferView", (long) (views.size() - 1), "mimeType", "image/png")));
+    root.put("samplers", listOf(obj("magFilter", 9729L)));
+    root.put("accessors", accessors);
+    root.put("bufferViews", views);
+    root.put("buffers", listOf(obj("byteLength", (long) bin.capacity())));
+
+    byte[] json = pad(Json.write(root).getBytes(StandardCharsets.UTF_8), (byte) ' ');
+    byte[] binBytes = pad(bin.array(), (byte) 0);
+    ByteBuffer glb = ByteBuffer.allocate(12 + 8 + json.length + 8 + binBytes.length).order(ByteOrder.LITTLE_ENDIAN);
+    glb.putInt(0x46546C67).putInt(2).putInt(glb.capacity());
+    glb.putInt(json.length).putInt(0x4E4F534A).put(json);
+    glb.putInt(binBytes.length).putInt(0x004E4942).put(binBytes);
+    return glb.array();
+  }
+
+  private static long addFloatAccessor(ByteBuffer bin, List<Object> views, List<Object> accessors, float[] values,
+                                       String type, boolean withBounds) {
+    int components = type.equals("VEC2") ? 2 : 3;
+    int offset = bin.position();
+    for (float v : values) bin.putFloat(v);
+    views.add(obj("buffer", 0L, "byteOffset", (long) offset, "byteLength", (long) values.length * 4));
+    Map<String, Object> accessor = obj("bufferView", (long) (views.size() - 1), "componentType", 5126L,
+      "count", (long) (values.length / components), "type", type);
+    if (withBounds) {
+      List<Object> min = new ArrayList<>();
+      List<Object> max = new ArrayList<>();
+      for (int c = 0; c < components; c++) {
+        double lo = Double.MAX_VALUE;
+        double hi = -Double.MAX_VALUE;
+        for (int i = c; i < values.length; i += components) {
+          lo = Math.min(lo, values[i]);
+          hi = Math.max(hi, values[i]);
+        }
+        min.add(lo);
+        max.add(hi);
+      }
+      accessor.put("min", min);
+      accessor.put("max", max);
+    }
+    accessors.add(accessor);
+    return accessors.size() - 1;
+  }
+
+  // --- Reading the output ---
+
+  private static Map<String, Object> jsonOf(byte[] glb) {
+    ByteBuffer in = ByteBuffer.wrap(glb).order(ByteOrder.LITTLE_ENDIAN);
+    assertEquals(glb.length, in.getInt(8));
+    int jsonLength = in.getInt(12);
+    assertEquals(0, jsonLength % 4);
+    return map(Json.parse(new String(glb, 20, jsonLength, StandardCharsets.UTF_8).trim()));
+  }
+
+  private static ByteBuffer binOf(byte[] glb) {
+    ByteBuffer in = ByteBuffer.wrap(glb).order(ByteOrder.LITTLE_ENDIAN);
+    int binHeader = 20 + in.getInt(12);
+    assertEquals(0x004E4942, in.getInt(binHeader + 4));
+    return ByteBuffer.wrap(glb, binHeader + 8, in.getInt(binHeader)).slice().order(ByteOrder.LITTLE_ENDIAN);
+  }
+
+  private static int jsonChunkCrc(byte[] glb) {
+    CRC32 crc = new CRC32();
+    crc.update(glb, 20, ByteBuffer.wrap(glb).order(ByteOrder.LITTLE_ENDIAN).getInt(12));
+    return (int) crc.getValue();
+  }
+
+  private static Map<String, Object> primitive(Map<String, Object> json) {
+    return map(list(map(list(json, "meshes").get(0)), "primitives").get(0));
+  }
+
+  private static Map<String, Object> accessor(Map<String, Object> json, Object index) {
+    return map(list(json, "accessors").get(intOf(index)));
+  }
+
+  private static float[] readFloatAccessor(byte[] glb, Map<String, Object> json, int index) {
+    Map<String, Object> accessor = accessor(json, index);
+    Map<String, Object> view = map(list(json, "bufferViews").get(intOf(accessor.get("bufferView"))));
+    int count = intOf(accessor.get("count")) * 3;
+    ByteBuffer bin = binOf(glb);
+    float[] values = new float[count];
+    for (int i = 0; i < count; i++) values[i] = bin.getFloat(intOf(view.get("byteOffset")) + i * 4);
+    return values;
+  }
+
+  private static float[] readNormalized(byte[] glb, Map<String, Object> json, Map<String, Object> accessor,
+                                        int components, boolean signedByte) {
+    Map<String, Object> view = map(list(json, "bufferViews").get(intOf(accessor.get("bufferView"))));
+    int stride = intOf(view.get("byteStride"));
+    int base = intOf(view.get("byteOffset"));
+    assertEquals(0, base % 4);
+    ByteBuffer bin = binOf(glb);
+    int count = intOf(accessor.get("count"));
+    float[] values = new float[count * components];
+    for (int i = 0; i < count; i++) {
+      for (int c = 0; c < components; c++) {
+        values[i * components + c] = signedByte
+          ? Math.max(bin.get(base + i * stride + c) / 127.0f, -1.0f)
+          : (bin.getShort(base + i * stride + c * 2) & 0xFFFF) / 65535.0f;
+      }
+    }
+    return values;
+  }
+
+  private static String readString(ByteBuffer in) {
+    byte[] bytes = new byte[in.getShort() & 0xFFFF];
+    in.get(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  // --- JSON helpers ---
+
+  private static Map<String, Object> obj(Object... keyValues) {
+    Map<String, Object> map = new LinkedHashMap<>();
+    for (int i = 0; i < keyValues.length; i += 2) map.put((String) keyValues[i], keyValues[i + 1]);
+    return map;
+  }
+
+  private static List<Object> listOf(Object... values) {
+    return new ArrayList<>(Arrays.asList(values));
+  }
+
+  @SuppressWarnings("unchecked")
+  private static Map<String, Object> map(Object value) {
+    return (Map<String, Object>) value;
+  }
+
+  @SuppressWarnings("unchecked")
+  private static List<Object> list(Map<String, Object> holder, String key) {
+    Object value = holder == null ? null : holder.get(key);
+    return value instanceof List ? (List<Object>) value : new ArrayList<>();
+  }
+
+  private static int intOf(Object value) {
+    return ((Number) value).intValue();
+  }
+
+  private static byte[] pad(byte[] data, byte pad) {
+    byte[] out = Arrays.copyOf(data, (data.length + 3) & ~3);
+    Arrays.fill(out, data.length, out.length, pad);
+    return out;
+  }
+}